@@ -41,11 +41,7 @@ import org.apache.lucene.analysis.WhitespaceTokenizer;
 import org.apache.lucene.analysis.WordlistLoader;
 import org.apache.lucene.util.Version;
 import org.sindice.siren.analysis.filter.AssignTokenTypeFilter;
-import org.sindice.siren.analysis.filter.MailtoFilter;
-import org.sindice.siren.analysis.filter.URIEncodingFilter;
-import org.sindice.siren.analysis.filter.URILocalnameFilter;
-import org.sindice.siren.analysis.filter.URINormalisationFilter;
-import org.sindice.siren.analysis.filter.URITrailingSlashFilter;
+import org.sindice.siren.analysis.filter.URIExpansionFilter;
 
 /**
  * Analyzer designed to deal with any kind of URIs and perform some post-processing
@@ -108,9 +104,7 @@ public class AnyURIAnalyzer extends Analyzer {
   @Override
   public final TokenStream tokenStream(final String fieldName, final Reader reader) {
     TokenStream result = new WhitespaceTokenizer(matchVersion, reader);
-    result = new URIEncodingFilter(result, "UTF-8");
-    result = this.applyURINormalisation(result);
-    result = new MailtoFilter(result);
+    result = new URIExpansionFilter(result, normalisationType);
     result = new LowerCaseFilter(matchVersion, result );
     result = new StopFilter(matchVersion, result, stopSet);
     result = new LengthFilter(true, result, 2, 256);
@@ -125,9 +119,7 @@ public class AnyURIAnalyzer extends Analyzer {
       streams = new SavedStreams();
       this.setPreviousTokenStream(streams);
       streams.tokenStream = new WhitespaceTokenizer(matchVersion, reader);
-      streams.filteredTokenStream = new URIEncodingFilter(streams.tokenStream, "UTF-8");
-      streams.filteredTokenStream = this.applyURINormalisation(streams.filteredTokenStream);
-      streams.filteredTokenStream = new MailtoFilter(streams.filteredTokenStream);
+      streams.filteredTokenStream = new URIExpansionFilter(streams.tokenStream, normalisationType);
       streams.filteredTokenStream = new LowerCaseFilter(matchVersion, streams.filteredTokenStream);
       streams.filteredTokenStream = new StopFilter(matchVersion, streams.filteredTokenStream, stopSet);
       streams.filteredTokenStream = new LengthFilter(true, streams.filteredTokenStream, 2, 256);
@@ -143,32 +135,4 @@ public class AnyURIAnalyzer extends Analyzer {
     TokenStream filteredTokenStream;
   }
 
-  /**
-   * Given the type of URI normalisation, apply the right sequence of operations
-   * and filters to the token stream.
-   */
-  private TokenStream applyURINormalisation(TokenStream in) {
-    switch (normalisationType) {
-      case NONE:
-        return new URITrailingSlashFilter(in, false); // don't check for token types
-
-      // here, trailing slash filter is after localname filtering, in order to
-      // avoid filtering subdirectory instead of localname
-      case LOCALNAME:
-        in = new URILocalnameFilter(in);
-        return new URITrailingSlashFilter(in, false); // don't check for token types
-
-      // here, trailing slash filter is before localname filtering, in order to
-      // avoid trailing slash checking on every tokens generated by the
-      // URI normalisation filter
-      case FULL:
-        in = new URITrailingSlashFilter(in, false); // don't check for token types
-        return new URINormalisationFilter(in);
-
-      default:
-        throw new EnumConstantNotPresentException(URINormalisation.class,
-          normalisationType.toString());
-    }
-  }
-
 }
@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.ArrayUtil;
+import org.sindice.siren.util.XSDDatatype;
+
+/**
+ * A hand-written scanner for N-Tuples, token for token compatible with the
+ * JFlex-generated {@link TupleTokenizerImpl}.
+ * <p>
+ * The input is read once into a reusable <code>char[]</code>, which is
+ * scanned in place: the text of a BNode, URI or Dot token, and of a Literal
+ * token without unicode escape sequence, is copied directly from the input
+ * buffer into the {@link CharTermAttribute}. The datatypes xsd:anyURI and
+ * xsd:string are shared arrays. No intermediate string is created.
+ * <p>
+ * The rules of {@link TupleTokenizerImpl} are reproduced exactly, including
+ * their longest match semantics:
+ * <ul>
+ * <li> a URI is a <code>&lt;</code>, followed by at least one character up to
+ * the first <code>&gt;</code>;
+ * <li> a BNode is <code>_:</code>, followed by a letter and by letters and
+ * digits;
+ * <li> a Literal is closed by a <code>"</code>, optionally followed by a
+ * datatype <code>^^&lt;...&gt;</code> or by a language tag <code>@...</code>.
+ * Within a Literal, <code>\\uXXXX</code> sequences are decoded, other escape
+ * sequences are kept verbatim, and a backslash followed by a newline or by the
+ * end of the input is dropped;
+ * <li> any other character is ignored.
+ * </ul>
+ */
+public class NTriplesScanner implements TupleScanner {
+
+  /** Datatype representing xsd:anyURI */
+  private static final char[] XSD_ANY_URI = XSDDatatype.XSD_ANY_URI.toCharArray();
+
+  /** Datatype representing xsd:string */
+  private static final char[] XSD_STRING = XSDDatatype.XSD_STRING.toCharArray();
+
+  private Reader reader;
+
+  /** The input, and its length */
+  private char[] buffer = new char[1024];
+  private int    length = 0;
+
+  /** Whether the input has been read into the buffer */
+  private boolean isLoaded = false;
+
+  /** The index of the next character to scan */
+  private int    next = 0;
+
+  /** The offset of the last match of the current token */
+  private int    yychar = 0;
+
+  /** The text of the current token in the buffer */
+  private int    textStart, textLength;
+
+  /** The text of the current literal, if it has been unescaped */
+  private char[] literal = new char[64];
+  private int    literalLength = -1;
+
+  /** The datatype of the current token */
+  private char[] datatype;
+
+  /**
+   * The index from which the buffer has no more <code>&gt;</code>, or -1 if
+   * unknown
+   */
+  private int    noMoreGt = -1;
+
+  public NTriplesScanner(final Reader reader) {
+    this.reader = reader;
+  }
+
+  public int yychar() {
+    return yychar;
+  }
+
+  public void getText(final CharTermAttribute t) {
+    t.copyBuffer(buffer, textStart, textLength);
+  }
+
+  public void getBNodeText(final CharTermAttribute t) {
+    t.copyBuffer(buffer, textStart, textLength);
+  }
+
+  public void getURIText(final CharTermAttribute t) {
+    t.copyBuffer(buffer, textStart, textLength);
+  }
+
+  public void getLiteralText(final CharTermAttribute t) {
+    if (literalLength >= 0) {
+      t.copyBuffer(literal, 0, literalLength);
+    }
+    else {
+      t.copyBuffer(buffer, textStart, textLength);
+    }
+  }
+
+  public char[] getDatatypeURI() {
+    return datatype;
+  }
+
+  public void yyreset(final Reader reader) {
+    this.reader = reader;
+    isLoaded = false;
+    length = next = yychar = 0;
+    noMoreGt = -1;
+  }
+
+  public void yyclose() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads the whole input into the buffer.
+   */
+  private void load() throws IOException {
+    int n;
+    while ((n = reader.read(buffer, length, buffer.length - length)) != -1) {
+      length += n;
+      if (length == buffer.length) {
+        buffer = ArrayUtil.grow(buffer, length + 1);
+      }
+    }
+    isLoaded = true;
+  }
+
+  public int getNextToken() throws IOException {
+    if (!isLoaded) {
+      this.load();
+    }
+
+    while (next < length) {
+      final int start = next;
+      switch (buffer[start]) {
+        case '<':
+          final int gt = this.indexOfGt(start + 1);
+          if (gt > start + 1) {
+            yychar = start;
+            textStart = start + 1;
+            textLength = gt - start - 1;
+            datatype = XSD_ANY_URI;
+            next = gt + 1;
+            return TupleTokenizer.URI;
+          }
+          break;
+
+        case '_':
+          if (start + 2 < length && buffer[start + 1] == ':' &&
+              isLetter(buffer[start + 2])) {
+            int end = start + 3;
+            while (end < length && (isLetter(buffer[end]) || isDigit(buffer[end]))) {
+              end++;
+            }
+            yychar = start;
+            textStart = start + 2;
+            textLength = end - start - 2;
+            next = end;
+            return TupleTokenizer.BNODE;
+          }
+          break;
+
+        case '"':
+          return this.scanLiteral(start + 1);
+
+        case '.':
+          yychar = textStart = start;
+          textLength = 1;
+          next = start + 1;
+          return TupleTokenizer.DOT;
+
+        default: // whitespace and any other character are ignored
+          break;
+      }
+      next = start + 1;
+    }
+    return YYEOF;
+  }
+
+  /**
+   * Scans the literal starting at the given index, up to its closing quote,
+   * datatype or language tag.
+   */
+  private int scanLiteral(final int start) {
+    literalLength = -1;
+    int segment = start; // start of the text not yet copied to the literal
+    int i = start;
+    while (i < length) {
+      final char c = buffer[i];
+      if (c == '"') {
+        if (literalLength >= 0) {
+          this.appendLiteral(segment, i);
+        }
+        else {
+          textStart = start;
+          textLength = i - start;
+        }
+        yychar = i;
+        next = this.scanDatatype(i);
+        return TupleTokenizer.LITERAL;
+      }
+      else if (c == '\\') {
+        if (i + 5 < length && buffer[i + 1] == 'u' && isHex(buffer[i + 2]) &&
+            isHex(buffer[i + 3]) && isHex(buffer[i + 4]) && isHex(buffer[i + 5])) {
+          this.appendLiteral(segment, i);
+          final int code = (hexValue(buffer[i + 2]) << 12) | (hexValue(buffer[i + 3]) << 8) |
+                           (hexValue(buffer[i + 4]) << 4) | hexValue(buffer[i + 5]);
+          this.appendLiteral((char) code);
+          i += 6;
+          segment = i;
+        }
+        else if (i + 1 < length && buffer[i + 1] != '\n') {
+          i += 2; // kept verbatim
+        }
+        else { // dropped
+          this.appendLiteral(segment, i);
+          i++;
+          segment = i;
+        }
+      }
+      else {
+        i++;
+      }
+    }
+    // the literal is not closed
+    next = length;
+    return YYEOF;
+  }
+
+  /**
+   * Scans the datatype or the language tag following the closing quote of a
+   * literal, and returns the index of the next character to scan.
+   */
+  private int scanDatatype(final int quote) {
+    // "^^<...>
+    if (quote + 3 < length && buffer[quote + 1] == '^' && buffer[quote + 2] == '^' &&
+        buffer[quote + 3] == '<') {
+      final int gt = this.indexOfGt(quote + 4);
+      if (gt > quote + 4) {
+        datatype = new char[gt - quote - 4];
+        System.arraycopy(buffer, quote + 4, datatype, 0, datatype.length);
+        return gt + 1;
+      }
+    }
+    // "@[a-z]+('-'[a-z0-9]+)*, where the quotes of '-' are part of the tag
+    if (quote + 2 < length && buffer[quote + 1] == '@' && isLower(buffer[quote + 2])) {
+      int end = quote + 3;
+      while (end < length && isLower(buffer[end])) {
+        end++;
+      }
+      while (end + 3 < length && buffer[end] == '\'' && buffer[end + 1] == '-' &&
+             buffer[end + 2] == '\'' && (isLower(buffer[end + 3]) || isDigit(buffer[end + 3]))) {
+        end += 4;
+        while (end < length && (isLower(buffer[end]) || isDigit(buffer[end]))) {
+          end++;
+        }
+      }
+      datatype = new char[end - quote - 2];
+      System.arraycopy(buffer, quote + 2, datatype, 0, datatype.length);
+      return end;
+    }
+    datatype = XSD_STRING;
+    return quote + 1;
+  }
+
+  /**
+   * Returns the index of the first <code>&gt;</code> from the given index, or
+   * -1 if there is none.
+   */
+  private int indexOfGt(final int from) {
+    if (noMoreGt != -1 && from >= noMoreGt) {
+      return -1;
+    }
+    for (int i = from; i < length; i++) {
+      if (buffer[i] == '>') {
+        return i;
+      }
+    }
+    noMoreGt = from;
+    return -1;
+  }
+
+  /**
+   * Appends the text of the buffer in <code>[start, end)</code> to the
+   * literal. The first call copies the literal text scanned so far.
+   */
+  private void appendLiteral(final int start, final int end) {
+    if (literalLength < 0) {
+      literalLength = 0;
+    }
+    final int n = end - start;
+    if (literalLength + n > literal.length) {
+      literal = ArrayUtil.grow(literal, literalLength + n);
+    }
+    System.arraycopy(buffer, start, literal, literalLength, n);
+    literalLength += n;
+  }
+
+  private void appendLiteral(final char c) {
+    if (literalLength == literal.length) {
+      literal = ArrayUtil.grow(literal, literalLength + 1);
+    }
+    literal[literalLength++] = c;
+  }
+
+  private static boolean isLetter(final char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isLower(final char c) {
+    return c >= 'a' && c <= 'z';
+  }
+
+  private static boolean isDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHex(final char c) {
+    return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  private static int hexValue(final char c) {
+    return c <= '9' ? c - '0' : (c | 0x20) - 'a' + 10;
+  }
+
+}
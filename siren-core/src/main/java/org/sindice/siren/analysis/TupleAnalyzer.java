@@ -50,6 +50,8 @@ public class TupleAnalyzer extends Analyzer {
   private final Version matchVersion;
   
   private final CharArrayMap<Analyzer> regLitAnalyzers;
+
+  private TupleTokenizer.ScannerType scannerType = TupleTokenizer.ScannerType.JFLEX;
   
   /**
    * Create a {@link TupleAnalyzer} with the default {@link Analyzer} for Literals and URIs.
@@ -73,6 +75,14 @@ public class TupleAnalyzer extends Analyzer {
     anyURIAnalyzer = analyzer;
   }
 
+  /**
+   * Set the implementation of the scanner of the {@link TupleTokenizer}. By
+   * default, the JFlex-generated scanner is used.
+   */
+  public void setScannerType(final TupleTokenizer.ScannerType scannerType) {
+    this.scannerType = scannerType;
+  }
+
   /**
    * Assign an {@link Analyzer} to be used with that key. That analyzer is used
    * to process tokens outputed from the {@link TupleTokenizer}.
@@ -94,7 +104,7 @@ public class TupleAnalyzer extends Analyzer {
 
   @Override
   public final TokenStream tokenStream(final String fieldName, final Reader reader) {
-    final TupleTokenizer stream = new TupleTokenizer(reader, Integer.MAX_VALUE);
+    final TupleTokenizer stream = new TupleTokenizer(reader, Integer.MAX_VALUE, scannerType);
     TokenStream result = new TokenTypeFilter(stream, new int[] {TupleTokenizer.BNODE,
                                                                 TupleTokenizer.DOT});
     final DatatypeAnalyzerFilter tt = new DatatypeAnalyzerFilter(matchVersion, result, stringAnalyzer, anyURIAnalyzer);
@@ -108,10 +118,11 @@ public class TupleAnalyzer extends Analyzer {
   @Override
   public final TokenStream reusableTokenStream(final String fieldName, final Reader reader) throws IOException {
     SavedStreams streams = (SavedStreams) this.getPreviousTokenStream();
-    if (streams == null) {
+    if (streams == null || streams.scannerType != scannerType) {
       streams = new SavedStreams();
       this.setPreviousTokenStream(streams);
-      streams.tokenStream = new TupleTokenizer(reader, Integer.MAX_VALUE);
+      streams.scannerType = scannerType;
+      streams.tokenStream = new TupleTokenizer(reader, Integer.MAX_VALUE, scannerType);
       streams.filteredTokenStream = new TokenTypeFilter(streams.tokenStream,
         new int[] {TupleTokenizer.BNODE, TupleTokenizer.DOT});
       final DatatypeAnalyzerFilter tt = new DatatypeAnalyzerFilter(matchVersion, streams.filteredTokenStream, stringAnalyzer, anyURIAnalyzer);
@@ -127,6 +138,7 @@ public class TupleAnalyzer extends Analyzer {
   }
 
   private static final class SavedStreams {
+    TupleTokenizer.ScannerType scannerType;
     TupleTokenizer tokenStream;
     TokenStream filteredTokenStream;
   }
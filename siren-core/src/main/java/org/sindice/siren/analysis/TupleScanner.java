@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+/**
+ * The scanner of a {@link TupleTokenizer}, splitting a N-Tuple into BNode,
+ * URI, Literal and Dot tokens.
+ * <p>
+ * Implemented by the JFlex-generated {@link TupleTokenizerImpl} and by the
+ * hand-written {@link NTriplesScanner}.
+ */
+interface TupleScanner {
+
+  /** The value returned by {@link #getNextToken()} at the end of the input */
+  int YYEOF = -1;
+
+  /**
+   * Returns the type of the next token, i.e., {@link TupleTokenizer#BNODE},
+   * {@link TupleTokenizer#URI}, {@link TupleTokenizer#LITERAL} or
+   * {@link TupleTokenizer#DOT}, or {@link #YYEOF} at the end of the input.
+   */
+  int getNextToken() throws IOException;
+
+  /** Returns the offset of the last match of the current token. */
+  int yychar();
+
+  /** Fills the attribute with the text of a Dot token. */
+  void getText(CharTermAttribute t);
+
+  /** Fills the attribute with the text of a BNode token, without "_:". */
+  void getBNodeText(CharTermAttribute t);
+
+  /** Fills the attribute with the text of a URI token, without "<" and ">". */
+  void getURIText(CharTermAttribute t);
+
+  /** Fills the attribute with the unescaped text of a Literal token. */
+  void getLiteralText(CharTermAttribute t);
+
+  /**
+   * Returns the datatype URI, or the language tag, of a URI or Literal token.
+   * Returns the datatype xsd:string by default.
+   */
+  char[] getDatatypeURI();
+
+  /** Resets the scanner to read from a new input stream. */
+  void yyreset(Reader reader);
+
+  /** Closes the input stream. */
+  void yyclose() throws IOException;
+
+}
@@ -41,12 +41,24 @@ import org.sindice.siren.analysis.attributes.TupleAttribute;
 /**
  * A grammar-based tokenizer constructed with JFlex for N-Tuples. Splits a
  * N-Tuple into BNode, URI, Literal and Dot tokens.
+ * <p>
+ * The tokens are produced by the JFlex-generated {@link TupleTokenizerImpl}
+ * by default, or by the hand-written {@link NTriplesScanner}, which produces
+ * the same tokens without intermediate strings (see {@link ScannerType}).
  */
 public class TupleTokenizer
 extends Tokenizer {
 
-  /** A private instance of the JFlex-constructed scanner */
-  private final TupleTokenizerImpl _scanner;
+  /** The implementations of the scanner */
+  public enum ScannerType {
+    /** The JFlex-generated {@link TupleTokenizerImpl} */
+    JFLEX,
+    /** The hand-written {@link NTriplesScanner} */
+    NTRIPLES
+  }
+
+  /** A private instance of the scanner */
+  private final TupleScanner _scanner;
 
   /** Structural node counters */
   private int                      _tid = 0;
@@ -88,9 +100,22 @@ extends Tokenizer {
    * one triple.
    */
   public TupleTokenizer(final Reader input, final int maxLength) {
+    this(input, maxLength, ScannerType.JFLEX);
+  }
+
+  /**
+   * Creates a new instance of the {@link TupleTokenizer} using the given
+   * implementation of the scanner.
+   *
+   * @see #TupleTokenizer(Reader, int)
+   */
+  public TupleTokenizer(final Reader input, final int maxLength,
+                        final ScannerType scannerType) {
     super();
     this.input = input;
-    this._scanner = new TupleTokenizerImpl(input);
+    this._scanner = scannerType == ScannerType.NTRIPLES
+                    ? new NTriplesScanner(input)
+                    : new TupleTokenizerImpl(input);
     this._maxLength = maxLength;
     this.initAttributes();
   }
@@ -163,7 +188,7 @@ extends Tokenizer {
         _tid++; _cid = 0;
         break;
 
-      case TupleTokenizerImpl.YYEOF:
+      case TupleScanner.YYEOF:
         return false;
 
       default:
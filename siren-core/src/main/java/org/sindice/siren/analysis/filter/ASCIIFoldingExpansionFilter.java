@@ -63,20 +63,56 @@ import org.apache.lucene.util.RamUsageEstimator;
  * </ul>
  *
  * See: <a href="http://en.wikipedia.org/wiki/Latin_characters_in_Unicode">http://en.wikipedia.org/wiki/Latin_characters_in_Unicode</a>
+ * <p>
+ * The folded token is returned first, followed by the original token at the
+ * same position. A pure ASCII token is returned as is and is not copied. A
+ * token with characters above ASCII is always returned twice, even when none
+ * of its characters has an ASCII equivalent and the folded token is identical
+ * to the original one: the term frequencies, and thus the scores, are the same
+ * as with the indexes built by previous versions of this filter.
+ * <p>
+ * The folding is table-driven: the ASCII equivalents of the characters are
+ * precomputed once in {@link #FOLDINGS}.
  */
 public final class ASCIIFoldingExpansionFilter extends TokenFilter {
 
   private final CharTermAttribute termAtt = this.addAttribute(CharTermAttribute.class);
   private final PositionIncrementAttribute posAtt = this.addAttribute(PositionIncrementAttribute.class);
 
-  private final char[] savedBuffer = new char[512];
+  /** The original token, returned after its folded form */
+  private char[] savedBuffer = new char[64];
   private int savedLength;
 
-  private final char[] output = new char[512];
+  /** Allocated on the first call to {@link #foldToASCII(char[], int)} */
+  private char[] output;
   private int outputPos;
 
   private boolean savedState = false;
 
+  /**
+   * The ASCII equivalents of the characters above ASCII, or null if the
+   * character is kept as is. The table is split into pages of 256 characters,
+   * and only the pages containing foldable characters are allocated.
+   */
+  private static final char[][][] FOLDINGS = new char[256][][];
+
+  static {
+    final char[] input = new char[1];
+    final char[] output = new char[4];
+    for (int c = '\u0080'; c <= Character.MAX_VALUE; c++) {
+      input[0] = (char) c;
+      final int length = switchFoldToASCII(input, 0, output, 0, 1);
+      if (length != 1 || output[0] != c) {
+        if (FOLDINGS[c >>> 8] == null) {
+          FOLDINGS[c >>> 8] = new char[256][];
+        }
+        final char[] folding = new char[length];
+        System.arraycopy(output, 0, folding, 0, length);
+        FOLDINGS[c >>> 8][c & 0xFF] = folding;
+      }
+    }
+  }
+
   public ASCIIFoldingExpansionFilter(final TokenStream input) {
     super(input);
   }
@@ -93,23 +129,30 @@ public final class ASCIIFoldingExpansionFilter extends TokenFilter {
     }
 
     if (input.incrementToken()) {
-      // Save the original buffer
-      this.saveBuffer();
-
       final char[] buffer = termAtt.buffer();
       final int length = termAtt.length();
 
-      // If no characters actually require rewriting then we
-      // just return token as-is:
-      for (int i = 0 ; i < length ; ++i) {
-        final char c = buffer[i];
-        if (c >= '\u0080') {
-          this.foldToASCII(buffer, length);
-          termAtt.copyBuffer(output, 0, outputPos);
-          savedState = true;
-          break;
-        }
+      // If the token is pure ASCII then no characters require rewriting,
+      // and we just return token as-is, without copying it
+      int i = 0;
+      while (i < length && buffer[i] < '\u0080') {
+        i++;
+      }
+      if (i == length) {
+        return true;
       }
+
+      // Save the original buffer, and fold it in place into the term. The
+      // ASCII prefix is unchanged.
+      savedLength = length;
+      if (savedBuffer.length < length) {
+        savedBuffer = new char[ArrayUtil.oversize(length, RamUsageEstimator.NUM_BYTES_CHAR)];
+      }
+      System.arraycopy(buffer, 0, savedBuffer, 0, length);
+      // Worst-case length required:
+      final char[] output = termAtt.resizeBuffer(i + 4 * (length - i));
+      termAtt.setLength(foldToASCII(savedBuffer, i, output, i, length - i));
+      savedState = true;
       return true;
     }
     else {
@@ -117,18 +160,10 @@ public final class ASCIIFoldingExpansionFilter extends TokenFilter {
     }
   }
 
-  private void saveBuffer() {
-    savedLength = termAtt.length();
-    this.growBuffer(savedBuffer, savedLength);
-    System.arraycopy(termAtt.buffer(), 0, savedBuffer, 0, savedLength);
-  }
-
-  private void growBuffer(char[] buffer, final int newSize) {
-    if (buffer.length < newSize) {
-      // Not big enough; create a new array with slight
-      // over allocation:
-      buffer = new char[ArrayUtil.oversize(newSize, RamUsageEstimator.NUM_BYTES_CHAR)];
-    }
+  @Override
+  public void reset() throws IOException {
+    super.reset();
+    savedState = false;
   }
 
   /**
@@ -140,10 +175,21 @@ public final class ASCIIFoldingExpansionFilter extends TokenFilter {
   public void foldToASCII(final char[] input, final int length) {
     // Worst-case length required:
     final int maxSizeNeeded = 4 * length;
-    this.growBuffer(output, maxSizeNeeded);
+    if (output == null || output.length < maxSizeNeeded) {
+      output = new char[ArrayUtil.oversize(maxSizeNeeded, RamUsageEstimator.NUM_BYTES_CHAR)];
+    }
     outputPos = foldToASCII(input, 0, output, 0, length);
   }
 
+  /**
+   * Returns the ASCII equivalent of a character above ASCII, or null if the
+   * character is kept as is.
+   */
+  private static char[] getFolding(final char c) {
+    final char[][] page = FOLDINGS[c >>> 8];
+    return page == null ? null : page[c & 0xFF];
+  }
+
   /**
    * Converts characters above ASCII to their ASCII equivalents.  For example,
    * accents are removed from accented characters.
@@ -155,7 +201,32 @@ public final class ASCIIFoldingExpansionFilter extends TokenFilter {
    * @return length of output
    * @lucene.internal
    */
-  public static final int foldToASCII(final char input[], final int inputPos, final char output[], int outputPos, final int length)
+  public static final int foldToASCII(final char input[], final int inputPos, final char output[], int outputPos, final int length) {
+    final int end = inputPos + length;
+    for (int pos = inputPos; pos < end ; ++pos) {
+      final char c = input[pos];
+      final char[] folding;
+      // Quick test: if it's not in range then just keep current character
+      if (c < '\u0080' || (folding = getFolding(c)) == null) {
+        output[outputPos++] = c;
+      }
+      else if (folding.length == 1) {
+        output[outputPos++] = folding[0];
+      }
+      else {
+        System.arraycopy(folding, 0, output, outputPos, folding.length);
+        outputPos += folding.length;
+      }
+    }
+    return outputPos;
+  }
+
+  /**
+   * Converts characters above ASCII to their ASCII equivalents, as
+   * {@link #foldToASCII(char[], int, char[], int, int)}. Used to build the
+   * folding table.
+   */
+  private static int switchFoldToASCII(final char input[], final int inputPos, final char output[], int outputPos, final int length)
   {
     final int end = inputPos + length;
     for (int pos = inputPos; pos < end ; ++pos) {
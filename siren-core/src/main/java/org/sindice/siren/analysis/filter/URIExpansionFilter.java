@@ -0,0 +1,466 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis.filter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+import org.sindice.siren.analysis.AnyURIAnalyzer.URINormalisation;
+import org.sindice.siren.analysis.TupleTokenizer;
+
+/**
+ * Performs in a single filter the expansions of the chain
+ * {@link URIEncodingFilter}, {@link URITrailingSlashFilter} (without token
+ * type checking), {@link URILocalnameFilter} or
+ * {@link URINormalisationFilter}, and {@link MailtoFilter}, and produces the
+ * same tokens.
+ * <p>
+ * Each URI is copied and decoded once. The localname, the tokens of the
+ * localname or of the full URI, and the mailto part are then found in a
+ * single scan, and recorded as spans of the URI. The tokens are emitted from
+ * these spans, instead of being re-scanned and copied by each filter of the
+ * chain.
+ * <p>
+ * The expansions are configured with:
+ * <ul>
+ * <li> the {@link URINormalisation}: {@link URINormalisation#NONE},
+ * {@link URINormalisation#LOCALNAME} as {@link URILocalnameFilter}, or
+ * {@link URINormalisation#FULL} as {@link URINormalisationFilter};
+ * <li> the encoding of the URIs, see {@link #setEncoding(String)};
+ * <li> the removal of the trailing slash, see
+ * {@link #setRemoveTrailingSlash(boolean)} and
+ * {@link #setTrailingSlashFirst(boolean)};
+ * <li> the maximum length of a tokenised localname, see
+ * {@link #setMaxLength(int)};
+ * <li> the expansion of the mailto URIs, see {@link #setMailto(boolean)}.
+ * </ul>
+ * By default, the chain of the {@link AnyURIAnalyzer} is reproduced.
+ * <p>
+ * This filter is to be applied on a token of type {@link TupleTokenizer#URI}
+ * only.
+ */
+public class URIExpansionFilter extends TokenFilter {
+
+  public static final String DEFAULT_ENCODING = "UTF-8";
+
+  private final URINormalisation normalisation;
+
+  private CharsetDecoder charsetDecoder;
+  private boolean removeTrailingSlash = true;
+  private boolean trailingSlashFirst = false;
+  private int maxLength = URILocalnameFilter.DEFAULT_MAX_LENGTH;
+  private boolean mailto = true;
+
+  /** The sources of the tokens: the URI, and the decoded URI */
+  private static final int URI = 0;
+  private static final int DECODED = 1;
+
+  private char[] uri = new char[256];
+  private int uriLength;
+
+  private CharBuffer decodedURI = CharBuffer.allocate(256);
+  private final ByteBuffer decodedBytes = ByteBuffer.allocate(32);
+
+  /**
+   * The tokens to emit. Each token is encoded by four integers: its source,
+   * offset, length and position increment.
+   */
+  private int[] tokens = new int[64];
+  private int nTokens = 0;
+  private int nextToken = 0;
+
+  private final CharTermAttribute termAtt;
+  private final PositionIncrementAttribute posIncrAtt;
+
+  public URIExpansionFilter(final TokenStream input,
+                            final URINormalisation normalisation) {
+    super(input);
+    this.normalisation = normalisation;
+    this.setEncoding(DEFAULT_ENCODING);
+    termAtt = this.addAttribute(CharTermAttribute.class);
+    posIncrAtt = this.addAttribute(PositionIncrementAttribute.class);
+  }
+
+  /**
+   * Sets the encoding of the URIs, as {@link URIEncodingFilter}, or null to not
+   * decode the URIs.
+   *
+   * @throws UnsupportedCharsetException if the character encoding is not
+   * supported or recognised.
+   */
+  public void setEncoding(final String encoding)
+  throws UnsupportedCharsetException {
+    if (encoding == null) {
+      charsetDecoder = null;
+    }
+    else if (Charset.isSupported(encoding)) {
+      charsetDecoder = Charset.forName(encoding).newDecoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    else {
+      throw new UnsupportedCharsetException(encoding);
+    }
+  }
+
+  /**
+   * Sets whether the trailing slash of the URIs is removed. Default to true.
+   */
+  public void setRemoveTrailingSlash(final boolean removeTrailingSlash) {
+    this.removeTrailingSlash = removeTrailingSlash;
+  }
+
+  /**
+   * With {@link URINormalisation#LOCALNAME}, sets whether the trailing slash is
+   * removed before the localname is extracted, as in the chain
+   * {@link URITrailingSlashFilter}, {@link URILocalnameFilter}. By default, it
+   * is removed after, as in the {@link AnyURIAnalyzer}, in order to avoid
+   * taking a subdirectory as localname.
+   */
+  public void setTrailingSlashFirst(final boolean trailingSlashFirst) {
+    this.trailingSlashFirst = trailingSlashFirst;
+  }
+
+  /**
+   * Sets the maximum length of a localname to tokenise, see
+   * {@link URILocalnameFilter#setMaxLength(int)}.
+   */
+  public void setMaxLength(final int maxLength) {
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Sets whether the mailto URIs are expanded, as {@link MailtoFilter}.
+   * Default to true.
+   */
+  public void setMailto(final boolean mailto) {
+    this.mailto = mailto;
+  }
+
+  @Override
+  public final boolean incrementToken() throws IOException {
+    if (nextToken == nTokens) {
+      if (!input.incrementToken()) {
+        return false;
+      }
+      nTokens = nextToken = 0;
+      this.expand();
+    }
+    final int i = 4 * nextToken++;
+    termAtt.copyBuffer(tokens[i] == URI ? uri : decodedURI.array(), tokens[i + 1], tokens[i + 2]);
+    posIncrAtt.setPositionIncrement(tokens[i + 3]);
+    return true;
+  }
+
+  @Override
+  public void reset() throws IOException {
+    super.reset();
+    nTokens = nextToken = 0;
+  }
+
+  /**
+   * Records the tokens of the current URI, and of its decoded form.
+   */
+  private void expand() {
+    uriLength = termAtt.length();
+    if (uri.length < uriLength) {
+      uri = new char[ArrayUtil.oversize(uriLength, 2)];
+    }
+    final char[] buffer = termAtt.buffer();
+    boolean isEncoded = false;
+    for (int i = 0; i < uriLength; i++) {
+      if ((uri[i] = buffer[i]) == '%') {
+        isEncoded = true;
+      }
+    }
+
+    this.expand(URI, uri, uriLength, posIncrAtt.getPositionIncrement());
+    if (isEncoded && charsetDecoder != null) {
+      this.decode();
+      this.expand(DECODED, decodedURI.array(), decodedURI.position(), 0);
+    }
+  }
+
+  /**
+   * Records the tokens of a source, given the URI normalisation.
+   */
+  private void expand(final int src, final char[] b, final int length,
+                      final int posInc) {
+    switch (normalisation) {
+      case NONE:
+        this.addToken(src, b, 0, this.removeTrailingSlash(b, 0, length), posInc);
+        break;
+
+      case LOCALNAME:
+        if (trailingSlashFirst) {
+          this.expandLocalname(src, b, this.removeTrailingSlash(b, 0, length), posInc);
+        }
+        else {
+          this.expandLocalname(src, b, length, posInc);
+        }
+        break;
+
+      case FULL:
+        this.expandFull(src, b, this.removeTrailingSlash(b, 0, length), posInc);
+        break;
+
+      default:
+        throw new EnumConstantNotPresentException(URINormalisation.class,
+          normalisation.toString());
+    }
+  }
+
+  /**
+   * Records the tokens of the localname, the localname and the URI, as
+   * {@link URILocalnameFilter}.
+   */
+  private void expandLocalname(final int src, final char[] b, final int length,
+                               final int posInc) {
+    int startLocalname = length;
+    for (int i = length - 1; i > 0; i--) {
+      if (b[i] == '#' || b[i] == '/') {
+        startLocalname = i;
+        break;
+      }
+    }
+
+    int nLocalnameTokens = 0;
+    boolean hasBreakPoint = false;
+    if (length - startLocalname > maxLength) { // localname too large, not tokenised
+      // SRN-66 & SRN-79: skip tokens with less than 3 characters
+      if (length - startLocalname - 1 >= 3) {
+        this.addLocalnameToken(src, b, startLocalname + 1, length, posInc);
+        nLocalnameTokens++;
+      }
+    }
+    else {
+      int start = startLocalname;
+      while (start < length) {
+        if (isDelim(b[start])) {
+          start++;
+          continue;
+        }
+        int end = start + 1;
+        while (end < length && !isBreakPoint(b[end])) {
+          end++;
+        }
+        if (end < length) {
+          hasBreakPoint = true;
+        }
+        // SRN-66 & SRN-79: skip tokens with less than 3 characters
+        if (end - start >= 3) {
+          this.addLocalnameToken(src, b, start, end, nLocalnameTokens == 0 ? posInc : 1);
+          nLocalnameTokens++;
+        }
+        start = end;
+      }
+    }
+
+    // the full localname is returned only if a breakpoint is found
+    if (hasBreakPoint && startLocalname < length) {
+      this.addLocalnameToken(src, b, startLocalname + 1, length, 0);
+    }
+    // SRN-80: wrong position increment if no previous tokens
+    this.addLocalnameToken(src, b, 0, length, nLocalnameTokens == 0 ? 1 : 0);
+  }
+
+  private void addLocalnameToken(final int src, final char[] b, final int start,
+                                 final int end, final int posInc) {
+    final int length = trailingSlashFirst ? end : this.removeTrailingSlash(b, start, end);
+    this.addToken(src, b, start, length - start, posInc);
+  }
+
+  /**
+   * Records the tokens of the URI and the URI, as {@link URINormalisationFilter}.
+   */
+  private void expandFull(final int src, final char[] b, final int length,
+                          final int posInc) {
+    int start = 0;
+    // Skip the scheme part (SRN-66)
+    while (start < length) {
+      if (b[start++] == ':') {
+        if (start + 1 < length && b[start] == '/' && b[start + 1] == '/') {
+          start += 1;
+        }
+        break;
+      }
+    }
+
+    int nURITokens = 0;
+    while (start < length) {
+      if (isDelim(b[start])) {
+        start++;
+        continue;
+      }
+      int end = start + 1;
+      while (end < length && !isBreakPoint(b[end])) {
+        end++;
+      }
+      // SRN-66: skip tokens with less than 4 characters
+      if (end - start >= 4) {
+        this.addToken(src, b, start, end - start, nURITokens == 0 ? posInc : 1);
+        nURITokens++;
+      }
+      start = end;
+    }
+    this.addToken(src, b, 0, length, 0);
+  }
+
+  /**
+   * Records a token, and its mailto part if it is a mailto URI, as
+   * {@link MailtoFilter}.
+   */
+  private void addToken(final int src, final char[] b, final int offset,
+                        final int length, final int posInc) {
+    if (mailto && isMailto(b, offset, length)) {
+      this.pushToken(src, offset + 7, length - 7, 1);
+      this.pushToken(src, offset, length, 0);
+    }
+    else {
+      this.pushToken(src, offset, length, posInc);
+    }
+  }
+
+  private void pushToken(final int src, final int offset, final int length,
+                         final int posInc) {
+    final int i = 4 * nTokens++;
+    if (i + 4 > tokens.length) {
+      tokens = ArrayUtil.grow(tokens, i + 4);
+    }
+    tokens[i] = src;
+    tokens[i + 1] = offset;
+    tokens[i + 2] = length;
+    tokens[i + 3] = posInc;
+  }
+
+  /**
+   * Returns the end of the span without its trailing slash, as
+   * {@link URITrailingSlashFilter}.
+   */
+  private int removeTrailingSlash(final char[] b, final int start, final int end) {
+    if (removeTrailingSlash && end > start && b[end - 1] == '/') {
+      return end - 1;
+    }
+    return end;
+  }
+
+  private static boolean isMailto(final char[] b, final int offset,
+                                  final int length) {
+    return length >= 7 && b[offset + 6] == ':' &&
+           b[offset] == 'm' && b[offset + 1] == 'a' && b[offset + 2] == 'i' &&
+           b[offset + 3] == 'l' && b[offset + 4] == 't' && b[offset + 5] == 'o';
+  }
+
+  private static boolean isBreakPoint(final char c) {
+    return isDelim(c) || Character.isUpperCase(c);
+  }
+
+  private static boolean isDelim(final char c) {
+    return !Character.isLetterOrDigit(c);
+  }
+
+  /**
+   * Decodes the URI into {@link #decodedURI}, as {@link URIEncodingFilter}.
+   */
+  private void decode() {
+    if (decodedURI.capacity() < uriLength) {
+      decodedURI = CharBuffer.allocate(ArrayUtil.oversize(uriLength, 2));
+    }
+    decodedURI.clear();
+
+    int i = 0;
+    while (i < uriLength) {
+      char c = uri[i];
+      if (c != '%') {
+        decodedURI.put(c);
+        i++;
+        continue;
+      }
+      // Process all consecutive substrings of the form %xy
+      while (i + 2 < uriLength && c == '%') {
+        final char c1 = uri[i + 1];
+        final char c2 = uri[i + 2];
+        final int h1 = hexToInt(c1);
+        final int h2 = hexToInt(c2);
+        if (h1 == 2 && h2 == 0) { // replace the SPACE character, encoded by %20, by +
+          this.decodeBytes();
+          decodedURI.put('+');
+        }
+        else if (h1 >= 0 && h2 >= 0) {
+          if (!decodedBytes.hasRemaining()) { // No more place in the buffer, output what is already there.
+            this.decodeBytes();
+          }
+          decodedBytes.put((byte) ((h1 << 4) + h2));
+        }
+        else { // put the value back, without changing it
+          this.decodeBytes();
+          decodedURI.put('%').put(c1).put(c2);
+        }
+        i += 3;
+        if (i < uriLength) {
+          c = uri[i];
+        }
+      }
+      // decode the chain of special characters
+      this.decodeBytes();
+      // incomplete byte encoding (e.g., %x). Skip it.
+      if (i < uriLength && c == '%') {
+        decodedURI.put('%');
+        i++;
+      }
+    }
+  }
+
+  private void decodeBytes() {
+    final int limit = decodedBytes.position();
+    decodedBytes.position(0);
+    decodedBytes.limit(limit);
+    charsetDecoder.decode(decodedBytes, decodedURI, true);
+    decodedBytes.clear();
+  }
+
+  /**
+   * Return the value of an hexadecimal digit, or -1 if it is not hexadecimal.
+   */
+  private static int hexToInt(final char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+}
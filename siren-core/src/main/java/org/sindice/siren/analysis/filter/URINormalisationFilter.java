@@ -28,13 +28,12 @@ package org.sindice.siren.analysis.filter;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.nio.CharBuffer;
 
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
-import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.apache.lucene.util.ArrayUtil;
 import org.sindice.siren.analysis.TupleTokenizer;
 
 /**
@@ -54,16 +53,16 @@ extends TokenFilter {
   private int    start;
   private int    end;
   private int    termLength;
-  private CharBuffer termBuffer;
+  private char[] termBuffer;
 
-  private final TermAttribute termAtt;
+  private final CharTermAttribute termAtt;
   private final PositionIncrementAttribute posIncrAtt;
 
   public URINormalisationFilter(final TokenStream input) {
     super(input);
-    termAtt = this.addAttribute(TermAttribute.class);
+    termAtt = this.addAttribute(CharTermAttribute.class);
     posIncrAtt = this.addAttribute(PositionIncrementAttribute.class);
-    termBuffer = CharBuffer.allocate(256);
+    termBuffer = new char[256];
   }
 
   @Override
@@ -78,7 +77,7 @@ extends TokenFilter {
 
     // Otherwise, get next URI token and start normalisation
     if (input.incrementToken()) {
-      termLength = termAtt.termLength();
+      termLength = termAtt.length();
       this.updateBuffer();
       _isNormalising = true;
       start = end = 0;
@@ -91,14 +90,10 @@ extends TokenFilter {
   }
 
   protected void updateBuffer() {
-    if (termBuffer.capacity() > termLength) {
-      termBuffer.clear();
-      termBuffer.put(termAtt.termBuffer(), 0, termLength);
-    }
-    else {
-      termBuffer = CharBuffer.allocate(termLength);
-      termBuffer.put(termAtt.termBuffer(), 0, termLength);
+    if (termBuffer.length < termLength) {
+      termBuffer = new char[ArrayUtil.oversize(termLength, 2)];
     }
+    System.arraycopy(termAtt.buffer(), 0, termBuffer, 0, termLength);
   }
 
   /**
@@ -107,11 +102,10 @@ extends TokenFilter {
    */
   protected void skipScheme() {
     while (start < termLength) {
-      if (termBuffer.get(start++) == ':') {
-        if (termBuffer.get(start) == '/') {
-          if (termBuffer.get(start + 1) == '/') {
-            start += 1;
-          }
+      if (termBuffer[start++] == ':') {
+        if (start + 1 < termLength && termBuffer[start] == '/' &&
+            termBuffer[start + 1] == '/') {
+          start += 1;
         }
         return;
       }
@@ -136,14 +130,14 @@ extends TokenFilter {
 
   protected boolean findNextToken() {
     while (start < termLength) {
-      if (this.isDelim(termBuffer.get(start))) {
+      if (this.isDelim(termBuffer[start])) {
         start++; continue;
       }
       else {
         end = start;
         do {
           end++;
-        } while (end < termLength && !this.isBreakPoint(termBuffer.get(end)));
+        } while (end < termLength && !this.isBreakPoint(termBuffer[end]));
         return true;
       }
     }
@@ -151,12 +145,12 @@ extends TokenFilter {
   }
 
   protected void updateToken() {
-    termAtt.setTermBuffer(termBuffer.array(), start, end - start);
+    termAtt.copyBuffer(termBuffer, start, end - start);
     start = end;
   }
 
   protected void updateFinalToken() {
-    termAtt.setTermBuffer(termBuffer.array(), 0, termLength);
+    termAtt.copyBuffer(termBuffer, 0, termLength);
     posIncrAtt.setPositionIncrement(0);
   }
 
@@ -91,7 +91,51 @@ extends Payload {
   /**
    * Decode the payload data and set the tuple and cell identifiers
    */
-  public abstract void decode();
+  public void decode() {
+    final long values = this.decode(data, offset, length);
+    _tupleID = tupleID(values);
+    _cellID = cellID(values);
+  }
+
+  /**
+   * Decode the tuple and cell identifiers from the given payload data.
+   * <p>
+   * The state of the payload is not modified and no object is allocated,
+   * so a single instance can be shared by concurrent threads.
+   *
+   * @param data The payload data
+   * @param offset The offset of the payload in the data array
+   * @param length The length of the payload
+   * @return The tuple identifier in the upper 32 bits and the cell identifier
+   * in the lower 32 bits
+   * @see #tupleID(long)
+   * @see #cellID(long)
+   */
+  public abstract long decode(final byte[] data, final int offset, final int length);
+
+  /**
+   * Returns the tuple identifier of a pair of identifiers returned by
+   * {@link #decode(byte[], int, int)}.
+   */
+  public static final int tupleID(final long values) {
+    return (int) (values >>> 32);
+  }
+
+  /**
+   * Returns the cell identifier of a pair of identifiers returned by
+   * {@link #decode(byte[], int, int)}.
+   */
+  public static final int cellID(final long values) {
+    return (int) values;
+  }
+
+  /**
+   * Pack a tuple and cell identifier into a long, as returned by
+   * {@link #decode(byte[], int, int)}.
+   */
+  protected static final long values(final int tupleID, final int cellID) {
+    return ((long) tupleID << 32) | (cellID & 0xFFFFFFFFL);
+  }
 
   public int getTupleID() throws IOException {
     return _tupleID;
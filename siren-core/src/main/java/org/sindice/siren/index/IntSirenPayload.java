@@ -26,8 +26,6 @@
  */
 package org.sindice.siren.index;
 
-import java.util.Arrays;
-
 import org.sindice.siren.util.CodecUtils;
 
 /**
@@ -55,9 +53,9 @@ extends AbstractSirenPayload {
   }
 
   @Override
-  public void decode() {
-    _tupleID = CodecUtils.byteArrayToInt(Arrays.copyOfRange(data, 0, 4));
-    _cellID = CodecUtils.byteArrayToInt(Arrays.copyOfRange(data, 4, 8));
+  public long decode(final byte[] data, final int offset, final int length) {
+    return values(CodecUtils.byteArrayToInt(data, offset),
+                  CodecUtils.byteArrayToInt(data, offset + 4));
   }
 
   @Override
@@ -57,10 +57,8 @@ extends AbstractSirenPayload {
   }
 
   @Override
-  public void decode() {
-    final int[] values = unpack(data);
-    _tupleID = values[0];
-    _cellID = values[1];
+  public long decode(final byte[] data, final int offset, final int length) {
+    return unpack(data, offset);
   }
 
   @Override
@@ -110,113 +108,118 @@ extends AbstractSirenPayload {
     return -1;
   }
 
-  static final int[] values = new int[2];
-
   /**
-   * Unpack two integers using optimised routines
+   * Unpack two integers using optimised routines.
+   * <p> The two integers are returned packed into a long, the first value in
+   * the upper 32 bits and the second value in the lower 32 bits. No state is
+   * shared between calls.
+   *
    * @param compressedArray The compressed array
+   * @param offset The offset of the compressed data in the array
+   * @return The two integers packed into a long
    */
-  protected static final int[] unpack(final byte[] compressedArray) {
-    final int code = (compressedArray[0] >>> 4) & 15;
+  public static final long unpack(final byte[] compressedArray, final int offset) {
+    final int b0 = compressedArray[offset];
+    final int v1, v2;
 
-    switch (code) {
+    switch ((b0 >>> 4) & 15) {
       // 0 - 4
       case 0:
-        values[0] = 0;
-        values[1] = (compressedArray[0] & 15);
+        v1 = 0;
+        v2 = b0 & 15;
         break;
 
       // 4 - 0
       case 1:
-        values[1] = 0;
-        values[0] = (compressedArray[0] & 15);
+        v1 = b0 & 15;
+        v2 = 0;
         break;
 
       // 1 - 3
       case 2:
-        values[0] = (compressedArray[0] >>> 3) & 1;
-        values[1] = compressedArray[0] & 7;
+        v1 = (b0 >>> 3) & 1;
+        v2 = b0 & 7;
         break;
 
       // 3 - 1
       case 3:
-        values[1] = (compressedArray[0] >>> 3) & 1;
-        values[0] = compressedArray[0] & 7;
+        v1 = b0 & 7;
+        v2 = (b0 >>> 3) & 1;
         break;
 
       // 2 - 2
       case 4:
-        values[0] = (compressedArray[0] >>> 2) & 3;
-        values[1] = compressedArray[0] & 3;
+        v1 = (b0 >>> 2) & 3;
+        v2 = b0 & 3;
         break;
 
       // 4 - 8
       case 5:
-        values[0] = compressedArray[0] & 15;
-        values[1] = compressedArray[1] & 255;
+        v1 = b0 & 15;
+        v2 = compressedArray[offset + 1] & 255;
         break;
 
       // 8 - 4
       case 6:
-        values[1] = compressedArray[0] & 15;
-        values[0] = compressedArray[1] & 255;
+        v1 = compressedArray[offset + 1] & 255;
+        v2 = b0 & 15;
         break;
 
       // 0 - 12
       case 7:
-        values[0] = 0;
-        values[1] = (((compressedArray[0] & 15) << 8) | (compressedArray[1] & 255));
+        v1 = 0;
+        v2 = ((b0 & 15) << 8) | (compressedArray[offset + 1] & 255);
         break;
 
       // 12 - 0
       case 8:
-        values[1] = 0;
-        values[0] = (((compressedArray[0] & 15) << 8) | (compressedArray[1] & 255));
+        v1 = ((b0 & 15) << 8) | (compressedArray[offset + 1] & 255);
+        v2 = 0;
         break;
 
       // 6 - 6
       case 9:
-        values[0] = (((compressedArray[0] & 15) << 2) | ((compressedArray[1] >>> 6) & 3));
-        values[1] = compressedArray[1] & 63;
+        v1 = ((b0 & 15) << 2) | ((compressedArray[offset + 1] >>> 6) & 3);
+        v2 = compressedArray[offset + 1] & 63;
         break;
 
       // 4 - 16
       case 10:
-        values[0] = compressedArray[0] & 15;
-        values[1] = (((compressedArray[1] & 255) << 8) | (compressedArray[2] & 255));
+        v1 = b0 & 15;
+        v2 = ((compressedArray[offset + 1] & 255) << 8) | (compressedArray[offset + 2] & 255);
         break;
 
       // 16 - 4
       case 11:
-        values[1] = compressedArray[0] & 15;
-        values[0] = (((compressedArray[1] & 255) << 8) | (compressedArray[2] & 255));
+        v1 = ((compressedArray[offset + 1] & 255) << 8) | (compressedArray[offset + 2] & 255);
+        v2 = b0 & 15;
         break;
 
       // 8 - 12
       case 12:
-        values[1] = (((compressedArray[0] & 15) << 8) | (compressedArray[1] & 255));
-        values[0] = compressedArray[2] & 255;
+        v1 = compressedArray[offset + 2] & 255;
+        v2 = ((b0 & 15) << 8) | (compressedArray[offset + 1] & 255);
         break;
 
       // 12 - 8
       case 13:
-        values[0] = (((compressedArray[0] & 15) << 8) | (compressedArray[1] & 255));
-        values[1] = compressedArray[2] & 255;
+        v1 = ((b0 & 15) << 8) | (compressedArray[offset + 1] & 255);
+        v2 = compressedArray[offset + 2] & 255;
         break;
 
       // 20 - 16
       case 14:
-        values[0] = (((compressedArray[0] & 15) << 16) | ((compressedArray[1] & 255) << 8) | (compressedArray[2] & 255));
-        values[1] = (((compressedArray[3] & 255) << 8) | (compressedArray[4] & 255));
+        v1 = ((b0 & 15) << 16) | ((compressedArray[offset + 1] & 255) << 8) | (compressedArray[offset + 2] & 255);
+        v2 = ((compressedArray[offset + 3] & 255) << 8) | (compressedArray[offset + 4] & 255);
         break;
 
-        // 28 - 16
-      case 15:
-        values[0] = (((compressedArray[0] & 15) << 24) | ((compressedArray[1] & 255) << 16) | ((compressedArray[2] & 255) << 8) | (compressedArray[3] & 255));
-        values[1] = (((compressedArray[4] & 255) << 8) | (compressedArray[5] & 255));
+      // 28 - 16
+      default:
+        v1 = ((b0 & 15) << 24) | ((compressedArray[offset + 1] & 255) << 16) | ((compressedArray[offset + 2] & 255) << 8) | (compressedArray[offset + 3] & 255);
+        v2 = ((compressedArray[offset + 4] & 255) << 8) | (compressedArray[offset + 5] & 255);
         break;
     }
-    return values;
+    return values(v1, v2);
   }
 
   /**
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.TermPositions;
+import org.sindice.siren.analysis.filter.SirenDeltaPayloadFilter;
+
+/**
+ * Block decoder of the structural and positional information of a term within
+ * an entity.
+ * <p>
+ * The positions, tuple and cell identifiers of all the occurrences of the term
+ * in the current entity are decoded in one pass and stored contiguously in
+ * reusable int arrays. Payloads are copied into a reusable byte buffer and
+ * unpacked in-place with {@link PackedIntSirenPayload#unpack(byte[], int)}:
+ * no {@link AbstractSirenPayload} is involved. The delta encoding of the
+ * identifiers performed by {@link SirenDeltaPayloadFilter} is resolved during
+ * the same pass, as well as the first occurrence of each cell, from which
+ * the frequency of the term within a cell is derived.
+ * <p>
+ * Within an entity, the occurrences are sorted by tuple and cell identifiers.
+ * {@link #advance(int, int, int)} relies on this order to locate a tuple or a
+ * cell with a galloping search, i.e., in a time logarithmic in the number of
+ * occurrences skipped, instead of a linear scan.
+ */
+public class SirenPositionsDecoder {
+
+  /** Initial capacity of the buffers */
+  private static final int DEFAULT_CAPACITY = 32;
+
+  /**
+   * Packed payloads whose first byte is below this bound are one byte long,
+   * i.e., use one of the first five configurations of
+   * {@link PackedIntSirenPayload}
+   */
+  private static final int SINGLE_BYTE_BOUND = 5 << 4;
+
+  /** Unpacked values of the payloads of one byte, indexed by that byte */
+  private static final long[] SINGLE_BYTE_VALUES = new long[SINGLE_BYTE_BOUND];
+
+  static {
+    final byte[] payload = new byte[1];
+    for (int b = 0; b < SINGLE_BYTE_BOUND; b++) {
+      payload[0] = (byte) b;
+      SINGLE_BYTE_VALUES[b] = PackedIntSirenPayload.unpack(payload, 0);
+    }
+  }
+
+  /** Payload byte array buffer, large enough for any packed payload */
+  private final byte[]     payloadBuffer = new byte[6];
+
+  /** Position, tuple and cell buffers */
+  int[]                    positions = new int[DEFAULT_CAPACITY];
+  int[]                    tuples = new int[DEFAULT_CAPACITY];
+  int[]                    cells = new int[DEFAULT_CAPACITY];
+
+  /**
+   * Index of the first occurrence of each cell, followed by the number of
+   * occurrences
+   */
+  private int[]            cellStarts = new int[DEFAULT_CAPACITY + 1];
+
+  /** Cell of the last occurrence whose cell frequency was requested */
+  private int              cellPtr = 0;
+
+  /** Number of occurrences stored in the buffers */
+  int                      size = 0;
+
+  /**
+   * Decode the next <code>freq</code> positions of the given
+   * {@link TermPositions}, i.e., all the occurrences of the term in the
+   * current entity.
+   */
+  public void decode(final TermPositions termPositions, final int freq)
+  throws IOException {
+    this.ensureCapacity(freq);
+
+    // starting from 0, the first deltas resolve to the identifiers themselves
+    int tuple = 0, cell = 0, nCells = 0;
+    for (int i = 0; i < freq; i++) {
+      positions[i] = termPositions.nextPosition();
+      // without payload, the tuple and cell deltas are 0
+      long values = 0;
+      if (termPositions.isPayloadAvailable()) {
+        final byte[] payload = termPositions.getPayload(payloadBuffer, 0);
+        // most deltas are small: look up the payloads of one byte
+        final int b0 = payload[0] & 0xFF;
+        values = b0 < SINGLE_BYTE_BOUND ? SINGLE_BYTE_VALUES[b0]
+                                        : PackedIntSirenPayload.unpack(payload, 0);
+      }
+      // the occurrence is in the same cell as the previous one iff both
+      // deltas are 0
+      if (values != 0 || i == 0) {
+        cellStarts[nCells++] = i;
+      }
+      final int tupleDelta = AbstractSirenPayload.tupleID(values);
+      // the cell identifier is only delta encoded within the same tuple
+      cell = tupleDelta != 0 ? AbstractSirenPayload.cellID(values)
+                             : cell + AbstractSirenPayload.cellID(values);
+      tuple += tupleDelta;
+      tuples[i] = tuple;
+      cells[i] = cell;
+    }
+    cellStarts[nCells] = freq;
+    cellPtr = 0;
+    size = freq;
+  }
+
+  /**
+   * Returns the index of the first occurrence, starting at <code>from</code>,
+   * whose tuple and cell identifiers are greater than or equal to the target
+   * tuple and cell, or {@link #size()} if there is no such occurrence.
+   * <p>
+   * The search doubles the step from <code>from</code> until it overshoots
+   * the target, and then performs a binary search in the last interval.
+   * Use a negative <code>cellID</code> to search only by tuple.
+   */
+  int advance(final int from, final int tupleID, final int cellID) {
+    if (from >= size || !this.lessThan(from, tupleID, cellID)) {
+      return from;
+    }
+
+    // galloping: invariant lessThan(lo) && (hi >= size || !lessThan(hi))
+    int lo = from;
+    int step = 1;
+    int hi = from + step;
+    while (hi < size && this.lessThan(hi, tupleID, cellID)) {
+      lo = hi;
+      step <<= 1;
+      hi = from + step;
+    }
+    if (hi > size) {
+      hi = size;
+    }
+
+    // binary search within ]lo, hi]
+    while (hi - lo > 1) {
+      final int mid = (lo + hi) >>> 1;
+      if (this.lessThan(mid, tupleID, cellID)) {
+        lo = mid;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return hi;
+  }
+
+  /**
+   * Returns true if the occurrence at the given index is before the target
+   * tuple and cell.
+   */
+  private boolean lessThan(final int index, final int tupleID, final int cellID) {
+    return tuples[index] < tupleID ||
+          (tuples[index] == tupleID && cells[index] < cellID);
+  }
+
+  private void ensureCapacity(final int capacity) {
+    if (positions.length < capacity) {
+      final int newCapacity = Math.max(capacity, positions.length << 1);
+      positions = new int[newCapacity];
+      tuples = new int[newCapacity];
+      cells = new int[newCapacity];
+      cellStarts = new int[newCapacity + 1];
+    }
+  }
+
+  /** Returns the number of occurrences decoded. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the position of the i-th occurrence. */
+  public int position(final int i) {
+    return positions[i];
+  }
+
+  /** Returns the tuple identifier of the i-th occurrence. */
+  public int tuple(final int i) {
+    return tuples[i];
+  }
+
+  /** Returns the cell identifier of the i-th occurrence. */
+  public int cell(final int i) {
+    return cells[i];
+  }
+
+  /**
+   * Returns the frequency of the term within the cell of the i-th occurrence.
+   * <p>
+   * The cell is searched from the cell of the previous call, which is
+   * constant-time when the occurrences are accessed in order.
+   */
+  public int cellFreq(final int i) {
+    int c = cellStarts[cellPtr] <= i ? cellPtr : 0;
+    while (cellStarts[c + 1] <= i) {
+      c++;
+    }
+    cellPtr = c;
+    return cellStarts[c + 1] - cellStarts[c];
+  }
+
+}
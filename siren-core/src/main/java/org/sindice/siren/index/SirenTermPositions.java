@@ -36,6 +36,11 @@ import org.sindice.siren.search.DocTupCelIdSetIterator;
 /**
  * Decorator of the {@link TermPositions} class that implements all the logic
  * to iterate over the tuple table structure.
+ * <p>
+ * The occurrences of the term within an entity are decoded lazily, in one
+ * pass, by a {@link SirenPositionsDecoder} the first time the positions of the
+ * entity are accessed. Iterating and skipping over tuples and cells is then
+ * performed on the decoded buffers.
  */
 public class SirenTermPositions implements TermPositions {
 
@@ -47,10 +52,13 @@ public class SirenTermPositions implements TermPositions {
   /** Flag to know if next or skipTo has been called */
   private boolean             _isFirstTime = true;
 
-  /** Payload byte array buffer */
-  private final byte[]        payloadBuffer = new byte[6];
+  /** Flag to know if the occurrences of the current entity are decoded */
+  private boolean             _isTuplesLoaded = false;
 
-  /** index of the next element to be read or written */
+  /** Decoder of the occurrences of the current entity */
+  private final SirenPositionsDecoder decoder = new SirenPositionsDecoder();
+
+  /** index of the current occurrence in the decoder buffers */
   private int                 _posPtr = -1;
 
   /** Current structural and positional information */
@@ -66,6 +74,7 @@ public class SirenTermPositions implements TermPositions {
 
   protected void reinit() {
     _isFirstTime = true;
+    _isTuplesLoaded = false;
     _posPtr = -1;
     dataset = entity = tuple = cell = pos = -1;
   }
@@ -149,11 +158,17 @@ public class SirenTermPositions implements TermPositions {
 
   /**
    * Returns the frequency of the term within the current cell.
-   * <p> This is invalid until {@link #nextPosition()} is called for the first time.
+   * <p> This is invalid until {@link #nextPosition()} is called for the first time,
+   * and returns 0 until then, or once the positions of the entity are exhausted.
+   * The cells are located when the occurrences of the entity are decoded,
+   * this call is therefore constant-time when the positions are iterated in
+   * order.
    **/
   public int freqCell() {
-    // TODO: add frequency counter
-    return 1;
+    if (_posPtr < 0 || _posPtr >= decoder.size) {
+      return 0; // not positioned on an occurrence
+    }
+    return decoder.cellFreq(_posPtr);
   }
 
   @Override
@@ -166,7 +181,7 @@ public class SirenTermPositions implements TermPositions {
     }
     entity = _termPositions.doc();
     dataset = tuple = cell = pos = -1;
-    _isFirstTime = false;
+    _isFirstTime = _isTuplesLoaded = false;
     _posPtr = -1;
     return true;
   }
@@ -186,12 +201,18 @@ public class SirenTermPositions implements TermPositions {
   @Override
   public int nextPosition()
   throws IOException {
-    if (_isFirstTime)
-      throw new RuntimeException("Invalid call, next should be called first.");
+    if (!_isTuplesLoaded) {
+      if (_isFirstTime)
+        throw new RuntimeException("Invalid call, next should be called first.");
+      this.loadTuples();
+    }
 
-    if (++_posPtr < _termPositions.freq()) {
-      this.loadTuple();
-      return pos;
+    // setCurrent() is not always inlined: assign the fields directly
+    final int ptr = ++_posPtr;
+    if (ptr < decoder.size) {
+      tuple = decoder.tuples[ptr];
+      cell = decoder.cells[ptr];
+      return pos = decoder.positions[ptr];
     }
 
     return DocTupCelIdSetIterator.NO_MORE_POS;
@@ -216,7 +237,7 @@ public class SirenTermPositions implements TermPositions {
     }
     entity = _termPositions.doc();
     dataset = tuple = cell = pos = -1;
-    _isFirstTime = false;
+    _isFirstTime = _isTuplesLoaded = false;
     _posPtr = -1;
     return true;
   }
@@ -232,6 +253,10 @@ public class SirenTermPositions implements TermPositions {
       // If we skipped to the right entity, load the tuples and let's try to
       // find the right one
       if (entity == entityID) {
+        // if tuples were already loaded, it does not do anything. Useful in the
+        // case where skipTo is called multiples times with the same entityID in
+        // order to avoid to load tuples multiples times.
+        this.loadTuples();
         // If tuple is not found, just move to the next entity (SRN-17), and
         // to the next cell (SRN-24)
         if (!this.findTuple(tupleID)) {
@@ -260,17 +285,13 @@ public class SirenTermPositions implements TermPositions {
    *
    * @param tupleID The target tuple identifier
    * @return True if the tuple is found, false otherwise (SRN-17)
-   * @throws IOException
    */
-  private boolean findTuple(final int tupleID) throws IOException {
-    while (++_posPtr < _termPositions.freq()) {
-      this.loadTuple();
-      // if the current tuple is lesser than the target, continue
-      if (tuple < tupleID) {
-        continue;
-      } else {
-        return true;
-      }
+  private boolean findTuple(final int tupleID) {
+    // a cell identifier is never negative: search only by tuple
+    _posPtr = decoder.advance(_posPtr + 1, tupleID, -1);
+    if (_posPtr < decoder.size) {
+      this.setCurrent(_posPtr);
+      return true;
     }
     return false;
   }
@@ -286,6 +307,8 @@ public class SirenTermPositions implements TermPositions {
       // If we skipped to the right entity, load the tuples and let's try to
       // find the right one
       if (entity == entityID) {
+        // if tuples were already loaded, it does not do anything.
+        this.loadTuples();
         // If tuple and cell are not found, just move to the next entity
         // (SRN-17), and to the next cell (SRN-24)
         if (!this.findCell(tupleID, cellID)) {
@@ -314,48 +337,32 @@ public class SirenTermPositions implements TermPositions {
    *
    * @param tupleID The target tuple identifier
    * @return True if the tuple and cell are found, false otherwise (SRN-17)
-   * @throws IOException
    */
-  private boolean findCell(final int tupleID, final int cellID) throws IOException {
-    while (++_posPtr < _termPositions.freq()) {
-      this.loadTuple();
-      // if the current tuple is lesser or equal than the target,
-      // and the current cell is lesser than the target, continue
-      if (tuple < tupleID ||
-         (tuple == tupleID && cell < cellID)) {
-        continue;
-      } else {
-        return true;
-      }
+  private boolean findCell(final int tupleID, final int cellID) {
+    _posPtr = decoder.advance(_posPtr + 1, tupleID, cellID);
+    if (_posPtr < decoder.size) {
+      this.setCurrent(_posPtr);
+      return true;
     }
     return false;
   }
 
-  protected void loadTuple() throws IOException {
-    pos = _termPositions.nextPosition();
-    final AbstractSirenPayload payload = this.getPayload();
-    tuple = tuple == -1 ? payload.getTupleID() : tuple + payload.getTupleID();
-    if (cell == -1 || payload.getTupleID() != 0) {
-      cell = payload.getCellID();
-    }
-    else { // if (payload.getTupleID() == 0)
-      cell += payload.getCellID();
-    }
-  }
+  /**
+   * Decode all the occurrences of the term in the current entity, if not
+   * already done.
+   */
+  protected void loadTuples() throws IOException {
+    if (_isTuplesLoaded) return;
 
-  final PackedIntSirenPayload payload = new PackedIntSirenPayload();
+    decoder.decode(_termPositions, _termPositions.freq());
+    _posPtr = -1;
+    _isTuplesLoaded = true;
+  }
 
-  protected AbstractSirenPayload getPayload() throws IOException {
-    if (_termPositions.isPayloadAvailable()) {
-      payload.setData(_termPositions.getPayload(payloadBuffer, 0), 0,
-          _termPositions.getPayloadLength());
-      payload.decode();
-    }
-    else { // no payload, special case where tuple and cell == 0
-      payload._tupleID = 0;
-      payload._cellID = 0;
-    }
-    return payload;
+  private void setCurrent(final int ptr) {
+    tuple = decoder.tuples[ptr];
+    cell = decoder.cells[ptr];
+    pos = decoder.positions[ptr];
   }
 
   @Override
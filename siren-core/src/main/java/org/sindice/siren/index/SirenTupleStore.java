@@ -0,0 +1,517 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.search.FieldCache;
+import org.sindice.siren.search.SirenPredicateBitSetCache;
+
+/**
+ * A forward index of the tuples of the entities of a segment, giving random
+ * access to the tuple N of the entity E without loading and analysing the
+ * stored content of the entity.
+ * <p>
+ * The terms of a field are dictionary encoded: a term is identified by its
+ * ordinal in the term dictionary of the segment, and {@link #term(int)}
+ * returns the text of an ordinal. The texts of the terms are concatenated in a
+ * single char array. The ordinals of an entity are grouped by tuple, then by
+ * cell, in columns of int arrays:
+ * <ul>
+ * <li> the tuples of the entity E are at the indexes
+ * <code>[entityTuples[E], entityTuples[E + 1])</code> of the tuple columns;
+ * <li> the cells of the tuple at the index T are at the indexes
+ * <code>[tupleCells[T], tupleCells[T + 1])</code> of the cell columns;
+ * <li> the ordinals of the cell at the index C are at the indexes
+ * <code>[cellOrds[C], cellOrds[C + 1])</code> of {@link #ords}, in the order of
+ * the tokens.
+ * </ul>
+ * A tuple or a cell without any indexed term, e.g., made of stop words only,
+ * is not stored.
+ * <p>
+ * The store of a field is built lazily by uninverting the postings of the
+ * field, and is cached per segment, as the {@link FieldCache}, with
+ * {@link #getStore(IndexReader, String)}. The tuples of the deleted entities
+ * are empty. The cache is keyed by the core of the segment if it has no
+ * deletions, and by the segment itself otherwise, as
+ * {@link SirenPredicateBitSetCache}, so that a store is never shared by
+ * segments with different deletions. A store is built outside of the lock of
+ * the cache: only the concurrent requests of the same store wait for it.
+ * <p>
+ * As {@link SirenPredicateBitSetCache}, the memory used by the cached stores
+ * is bounded by {@link #getMaxBytes()} and reported by
+ * {@link #cachedRamBytesUsed()}. A store larger than the bound is not built,
+ * and the least recently used stores are evicted first when the bound is
+ * reached.
+ */
+public class SirenTupleStore {
+
+  /** Default maximum number of bytes used by the cached stores */
+  public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * The stores of a segment, keyed by the segment or its core. A store being
+   * built is a {@link Placeholder}.
+   */
+  private static final Map<Object, Map<String, Object>> cache =
+    new WeakHashMap<Object, Map<String, Object>>();
+
+  private static long maxBytes = DEFAULT_MAX_BYTES;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private final String   field;
+
+  /** The texts of the terms, concatenated in the order of the ordinals */
+  private final char[]   termChars;
+  /** The start of the text of a term in {@link #termChars}, by ordinal */
+  private final int[]    termStarts;
+
+  /** Tuple columns */
+  private final int[]    entityTuples;
+  private final int[]    tupleIds;
+  private final int[]    tupleCells;
+
+  /** Cell columns */
+  private final int[]    cellIds;
+  private final int[]    cellOrds;
+
+  /** The ordinals of the cells */
+  private final int[]    ords;
+
+  /**
+   * Returns the store of the field of the segment, built at the first call, or
+   * null if the store does not fit in {@link #getMaxBytes()} bytes.
+   */
+  public static SirenTupleStore getStore(final IndexReader segment,
+                                         final String field)
+  throws IOException {
+    final Object key = segment.hasDeletions() ? segment : segment.getCoreCacheKey();
+    Map<String, Object> stores;
+    Object value;
+    final long maxBytes;
+    synchronized (cache) {
+      stores = cache.get(key);
+      if (stores == null) {
+        stores = new LinkedHashMap<String, Object>(16, 0.75f, true);
+        cache.put(key, stores);
+      }
+      value = stores.get(field);
+      if (value == null) {
+        value = new Placeholder();
+        stores.put(field, value);
+      }
+      maxBytes = SirenTupleStore.maxBytes;
+    }
+    if (!(value instanceof Placeholder)) {
+      hits.incrementAndGet();
+      return (SirenTupleStore) value;
+    }
+
+    // build the store outside of the lock of the cache, once
+    final Placeholder placeholder = (Placeholder) value;
+    synchronized (placeholder) {
+      if (placeholder.isBuilt) {
+        hits.incrementAndGet();
+        return placeholder.store;
+      }
+      misses.incrementAndGet();
+      placeholder.store = build(segment, field, maxBytes);
+      placeholder.isBuilt = true;
+      synchronized (cache) {
+        // the placeholder is not cached anymore after a purge
+        if (cache.get(key) == stores && stores.get(field) == placeholder) {
+          stores.remove(field);
+          if (placeholder.store != null) {
+            put(stores, field, placeholder.store);
+          }
+        }
+      }
+      return placeholder.store;
+    }
+  }
+
+  /**
+   * Caches a store, after evicting the least recently used stores if the
+   * stores cached would use more than {@link #getMaxBytes()} bytes.
+   */
+  private static void put(final Map<String, Object> stores, final String field,
+                          final SirenTupleStore store) {
+    long bytes = cachedRamBytesUsed() + store.ramBytesUsed();
+    bytes -= evict(stores, bytes - maxBytes);
+    for (final Map<String, Object> other : cache.values()) {
+      if (bytes <= maxBytes) {
+        break;
+      }
+      bytes -= evict(other, bytes - maxBytes);
+    }
+    stores.put(field, store);
+  }
+
+  /**
+   * Evicts the least recently used stores of a segment until at least
+   * <code>bytes</code> bytes are freed, and returns the number of bytes freed.
+   * The stores being built are kept.
+   */
+  private static long evict(final Map<String, Object> stores,
+                            final long bytes) {
+    long freed = 0;
+    final Iterator<Object> it = stores.values().iterator();
+    while (freed < bytes && it.hasNext()) {
+      final Object value = it.next();
+      if (value instanceof SirenTupleStore) {
+        freed += ((SirenTupleStore) value).ramBytesUsed();
+        it.remove();
+      }
+    }
+    return freed;
+  }
+
+  /**
+   * A store being built, on which the concurrent requests of the store wait,
+   * as the creation placeholder of the {@link FieldCache}.
+   */
+  private static final class Placeholder {
+
+    /** The store built, or null if it does not fit in the cache */
+    SirenTupleStore store;
+    boolean isBuilt = false;
+
+  }
+
+  /**
+   * Removes the stores of all the segments, and resets the hit and miss
+   * counts.
+   */
+  public static void purgeAllStores() {
+    synchronized (cache) {
+      cache.clear();
+      hits.set(0);
+      misses.set(0);
+    }
+  }
+
+  public static long getMaxBytes() {
+    synchronized (cache) {
+      return maxBytes;
+    }
+  }
+
+  /**
+   * Sets the maximum number of bytes used by the cached stores of all the
+   * segments. The stores already cached are kept.
+   */
+  public static void setMaxBytes(final long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be > 0");
+    }
+    synchronized (cache) {
+      SirenTupleStore.maxBytes = maxBytes;
+    }
+  }
+
+  /**
+   * Returns the number of stores read from the cache.
+   */
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of stores requested but not cached.
+   */
+  public static long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of stores cached over all the segments.
+   */
+  public static int numCachedStores() {
+    synchronized (cache) {
+      int size = 0;
+      for (final Map<String, Object> stores : cache.values()) {
+        for (final Object value : stores.values()) {
+          if (value instanceof SirenTupleStore) {
+            size++;
+          }
+        }
+      }
+      return size;
+    }
+  }
+
+  /**
+   * Returns the number of bytes used by the stores cached over all the
+   * segments.
+   */
+  public static long cachedRamBytesUsed() {
+    synchronized (cache) {
+      long bytes = 0;
+      for (final Map<String, Object> stores : cache.values()) {
+        for (final Object value : stores.values()) {
+          if (value instanceof SirenTupleStore) {
+            bytes += ((SirenTupleStore) value).ramBytesUsed();
+          }
+        }
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * Builds the store of the field of the segment, or returns null if the store
+   * uses more than <code>maxBytes</code> bytes. The size of the store is
+   * checked against its lower bound, the entity offsets, the ordinals and the
+   * term texts, before the positions are read.
+   */
+  static SirenTupleStore build(final IndexReader segment, final String field,
+                               final long maxBytes)
+  throws IOException {
+    final int maxDoc = segment.maxDoc();
+
+    // first pass: the term dictionary and the number of occurrences per entity
+    char[] termChars = new char[256];
+    int[] termStarts = new int[16];
+    int numTerms = 0;
+    final int[] occStarts = new int[maxDoc + 1];
+    TermEnum termEnum = segment.terms(new Term(field, ""));
+    final TermDocs termDocs = segment.termDocs();
+    final int[] docs = new int[32];
+    final int[] freqs = new int[32];
+    try {
+      do {
+        final Term t = termEnum.term();
+        if (t == null || !t.field().equals(field)) {
+          break;
+        }
+        final String text = t.text();
+        final int start = termStarts[numTerms];
+        if (numTerms + 1 >= termStarts.length) {
+          termStarts = Arrays.copyOf(termStarts, termStarts.length << 1);
+        }
+        if (start + text.length() > termChars.length) {
+          termChars = Arrays.copyOf(termChars,
+            Math.max(start + text.length(), termChars.length << 1));
+        }
+        text.getChars(0, text.length(), termChars, start);
+        termStarts[++numTerms] = start + text.length();
+        termDocs.seek(termEnum);
+        int n;
+        while ((n = termDocs.read(docs, freqs)) != 0) {
+          for (int i = 0; i < n; i++) {
+            occStarts[docs[i] + 1] += freqs[i];
+          }
+        }
+      } while (termEnum.next());
+    }
+    finally {
+      termEnum.close();
+      termDocs.close();
+    }
+    for (int e = 0; e < maxDoc; e++) {
+      occStarts[e + 1] += occStarts[e];
+    }
+    final int numOccs = occStarts[maxDoc];
+    termChars = Arrays.copyOf(termChars, termStarts[numTerms]);
+    termStarts = Arrays.copyOf(termStarts, numTerms + 1);
+    if (ramBytesUsed(termChars.length, numTerms + 1, maxDoc + 1, numOccs) > maxBytes) {
+      return null;
+    }
+
+    // second pass: the occurrences of each entity
+    int[] occOrds = new int[numOccs];
+    int[] occTuples = new int[numOccs];
+    int[] occCells = new int[numOccs];
+    int[] occPositions = new int[numOccs];
+    final int[] upto = Arrays.copyOf(occStarts, maxDoc);
+    final SirenPositionsDecoder decoder = new SirenPositionsDecoder();
+    termEnum = segment.terms(new Term(field, ""));
+    final TermPositions termPositions = segment.termPositions();
+    try {
+      for (int ord = 0; ord < numTerms; ord++, termEnum.next()) {
+        termPositions.seek(termEnum);
+        while (termPositions.next()) {
+          final int entity = termPositions.doc();
+          decoder.decode(termPositions, termPositions.freq());
+          for (int i = 0; i < decoder.size; i++) {
+            final int occ = upto[entity]++;
+            occOrds[occ] = ord;
+            occTuples[occ] = decoder.tuples[i];
+            occCells[occ] = decoder.cells[i];
+            occPositions[occ] = decoder.positions[i];
+          }
+        }
+      }
+    }
+    finally {
+      termEnum.close();
+      termPositions.close();
+    }
+
+    // group the occurrences of each entity by tuple and cell, in token order,
+    // and reorder the ordinals of the entity in place
+    final int[] entityTuples = new int[maxDoc + 1];
+    int[] tupleIds = new int[16], tupleCells = new int[16];
+    int[] cellIds = new int[16], cellOrds = new int[16];
+    int numTuples = 0, numCells = 0;
+    long[] keys = new long[16];
+    int[] buffer = new int[16];
+    for (int e = 0; e < maxDoc; e++) {
+      entityTuples[e] = numTuples;
+      final int start = occStarts[e], end = occStarts[e + 1];
+      if (keys.length < end - start) {
+        keys = new long[Math.max(end - start, keys.length << 1)];
+        buffer = new int[keys.length];
+      }
+      // the token position, then the ordinal
+      for (int i = start; i < end; i++) {
+        keys[i - start] = ((long) occPositions[i] << 32) | (i - start);
+      }
+      Arrays.sort(keys, 0, end - start);
+
+      int tuple = -1, cell = -1;
+      for (int k = 0; k < end - start; k++) {
+        final int occ = start + (int) keys[k];
+        if (occTuples[occ] != tuple) {
+          tuple = occTuples[occ];
+          cell = -1;
+          if (numTuples + 1 >= tupleIds.length) {
+            tupleIds = Arrays.copyOf(tupleIds, tupleIds.length << 1);
+            tupleCells = Arrays.copyOf(tupleCells, tupleIds.length);
+          }
+          tupleIds[numTuples] = tuple;
+          tupleCells[numTuples++] = numCells;
+        }
+        if (occCells[occ] != cell) {
+          cell = occCells[occ];
+          if (numCells + 1 >= cellIds.length) {
+            cellIds = Arrays.copyOf(cellIds, cellIds.length << 1);
+            cellOrds = Arrays.copyOf(cellOrds, cellIds.length);
+          }
+          cellIds[numCells] = cell;
+          cellOrds[numCells++] = start + k;
+        }
+        buffer[k] = occOrds[occ];
+      }
+      System.arraycopy(buffer, 0, occOrds, start, end - start);
+    }
+    entityTuples[maxDoc] = numTuples;
+    tupleCells[numTuples] = numCells;
+    cellOrds[numCells] = numOccs;
+    // release the occurrences before trimming the columns
+    occTuples = occCells = occPositions = null;
+    keys = null;
+    buffer = null;
+
+    final SirenTupleStore store = new SirenTupleStore(field, termChars,
+      termStarts, entityTuples, Arrays.copyOf(tupleIds, numTuples),
+      Arrays.copyOf(tupleCells, numTuples + 1), Arrays.copyOf(cellIds, numCells),
+      Arrays.copyOf(cellOrds, numCells + 1), occOrds);
+    return store.ramBytesUsed() > maxBytes ? null : store;
+  }
+
+  private SirenTupleStore(final String field, final char[] termChars,
+                          final int[] termStarts, final int[] entityTuples,
+                          final int[] tupleIds, final int[] tupleCells,
+                          final int[] cellIds, final int[] cellOrds,
+                          final int[] ords) {
+    this.field = field;
+    this.termChars = termChars;
+    this.termStarts = termStarts;
+    this.entityTuples = entityTuples;
+    this.tupleIds = tupleIds;
+    this.tupleCells = tupleCells;
+    this.cellIds = cellIds;
+    this.cellOrds = cellOrds;
+    this.ords = ords;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  /** Returns the number of terms of the dictionary. */
+  public int numTerms() {
+    return termStarts.length - 1;
+  }
+
+  /** Returns the text of the term with the given ordinal. */
+  public String term(final int ord) {
+    return new String(termChars, termStarts[ord], termStarts[ord + 1] - termStarts[ord]);
+  }
+
+  /** Returns the identifiers of the tuples of the entity, in increasing order. */
+  public int[] getTupleIds(final int entity) {
+    return Arrays.copyOfRange(tupleIds, entityTuples[entity], entityTuples[entity + 1]);
+  }
+
+  /**
+   * Returns the ordinals of the terms of a tuple of the entity, indexed by
+   * cell identifier, or null if the entity has no such tuple. The ordinals of a
+   * cell are in the order of the tokens, and a cell without any term is empty.
+   */
+  public int[][] getTuple(final int entity, final int tuple) {
+    final int t = Arrays.binarySearch(tupleIds, entityTuples[entity],
+      entityTuples[entity + 1], tuple);
+    if (t < 0) {
+      return null;
+    }
+    final int firstCell = tupleCells[t], lastCell = tupleCells[t + 1] - 1;
+    final int[][] cells = new int[cellIds[lastCell] + 1][];
+    Arrays.fill(cells, new int[0]);
+    for (int c = firstCell; c <= lastCell; c++) {
+      cells[cellIds[c]] = Arrays.copyOfRange(ords, cellOrds[c], cellOrds[c + 1]);
+    }
+    return cells;
+  }
+
+  /**
+   * Returns an estimate of the number of bytes used by the store.
+   */
+  public long ramBytesUsed() {
+    return ramBytesUsed(termChars.length, termStarts.length,
+      entityTuples.length, ords.length) +
+      4L * (tupleIds.length + tupleCells.length + cellIds.length + cellOrds.length);
+  }
+
+  /**
+   * Returns the number of bytes used by the term texts, the entity offsets and
+   * the ordinals of a store.
+   */
+  private static long ramBytesUsed(final int numChars, final int numTermStarts,
+                                   final int numEntityTuples, final int numOrds) {
+    return 2L * numChars + 4L * (numTermStarts + numEntityTuples + numOrds);
+  }
+
+}
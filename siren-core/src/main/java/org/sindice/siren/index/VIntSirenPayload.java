@@ -26,7 +26,6 @@
  */
 package org.sindice.siren.index;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 
 import org.sindice.siren.util.CodecUtils;
@@ -56,10 +55,10 @@ extends AbstractSirenPayload {
   }
 
   @Override
-  public void decode() {
-    final ByteArrayInputStream input = new ByteArrayInputStream(data, offset, length);
-    _tupleID = CodecUtils.byteArrayToVInt(input);
-    _cellID = CodecUtils.byteArrayToVInt(input);
+  public long decode(final byte[] data, final int offset, final int length) {
+    final int tupleID = CodecUtils.byteArrayToVInt(data, offset);
+    final int cellID = CodecUtils.byteArrayToVInt(data, offset + CodecUtils.vIntSize(tupleID));
+    return values(tupleID, cellID);
   }
 
   @Override
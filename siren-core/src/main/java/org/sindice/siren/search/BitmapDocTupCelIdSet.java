@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A {@link DocTupCelIdSet} encoded as one bitmap of cells per tuple, suited to
+ * dense matches.
+ * <p>
+ * The sorted tuples of each entity are stored contiguously, and each tuple
+ * is associated to the words of a bitmap where the bit i is set if the cell i
+ * of the tuple matches. The bitmap of a tuple has as many words as needed to
+ * store its last matching cell. The tuples of an entity are searched by
+ * binary search, and the cells of a tuple by scanning its bitmap.
+ * <p>
+ * The set is immutable, and {@link #iterator()} returns a new iterator at each
+ * call: a single instance can be shared by concurrent searches.
+ *
+ * @see DocTupCelIdSetBuilder
+ */
+public class BitmapDocTupCelIdSet extends DocTupCelIdSet {
+
+  /** The sorted entity identifiers */
+  private final int[] entities;
+
+  /** Index of the first tuple of each entity, and the number of tuples */
+  private final int[] tupleOffsets;
+
+  /** The tuple identifiers */
+  private final int[] tuples;
+
+  /** Index of the first word of each tuple, and the number of words */
+  private final int[] wordOffsets;
+
+  /** The bitmaps of cells */
+  private final long[] words;
+
+  private final int size;
+
+  BitmapDocTupCelIdSet(final DocTupCelIdSetBuilder builder) {
+    final int nEntities = builder.numEntities();
+    size = builder.size();
+
+    // count the tuples and the words
+    int nTuples = 0, nWords = 0;
+    for (int i = 0; i < nEntities; i++) {
+      final int end = builder.offset(i + 1);
+      for (int j = builder.offset(i); j < end; j++) {
+        if (j + 1 == end || builder.tuples[j + 1] != builder.tuples[j]) {
+          // last cell of the tuple
+          nTuples++;
+          nWords += (builder.cells[j] >>> 6) + 1;
+        }
+      }
+    }
+
+    entities = new int[nEntities];
+    tupleOffsets = new int[nEntities + 1];
+    tuples = new int[nTuples];
+    wordOffsets = new int[nTuples + 1];
+    words = new long[nWords];
+
+    int t = 0, w = 0;
+    for (int i = 0; i < nEntities; i++) {
+      entities[i] = builder.entities[i];
+      tupleOffsets[i] = t;
+      final int end = builder.offset(i + 1);
+      for (int j = builder.offset(i); j < end; j++) {
+        final int cell = builder.cells[j];
+        words[w + (cell >>> 6)] |= 1L << (cell & 63);
+        if (j + 1 == end || builder.tuples[j + 1] != builder.tuples[j]) {
+          // last cell of the tuple
+          tuples[t] = builder.tuples[j];
+          wordOffsets[t++] = w;
+          w += (cell >>> 6) + 1;
+        }
+      }
+    }
+    tupleOffsets[nEntities] = nTuples;
+    wordOffsets[nTuples] = nWords;
+  }
+
+  /**
+   * Returns the approximate memory usage of a {@link BitmapDocTupCelIdSet}
+   * built from the given triples, in bytes.
+   */
+  static long sizeInBytes(final DocTupCelIdSetBuilder builder) {
+    long nInts = 2 * builder.numEntities() + 2;
+    long nWords = 0;
+    for (int i = 0; i < builder.numEntities(); i++) {
+      final int end = builder.offset(i + 1);
+      for (int j = builder.offset(i); j < end; j++) {
+        if (j + 1 == end || builder.tuples[j + 1] != builder.tuples[j]) {
+          nInts += 2;
+          nWords += (builder.cells[j] >>> 6) + 1;
+        }
+      }
+    }
+    return RamUsageEstimator.NUM_BYTES_INT * nInts +
+      RamUsageEstimator.NUM_BYTES_LONG * nWords;
+  }
+
+  /** Returns the number of entities in the set. */
+  @Override
+  public int numEntities() {
+    return entities.length;
+  }
+
+  /** Returns the number of (entity, tuple, cell) triples in the set. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the approximate memory usage of the set, in bytes. */
+  public long sizeInBytes() {
+    return (long) RamUsageEstimator.NUM_BYTES_INT *
+      (entities.length + tupleOffsets.length + tuples.length + wordOffsets.length) +
+      (long) RamUsageEstimator.NUM_BYTES_LONG * words.length;
+  }
+
+  @Override
+  public DocTupCelIdSetIterator iterator() {
+    return new Iterator();
+  }
+
+  /**
+   * Returns the first matching cell of the tuple at index t which is greater
+   * or equal to the given cell, or -1 if there is none.
+   */
+  private int nextCell(final int t, final int cell) {
+    final int end = wordOffsets[t + 1];
+    int w = wordOffsets[t] + (cell >>> 6);
+    if (w >= end) {
+      return -1;
+    }
+    long word = words[w] & (-1L << (cell & 63));
+    while (word == 0) {
+      if (++w >= end) {
+        return -1;
+      }
+      word = words[w];
+    }
+    return ((w - wordOffsets[t]) << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Iterator over the set, with the semantics of
+   * {@link IntArrayDocTupCelIdSet#iterator()}.
+   */
+  private class Iterator implements DocTupCelIdSetIterator {
+
+    /** Index of the current entity */
+    private int index = -1;
+
+    /** Index of the current tuple */
+    private int t = -1;
+
+    private int entity = -1, tuple = -1, cell = -1;
+
+    public int nextDoc() {
+      return this.setEntity(index + 1);
+    }
+
+    public int nextPosition() {
+      if (index < 0 || index >= entities.length || tuple == Integer.MAX_VALUE) {
+        return NO_MORE_POS;
+      }
+      final int c = nextCell(t, cell + 1);
+      if (c != -1) {
+        cell = c;
+        return 0; // position is not retained in this set, return 0
+      }
+      if (t + 1 < tupleOffsets[index + 1]) {
+        this.setTuple(t + 1, 0);
+        return 0;
+      }
+      tuple = cell = Integer.MAX_VALUE; // set to sentinel value
+      return NO_MORE_POS;
+    }
+
+    public int advance(final int entityID) {
+      if (entityID == entity) { // reset to the first cell of the entity
+        return this.setEntity(index);
+      }
+      if (entityID < entity) {
+        return this.nextDoc();
+      }
+      // galloping search from the current entity
+      int lo = index, step = 1, hi = index + step;
+      while (hi < entities.length && entities[hi] < entityID) {
+        lo = hi;
+        step <<= 1;
+        hi = index + step;
+      }
+      if (hi > entities.length) {
+        hi = entities.length;
+      }
+      while (hi - lo > 1) {
+        final int mid = (lo + hi) >>> 1;
+        if (entities[mid] < entityID) {
+          lo = mid;
+        }
+        else {
+          hi = mid;
+        }
+      }
+      return this.setEntity(hi);
+    }
+
+    public int advance(final int entityID, final int tupleID) {
+      return this.advance(entityID, tupleID, -1);
+    }
+
+    public int advance(final int entityID, final int tupleID, final int cellID) {
+      if (index >= entities.length) { // exhausted
+        return entity;
+      }
+      if (entityID != entity) {
+        if (this.advance(entityID) != entityID) {
+          return entity;
+        }
+        // the first cell of the entity is a candidate
+        if (tuple > tupleID || (tuple == tupleID && cell >= cellID)) {
+          return entity;
+        }
+      }
+      else if (tuple > tupleID || (tuple == tupleID && cell >= cellID)) {
+        // the target is before the current cell, move to the next one
+        return this.nextPosition() != NO_MORE_POS ? entity : this.nextDoc();
+      }
+
+      // binary search of the first tuple greater or equal to the target
+      int lo = t, hi = tupleOffsets[index + 1];
+      if (tuple < tupleID) {
+        lo++;
+        while (lo < hi) {
+          final int mid = (lo + hi) >>> 1;
+          if (tuples[mid] < tupleID) {
+            lo = mid + 1;
+          }
+          else {
+            hi = mid;
+          }
+        }
+        hi = tupleOffsets[index + 1];
+      }
+      if (lo < hi && tuples[lo] == tupleID) {
+        final int c = nextCell(lo, cellID < 0 ? 0 : cellID);
+        if (c != -1) {
+          this.setTuple(lo, c);
+          return entity;
+        }
+        lo++;
+      }
+      if (lo < hi) {
+        this.setTuple(lo, 0);
+        return entity;
+      }
+      // not found, move to the first cell of the next entity (SRN-17)
+      return this.nextDoc();
+    }
+
+    private int setEntity(final int i) {
+      index = i;
+      if (index >= entities.length) {
+        index = entities.length;
+        entity = tuple = cell = DocIdSetIterator.NO_MORE_DOCS; // set to sentinel value
+        return entity;
+      }
+      entity = entities[index];
+      this.setTuple(tupleOffsets[index], 0); // move to the first cell [SRN-24]
+      return entity;
+    }
+
+    /**
+     * Move to the first matching cell greater or equal to the given cell in
+     * the tuple at index i. There must be one.
+     */
+    private void setTuple(final int i, final int c) {
+      t = i;
+      tuple = tuples[t];
+      cell = nextCell(t, c);
+    }
+
+    public int dataset() {
+      return -1;
+    }
+
+    public int entity() {
+      return entity;
+    }
+
+    public int tuple() {
+      return tuple;
+    }
+
+    public int cell() {
+      return cell;
+    }
+
+    /**
+     * Position is not retained in this set. It returns 0, as
+     * {@link #nextPosition()}, while the iterator is on a cell, and
+     * {@link #NO_MORE_POS} once the cells are exhausted.
+     */
+    public int pos() {
+      return tuple == Integer.MAX_VALUE ? NO_MORE_POS : 0;
+    }
+
+  }
+
+}
@@ -80,6 +80,11 @@ public abstract class DocTupCelIdSet {
       return iterator;
     }
 
+    @Override
+    public int numEntities() {
+      return 0;
+    }
+
   };
 
   /** Provides a {@link DocTupCelIdSetIterator} to access the set.
@@ -88,5 +93,13 @@ public abstract class DocTupCelIdSet {
    * are no docs that match. */
   public abstract DocTupCelIdSetIterator iterator() throws IOException;
 
+  /**
+   * Returns the number of entities in the set, or -1 if unknown. Used to
+   * estimate the cost of iterating the set.
+   */
+  public int numEntities() {
+    return -1;
+  }
+
 }
 
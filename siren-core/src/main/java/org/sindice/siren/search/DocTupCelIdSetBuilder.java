@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Collect the distinct (entity, tuple, cell) triples of a structural match,
+ * and build a materialised {@link DocTupCelIdSet} from them.
+ * <p>
+ * The triples must be added in increasing order of entity, tuple and cell,
+ * which is the order of a {@link DocTupCelIdSetIterator}. The multiple
+ * occurrences of a triple (e.g., multiple terms within the same cell) are
+ * only added once.
+ * <p>
+ * {@link #build()} selects the most compact encoding for the collected
+ * triples:
+ * <ul>
+ * <li> a {@link SortedVIntDocTupCelIdSet} for sparse matches, with few cells
+ * per tuple;
+ * <li> a {@link BitmapDocTupCelIdSet} for dense matches, with many cells per
+ * tuple.
+ * </ul>
+ */
+public class DocTupCelIdSetBuilder {
+
+  int[] entities = new int[16];
+
+  /** Index of the first (tuple, cell) pair of each entity */
+  int[] offsets = new int[17];
+
+  int[] tuples = new int[64];
+  int[] cells = new int[64];
+
+  int nEntities = 0;
+  int size = 0;
+
+  /**
+   * Add a triple to the set.
+   *
+   * @throws IllegalArgumentException if an identifier is negative, or if the
+   * triple is lower than the last triple added.
+   */
+  public DocTupCelIdSetBuilder add(final int entity, final int tuple, final int cell) {
+    if (entity < 0 || tuple < 0 || cell < 0) {
+      throw new IllegalArgumentException("Invalid triple (" + entity + ", " +
+        tuple + ", " + cell + ")");
+    }
+    if (nEntities == 0 || entity > entities[nEntities - 1]) {
+      if (nEntities == entities.length) {
+        entities = ArrayUtil.grow(entities, nEntities + 1);
+        offsets = ArrayUtil.grow(offsets, entities.length + 1);
+      }
+      entities[nEntities] = entity;
+      offsets[nEntities++] = size;
+    }
+    else {
+      final int lastTuple = tuples[size - 1];
+      final int lastCell = cells[size - 1];
+      if (entity == entities[nEntities - 1] && tuple == lastTuple && cell == lastCell) {
+        return this; // skip the multiple occurrences within the same cell
+      }
+      if (entity < entities[nEntities - 1] || tuple < lastTuple ||
+         (tuple == lastTuple && cell < lastCell)) {
+        throw new IllegalArgumentException("Triple (" + entity + ", " + tuple +
+          ", " + cell + ") added after (" + entities[nEntities - 1] + ", " +
+          lastTuple + ", " + lastCell + ")");
+      }
+    }
+    if (size == tuples.length) {
+      tuples = ArrayUtil.grow(tuples, size + 1);
+      cells = ArrayUtil.grow(cells, size + 1);
+    }
+    tuples[size] = tuple;
+    cells[size++] = cell;
+    return this;
+  }
+
+  /**
+   * Add all the triples enumerated by the iterator.
+   * <p>
+   * The iterator must be positioned on the first cell of an entity after
+   * {@link DocTupCelIdSetIterator#nextDoc()} [SRN-24].
+   */
+  public DocTupCelIdSetBuilder add(final DocTupCelIdSetIterator it)
+  throws IOException {
+    int entity;
+    while ((entity = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      do {
+        this.add(entity, it.tuple(), it.cell());
+      } while (it.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+    }
+    return this;
+  }
+
+  /** Returns the number of entities collected. */
+  public int numEntities() {
+    return nEntities;
+  }
+
+  /** Returns the number of distinct triples collected. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Build the most compact set for the collected triples.
+   */
+  public DocTupCelIdSet build() {
+    if (nEntities == 0) {
+      return DocTupCelIdSet.EMPTY_IDSET;
+    }
+    final SortedVIntDocTupCelIdSet sparse = this.buildSortedVInt();
+    if (BitmapDocTupCelIdSet.sizeInBytes(this) < sparse.sizeInBytes()) {
+      return this.buildBitmap();
+    }
+    return sparse;
+  }
+
+  public IntArrayDocTupCelIdSet buildIntArray() {
+    return new IntArrayDocTupCelIdSet(this);
+  }
+
+  public SortedVIntDocTupCelIdSet buildSortedVInt() {
+    return new SortedVIntDocTupCelIdSet(this);
+  }
+
+  public BitmapDocTupCelIdSet buildBitmap() {
+    return new BitmapDocTupCelIdSet(this);
+  }
+
+  /**
+   * Returns the index of the first (tuple, cell) pair of the i-th entity, or
+   * the number of pairs if i is the number of entities.
+   */
+  int offset(final int i) {
+    return i == nEntities ? size : offsets[i];
+  }
+
+}
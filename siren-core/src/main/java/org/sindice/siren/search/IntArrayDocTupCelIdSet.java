@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A {@link DocTupCelIdSet} materialised in sorted primitive int arrays.
+ * <p>
+ * The distinct (tuple, cell) pairs of each entity are stored contiguously,
+ * in the order of the original iterator. The positions are not retained: the
+ * set is meant to be cached and reused by filters that only constrain
+ * entities, tuples and cells.
+ * <p>
+ * This is the fastest set to iterate, but also the largest one. See
+ * {@link DocTupCelIdSetBuilder} for more compact encodings.
+ * <p>
+ * The set is immutable, and {@link #iterator()} returns a new iterator at each
+ * call: a single instance can be shared by concurrent searches.
+ */
+public class IntArrayDocTupCelIdSet extends DocTupCelIdSet {
+
+  /** The sorted entity identifiers */
+  private final int[] entities;
+
+  /** Index of the first (tuple, cell) pair of each entity, and the total size */
+  private final int[] offsets;
+
+  private final int[] tuples;
+  private final int[] cells;
+
+  /**
+   * Materialise the (entity, tuple, cell) triples enumerated by the iterator.
+   * <p>
+   * The iterator must be positioned on the first cell of an entity after
+   * {@link DocTupCelIdSetIterator#nextDoc()} [SRN-24].
+   */
+  public IntArrayDocTupCelIdSet(final DocTupCelIdSetIterator it)
+  throws IOException {
+    this(new DocTupCelIdSetBuilder().add(it));
+  }
+
+  IntArrayDocTupCelIdSet(final DocTupCelIdSetBuilder builder) {
+    final int nEntities = builder.numEntities();
+    this.entities = Arrays.copyOf(builder.entities, nEntities);
+    this.offsets = Arrays.copyOf(builder.offsets, nEntities + 1);
+    this.offsets[nEntities] = builder.size();
+    this.tuples = Arrays.copyOf(builder.tuples, builder.size());
+    this.cells = Arrays.copyOf(builder.cells, builder.size());
+  }
+
+  /** Returns the number of entities in the set. */
+  @Override
+  public int numEntities() {
+    return entities.length;
+  }
+
+  /** Returns the number of (entity, tuple, cell) triples in the set. */
+  public int size() {
+    return tuples.length;
+  }
+
+  /** Returns the approximate memory usage of the set, in bytes. */
+  public long sizeInBytes() {
+    return (long) RamUsageEstimator.NUM_BYTES_INT *
+      (entities.length + offsets.length + tuples.length + cells.length);
+  }
+
+  @Override
+  public DocTupCelIdSetIterator iterator() {
+    return new Iterator();
+  }
+
+  /**
+   * Iterator over the set, following the semantics of
+   * {@link org.sindice.siren.index.SirenTermPositions}: an advance within the
+   * current entity starts after the current cell, and an advance which does
+   * not find its target tuple or cell in the entity moves to the first cell
+   * of the next entity (SRN-17, SRN-24).
+   */
+  private class Iterator implements DocTupCelIdSetIterator {
+
+    /** Index of the current entity */
+    private int index = -1;
+
+    /** Index of the current (tuple, cell) pair */
+    private int ptr = -1;
+
+    private int entity = -1, tuple = -1, cell = -1;
+
+    public int nextDoc() {
+      return this.setEntity(index + 1);
+    }
+
+    public int nextPosition() {
+      if (index >= 0 && index < entities.length && ++ptr < offsets[index + 1]) {
+        this.setPair();
+        return 0; // position is not retained in this set, return 0
+      }
+      tuple = cell = Integer.MAX_VALUE; // set to sentinel value
+      return NO_MORE_POS;
+    }
+
+    public int advance(final int entityID) {
+      if (entityID == entity) { // reset to the first cell of the entity
+        return this.setEntity(index);
+      }
+      if (entityID < entity) {
+        return this.nextDoc();
+      }
+      // galloping search from the current entity
+      int lo = index, step = 1, hi = index + step;
+      while (hi < entities.length && entities[hi] < entityID) {
+        lo = hi;
+        step <<= 1;
+        hi = index + step;
+      }
+      if (hi > entities.length) {
+        hi = entities.length;
+      }
+      while (hi - lo > 1) {
+        final int mid = (lo + hi) >>> 1;
+        if (entities[mid] < entityID) {
+          lo = mid;
+        }
+        else {
+          hi = mid;
+        }
+      }
+      return this.setEntity(hi);
+    }
+
+    public int advance(final int entityID, final int tupleID) {
+      return this.advance(entityID, tupleID, -1);
+    }
+
+    public int advance(final int entityID, final int tupleID, final int cellID) {
+      if (index >= entities.length) { // exhausted
+        return entity;
+      }
+      if (entityID != entity) {
+        if (this.advance(entityID) != entityID) {
+          return entity;
+        }
+        // the first cell of the entity is a candidate
+        ptr = offsets[index] - 1;
+      }
+      final int end = offsets[index + 1];
+      while (++ptr < end) {
+        if (tuples[ptr] > tupleID ||
+           (tuples[ptr] == tupleID && cells[ptr] >= cellID)) {
+          this.setPair();
+          return entity;
+        }
+      }
+      // not found, move to the first cell of the next entity (SRN-17)
+      return this.nextDoc();
+    }
+
+    private int setEntity(final int i) {
+      index = i;
+      if (index >= entities.length) {
+        index = entities.length;
+        entity = tuple = cell = DocIdSetIterator.NO_MORE_DOCS; // set to sentinel value
+        return entity;
+      }
+      entity = entities[index];
+      ptr = offsets[index];
+      this.setPair(); // move to the first cell [SRN-24]
+      return entity;
+    }
+
+    private void setPair() {
+      tuple = tuples[ptr];
+      cell = cells[ptr];
+    }
+
+    public int dataset() {
+      return -1;
+    }
+
+    public int entity() {
+      return entity;
+    }
+
+    public int tuple() {
+      return tuple;
+    }
+
+    public int cell() {
+      return cell;
+    }
+
+    /**
+     * Position is not retained in this set. It returns 0, as
+     * {@link #nextPosition()}, while the iterator is on a cell, and
+     * {@link #NO_MORE_POS} once the cells are exhausted.
+     */
+    public int pos() {
+      return tuple == Integer.MAX_VALUE ? NO_MORE_POS : 0;
+    }
+
+  }
+
+}
@@ -89,6 +89,11 @@ class NonMatchingScorer extends SirenPrimitiveScorer {
     return NO_MORE_DOCS;
   }
 
+  @Override
+  public long cost() {
+    return 0;
+  }
+
 //  @Override
 //  public Explanation explain(final int doc) {
 //    final Explanation e = new Explanation();
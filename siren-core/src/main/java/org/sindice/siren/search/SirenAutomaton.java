@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A deterministic automaton over the characters of a term, determinized lazily
+ * from the states given by {@link #initialState()} and
+ * {@link #step(int[], char)}.
+ * <p>
+ * The characters that are not part of the alphabet given at construction must
+ * all lead to the same state, so that the transitions of a deterministic state
+ * are computed and cached once per character of the alphabet plus once for
+ * all the other characters.
+ * <p>
+ * A subclass must only create states from which an accepting state can be
+ * reached. This allows {@link #nextLiveString(String)} to compute the next
+ * string of the term dictionary worth seeking to without looking ahead.
+ * <p>
+ * This class is not thread-safe: it is created by a term enumeration for
+ * the duration of a rewrite.
+ */
+abstract class SirenAutomaton {
+
+  /** The state returned by a transition rejecting the character */
+  static final int DEAD = -1;
+
+  private static final int UNKNOWN = -2;
+
+  /**
+   * Maximum number of deterministic states kept in the cache, the cache is
+   * cleared when it is reached.
+   */
+  private static final int MAX_CACHED_STATES = 8192;
+
+  /** The sorted characters having their own transitions */
+  private final char[] alphabet;
+
+  /** A character outside the alphabet, or -1 if there is none */
+  private final int other;
+
+  private final Map<State, Integer> ids = new HashMap<State, Integer>();
+  private final List<int[]> states = new ArrayList<int[]>();
+  private final List<int[]> transitions = new ArrayList<int[]>();
+  private final List<Boolean> accepts = new ArrayList<Boolean>();
+
+  protected SirenAutomaton(final char[] chars) {
+    final char[] sorted = chars.clone();
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (size == 0 || sorted[size - 1] != sorted[i]) {
+        sorted[size++] = sorted[i];
+      }
+    }
+    alphabet = Arrays.copyOf(sorted, size);
+    other = this.nextOtherChar(0);
+  }
+
+  /**
+   * Returns the initial state.
+   */
+  protected abstract int[] initialState();
+
+  /**
+   * Returns the state reached from <code>state</code> by reading
+   * <code>c</code>, or null if no accepting state can be reached anymore.
+   */
+  protected abstract int[] step(int[] state, char c);
+
+  /**
+   * Returns true if the state is accepting.
+   */
+  protected abstract boolean isAccept(int[] state);
+
+  /**
+   * Returns true if the automaton accepts the string.
+   */
+  boolean run(final String s) {
+    int state = this.start();
+    for (int i = 0; i < s.length() && state != DEAD; i++) {
+      state = this.transition(state, s.charAt(i));
+    }
+    return state != DEAD && accepts.get(state);
+  }
+
+  /**
+   * Returns the smallest string, in the order of {@link String#compareTo},
+   * greater than or equal to <code>s</code> that is the prefix of an accepted
+   * string, or null if there is none. No accepted string is between
+   * <code>s</code> and the returned string.
+   */
+  String nextLiveString(final String s) {
+    final int[] path = new int[s.length() + 1];
+    path[0] = this.start();
+    int pos = 0;
+    while (pos < s.length()) {
+      final int next = this.transition(path[pos], s.charAt(pos));
+      if (next == DEAD) {
+        break;
+      }
+      path[++pos] = next;
+    }
+    if (pos == s.length()) {
+      return s;
+    }
+    // s[0, pos] is a dead end: take the longest prefix of s that can be
+    // followed by a character greater than the one of s
+    for (; pos >= 0; pos--) {
+      final int c = this.nextLiveChar(path[pos], s.charAt(pos) + 1);
+      if (c != -1) {
+        return s.substring(0, pos) + (char) c;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the smallest character greater than or equal to <code>from</code>
+   * that does not lead to a dead end from <code>state</code>, or -1 if there
+   * is none.
+   */
+  private int nextLiveChar(final int state, final int from) {
+    int best = -1;
+    if (other != -1 && this.transition(state, (char) other) != DEAD) {
+      best = this.nextOtherChar(from);
+    }
+    int i = Arrays.binarySearch(alphabet, (char) Math.min(from, Character.MAX_VALUE));
+    if (i < 0) {
+      i = -i - 1;
+    }
+    for (; i < alphabet.length && alphabet[i] >= from && (best == -1 || alphabet[i] < best); i++) {
+      if (this.transition(state, alphabet[i]) != DEAD) {
+        return alphabet[i];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the smallest character greater than or equal to <code>from</code>
+   * that is not in the alphabet, or -1 if there is none.
+   */
+  private int nextOtherChar(final int from) {
+    int c = from;
+    while (c <= Character.MAX_VALUE && Arrays.binarySearch(alphabet, (char) c) >= 0) {
+      c++;
+    }
+    return c <= Character.MAX_VALUE ? c : -1;
+  }
+
+  /**
+   * Returns the identifier of the initial state, clearing the cache if it
+   * grew too large.
+   */
+  private int start() {
+    if (states.isEmpty() || states.size() >= MAX_CACHED_STATES) {
+      ids.clear();
+      states.clear();
+      transitions.clear();
+      accepts.clear();
+      this.addState(this.initialState());
+    }
+    return 0;
+  }
+
+  private int transition(final int state, final char c) {
+    int klass = Arrays.binarySearch(alphabet, c);
+    if (klass < 0) {
+      klass = alphabet.length;
+    }
+    final int[] row = transitions.get(state);
+    if (row[klass] == UNKNOWN) {
+      final int[] next = this.step(states.get(state), c);
+      row[klass] = next == null ? DEAD : this.addState(next);
+    }
+    return row[klass];
+  }
+
+  private int addState(final int[] state) {
+    final State key = new State(state);
+    Integer id = ids.get(key);
+    if (id == null) {
+      id = states.size();
+      ids.put(key, id);
+      states.add(state);
+      final int[] row = new int[alphabet.length + 1];
+      Arrays.fill(row, UNKNOWN);
+      transitions.add(row);
+      accepts.add(this.isAccept(state));
+    }
+    return id;
+  }
+
+  /**
+   * Key of a deterministic state in the cache.
+   */
+  private static final class State {
+
+    private final int[] state;
+    private final int hash;
+
+    State(final int[] state) {
+      this.state = state;
+      this.hash = Arrays.hashCode(state);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof State && Arrays.equals(state, ((State) obj).state);
+    }
+
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FilteredTermEnum;
+
+/**
+ * Enumerates the terms of a field accepted by a {@link SirenAutomaton}.
+ * <p>
+ * Instead of testing every term of the field, the enumeration seeks the term
+ * dictionary to the next string that can lead to an accepted term whenever a
+ * term is rejected, so that the number of terms visited depends on the
+ * number of matching terms rather than on the size of the dictionary.
+ * <p>
+ * The term following a rejected term is read first, and the term dictionary
+ * is only seeked if this term is before the next string, since a seek is
+ * much more costly than a sequential read.
+ * <p>
+ * A subclass must call {@link #start()} at the end of its constructor.
+ */
+abstract class SirenAutomatonTermEnum extends FilteredTermEnum {
+
+  private final IndexReader reader;
+  private final String field;
+  private final SirenAutomaton automaton;
+  private boolean endEnum = false;
+
+  SirenAutomatonTermEnum(final IndexReader reader, final String field,
+                         final SirenAutomaton automaton) {
+    this.reader = reader;
+    this.field = field;
+    this.automaton = automaton;
+  }
+
+  /**
+   * Positions the enumeration on the first accepted term.
+   */
+  protected void start() throws IOException {
+    final String target = automaton.nextLiveString("");
+    if (target == null) {
+      endEnum = true;
+    }
+    this.setEnum(reader.terms(new Term(field, target == null ? "" : target)));
+  }
+
+  @Override
+  protected boolean termCompare(final Term term) {
+    if (!endEnum && term.field() == field) {
+      return automaton.run(term.text());
+    }
+    endEnum = true;
+    return false;
+  }
+
+  @Override
+  protected final boolean endEnum() {
+    return endEnum;
+  }
+
+  @Override
+  public boolean next() throws IOException {
+    if (actualEnum == null) {
+      return false;
+    }
+    currentTerm = null;
+    boolean positioned = false;
+    while (!endEnum) {
+      if (!positioned && !actualEnum.next()) {
+        break;
+      }
+      final Term term = actualEnum.term();
+      if (term == null) {
+        break;
+      }
+      if (this.termCompare(term)) {
+        currentTerm = term;
+        return true;
+      }
+      if (endEnum || !this.seekNextLiveString(term)) {
+        break;
+      }
+      positioned = true;
+    }
+    endEnum = true;
+    return false;
+  }
+
+  /**
+   * Positions the enumeration on the first term that can be accepted after
+   * the rejected term. Returns false if there is none.
+   */
+  private boolean seekNextLiveString(final Term rejected) throws IOException {
+    final String target = automaton.nextLiveString(rejected.text() + '\u0000');
+    if (target == null || !actualEnum.next()) {
+      return false;
+    }
+    final Term next = actualEnum.term();
+    if (next.field() == field && next.text().compareTo(target) < 0) {
+      actualEnum.close();
+      actualEnum = reader.terms(new Term(field, target));
+    }
+    return true;
+  }
+
+}
@@ -60,6 +60,9 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
    */
   private SirenScorer            countingSumScorer = null;
 
+  /** False if {@link #score()} will never be called */
+  private boolean                isScoring = true;
+
   private static Similarity defaultSimilarity = new DefaultSimilarity();
 
   private final int dataset = -1;
@@ -118,7 +121,7 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
   private SirenScorer countingDisjunctionSumScorer(final List<SirenPrimitiveScorer> scorers)
   // each scorer from the list counted as a single matcher
   {
-    return new SirenDisjunctionScorer(defaultSimilarity, scorers) {
+    final SirenDisjunctionScorer scorer = new SirenDisjunctionScorer(defaultSimilarity, scorers) {
 
       private int lastScoredEntity = -1;
 
@@ -132,6 +135,10 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
         return super.score();
       }
     };
+    if (!isScoring) {
+      scorer.disableScoring();
+    }
+    return scorer;
   }
 
   private SirenScorer countingConjunctionSumScorer(final List<SirenPrimitiveScorer> requiredScorers)
@@ -219,8 +226,11 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
       return new SirenReqExclScorer(requiredCountingSumScorer,
         prohibitedScorers.get(0));
     }
-    return new SirenReqExclScorer(requiredCountingSumScorer,
-      new SirenDisjunctionScorer(defaultSimilarity, prohibitedScorers));
+    // the score of the prohibited scorers is never used
+    final SirenDisjunctionScorer prohibitedScorer =
+      new SirenDisjunctionScorer(defaultSimilarity, prohibitedScorers);
+    prohibitedScorer.disableScoring();
+    return new SirenReqExclScorer(requiredCountingSumScorer, prohibitedScorer);
   }
 
   /**
@@ -234,6 +244,9 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
    */
   @Override
   public void score(final Collector collector) throws IOException {
+    if (collector instanceof SirenTotalHitCountCollector) {
+      this.disableScoring();
+    }
     int doc;
     collector.setScorer(this);
     while ((doc = this.nextDoc()) != NO_MORE_DOCS) {
@@ -339,6 +352,45 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
     return sum * coordinator.coordFactor();
   }
 
+  /**
+   * Do not compute the scores of the clauses: {@link #score()} is then
+   * invalid.
+   */
+  @Override
+  void disableScoring() {
+    isScoring = false;
+    for (final SirenPrimitiveScorer scorer : requiredScorers) {
+      scorer.disableScoring();
+    }
+    for (final SirenPrimitiveScorer scorer : optionalScorers) {
+      scorer.disableScoring();
+    }
+    for (final SirenPrimitiveScorer scorer : prohibitedScorers) {
+      scorer.disableScoring();
+    }
+  }
+
+  /**
+   * Returns the cost of the cheapest required scorer, or the sum of the costs
+   * of the optional scorers if there is no required scorer. The prohibited
+   * scorers do not change the number of entities to visit.
+   */
+  @Override
+  public long cost() {
+    if (!requiredScorers.isEmpty()) {
+      long cost = Long.MAX_VALUE;
+      for (final SirenPrimitiveScorer scorer : requiredScorers) {
+        cost = Math.min(cost, scorer.cost());
+      }
+      return cost;
+    }
+    long cost = 0;
+    for (final SirenPrimitiveScorer scorer : optionalScorers) {
+      cost += scorer.cost();
+    }
+    return cost;
+  }
+
   @Override
   public int advance(final int entity) throws IOException {
     if (countingSumScorer == null) {
@@ -446,6 +498,11 @@ class SirenBooleanScorer extends SirenPrimitiveScorer {
       return scorer.score();
     }
 
+    @Override
+    public long cost() {
+      return scorer.cost();
+    }
+
     @Override
     public int dataset() {
       return scorer.dataset();
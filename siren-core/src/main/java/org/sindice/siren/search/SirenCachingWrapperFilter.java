@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.CachingWrapperFilter;
+
+/**
+ * Wraps another {@link SirenFilter}'s result and caches it per segment
+ * reader.
+ * <p>
+ * The {@link DocTupCelIdSet} of the wrapped filter is materialised into a
+ * compact set by a {@link DocTupCelIdSetBuilder}, so that the next searches
+ * on the same segment cost one cache lookup instead of a walk over the
+ * postings. The
+ * cache is keyed by the core of the reader if it has no deletions, and by the
+ * reader itself otherwise, so that deletions are always enforced (see
+ * {@link CachingWrapperFilter.DeletesMode#RECACHE}).
+ *
+ * <p> Code taken from {@link CachingWrapperFilter} and adapted for SIREn.
+ */
+public class SirenCachingWrapperFilter extends SirenFilter {
+
+  private static final long serialVersionUID = -3587425436387394027L;
+
+  protected final SirenFilter filter;
+
+  protected transient Map<Object, DocTupCelIdSet> cache;
+
+  /** For testing */
+  int hitCount, missCount;
+
+  /**
+   * @param filter Filter to cache results of
+   */
+  public SirenCachingWrapperFilter(final SirenFilter filter) {
+    this.filter = filter;
+    this.cache = Collections.synchronizedMap(new WeakHashMap<Object, DocTupCelIdSet>());
+  }
+
+  /**
+   * Provide the {@link DocTupCelIdSet} to be cached, using the
+   * {@link DocTupCelIdSet} provided by the wrapped Filter.
+   * <p>
+   * This implementation materialises the set with a
+   * {@link DocTupCelIdSetBuilder}, which selects the most compact encoding.
+   */
+  protected DocTupCelIdSet docTupCelIdSetToCache(final DocTupCelIdSet set,
+                                                 final IndexReader reader)
+  throws IOException {
+    if (set == null) {
+      return DocTupCelIdSet.EMPTY_IDSET;
+    }
+    final DocTupCelIdSetIterator it = set.iterator();
+    if (it == null) {
+      return DocTupCelIdSet.EMPTY_IDSET;
+    }
+    return new DocTupCelIdSetBuilder().add(it).build();
+  }
+
+  @Override
+  public DocTupCelIdSet getDocTupCelIdSet(final IndexReader reader)
+  throws IOException {
+    final Object key = reader.hasDeletions() ? reader : reader.getCoreCacheKey();
+
+    DocTupCelIdSet set = cache.get(key);
+    if (set != null) {
+      hitCount++;
+      return set;
+    }
+
+    missCount++;
+    // cache miss
+    set = this.docTupCelIdSetToCache(filter.getDocTupCelIdSet(reader), reader);
+    cache.put(key, set);
+    return set;
+  }
+
+  private void readObject(final java.io.ObjectInputStream in)
+  throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    cache = Collections.synchronizedMap(new WeakHashMap<Object, DocTupCelIdSet>());
+  }
+
+  @Override
+  public String toString() {
+    return "SirenCachingWrapperFilter(" + filter + ")";
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (!(o instanceof SirenCachingWrapperFilter)) return false;
+    return this.filter.equals(((SirenCachingWrapperFilter) o).filter);
+  }
+
+  @Override
+  public int hashCode() {
+    return filter.hashCode() ^ 0x1117BF25;
+  }
+
+}
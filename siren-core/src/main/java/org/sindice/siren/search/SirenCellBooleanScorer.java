@@ -58,6 +58,9 @@ extends SirenScorer {
    */
   private SirenScorer            countingSumScorer = null;
 
+  /** False if {@link #score()} will never be called */
+  private boolean                isScoring = true;
+
   private static Similarity defaultSimilarity = new DefaultSimilarity();
 
   private final int dataset = -1;
@@ -144,7 +147,7 @@ extends SirenScorer {
   private SirenScorer countingDisjunctionSumScorer(final List<SirenCellScorer> scorers)
   // each scorer from the list counted as a single matcher
   {
-    return new SirenCellDisjunctionScorer(defaultSimilarity, scorers) {
+    final SirenCellDisjunctionScorer scorer = new SirenCellDisjunctionScorer(defaultSimilarity, scorers) {
 
       private int lastScoredEntity = -1;
 
@@ -157,6 +160,10 @@ extends SirenScorer {
         return super.score();
       }
     };
+    if (!isScoring) {
+      scorer.disableScoring();
+    }
+    return scorer;
   }
 
   private SirenScorer countingConjunctionSumScorer(final List<SirenCellScorer> requiredScorers)
@@ -243,8 +250,11 @@ extends SirenScorer {
       return new SirenCellReqExclScorer(requiredCountingSumScorer,
         prohibitedScorers.get(0));
     }
-    return new SirenCellReqExclScorer(requiredCountingSumScorer,
-      new SirenCellDisjunctionScorer(defaultSimilarity, prohibitedScorers));
+    // the score of the prohibited scorers is never used
+    final SirenCellDisjunctionScorer prohibitedScorer =
+      new SirenCellDisjunctionScorer(defaultSimilarity, prohibitedScorers);
+    prohibitedScorer.disableScoring();
+    return new SirenCellReqExclScorer(requiredCountingSumScorer, prohibitedScorer);
   }
 
   /**
@@ -259,6 +269,9 @@ extends SirenScorer {
   @Override
   public void score(final Collector collector)
   throws IOException {
+    if (collector instanceof SirenTotalHitCountCollector) {
+      this.disableScoring();
+    }
     int doc;
     collector.setScorer(this);
     while ((doc = this.nextDoc()) != NO_MORE_DOCS) {
@@ -392,6 +405,45 @@ extends SirenScorer {
     return sum * coordinator.coordFactor();
   }
 
+  /**
+   * Do not compute the scores of the clauses: {@link #score()} is then
+   * invalid.
+   */
+  @Override
+  void disableScoring() {
+    isScoring = false;
+    for (final SirenCellScorer scorer : requiredScorers) {
+      scorer.disableScoring();
+    }
+    for (final SirenCellScorer scorer : optionalScorers) {
+      scorer.disableScoring();
+    }
+    for (final SirenCellScorer scorer : prohibitedScorers) {
+      scorer.disableScoring();
+    }
+  }
+
+  /**
+   * Returns the cost of the cheapest required scorer, or the sum of the costs
+   * of the optional scorers if there is no required scorer. The prohibited
+   * scorers do not change the number of entities to visit.
+   */
+  @Override
+  public long cost() {
+    if (!requiredScorers.isEmpty()) {
+      long cost = Long.MAX_VALUE;
+      for (final SirenCellScorer scorer : requiredScorers) {
+        cost = Math.min(cost, scorer.cost());
+      }
+      return cost;
+    }
+    long cost = 0;
+    for (final SirenCellScorer scorer : optionalScorers) {
+      cost += scorer.cost();
+    }
+    return cost;
+  }
+
   @Override
   public int advance(final int entity) throws IOException {
     if (countingSumScorer == null) {
@@ -478,6 +530,11 @@ extends SirenScorer {
       return scorer.score();
     }
 
+    @Override
+    public long cost() {
+      return scorer.cost();
+    }
+
     @Override
     public int dataset() {
       return scorer.dataset();
@@ -83,6 +83,9 @@ class SirenCellDisjunctionScorer extends SirenScorer {
 
   private float                              currentScore   = Float.NaN;
 
+  /** False if the scores of the subscorers are not summed */
+  private boolean                            isScoring      = true;
+
   /**
    * Construct a <code>DisjunctionScorer</code>.
    *
@@ -178,7 +181,9 @@ class SirenCellDisjunctionScorer extends SirenScorer {
       this.initScorerCellQueue();
       if ((nrMatchers = scorerCellQueue.nrMatches()) > 0) {
         entity = scorerCellQueue.topEntity();
-        currentScore = scorerCellQueue.scoreSum();
+        if (isScoring) {
+          currentScore = scorerCellQueue.scoreSum();
+        }
         this.nextPosition(); // advance to the first position [SRN-24]
         return entity;
       }
@@ -198,7 +203,9 @@ class SirenCellDisjunctionScorer extends SirenScorer {
     nrMatchers = 0;
     while (scorerCellQueue.topEntity() == entity &&
            scorerCellQueue.topTuple() == tuple) { // while top is a match, advance
-      currentScore += scorerCellQueue.topScore();
+      if (isScoring) {
+        currentScore += scorerCellQueue.topScore();
+      }
       nrMatchers++;
       if (!scorerCellQueue.topNextPositionAndAdjust()) {
         return 0; // stop, no more position. position is invalid in this scorer, return 0.
@@ -224,7 +231,9 @@ class SirenCellDisjunctionScorer extends SirenScorer {
         return NO_MORE_DOCS;
 
       entity = scorerCellQueue.topEntity();
-      currentScore = scorerCellQueue.scoreSum();
+      if (isScoring) {
+        currentScore = scorerCellQueue.scoreSum();
+      }
       this.nextPosition(); // advance to the first position [SRN-24]
       return entity;
     }
@@ -241,6 +250,29 @@ class SirenCellDisjunctionScorer extends SirenScorer {
     return currentScore;
   }
 
+  /**
+   * Do not sum the scores of the subscorers: {@link #score()} is then invalid.
+   */
+  @Override
+  void disableScoring() {
+    isScoring = false;
+    for (final SirenCellScorer scorer : scorers) {
+      scorer.disableScoring();
+    }
+  }
+
+  /**
+   * Returns the sum of the costs of the subscorers.
+   */
+  @Override
+  public long cost() {
+    long cost = 0;
+    for (final SirenCellScorer scorer : scorers) {
+      cost += scorer.cost();
+    }
+    return cost;
+  }
+
   /**
    * Returns the number of subscorers matching the current document. Initially
    * invalid, until {@link #next()} is called the first time.
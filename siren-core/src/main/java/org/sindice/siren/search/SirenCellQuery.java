@@ -153,6 +153,18 @@ extends Query {
                                                          cellConstraintEnd);
       // by default, we always return 'doc in order' and use the scorer #advance()
       result.setScorer((SirenPrimitiveScorer) primitiveWeight.scorer(reader, true, false));
+
+      // a predicate-only term: skip the entities not having it as predicate
+      final SirenPredicateBitSetCache cache = SirenPredicateBitSetCache.getDefault();
+      if (cache != null && primitive instanceof SirenTermQuery &&
+          cellConstraintStart == SirenPredicateBitSetCache.PREDICATE_CELL &&
+          cellConstraintEnd == SirenPredicateBitSetCache.PREDICATE_CELL) {
+        final SirenPredicateBitSetCache.Entities entities =
+          cache.getEntities(reader, ((SirenTermQuery) primitive).getTerm());
+        if (entities != null) {
+          result.setEntities(entities.bits, entities.count);
+        }
+      }
       return result;
     }
 
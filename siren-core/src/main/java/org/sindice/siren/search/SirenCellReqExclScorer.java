@@ -52,6 +52,9 @@ extends SirenScorer {
    */
   private SirenScorer reqScorer, exclScorer;
 
+  /** The cost of the required scorer, which is set to null once exhausted */
+  private final long cost;
+
   /**
    * Construct a <code>ReqExclScorer</code>.
    *
@@ -65,6 +68,7 @@ extends SirenScorer {
     super(null, null); // No similarity used.
     this.reqScorer = reqScorer;
     this.exclScorer = exclScorer;
+    this.cost = reqScorer.cost();
   }
 
   @Override
@@ -237,6 +241,15 @@ extends SirenScorer {
                               // already return false
   }
 
+  /**
+   * Returns the cost of the required scorer: all the required entities must be
+   * visited, the excluded scorer is only advanced to them.
+   */
+  @Override
+  public long cost() {
+    return cost;
+  }
+
   /**
    * Skips to the first match beyond the current whose document number is
    * greater than or equal to a given target. <br>
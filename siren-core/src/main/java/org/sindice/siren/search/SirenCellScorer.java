@@ -30,6 +30,7 @@ import java.io.IOException;
 
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Similarity;
+import org.apache.lucene.util.OpenBitSet;
 
 /**
  * A Query that matches cells matching boolean combinations of other primitive
@@ -54,6 +55,12 @@ extends SirenScorer {
   private final int cellConstraintStart;
   private final int cellConstraintEnd;
 
+  /**
+   * The entities matching the cell constraints, or null if unknown
+   */
+  private OpenBitSet entities = null;
+  private int numEntities = -1;
+
   /**
    * Create a SirenBooleanScorer, that matches a boolean combination of
    * primitive siren scorers. In no required scorers are added, at least one of
@@ -90,6 +97,21 @@ extends SirenScorer {
     this.primitiveScorer = scorer;
   }
 
+  /**
+   * Set the entities having a position matching the cell constraints, e.g.,
+   * from a {@link SirenPredicateBitSetCache}. The primitive scorer then skips
+   * the other entities without walking their positions.
+   *
+   * @param entities
+   *          The entities matching the cell constraints.
+   * @param numEntities
+   *          The number of entities set.
+   */
+  void setEntities(final OpenBitSet entities, final int numEntities) {
+    this.entities = entities;
+    this.numEntities = numEntities;
+  }
+
   /**
    * Scores and collects all matching documents.
    *
@@ -98,9 +120,19 @@ extends SirenScorer {
    *          {@link HitCollector#collect(int, float)}. <br>
    *          When this method is used the {@link #explain(int)} method should
    *          not be used.
+   *          A {@link SirenTotalHitCountCollector} is given the number of
+   *          entities matching the cell constraints if they are known.
    */
   @Override
   public void score(final Collector collector) throws IOException {
+    if (collector instanceof SirenTotalHitCountCollector && entities != null && entity == -1) {
+      ((SirenTotalHitCountCollector) collector).addHits(numEntities);
+      entity = NO_MORE_DOCS;
+      return;
+    }
+    if (collector instanceof SirenTotalHitCountCollector) {
+      this.disableScoring();
+    }
     int doc;
     collector.setScorer(this);
     while ((doc = this.nextDoc()) != NO_MORE_DOCS) {
@@ -168,7 +200,7 @@ extends SirenScorer {
 
   @Override
   public int nextDoc() throws IOException {
-    if (primitiveScorer.nextDoc() != NO_MORE_DOCS) {
+    if (primitiveScorer.nextDoc() != NO_MORE_DOCS && this.skipToCandidate()) {
       entity = this.doNext();
     }
     else {
@@ -177,6 +209,33 @@ extends SirenScorer {
     return entity;
   }
 
+  /**
+   * Advance the primitive scorer to the next entity matching the cell
+   * constraints, if these entities are known.
+   *
+   * @return false if there is no more entities.
+   */
+  private boolean skipToCandidate() throws IOException {
+    if (entities == null) {
+      return true;
+    }
+    final int e = primitiveScorer.entity();
+    if (entities.fastGet(e)) {
+      return true;
+    }
+    final int next = entities.nextSetBit(e);
+    return next != -1 && primitiveScorer.advance(next) != NO_MORE_DOCS;
+  }
+
+  /**
+   * Do not compute the scores of the primitive scorer: {@link #score()} is
+   * then invalid.
+   */
+  @Override
+  void disableScoring() {
+    primitiveScorer.disableScoring();
+  }
+
   /**
    * Perform a next without initial increment.
    * <p> The next is valid when the cellID matches the constraints.
@@ -188,7 +247,7 @@ extends SirenScorer {
     // while cell are not within the constraints, iterate
     while (more && (cell < cellConstraintStart || cell > cellConstraintEnd)) {
       if (primitiveScorer.nextPosition() == NO_MORE_POS) {
-        more = (primitiveScorer.nextDoc() != NO_MORE_DOCS);
+        more = (primitiveScorer.nextDoc() != NO_MORE_DOCS && this.skipToCandidate());
       }
       cell = primitiveScorer.cell();
     }
@@ -227,9 +286,14 @@ extends SirenScorer {
     return primitiveScorer.score();
   }
 
+  @Override
+  public long cost() {
+    return primitiveScorer.cost();
+  }
+
   @Override
   public int advance(final int entity) throws IOException {
-    if (primitiveScorer.advance(entity) != NO_MORE_DOCS) {
+    if (primitiveScorer.advance(entity) != NO_MORE_DOCS && this.skipToCandidate()) {
       this.entity = this.doNext();
       this.tuple = primitiveScorer.tuple();
       this.cell = primitiveScorer.cell();
@@ -243,7 +307,7 @@ extends SirenScorer {
   @Override
   public int advance(final int entity, final int tuple)
   throws IOException {
-    if (primitiveScorer.advance(entity, tuple) != NO_MORE_DOCS) {
+    if (primitiveScorer.advance(entity, tuple) != NO_MORE_DOCS && this.skipToCandidate()) {
       this.entity = this.doNext();
       this.tuple = primitiveScorer.tuple();
       this.cell = primitiveScorer.cell();
@@ -257,7 +321,7 @@ extends SirenScorer {
   @Override
   public int advance(final int entity, final int tuple, final int cell)
   throws IOException {
-    if (primitiveScorer.advance(entity, tuple, cell) != NO_MORE_DOCS) {
+    if (primitiveScorer.advance(entity, tuple, cell) != NO_MORE_DOCS && this.skipToCandidate()) {
       this.entity = this.doNext();
       this.tuple = primitiveScorer.tuple();
       this.cell = primitiveScorer.cell();
@@ -55,6 +55,9 @@ extends SirenScorer {
 
   private final float         coord;
 
+  /** The cost of the cheapest scorer */
+  private final long          cost;
+
   private final int           lastDataset   = -1;
 
   private int                 lastEntity   = -1;
@@ -63,6 +66,12 @@ extends SirenScorer {
 
   private int                 lastCell   = -1;
 
+  /**
+   * Index of the scorer which has moved beyond the current entity in
+   * {@link #nextPosition()}, or -1.
+   */
+  private int                 aheadIndex = -1;
+
   public SirenConjunctionScorer(final Similarity similarity,
                                 final Collection<SirenPrimitiveScorer> scorers)
   throws IOException {
@@ -75,6 +84,11 @@ extends SirenScorer {
     super(similarity);
     this.scorers = scorers;
     coord = this.getSimilarity().coord(this.scorers.length, this.scorers.length);
+    long cost = Long.MAX_VALUE;
+    for (final SirenScorer scorer : scorers) {
+      cost = Math.min(cost, scorer.cost());
+    }
+    this.cost = cost;
   }
 
   @Override
@@ -116,35 +130,46 @@ extends SirenScorer {
   throws IOException {
     if (firstTime)
       return this.init(0);
+    else if (aheadIndex != -1) {
+      return this.doNextFromAhead();
+    }
     else if (more) {
       more = (scorers[(scorers.length - 1)].nextDoc() != NO_MORE_DOCS);
     }
-    return this.doNext();
+    return this.doNext(scorers.length - 1);
   }
 
   /**
-   * Perform a next without initial increment
+   * Perform a next without initial increment, leapfrogging from the scorer at
+   * index <code>last</code>: each scorer in turn advances to the entity, tuple
+   * and cell of the previous one, until all of them are on the same cell.
    */
-  private int doNext()
+  private int doNext(final int last)
   throws IOException {
-    int first = 0;
-    SirenScorer lastScorer = scorers[scorers.length - 1];
+    SirenScorer lastScorer = scorers[last];
+    int first = (last == (scorers.length - 1)) ? 0 : last + 1;
     SirenScorer firstScorer = scorers[first];
 
-    while (more &&
-           (firstScorer.entity() < lastScorer.entity() ||
-           (firstScorer.entity() == lastScorer.entity() && firstScorer.tuple() < lastScorer.tuple()) ||
-           (firstScorer.entity() == lastScorer.entity() && firstScorer.tuple() == lastScorer.tuple() && firstScorer.cell() < lastScorer.cell()))) {
-      more = (firstScorer.advance(lastScorer.entity(), lastScorer.tuple(), lastScorer.cell()) != NO_MORE_DOCS);
-      lastScorer = firstScorer;
+    int entity = lastScorer.entity(), tuple = lastScorer.tuple(), cell = lastScorer.cell();
+    while (more) {
+      final int firstEntity = firstScorer.entity();
+      if (firstEntity > entity) break;
+      if (firstEntity == entity) {
+        final int firstTuple = firstScorer.tuple();
+        if (firstTuple > tuple || (firstTuple == tuple && firstScorer.cell() >= cell)) break;
+      }
+      more = (firstScorer.advance(entity, tuple, cell) != NO_MORE_DOCS);
+      entity = firstScorer.entity();
+      tuple = firstScorer.tuple();
+      cell = firstScorer.cell();
       first = (first == (scorers.length - 1)) ? 0 : first + 1;
       firstScorer = scorers[first];
     }
 
     if (more) {
-      lastEntity = lastScorer.entity();
-      lastTuple = lastScorer.tuple();
-      lastCell = lastScorer.cell();
+      lastEntity = entity;
+      lastTuple = tuple;
+      lastCell = cell;
       return lastEntity;
     }
     else {
@@ -153,8 +178,34 @@ extends SirenScorer {
     }
   }
 
+  /**
+   * Perform a next from the scorer which has moved beyond the current entity
+   * in {@link #nextPosition()}. The other scorers are still on the current
+   * entity.
+   */
+  private int doNextFromAhead()
+  throws IOException {
+    final int last = aheadIndex;
+    aheadIndex = -1;
+    more = scorers[last].entity() != NO_MORE_DOCS;
+    return this.doNext(last);
+  }
+
+  /**
+   * Move to the next cell matched by all the scorers within the current
+   * entity. A scorer lagging behind advances to the tuple and cell of the
+   * previous one with {@link SirenScorer#advance(int, int, int)}, which
+   * gallops over the positions of the entity instead of scanning them. If it
+   * moves to another entity, there is no more matching cell in the current
+   * entity, and the next call to {@link #nextDoc()} or
+   * {@link #advance(int)} will restart from it.
+   */
   @Override
   public int nextPosition() throws IOException {
+    if (aheadIndex != -1) {
+      return NO_MORE_POS;
+    }
+
     int first = 0;
     SirenScorer lastScorer = scorers[scorers.length - 1];
     SirenScorer firstScorer = scorers[first];
@@ -163,20 +214,21 @@ extends SirenScorer {
       return NO_MORE_POS;
     }
 
-    while (firstScorer.tuple() < lastScorer.tuple() ||
-          (firstScorer.tuple() == lastScorer.tuple() && firstScorer.cell() < lastScorer.cell())) { // scan forward in first
-      do {
-        if (firstScorer.nextPosition() == NO_MORE_POS)
-          return NO_MORE_POS;
-      } while (firstScorer.tuple() < lastScorer.tuple() ||
-              (firstScorer.tuple() == lastScorer.tuple() && firstScorer.cell() < lastScorer.cell()));
-      lastScorer = firstScorer;
+    int tuple = lastScorer.tuple(), cell = lastScorer.cell();
+    while (firstScorer.tuple() < tuple ||
+          (firstScorer.tuple() == tuple && firstScorer.cell() < cell)) { // skip forward in first
+      if (firstScorer.advance(lastEntity, tuple, cell) != lastEntity) {
+        aheadIndex = first;
+        return NO_MORE_POS;
+      }
+      tuple = firstScorer.tuple();
+      cell = firstScorer.cell();
       first = (first == (scorers.length - 1)) ? 0 : first + 1;
       firstScorer = scorers[first];
     }
     // all equal: a match
-    lastTuple = firstScorer.tuple();
-    lastCell = firstScorer.cell();
+    lastTuple = tuple;
+    lastCell = cell;
     return -1; // position is invalid in this scorer, returns -1
   }
 
@@ -184,10 +236,13 @@ extends SirenScorer {
   public int advance(final int entityID) throws IOException {
     if (firstTime)
       return this.init(entityID);
+    else if (aheadIndex != -1 && this.doNextFromAhead() >= entityID) {
+      return lastEntity;
+    }
     else if (more) {
       more = (scorers[(scorers.length - 1)].advance(entityID) != NO_MORE_DOCS);
     }
-    return this.doNext();
+    return this.doNext(scorers.length - 1);
   }
 
   @Override
@@ -195,10 +250,14 @@ extends SirenScorer {
   throws IOException {
     if (firstTime)
       return this.init(entityID); //TODO: should not skip to the right tuple in certain case
+    else if (aheadIndex != -1 && (this.doNextFromAhead() > entityID ||
+             (lastEntity == entityID && lastTuple >= tupleID))) {
+      return lastEntity;
+    }
     else if (more) {
       more = (scorers[(scorers.length - 1)].advance(entityID, tupleID) != NO_MORE_DOCS);
     }
-    return this.doNext();
+    return this.doNext(scorers.length - 1);
   }
 
   @Override
@@ -206,10 +265,15 @@ extends SirenScorer {
   throws IOException {
     if (firstTime)
       return this.init(entityID); //TODO: should not skip to the right position in certain case
+    else if (aheadIndex != -1 && (this.doNextFromAhead() > entityID ||
+             (lastEntity == entityID && (lastTuple > tupleID ||
+             (lastTuple == tupleID && lastCell >= cellID))))) {
+      return lastEntity;
+    }
     else if (more) {
       more = (scorers[(scorers.length - 1)].advance(entityID, tupleID, cellID) != NO_MORE_DOCS);
     }
-    return this.doNext();
+    return this.doNext(scorers.length - 1);
   }
 
   // Note... most of this could be done in the constructor
@@ -244,20 +308,11 @@ extends SirenScorer {
         }
       });
 
-    this.doNext();
-
-    // If first-time skip distance is any predictor of
-    // scorer sparseness, then we should always try to skip first on
-    // those scorers.
-    // Keep last scorer in it's last place (it will be the first
-    // to be skipped on), but reverse all of the others so that
-    // they will be skipped on in order of original high skip.
-    final int end = (scorers.length - 1);
-    for (int i = 0; i < (end >> 1); i++) {
-      final SirenPrimitiveScorer tmp = scorers[i];
-      scorers[i] = scorers[end - i - 1];
-      scorers[end - i - 1] = tmp;
-    }
+    this.doNext(scorers.length - 1);
+
+    // All the scorers are on the same cell, the order of the array can be
+    // changed: drive the iteration from the cheapest scorer
+    this.sortByCost();
 
     if (more) {
       return lastEntity;
@@ -267,6 +322,32 @@ extends SirenScorer {
     }
   }
 
+  /**
+   * Sort the scorers by increasing cost, except the cheapest one which is put
+   * last: it is the first to be advanced by {@link #nextDoc()} and
+   * {@link #advance(int)}, and the others are advanced to its entity in
+   * turn, from the cheapest one.
+   */
+  private void sortByCost() {
+    Arrays.sort(scorers, new Comparator<SirenScorer>() {
+      public int compare(final SirenScorer o1, final SirenScorer o2) {
+        final long c1 = o1.cost(), c2 = o2.cost();
+        return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+      }
+    });
+    final SirenPrimitiveScorer cheapest = scorers[0];
+    System.arraycopy(scorers, 1, scorers, 0, scorers.length - 1);
+    scorers[scorers.length - 1] = cheapest;
+  }
+
+  /**
+   * Returns the cost of the cheapest scorer, since all the scorers must match.
+   */
+  @Override
+  public long cost() {
+    return cost;
+  }
+
   @Override
   public float score()
   throws IOException {
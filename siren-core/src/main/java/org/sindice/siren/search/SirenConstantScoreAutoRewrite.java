@@ -39,11 +39,14 @@ import org.sindice.siren.search.SirenBooleanClause.Occur;
  */
 public class SirenConstantScoreAutoRewrite extends SirenTermCollectingRewrite<SirenBooleanQuery> {
 
-  // Term cutoff deactivated until a efficient filter-based approach is found
-  public static int DEFAULT_TERM_COUNT_CUTOFF = Integer.MAX_VALUE;
+  // Defaults derived from rough tests with a 20.0 million
+  // doc Wikipedia index.  With more than 350 terms in the
+  // query, the filter method is fastest:
+  public static int DEFAULT_TERM_COUNT_CUTOFF = 350;
 
-  // Document cutoff deactivated until a efficient filter-based approach is found
-  public static double DEFAULT_DOC_COUNT_PERCENT = Integer.MAX_VALUE;
+  // If the query will hit more than 1 in 1000 of the docs
+  // in the index (0.1%), the filter method is fastest:
+  public static double DEFAULT_DOC_COUNT_PERCENT = 0.1;
 
   private int termCountCutoff = DEFAULT_TERM_COUNT_CUTOFF;
   private double docCountPercent = DEFAULT_DOC_COUNT_PERCENT;
@@ -63,7 +66,10 @@ public class SirenConstantScoreAutoRewrite extends SirenTermCollectingRewrite<Si
   /** If the number of documents to be visited in the
    *  postings exceeds this specified percentage of the
    *  maxDoc() for the index, then {@link
-   *  #CONSTANT_SCORE_FILTER_REWRITE} is used.
+   *  #CONSTANT_SCORE_FILTER_REWRITE} is used. The cutoff is
+   *  ignored when the percentage is below one document, e.g.,
+   *  with the default percentage on an index of less than
+   *  1000 documents: the term count cutoff only applies.
    *  @param percent 0.0 to 100.0 */
   public void setDocCountPercent(final double percent) {
     docCountPercent = percent;
@@ -87,11 +93,15 @@ public class SirenConstantScoreAutoRewrite extends SirenTermCollectingRewrite<Si
   @Override
   public Query rewrite(final IndexReader reader, final SirenMultiTermQuery query) throws IOException {
 
-    // Disabled cutoffs
-    final int docCountCutoff = Integer.MAX_VALUE;
-    final int termCountLimit = Integer.MAX_VALUE;
+    // Get the enum and start visiting terms.  If we
+    // exhaust the enum before hitting either of the
+    // cutoffs, we use ConstantBooleanQueryRewrite; else,
+    // ConstantFilterRewrite. A doc count cutoff of 0 is
+    // disabled, otherwise any term would hit it:
+    final int docCountCutoff = (int) ((docCountPercent / 100.) * reader.maxDoc());
+    final int termCountLimit = Math.min(SirenBooleanQuery.getMaxClauseCount(), termCountCutoff);
 
-    final CutOffTermCollector col = new CutOffTermCollector(reader, docCountCutoff, termCountLimit);
+    final CutOffTermCollector col = new CutOffTermCollector(docCountCutoff, termCountLimit);
     this.collectTerms(reader, query, col);
 
     if (col.hasCutOff) {
@@ -115,20 +125,16 @@ public class SirenConstantScoreAutoRewrite extends SirenTermCollectingRewrite<Si
   }
 
   private static final class CutOffTermCollector implements TermCollector {
-    CutOffTermCollector(final IndexReader reader, final int docCountCutoff, final int termCountLimit) {
-      this.reader = reader;
+    CutOffTermCollector(final int docCountCutoff, final int termCountLimit) {
       this.docCountCutoff = docCountCutoff;
       this.termCountLimit = termCountLimit;
     }
 
-    public boolean collect(final Term t, final float boost) throws IOException {
+    public boolean collect(final Term t, final float boost, final int docFreq) {
       pendingTerms.add(t);
-      // Loading the TermInfo from the terms dict here
-      // should not be costly, because 1) the
-      // query/filter will load the TermInfo when it
-      // runs, and 2) the terms dict has a cache:
-      docVisitCount += reader.docFreq(t);
-      if (pendingTerms.size() >= termCountLimit || docVisitCount >= docCountCutoff) {
+      docVisitCount += docFreq;
+      if (pendingTerms.size() >= termCountLimit ||
+          (docCountCutoff > 0 && docVisitCount >= docCountCutoff)) {
         hasCutOff = true;
         return false;
       }
@@ -138,7 +144,6 @@ public class SirenConstantScoreAutoRewrite extends SirenTermCollectingRewrite<Si
     int docVisitCount = 0;
     boolean hasCutOff = false;
 
-    final IndexReader reader;
     final int docCountCutoff, termCountLimit;
     final ArrayList<Term> pendingTerms = new ArrayList<Term>();
   }
@@ -47,10 +47,8 @@ import org.apache.lucene.util.ToStringUtils;
  * For queries it therefore simply strips of all scores and returns a constant one.
  *
  * <p><b>NOTE</b>: if the wrapped filter is an instance of
- * {@link CachingWrapperFilter}, you'll likely want to
- * enforce deletions in the filter (using either {@link
- * CachingWrapperFilter.DeletesMode#RECACHE} or {@link
- * CachingWrapperFilter.DeletesMode#DYNAMIC}).
+ * {@link SirenCachingWrapperFilter}, the cached sets enforce deletions (as
+ * {@link CachingWrapperFilter.DeletesMode#RECACHE}).
  */
 public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
 
@@ -69,18 +67,14 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
   /** Wraps a Filter as a Query. The hits will get a constant score
    * dependent on the boost factor of this query.
    * If you simply want to strip off scores from a Query, no longer use
-   * {@code new ConstantScoreQuery(new QueryWrapperFilter(query))}, instead
-   * use {@link #ConstantScoreQuery(Query)}!
+   * {@code new SirenConstantScoreQuery(new SirenQueryWrapperFilter(query))},
+   * instead use {@link #SirenConstantScoreQuery(SirenPrimitiveQuery)}!
    */
   public SirenConstantScoreQuery(final SirenFilter filter) {
-    throw new UnsupportedOperationException("Filter not yet supported");
-
-    // TODO: Activate filters when Siren will support filters.
-
-//    if (filter == null)
-//      throw new NullPointerException("Filter may not be null");
-//    this.filter = filter;
-//    this.query = null;
+    if (filter == null)
+      throw new NullPointerException("Filter may not be null");
+    this.filter = filter;
+    this.query = null;
   }
 
   /** Returns the encapsulated filter, returns {@code null} if a query is wrapped. */
@@ -158,27 +152,28 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
     public Scorer scorer(final IndexReader reader, final boolean scoreDocsInOrder, final boolean topScorer)
     throws IOException {
       final DocTupCelIdSetIterator it;
-
-      // TODO: Activate filters when Siren will support filters.
-
-//      if (filter != null) {
-//        assert query == null;
-//        final DocIdSet dis = filter.getDocIdSet(reader);
-//        if (dis == null)
-//          return null;
-//        disi = dis.iterator();
-//      } else {
-
-      assert query != null && innerWeight != null;
-      it = (SirenScorer) innerWeight.scorer(reader, scoreDocsInOrder, topScorer);
-
-//      }
+      final long cost;
+      int numEntities = -1;
+
+      if (filter != null) {
+        assert query == null;
+        final DocTupCelIdSet set = filter.getDocTupCelIdSet(reader);
+        if (set == null)
+          return null;
+        it = set.iterator();
+        numEntities = set.numEntities();
+        cost = numEntities >= 0 ? numEntities : reader.maxDoc();
+      } else {
+        assert query != null && innerWeight != null;
+        it = (SirenScorer) innerWeight.scorer(reader, scoreDocsInOrder, topScorer);
+        cost = it == null ? 0 : ((SirenScorer) it).cost();
+      }
 
       if (it == null) {
         return null;
       }
 
-      return new SirenConstantScorer(similarity, it, this);
+      return new SirenConstantScorer(similarity, it, this, cost, numEntities);
     }
 
     @Override
@@ -211,14 +206,34 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
 
     final DocTupCelIdSetIterator it;
     final float theScore;
+    final long cost;
+
+    /** The number of entities of the iterator, or -1 if unknown */
+    final int numEntities;
 
     public SirenConstantScorer(final Similarity similarity,
                                final DocTupCelIdSetIterator docIdSetIterator,
-                               final Weight w)
+                               final Weight w, final long cost)
+    throws IOException {
+      this(similarity, docIdSetIterator, w, cost, -1);
+    }
+
+    /**
+     * @param numEntities
+     *          The number of entities of the iterator, given to a
+     *          {@link SirenTotalHitCountCollector} without iterating them, or
+     *          -1 if unknown.
+     */
+    public SirenConstantScorer(final Similarity similarity,
+                               final DocTupCelIdSetIterator docIdSetIterator,
+                               final Weight w, final long cost,
+                               final int numEntities)
     throws IOException {
       super(similarity, w);
       theScore = w.getValue();
       this.it = docIdSetIterator;
+      this.cost = cost;
+      this.numEntities = numEntities;
     }
 
     @Override
@@ -267,6 +282,11 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
       return theScore;
     }
 
+    @Override
+    public long cost() {
+      return cost;
+    }
+
     @Override
     public int advance(final int target) throws IOException {
       return it.advance(target);
@@ -292,7 +312,8 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
           collector.setScorer(
             new SirenConstantScorer(
               SirenConstantScorer.this.getSimilarity(),
-              (SirenScorer) scorer, SirenConstantScorer.this.weight));
+              (SirenScorer) scorer, SirenConstantScorer.this.weight,
+              SirenConstantScorer.this.cost));
         }
 
         @Override
@@ -316,14 +337,35 @@ public class SirenConstantScoreQuery extends SirenPrimitiveQuery {
     // this optimization allows out of order scoring as top scorer!
     @Override
     public void score(final Collector collector) throws IOException {
-      ((SirenScorer) it).score(this.wrapCollector(collector));
+      if (collector instanceof SirenTotalHitCountCollector) {
+        if (numEntities >= 0) {
+          ((SirenTotalHitCountCollector) collector).addHits(numEntities);
+        }
+        else if (it instanceof SirenScorer) {
+          // the scores are not needed, no need to wrap the collector
+          ((SirenScorer) it).score(collector);
+        }
+        else {
+          super.score(collector);
+        }
+        return;
+      }
+      if (it instanceof SirenScorer) {
+        ((SirenScorer) it).score(this.wrapCollector(collector));
+      } else {
+        super.score(collector);
+      }
     }
 
     // this optimization allows out of order scoring as top scorer,
     @Override
     public boolean score(final Collector collector, final int max, final int firstDocID)
     throws IOException {
-      return ((SirenScorer) it).score(this.wrapCollector(collector), max, firstDocID);
+      if (it instanceof SirenScorer) {
+        return ((SirenScorer) it).score(this.wrapCollector(collector), max, firstDocID);
+      } else {
+        return super.score(collector, max, firstDocID);
+      }
     }
 
   }
@@ -87,6 +87,9 @@ extends SirenScorer {
 
   private float                              currentScore   = Float.NaN;
 
+  /** False if the scores of the subscorers are not summed */
+  private boolean                            isScoring      = true;
+
   /**
    * Construct a <code>DisjunctionScorer</code>.
    *
@@ -211,7 +214,9 @@ extends SirenScorer {
     while (scorerCellQueue.topEntity() == entity &&
            scorerCellQueue.topTuple() == tuple &&
            scorerCellQueue.topCell() == cell) { // while top is a match, advance
-      currentScore += scorerCellQueue.topScore();
+      if (isScoring) {
+        currentScore += scorerCellQueue.topScore();
+      }
       if (scorerCellQueue.topIncMatchers()) nrMatchers++;
       if (!scorerCellQueue.topNextPositionAndAdjust()) {
         return 0; // stop, no more position. position is invalid in this scorer,
@@ -257,6 +262,29 @@ extends SirenScorer {
     return currentScore;
   }
 
+  /**
+   * Do not sum the scores of the subscorers: {@link #score()} is then invalid.
+   */
+  @Override
+  void disableScoring() {
+    isScoring = false;
+    for (final SirenPrimitiveScorer scorer : scorers) {
+      scorer.disableScoring();
+    }
+  }
+
+  /**
+   * Returns the sum of the costs of the subscorers.
+   */
+  @Override
+  public long cost() {
+    long cost = 0;
+    for (final SirenPrimitiveScorer scorer : scorers) {
+      cost += scorer.cost();
+    }
+    return cost;
+  }
+
   /**
    * Returns the number of subscorers matching the current document. Initially
    * invalid, until {@link #next()} is called the first time.
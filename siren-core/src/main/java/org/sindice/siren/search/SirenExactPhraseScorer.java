@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermPositions;
 import org.apache.lucene.search.Similarity;
 import org.apache.lucene.search.Weight;
@@ -45,6 +47,12 @@ extends SirenPhraseScorer {
     super(weight, docsEnums, offsets, similarity, norms);
   }
 
+  SirenExactPhraseScorer(final Weight weight, final TermPositions[] docsEnums, final int[] offsets,
+                         final Similarity similarity, final byte[] norms,
+                         final IndexReader reader, final Term[] terms) {
+    super(weight, docsEnums, offsets, similarity, norms, reader, terms);
+  }
+
   @Override
   public int doNextPosition() throws IOException {
     while (first.tuple() < last.tuple() ||
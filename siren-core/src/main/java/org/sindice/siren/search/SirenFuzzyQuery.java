@@ -32,7 +32,6 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.FilteredTermEnum;
 import org.apache.lucene.search.FuzzyQuery;
-import org.apache.lucene.search.FuzzyTermEnum;
 import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.SingleTermEnum;
 import org.apache.lucene.util.ToStringUtils;
@@ -41,9 +40,11 @@ import org.apache.lucene.util.ToStringUtils;
  * Implements the fuzzy search query. The similarity measurement
  * is based on the Levenshtein (edit distance) algorithm.
  *
- * <p><em>Warning:</em> this query is not very scalable with its default prefix
- * length of 0 - in this case, *every* term will be enumerated and
- * cause an edit score calculation.
+ * <p>The terms are enumerated by intersecting a Levenshtein automaton with the
+ * term dictionary, which skips the ranges of terms that are not within the
+ * maximum edit distance. Only the terms accepted by the automaton cause an edit
+ * score calculation. A low minimum similarity allows many edits, in which case
+ * most terms of a length close to the one of the query term are enumerated.
  *
  * <p>This query uses {@link MultiTermQuery.TopTermsScoringBooleanQueryRewrite}
  * as default. So terms will be collected and scored according to their
@@ -148,7 +149,7 @@ public class SirenFuzzyQuery extends SirenMultiTermQuery {
     if (!termLongEnough) {  // can only match if it's exact
       return new SingleTermEnum(reader, term);
     }
-    return new FuzzyTermEnum(reader, this.getTerm(), minimumSimilarity, prefixLength);
+    return new SirenFuzzyTermEnum(reader, this.getTerm(), minimumSimilarity, prefixLength);
   }
 
   /**
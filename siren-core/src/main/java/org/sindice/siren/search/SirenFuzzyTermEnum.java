@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FuzzyTermEnum;
+
+/**
+ * Enumerates the terms similar to a term, by intersecting the term dictionary
+ * with a Levenshtein automaton.
+ * <p>
+ * The automaton accepts the terms starting with the non-fuzzy prefix and
+ * within the largest edit distance allowed by the minimum similarity. The
+ * terms accepted by the automaton are then scored as in
+ * {@link FuzzyTermEnum}, which enumerates and scores the same terms but
+ * computes the edit distance of every term sharing the prefix.
+ * <p>
+ * The similarity computation is taken from {@link FuzzyTermEnum}.
+ */
+class SirenFuzzyTermEnum extends SirenAutomatonTermEnum {
+
+  private int[] p;
+  private int[] d;
+
+  private float similarity;
+
+  private final char[] text;
+  private final String prefix;
+
+  private final float minimumSimilarity;
+  private final float scale_factor;
+
+  /**
+   * Constructor for enumeration of all terms from specified
+   * <code>reader</code> which share a prefix of length
+   * <code>prefixLength</code> with <code>term</code> and which have a fuzzy
+   * similarity &gt; <code>minSimilarity</code>.
+   *
+   * @see FuzzyTermEnum#FuzzyTermEnum(IndexReader, Term, float, int)
+   */
+  SirenFuzzyTermEnum(final IndexReader reader, final Term term,
+                     final float minSimilarity, final int prefixLength)
+  throws IOException {
+    super(reader, term.field(), new LevenshteinAutomaton(term.text(),
+      Math.min(prefixLength, term.text().length()), minSimilarity));
+    // The prefix could be longer than the word. It means we must match the
+    // entire word.
+    final int realPrefixLength = Math.min(prefixLength, term.text().length());
+    this.text = term.text().substring(realPrefixLength).toCharArray();
+    this.prefix = term.text().substring(0, realPrefixLength);
+    this.minimumSimilarity = minSimilarity;
+    this.scale_factor = 1.0f / (1.0f - minimumSimilarity);
+    this.p = new int[text.length + 1];
+    this.d = new int[text.length + 1];
+    this.start();
+  }
+
+  @Override
+  protected boolean termCompare(final Term term) {
+    if (super.termCompare(term)) {
+      similarity = this.similarity(term.text().substring(prefix.length()));
+      return similarity > minimumSimilarity;
+    }
+    return false;
+  }
+
+  @Override
+  public float difference() {
+    return (similarity - minimumSimilarity) * scale_factor;
+  }
+
+  /**
+   * Returns the similarity of the target with the text of the term after the
+   * prefix, as computed by {@link FuzzyTermEnum}.
+   */
+  private float similarity(final String target) {
+    final int m = target.length();
+    final int n = text.length;
+    if (n == 0) {
+      // we don't have anything to compare. That means if we just add the
+      // letters for m we get the new word
+      return prefix.length() == 0 ? 0.0f : 1.0f - ((float) m / prefix.length());
+    }
+    if (m == 0) {
+      return prefix.length() == 0 ? 0.0f : 1.0f - ((float) n / prefix.length());
+    }
+
+    final int maxDistance = this.calculateMaxDistance(m);
+
+    if (maxDistance < Math.abs(m - n)) {
+      // just adding the characters of m to n or vice-versa results in too
+      // many edits
+      return 0.0f;
+    }
+
+    // init matrix d
+    for (int i = 0; i <= n; ++i) {
+      p[i] = i;
+    }
+
+    // start computing edit distance
+    for (int j = 1; j <= m; ++j) { // iterates through target
+      int bestPossibleEditDistance = m;
+      final char t_j = target.charAt(j - 1); // jth character of t
+      d[0] = j;
+
+      for (int i = 1; i <= n; ++i) { // iterates through text
+        // minimum of cell to the left+1, to the top+1, diagonally left and up +(0|1)
+        if (t_j != text[i - 1]) {
+          d[i] = Math.min(Math.min(d[i - 1], p[i]), p[i - 1]) + 1;
+        }
+        else {
+          d[i] = Math.min(Math.min(d[i - 1] + 1, p[i] + 1), p[i - 1]);
+        }
+        bestPossibleEditDistance = Math.min(bestPossibleEditDistance, d[i]);
+      }
+
+      // the closest the target can be to the text is just too far away
+      if (j > maxDistance && bestPossibleEditDistance > maxDistance) {
+        return 0.0f;
+      }
+
+      // copy current distance counts to 'previous row' distance counts: swap p and d
+      final int _d[] = p;
+      p = d;
+      d = _d;
+    }
+
+    // our last action in the above loop was to switch d and p, so p now
+    // actually has the most recent cost counts
+    return 1.0f - ((float) p[n] / (float) (prefix.length() + Math.min(n, m)));
+  }
+
+  private int calculateMaxDistance(final int m) {
+    return (int) ((1 - minimumSimilarity) * (Math.min(text.length, m) + prefix.length()));
+  }
+
+  /**
+   * The automaton of the strings starting with a prefix and followed by a
+   * string within a maximum edit distance of a text.
+   * <p>
+   * A state is the number of characters of the prefix read, followed by the
+   * row of the edit distances between the prefixes of the text and the
+   * string read after the prefix, capped to the maximum edit distance plus
+   * one.
+   */
+  private static final class LevenshteinAutomaton extends SirenAutomaton {
+
+    private final char[] prefix;
+    private final char[] text;
+    private final int maxDistance;
+
+    /**
+     * The maximum edit distance is the one allowed by
+     * {@link SirenFuzzyTermEnum#calculateMaxDistance(int)} for the longest
+     * target, so that the automaton accepts every term having a similarity
+     * greater than <code>minSimilarity</code>.
+     */
+    LevenshteinAutomaton(final String term, final int prefixLength,
+                         final float minSimilarity) {
+      super(term.toCharArray());
+      this.prefix = term.substring(0, prefixLength).toCharArray();
+      this.text = term.substring(prefixLength).toCharArray();
+      this.maxDistance = (int) ((1 - minSimilarity) * term.length());
+    }
+
+    @Override
+    protected int[] initialState() {
+      final int[] state = new int[text.length + 2];
+      for (int i = 0; i <= text.length; i++) {
+        state[i + 1] = Math.min(i, maxDistance + 1);
+      }
+      return state;
+    }
+
+    @Override
+    protected int[] step(final int[] state, final char c) {
+      if (state[0] < prefix.length) {
+        if (prefix[state[0]] != c) {
+          return null;
+        }
+        final int[] next = state.clone();
+        next[0]++;
+        return next;
+      }
+      final int[] next = new int[state.length];
+      next[0] = state[0];
+      next[1] = Math.min(state[1] + 1, maxDistance + 1);
+      int min = next[1];
+      for (int i = 1; i <= text.length; i++) {
+        final int distance = Math.min(Math.min(state[i + 1], next[i]) + 1,
+          state[i] + (text[i - 1] == c ? 0 : 1));
+        next[i + 1] = Math.min(distance, maxDistance + 1);
+        min = Math.min(min, next[i + 1]);
+      }
+      return min > maxDistance ? null : next;
+    }
+
+    @Override
+    protected boolean isAccept(final int[] state) {
+      return state[0] == prefix.length && state[state.length - 1] <= maxDistance;
+    }
+
+  }
+
+}
@@ -47,14 +47,15 @@ import org.sindice.siren.search.SirenBooleanClause.Occur;
  * FilteredTermEnum} that iterates through the terms to be
  * matched.
  *
- * <p><b>NOTE</b>: since {@link #CONSTANT_SCORE_FILTER_REWRITE} is deactivated
- * in SIREn, the {@link #setRewriteMethod} will always be either
+ * <p><b>NOTE</b>: if {@link #setRewriteMethod} is either
  * {@link #CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE} or {@link
- * #SCORING_BOOLEAN_QUERY_REWRITE}. Therefore, you may encounter a
+ * #SCORING_BOOLEAN_QUERY_REWRITE}, you may encounter a
  * {@link SirenBooleanQuery.TooManyClauses} exception during
  * searching, which happens when the number of terms to be
  * searched exceeds {@link
- * SirenBooleanQuery#getMaxClauseCount()}.
+ * SirenBooleanQuery#getMaxClauseCount()}.  Setting {@link
+ * #setRewriteMethod} to {@link #CONSTANT_SCORE_FILTER_REWRITE}
+ * prevents this.
  *
  * <p>The recommended rewrite method is {@link
  * #CONSTANT_SCORE_AUTO_REWRITE_DEFAULT}: it doesn't spend CPU
@@ -74,7 +75,7 @@ import org.sindice.siren.search.SirenBooleanClause.Occur;
 public abstract class SirenMultiTermQuery extends SirenPrimitiveQuery {
 
   protected RewriteMethod rewriteMethod = CONSTANT_SCORE_AUTO_REWRITE_DEFAULT;
-  transient int numberOfTerms = 0;
+  transient volatile int numberOfTerms = 0;
 
   /** Abstract class that defines how the query is rewritten. */
   public static abstract class RewriteMethod implements Serializable {
@@ -82,12 +83,10 @@ public abstract class SirenMultiTermQuery extends SirenPrimitiveQuery {
   }
 
   /**
-   * Rewrite method currently deactivated in SIREn.
-   *
-   * <p> A rewrite method that first creates a private Filter,
-   * by visiting each term in sequence and marking all docs
-   * for that term.  Matching documents are assigned a
-   * constant score equal to the query's boost.
+   * A rewrite method that first creates a private Filter,
+   * by visiting each term in sequence and marking all the
+   * cells containing that term.  Matching documents are
+   * assigned a constant score equal to the query's boost.
    *
    * <p> This method is faster than the BooleanQuery
    * rewrite methods when the number of matched terms or
@@ -96,20 +95,14 @@ public abstract class SirenMultiTermQuery extends SirenPrimitiveQuery {
    * exception.
    *
    *  @see #setRewriteMethod
+   *  @see SirenMultiTermQueryWrapperFilter
    **/
   public static final RewriteMethod CONSTANT_SCORE_FILTER_REWRITE = new RewriteMethod() {
     @Override
     public Query rewrite(final IndexReader reader, final SirenMultiTermQuery query) {
-
-      // TODO: Reactivate filter-based approach when a correct implementation of
-      // SirenMultiTermQueryWrapperFilter is found.
-
-//      Query result = new ConstantScoreQuery(new SirenMultiTermQueryWrapperFilter<MultiTermQuery>(query));
-//      result.setBoost(query.getBoost());
-//      return result;
-
-      throw new UnsupportedOperationException("Filter-based rewrite method " +
-      		"is currently deactivated");
+      final Query result = new SirenConstantScoreQuery(new SirenMultiTermQueryWrapperFilter<SirenMultiTermQuery>(query));
+      result.setBoost(query.getBoost());
+      return result;
     }
 
     // Make sure we are still a singleton even after deserializing
@@ -241,9 +234,6 @@ public abstract class SirenMultiTermQuery extends SirenPrimitiveQuery {
    * #CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE} is used.
    * Otherwise, {@link #CONSTANT_SCORE_FILTER_REWRITE} is
    * used.
-   *
-   * <p> The {@link #CONSTANT_SCORE_FILTER_REWRITE} method is currently
-   * deactivated in SIREn.
    */
   public static class SirenConstantScoreAutoRewrite extends org.sindice.siren.search.SirenConstantScoreAutoRewrite {}
 
@@ -317,7 +307,13 @@ public abstract class SirenMultiTermQuery extends SirenPrimitiveQuery {
     numberOfTerms = 0;
   }
 
-  protected void incTotalNumberOfTerms(final int inc) {
+  /**
+   * Synchronized, since a constant score rewrite visits the terms of each
+   * segment when its filter is created, possibly from several threads. The
+   * counter is volatile so that {@link #getTotalNumberOfTerms()} reads the
+   * last count without locking.
+   */
+  protected synchronized void incTotalNumberOfTerms(final int inc) {
     numberOfTerms += inc;
   }
 
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.search.FilteredTermEnum;
+import org.apache.lucene.search.MultiTermQueryWrapperFilter;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.SorterTemplate;
+import org.sindice.siren.index.SirenPositionsDecoder;
+
+/**
+ * A wrapper for {@link SirenMultiTermQuery}, that exposes its functionality
+ * as a {@link SirenFilter}.
+ * <p>
+ * The matching terms are enumerated once, and the (entity, tuple, cell)
+ * triples of their occurrences are accumulated, sorted and materialised into
+ * a compact {@link DocTupCelIdSet} by a {@link DocTupCelIdSetBuilder}. The
+ * cost is a single pass over the postings of the terms, instead of a
+ * disjunction over all the terms which can hit
+ * {@link SirenBooleanQuery.TooManyClauses}.
+ *
+ * <p> Code taken from {@link MultiTermQueryWrapperFilter} and adapted for SIREn.
+ */
+public class SirenMultiTermQueryWrapperFilter<Q extends SirenMultiTermQuery>
+extends SirenFilter {
+
+  private static final long serialVersionUID = -4289547563612394839L;
+
+  protected final Q query;
+
+  /**
+   * Wrap a {@link SirenMultiTermQuery} as a Filter.
+   */
+  protected SirenMultiTermQueryWrapperFilter(final Q query) {
+    this.query = query;
+  }
+
+  @Override
+  public String toString() {
+    // query.toString should be ok for the filter, too, if the query boost is 1.0f
+    return query.toString();
+  }
+
+  @Override
+  public final boolean equals(final Object o) {
+    if (o == this) return true;
+    if (o == null) return false;
+    if (this.getClass().equals(o.getClass())) {
+      return this.query.equals(((SirenMultiTermQueryWrapperFilter<?>) o).query);
+    }
+    return false;
+  }
+
+  @Override
+  public final int hashCode() {
+    return query.hashCode();
+  }
+
+  /** @see SirenMultiTermQuery#getTotalNumberOfTerms */
+  public int getTotalNumberOfTerms() {
+    return query.getTotalNumberOfTerms();
+  }
+
+  /** @see SirenMultiTermQuery#clearTotalNumberOfTerms */
+  public void clearTotalNumberOfTerms() {
+    query.clearTotalNumberOfTerms();
+  }
+
+  /**
+   * Returns a {@link DocTupCelIdSet} with the cells containing one of the
+   * enumerated terms.
+   */
+  @Override
+  public DocTupCelIdSet getDocTupCelIdSet(final IndexReader reader)
+  throws IOException {
+    final FilteredTermEnum enumerator = query.getEnum(reader);
+    try {
+      // if current term in enum is null, the enum is empty -> shortcut
+      if (enumerator.term() == null) {
+        return DocTupCelIdSet.EMPTY_IDSET;
+      }
+      final TripleCollector collector = new TripleCollector();
+      final SirenPositionsDecoder decoder = new SirenPositionsDecoder();
+      final TermPositions termPositions = reader.termPositions();
+      try {
+        int termCount = 0;
+        do {
+          if (enumerator.term() == null) {
+            break;
+          }
+          termCount++;
+          termPositions.seek(enumerator);
+          while (termPositions.next()) {
+            final int entity = termPositions.doc();
+            decoder.decode(termPositions, termPositions.freq());
+            // only the first occurrence of each cell is collected
+            for (int i = 0; i < decoder.size(); i += decoder.cellFreq(i)) {
+              collector.add(entity, decoder.tuple(i), decoder.cell(i));
+            }
+          }
+        } while (enumerator.next());
+        query.incTotalNumberOfTerms(termCount);
+      }
+      finally {
+        termPositions.close();
+      }
+      return collector.build();
+    }
+    finally {
+      enumerator.close();
+    }
+  }
+
+  /**
+   * Accumulate the triples of the terms, which are sorted by entity, tuple
+   * and cell for each term but not across terms.
+   */
+  private static class TripleCollector extends SorterTemplate {
+
+    private int[] entities = new int[64];
+    private int[] tuples = new int[64];
+    private int[] cells = new int[64];
+    private int size = 0;
+
+    /** Whether the triples have been added in sorted order */
+    private boolean isSorted = true;
+
+    private int pivotEntity, pivotTuple, pivotCell;
+
+    void add(final int entity, final int tuple, final int cell) {
+      if (size == entities.length) {
+        entities = ArrayUtil.grow(entities, size + 1);
+        tuples = ArrayUtil.grow(tuples, entities.length);
+        cells = ArrayUtil.grow(cells, entities.length);
+      }
+      if (isSorted && size > 0 &&
+          compare(entity, tuple, cell, size - 1) < 0) {
+        isSorted = false;
+      }
+      entities[size] = entity;
+      tuples[size] = tuple;
+      cells[size++] = cell;
+    }
+
+    DocTupCelIdSet build() {
+      if (!isSorted) {
+        this.quickSort(0, size - 1);
+      }
+      final DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+      for (int i = 0; i < size; i++) {
+        builder.add(entities[i], tuples[i], cells[i]);
+      }
+      return builder.build();
+    }
+
+    private int compare(final int entity, final int tuple, final int cell,
+                        final int j) {
+      if (entity != entities[j]) {
+        return entity < entities[j] ? -1 : 1;
+      }
+      if (tuple != tuples[j]) {
+        return tuple < tuples[j] ? -1 : 1;
+      }
+      return cell < cells[j] ? -1 : (cell == cells[j] ? 0 : 1);
+    }
+
+    @Override
+    protected void swap(final int i, final int j) {
+      int tmp = entities[i]; entities[i] = entities[j]; entities[j] = tmp;
+      tmp = tuples[i]; tuples[i] = tuples[j]; tuples[j] = tmp;
+      tmp = cells[i]; cells[i] = cells[j]; cells[j] = tmp;
+    }
+
+    @Override
+    protected int compare(final int i, final int j) {
+      return this.compare(entities[i], tuples[i], cells[i], j);
+    }
+
+    @Override
+    protected void setPivot(final int i) {
+      pivotEntity = entities[i];
+      pivotTuple = tuples[i];
+      pivotCell = cells[i];
+    }
+
+    @Override
+    protected int comparePivot(final int j) {
+      return this.compare(pivotEntity, pivotTuple, pivotCell, j);
+    }
+
+  }
+
+}
@@ -74,9 +74,9 @@ import org.apache.lucene.util.ToStringUtils;
  * details.
  *
  * <p>This query defaults to {@linkplain
- * SirenMultiTermQuery#CONSTANT_SCORE_AUTO_REWRITE_DEFAULT} and never relies on
- * uses {@linkplain SirenMultiTermQuery#CONSTANT_SCORE_FILTER_REWRITE}. Good
- * performance is expected for
+ * SirenMultiTermQuery#CONSTANT_SCORE_AUTO_REWRITE_DEFAULT}, which switches to
+ * {@linkplain SirenMultiTermQuery#CONSTANT_SCORE_FILTER_REWRITE} for large
+ * ranges. Good performance is expected for
  * 32 bit (int/float) ranges with precisionStep &le;8 and 64
  * bit (long/double) ranges with precisionStep &le;6.
  * In the other cases, bad performance has to be expected as the
@@ -210,7 +210,8 @@ extends SirenPrimitiveQuery {
 
       if (slop == 0) { // optimize exact case
         return new SirenExactPhraseScorer(this, tps,
-          SirenPhraseQuery.this.getPositions(), similarity, reader.norms(field));
+          SirenPhraseQuery.this.getPositions(), similarity, reader.norms(field),
+          reader, SirenPhraseQuery.this.getTerms());
       }
       else {
         throw new UnsupportedOperationException();
@@ -28,6 +28,8 @@ package org.sindice.siren.search;
 
 import java.io.IOException;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermPositions;
 import org.apache.lucene.search.Similarity;
 import org.apache.lucene.search.Weight;
@@ -71,10 +73,38 @@ extends SirenPrimitiveScorer {
   protected int                 cell = -1;
   protected int                 pos = -1;
 
+  /**
+   * The segment reader and the terms of the phrase, used to estimate the
+   * {@link #cost()}, or null if unknown
+   */
+  private final IndexReader     reader;
+  private final Term[]          terms;
+
+  /**
+   * The number of entities containing the rarest term, read from the segment
+   * reader at the first call to {@link #cost()}, or -1 until then
+   */
+  private int                   docFreq = -1;
+
   SirenPhraseScorer(final Weight weight, final TermPositions[] tps,
                     final int[] offsets, final Similarity similarity,
                     final byte[] norms) {
+    this(weight, tps, offsets, similarity, norms, null, null);
+  }
+
+  /**
+   * @param reader
+   *          The segment reader of the terms.
+   * @param terms
+   *          The terms of the phrase.
+   */
+  SirenPhraseScorer(final Weight weight, final TermPositions[] tps,
+                    final int[] offsets, final Similarity similarity,
+                    final byte[] norms, final IndexReader reader,
+                    final Term[] terms) {
     super(similarity);
+    this.reader = reader;
+    this.terms = terms;
     sim = similarity;
     this.norms = norms;
     this.value = weight.getValue();
@@ -199,6 +229,30 @@ extends SirenPrimitiveScorer {
     return norms == null ? raw : raw * sim.decodeNormValue(norms[first.entity()]); // normalize
   }
 
+  /**
+   * Returns the number of entities containing the rarest term of the phrase,
+   * or {@link Integer#MAX_VALUE} if the segment reader is unknown.
+   */
+  @Override
+  public long cost() {
+    if (reader == null) {
+      return Integer.MAX_VALUE;
+    }
+    if (docFreq == -1) {
+      int min = Integer.MAX_VALUE;
+      try {
+        for (final Term term : terms) {
+          min = Math.min(min, reader.docFreq(term));
+        }
+      }
+      catch (final IOException e) {
+        throw new RuntimeException("Unable to read the document frequencies of the phrase terms", e);
+      }
+      docFreq = min;
+    }
+    return docFreq;
+  }
+
   @Override
   public int advance(final int entityID) throws IOException {
     if (entity == entityID) { // optimised case: do nothing
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.OpenBitSet;
+import org.sindice.siren.index.SirenTermPositions;
+
+/**
+ * A cache of the entities having a term in the predicate cell, i.e., the cell
+ * {@value #PREDICATE_CELL}, of one of their tuples, so that a
+ * {@link SirenCellQuery} over a {@link SirenTermQuery} with a predicate-only
+ * constraint does not walk the positions of the entities having the term in
+ * another cell only.
+ * <p>
+ * The entities are cached per segment, in a bit set built lazily at the first
+ * query of the term on the segment. Only the terms found in at least
+ * {@link #getMinDocFreq()} entities of a segment are cached: the positions of
+ * a rare term are cheap to walk. The cache is keyed by the core of the
+ * segment if it has no deletions, and by the segment itself otherwise, as
+ * {@link SirenCachingWrapperFilter}, so that the deleted entities are never
+ * set. The bit sets of a segment are discarded once the segment is not used
+ * anymore.
+ * <p>
+ * The memory used by the bit sets is bounded by {@link #getMaxBytes()} and
+ * reported by {@link #ramBytesUsed()}. When the bound is reached, the least
+ * recently used bit sets of the segment are evicted first, then the ones of
+ * the other segments.
+ * <p>
+ * The cache is used by {@link SirenCellQuery} once it is set with
+ * {@link #setDefault(SirenPredicateBitSetCache)}. There is no cache by
+ * default.
+ */
+public class SirenPredicateBitSetCache {
+
+  /** The index of the predicate cell in a tuple */
+  public static final int PREDICATE_CELL = 1;
+
+  /** Default maximum number of bytes used by the bit sets */
+  public static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+  /** Default minimum number of entities of a cached term in a segment */
+  public static final int DEFAULT_MIN_DOC_FREQ = 1024;
+
+  private static volatile SirenPredicateBitSetCache defaultCache = null;
+
+  private final long maxBytes;
+  private final int minDocFreq;
+
+  /** The bit sets of a segment, keyed by the segment or its core */
+  private final Map<Object, Map<Term, Entities>> segments =
+    new WeakHashMap<Object, Map<Term, Entities>>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SirenPredicateBitSetCache() {
+    this(DEFAULT_MAX_BYTES, DEFAULT_MIN_DOC_FREQ);
+  }
+
+  /**
+   * @param maxBytes
+   *          The maximum number of bytes used by the bit sets of all the
+   *          segments.
+   * @param minDocFreq
+   *          The minimum number of entities of a segment containing a term
+   *          for its bit set to be cached.
+   */
+  public SirenPredicateBitSetCache(final long maxBytes, final int minDocFreq) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be > 0");
+    }
+    if (minDocFreq <= 0) {
+      throw new IllegalArgumentException("minDocFreq must be > 0");
+    }
+    this.maxBytes = maxBytes;
+    this.minDocFreq = minDocFreq;
+  }
+
+  /**
+   * Returns the cache used by {@link SirenCellQuery}, or null if the entities
+   * are not cached.
+   */
+  public static SirenPredicateBitSetCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Sets the cache used by {@link SirenCellQuery}. A null cache disables the
+   * caching of the entities.
+   */
+  public static void setDefault(final SirenPredicateBitSetCache cache) {
+    defaultCache = cache;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public int getMinDocFreq() {
+    return minDocFreq;
+  }
+
+  /**
+   * Returns the number of bit sets read from the cache.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of bit sets built.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of bit sets cached over all the segments.
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (final Map<Term, Entities> entities : segments.values()) {
+      size += entities.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes used by the bit sets cached over all the
+   * segments.
+   */
+  public synchronized long ramBytesUsed() {
+    long bytes = 0;
+    for (final Map<Term, Entities> entities : segments.values()) {
+      for (final Entities e : entities.values()) {
+        bytes += e.ramBytesUsed();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Removes all the cached bit sets, and resets the hit and miss counts.
+   */
+  public synchronized void clear() {
+    segments.clear();
+    hits.set(0);
+    misses.set(0);
+  }
+
+  /**
+   * Returns the entities of the segment having the term in their predicate
+   * cell, or null if the term is not frequent enough in the segment or if its
+   * bit set does not fit in the cache.
+   */
+  Entities getEntities(final IndexReader segment, final Term term)
+  throws IOException {
+    final int docFreq = segment.docFreq(term);
+    if (docFreq < minDocFreq || Entities.ramBytesUsed(segment.maxDoc()) > maxBytes) {
+      return null;
+    }
+
+    final Object key = segment.hasDeletions() ? segment : segment.getCoreCacheKey();
+    Entities entities = this.get(key, term);
+    if (entities != null) {
+      hits.incrementAndGet();
+      return entities;
+    }
+
+    misses.incrementAndGet();
+    entities = this.build(segment, term);
+    this.put(key, term, entities);
+    return entities;
+  }
+
+  private synchronized Entities get(final Object key, final Term term) {
+    final Map<Term, Entities> entities = segments.get(key);
+    return entities == null ? null : entities.get(term);
+  }
+
+  private synchronized void put(final Object key, final Term term,
+                                final Entities entities) {
+    Map<Term, Entities> cached = segments.get(key);
+    if (cached == null) {
+      cached = new LinkedHashMap<Term, Entities>(16, 0.75f, true);
+      segments.put(key, cached);
+    }
+    if (cached.containsKey(term)) { // built concurrently
+      return;
+    }
+
+    long bytes = this.ramBytesUsed() + entities.ramBytesUsed();
+    bytes -= evict(cached, bytes - maxBytes);
+    for (final Map<Term, Entities> other : segments.values()) {
+      if (bytes <= maxBytes) {
+        break;
+      }
+      bytes -= evict(other, bytes - maxBytes);
+    }
+    cached.put(term, entities);
+  }
+
+  /**
+   * Evicts the least recently used bit sets of a segment until at least
+   * <code>bytes</code> bytes are freed, and returns the number of bytes freed.
+   */
+  private static long evict(final Map<Term, Entities> entities, final long bytes) {
+    long freed = 0;
+    final Iterator<Entities> it = entities.values().iterator();
+    while (freed < bytes && it.hasNext()) {
+      freed += it.next().ramBytesUsed();
+      it.remove();
+    }
+    return freed;
+  }
+
+  /**
+   * Walks the positions of the term in the segment, and sets the entities
+   * having the term in their predicate cell.
+   */
+  private Entities build(final IndexReader segment, final Term term)
+  throws IOException {
+    final OpenBitSet bits = new OpenBitSet(segment.maxDoc());
+    int count = 0;
+    final SirenTermPositions tp = new SirenTermPositions(segment.termPositions(term));
+    try {
+      while (tp.next()) {
+        while (tp.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS) {
+          if (tp.cell() == PREDICATE_CELL) {
+            bits.fastSet(tp.entity());
+            count++;
+            break;
+          }
+        }
+      }
+    }
+    finally {
+      tp.close();
+    }
+    return new Entities(bits, count);
+  }
+
+  /**
+   * The entities of a segment having a term in their predicate cell.
+   */
+  static final class Entities {
+
+    final OpenBitSet bits;
+
+    /** The number of entities set */
+    final int count;
+
+    Entities(final OpenBitSet bits, final int count) {
+      this.bits = bits;
+      this.count = count;
+    }
+
+    long ramBytesUsed() {
+      return ramBytesUsed(bits.size());
+    }
+
+    /** Returns the number of bytes of a bit set of <code>numBits</code> bits */
+    static long ramBytesUsed(final long numBits) {
+      return ((numBits + 63) >>> 6) << 3;
+    }
+
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.Weight;
+
+/**
+ * Constrains search results to only match those which also match a provided
+ * query.
+ *
+ * <p> Code taken from {@link QueryWrapperFilter} and adapted for SIREn.
+ */
+public class SirenQueryWrapperFilter extends SirenFilter {
+
+  private static final long serialVersionUID = 4512786094720468236L;
+
+  private final SirenPrimitiveQuery query;
+
+  /** Constructs a filter which only matches entities, tuples and cells
+   * matching <code>query</code>.
+   */
+  public SirenQueryWrapperFilter(final SirenPrimitiveQuery query) {
+    this.query = query;
+  }
+
+  /** Returns the inner Query */
+  public final SirenPrimitiveQuery getQuery() {
+    return query;
+  }
+
+  @Override
+  public DocTupCelIdSet getDocTupCelIdSet(final IndexReader reader) throws IOException {
+    final Weight weight = new IndexSearcher(reader).createNormalizedWeight(query);
+    return new DocTupCelIdSet() {
+      @Override
+      public DocTupCelIdSetIterator iterator() throws IOException {
+        return (DocTupCelIdSetIterator) weight.scorer(reader, true, false);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "SirenQueryWrapperFilter(" + query + ")";
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (!(o instanceof SirenQueryWrapperFilter))
+      return false;
+    return this.query.equals(((SirenQueryWrapperFilter) o).query);
+  }
+
+  @Override
+  public int hashCode() {
+    return query.hashCode() ^ 0x923F64B9;
+  }
+
+}
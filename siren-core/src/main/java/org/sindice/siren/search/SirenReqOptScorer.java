@@ -70,6 +70,14 @@ extends SirenScorer {
     return reqScorer.nextDoc();
   }
 
+  /**
+   * Returns the cost of the required scorer, which drives the iteration.
+   */
+  @Override
+  public long cost() {
+    return reqScorer.cost();
+  }
+
   @Override
   public int nextPosition() throws IOException {
     return reqScorer.nextPosition();
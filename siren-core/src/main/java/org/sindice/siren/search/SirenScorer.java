@@ -80,6 +80,25 @@ public abstract class SirenScorer extends Scorer implements DocTupCelIdSetIterat
     return doc != NO_MORE_DOCS;
   }
 
+  /**
+   * Expert: Tells the scorer that {@link #score()} will never be called, e.g.,
+   * when a {@link SirenTotalHitCountCollector} counts the matching entities.
+   * The scorers summing the scores of their subscorers at each position skip
+   * the summing. The default implementation does nothing.
+   */
+  void disableScoring() {}
+
+  /**
+   * Returns an estimate of the number of entities matched by this scorer.
+   * <p>
+   * Used to drive the iteration of a conjunction from its cheapest scorer.
+   * The default implementation returns {@link Integer#MAX_VALUE}, i.e., the
+   * cost is unknown.
+   */
+  public long cost() {
+    return Integer.MAX_VALUE;
+  }
+
   public class InvalidCallException extends RuntimeException {
 
     private static final long serialVersionUID = -7392726157079278292L;
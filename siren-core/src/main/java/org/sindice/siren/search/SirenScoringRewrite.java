@@ -111,7 +111,7 @@ public abstract class SirenScoringRewrite<Q extends Query> extends SirenTermColl
     final Q result = this.getTopLevelQuery();
     final int[] size = new int[1]; // "trick" to be able to make it final
     this.collectTerms(reader, query, new TermCollector() {
-      public boolean collect(final Term t, final float boost) throws IOException {
+      public boolean collect(final Term t, final float boost, final int docFreq) throws IOException {
         SirenScoringRewrite.this.addClause(result, t, query.getBoost() * boost);
         size[0]++;
         return true;
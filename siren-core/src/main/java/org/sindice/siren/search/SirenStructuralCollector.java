@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
+
+/**
+ * Receives the tuples and cells matching a SIREn query in a set of entities,
+ * e.g., the top-k entities of a search, so that the matching tuples can be
+ * shown without analysing the content of the entities again.
+ * <p>
+ * The matches are computed by {@link #collect(IndexSearcher, Query, TopDocs)}
+ * in a second pass over the given entities only: the scorer of the query is
+ * advanced to each entity in order, and its positions are iterated. The cost
+ * of the pass does not depend on the number of entities matching the query.
+ * <p>
+ * The matches are given per segment, entity by entity in increasing order,
+ * and in increasing (tuple, cell) order within an entity. Each (tuple, cell)
+ * pair is given once. The cell is {@link Integer#MAX_VALUE} for a query
+ * matching whole tuples, e.g., a {@link SirenTupleQuery}.
+ */
+public abstract class SirenStructuralCollector {
+
+  /**
+   * Called before collecting the matches of the entities of a segment.
+   *
+   * @param reader
+   *          The segment reader.
+   * @param docBase
+   *          The identifier of the first entity of the segment in the searcher.
+   */
+  public abstract void setNextReader(IndexReader reader, int docBase)
+  throws IOException;
+
+  /**
+   * Called once for each (tuple, cell) matching the query in an entity.
+   *
+   * @param entity
+   *          The identifier of the entity in the segment.
+   */
+  public abstract void collect(int entity, int tuple, int cell)
+  throws IOException;
+
+  /**
+   * Collects the matches of the query in the entities of the search results.
+   *
+   * @see #collect(IndexSearcher, Query, int[])
+   */
+  public void collect(final IndexSearcher searcher, final Query query,
+                      final TopDocs topDocs)
+  throws IOException {
+    final int[] docs = new int[topDocs.scoreDocs.length];
+    int i = 0;
+    for (final ScoreDoc scoreDoc : topDocs.scoreDocs) {
+      docs[i++] = scoreDoc.doc;
+    }
+    this.collect(searcher, query, docs);
+  }
+
+  /**
+   * Collects the matches of the query in the given entities. An entity not
+   * matching the query is ignored.
+   *
+   * @param docs
+   *          The identifiers of the entities in the searcher, in any order.
+   * @throws IllegalArgumentException
+   *           if the query is not a SIREn query.
+   */
+  public void collect(final IndexSearcher searcher, final Query query,
+                      final int[] docs)
+  throws IOException {
+    final int[] sorted = docs.clone();
+    Arrays.sort(sorted);
+    int n = 0; // remove the duplicates
+    for (int j = 0; j < sorted.length; j++) {
+      if (n == 0 || sorted[j] != sorted[n - 1]) {
+        sorted[n++] = sorted[j];
+      }
+    }
+
+    final Weight weight = searcher.createNormalizedWeight(query);
+    int docBase = 0;
+    int i = 0;
+    for (final IndexReader reader : searcher.getSubReaders()) {
+      final int docEnd = docBase + reader.maxDoc();
+      if (i < n && sorted[i] < docEnd) {
+        final Scorer scorer = weight.scorer(reader, true, false);
+        if (scorer != null && !(scorer instanceof SirenScorer)) {
+          throw new IllegalArgumentException("Not a SIREn query: " + query);
+        }
+        this.setNextReader(reader, docBase);
+        while (i < n && sorted[i] < docEnd) {
+          final int entity = sorted[i++] - docBase;
+          // a previous advance may have landed on the entity already
+          if (scorer != null && (scorer.docID() == entity ||
+              (scorer.docID() < entity && scorer.advance(entity) == entity))) {
+            this.collect((SirenScorer) scorer, entity);
+          }
+        }
+      }
+      docBase = docEnd;
+    }
+  }
+
+  /**
+   * Iterates the positions of the scorer in the current entity.
+   */
+  private void collect(final SirenScorer scorer, final int entity)
+  throws IOException {
+    // high-level scorers are on their first match, primitive scorers load
+    // their positions lazily
+    if (scorer.tuple() == -1 &&
+        scorer.nextPosition() == DocTupCelIdSetIterator.NO_MORE_POS) {
+      return;
+    }
+    int tuple = -1, cell = -1;
+    do {
+      if (scorer.tuple() != tuple || scorer.cell() != cell) {
+        tuple = scorer.tuple();
+        cell = scorer.cell();
+        this.collect(entity, tuple, cell);
+      }
+    } while (scorer.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+  }
+
+}
@@ -35,6 +35,9 @@ import org.sindice.siren.search.SirenMultiTermQuery.RewriteMethod;
 
 /**
  * Code taken from {@link TermCollectingRewrite} and adapted for SIREn.
+ * <p>
+ * The terms are read from the {@link SirenTermExpansionCache#getDefault()
+ * default expansion cache} if one is set.
  */
 abstract class SirenTermCollectingRewrite<Q extends Query> extends RewriteMethod {
 
@@ -45,11 +48,15 @@ abstract class SirenTermCollectingRewrite<Q extends Query> extends RewriteMethod
   protected abstract void addClause(Q topLevel, Term term, float boost) throws IOException;
 
   protected final void collectTerms(final IndexReader reader, final SirenMultiTermQuery query, final TermCollector collector) throws IOException {
+    final SirenTermExpansionCache cache = SirenTermExpansionCache.getDefault();
+    if (cache != null && cache.collectTerms(reader, query, collector)) {
+      return;
+    }
     final FilteredTermEnum enumerator = query.getEnum(reader);
     try {
       do {
         final Term t = enumerator.term();
-        if (t == null || !collector.collect(t, enumerator.difference()))
+        if (t == null || !collector.collect(t, enumerator.difference(), enumerator.docFreq()))
           break;
       } while (enumerator.next());
     } finally {
@@ -58,8 +65,11 @@ abstract class SirenTermCollectingRewrite<Q extends Query> extends RewriteMethod
   }
 
   protected interface TermCollector {
-    /** return false to stop collecting */
-    boolean collect(Term t, float boost) throws IOException;
+    /**
+     * return false to stop collecting
+     * @param docFreq the document frequency of the term in the reader
+     */
+    boolean collect(Term t, float boost, int docFreq) throws IOException;
   }
 
 }
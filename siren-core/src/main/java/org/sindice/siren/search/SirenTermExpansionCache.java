@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FilteredTermEnum;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.ReaderUtil;
+import org.sindice.siren.search.SirenTermCollectingRewrite.TermCollector;
+
+/**
+ * A cache of the terms, with their boost and document frequency, expanded by
+ * a {@link SirenMultiTermQuery}, so that a query issued repeatedly does not
+ * enumerate the term dictionary at each rewrite.
+ * <p>
+ * The expansions are cached per segment, in a least recently used cache
+ * bounded by {@link #getMaxExpansions()}, and keyed by the query with its
+ * boost and rewrite method removed: two queries of the same class having the
+ * same pattern share their expansions. The expansions of a segment are
+ * discarded once the segment is not used anymore, e.g., after it has been
+ * merged away and the reader reopened, while the expansions of the segments
+ * unchanged by a reopen are kept. The document frequencies include the deleted
+ * documents, as {@link IndexReader#docFreq(Term)}.
+ * <p>
+ * An expansion of more than {@link #getMaxTerms()} terms in a segment is not
+ * cached, and the query is rewritten by enumerating the terms as without a
+ * cache. Such a query usually rewrites to a filter which does not depend on
+ * the rewrite.
+ * <p>
+ * The cache is used by the rewrite methods extending
+ * {@link SirenTermCollectingRewrite} once it is set with
+ * {@link #setDefault(SirenTermExpansionCache)}. There is no cache by default.
+ * <p>
+ * The cache relies on {@link SirenMultiTermQuery#equals(Object)} to compare
+ * the expansions of two queries: a subclass whose enumeration depends on a
+ * state not compared by its <code>equals</code> must not be used with a cache.
+ */
+public class SirenTermExpansionCache {
+
+  /** Default maximum number of expansions cached per segment */
+  public static final int DEFAULT_MAX_EXPANSIONS = 256;
+
+  /** Default maximum number of terms of a cached expansion */
+  public static final int DEFAULT_MAX_TERMS = 1024;
+
+  private static volatile SirenTermExpansionCache defaultCache = null;
+
+  /** Marks an expansion with too many terms to be cached */
+  private static final Expansion TOO_LARGE = new Expansion(new Term[0], new float[0], new int[0]);
+
+  private final int maxExpansions;
+  private final int maxTerms;
+
+  /** The expansions of a segment, keyed by the core of the segment */
+  private final Map<Object, Map<SirenMultiTermQuery, Expansion>> segments =
+    new WeakHashMap<Object, Map<SirenMultiTermQuery, Expansion>>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SirenTermExpansionCache() {
+    this(DEFAULT_MAX_EXPANSIONS, DEFAULT_MAX_TERMS);
+  }
+
+  /**
+   * @param maxExpansions
+   *          The maximum number of expansions cached per segment.
+   * @param maxTerms
+   *          The maximum number of terms of an expansion in a segment.
+   */
+  public SirenTermExpansionCache(final int maxExpansions, final int maxTerms) {
+    if (maxExpansions <= 0) {
+      throw new IllegalArgumentException("maxExpansions must be > 0");
+    }
+    if (maxTerms < 0) {
+      throw new IllegalArgumentException("maxTerms must be >= 0");
+    }
+    this.maxExpansions = maxExpansions;
+    this.maxTerms = maxTerms;
+  }
+
+  /**
+   * Returns the cache used by the rewrite methods, or null if the expansions
+   * are not cached.
+   */
+  public static SirenTermExpansionCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Sets the cache used by the rewrite methods. A null cache disables the
+   * caching of the expansions.
+   */
+  public static void setDefault(final SirenTermExpansionCache cache) {
+    defaultCache = cache;
+  }
+
+  public int getMaxExpansions() {
+    return maxExpansions;
+  }
+
+  public int getMaxTerms() {
+    return maxTerms;
+  }
+
+  /**
+   * Returns the number of segment expansions read from the cache.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of segment expansions not found in the cache.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of expansions cached over all the segments.
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (final Map<SirenMultiTermQuery, Expansion> expansions : segments.values()) {
+      size += expansions.size();
+    }
+    return size;
+  }
+
+  /**
+   * Removes all the cached expansions, and resets the hit and miss counts.
+   */
+  public synchronized void clear() {
+    segments.clear();
+    hits.set(0);
+    misses.set(0);
+  }
+
+  /**
+   * Passes to the collector the terms of the query in the reader, in term
+   * order, with their document frequency summed over the segments of the
+   * reader.
+   *
+   * @return false if the terms have not been collected because the expansion
+   * of a segment is too large to be cached.
+   */
+  boolean collectTerms(final IndexReader reader, final SirenMultiTermQuery query,
+                       final TermCollector collector)
+  throws IOException {
+    final List<IndexReader> subReaders = new ArrayList<IndexReader>();
+    ReaderUtil.gatherSubReaders(subReaders, reader);
+    final Expansion[] expansions = new Expansion[subReaders.size()];
+    final SirenMultiTermQuery key = this.key(query);
+    for (int i = 0; i < expansions.length; i++) {
+      expansions[i] = this.get(subReaders.get(i), key);
+      if (expansions[i] == null) {
+        misses.incrementAndGet();
+        expansions[i] = this.expand(subReaders.get(i), query);
+        this.put(subReaders.get(i), key, expansions[i]);
+      }
+      else if (expansions[i] == TOO_LARGE) {
+        misses.incrementAndGet();
+      }
+      else {
+        hits.incrementAndGet();
+      }
+      if (expansions[i] == TOO_LARGE) {
+        return false;
+      }
+    }
+    merge(expansions, collector);
+    return true;
+  }
+
+  /**
+   * Returns the query comparing equal to the queries with the same expansion.
+   */
+  private SirenMultiTermQuery key(final SirenMultiTermQuery query) {
+    final SirenMultiTermQuery key = (SirenMultiTermQuery) query.clone();
+    key.setBoost(1.0f);
+    key.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE);
+    return key;
+  }
+
+  private synchronized Expansion get(final IndexReader segment,
+                                     final SirenMultiTermQuery key) {
+    final Map<SirenMultiTermQuery, Expansion> expansions = segments.get(segment.getCoreCacheKey());
+    return expansions == null ? null : expansions.get(key);
+  }
+
+  private synchronized void put(final IndexReader segment,
+                                final SirenMultiTermQuery key,
+                                final Expansion expansion) {
+    Map<SirenMultiTermQuery, Expansion> expansions = segments.get(segment.getCoreCacheKey());
+    if (expansions == null) {
+      expansions = new LinkedHashMap<SirenMultiTermQuery, Expansion>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<SirenMultiTermQuery, Expansion> eldest) {
+          return this.size() > maxExpansions;
+        }
+      };
+      segments.put(segment.getCoreCacheKey(), expansions);
+    }
+    expansions.put(key, expansion);
+  }
+
+  /**
+   * Enumerates the terms of the query in a segment, or returns
+   * {@link #TOO_LARGE} if there are more than {@link #maxTerms} terms.
+   */
+  private Expansion expand(final IndexReader segment, final SirenMultiTermQuery query)
+  throws IOException {
+    final List<Term> terms = new ArrayList<Term>();
+    float[] boosts = new float[16];
+    int[] docFreqs = new int[16];
+    final FilteredTermEnum enumerator = query.getEnum(segment);
+    try {
+      do {
+        final Term t = enumerator.term();
+        if (t == null) {
+          break;
+        }
+        if (terms.size() == maxTerms) {
+          return TOO_LARGE;
+        }
+        if (terms.size() == boosts.length) {
+          boosts = ArrayUtil.grow(boosts, terms.size() + 1);
+          docFreqs = ArrayUtil.grow(docFreqs, boosts.length);
+        }
+        boosts[terms.size()] = enumerator.difference();
+        docFreqs[terms.size()] = enumerator.docFreq();
+        terms.add(t);
+      } while (enumerator.next());
+    }
+    finally {
+      enumerator.close();
+    }
+    return new Expansion(terms.toArray(new Term[terms.size()]),
+      Arrays.copyOf(boosts, terms.size()), Arrays.copyOf(docFreqs, terms.size()));
+  }
+
+  /**
+   * Merges the sorted terms of the segments, and passes them to the collector
+   * with their document frequencies summed over the segments.
+   */
+  private static void merge(final Expansion[] expansions,
+                            final TermCollector collector)
+  throws IOException {
+    final int[] pos = new int[expansions.length];
+    while (true) {
+      Term min = null;
+      float boost = 0;
+      for (int i = 0; i < expansions.length; i++) {
+        if (pos[i] < expansions[i].terms.length) {
+          final Term t = expansions[i].terms[pos[i]];
+          if (min == null || t.compareTo(min) < 0) {
+            min = t;
+            boost = expansions[i].boosts[pos[i]];
+          }
+        }
+      }
+      if (min == null) {
+        return;
+      }
+      int docFreq = 0;
+      for (int i = 0; i < expansions.length; i++) {
+        if (pos[i] < expansions[i].terms.length && expansions[i].terms[pos[i]].equals(min)) {
+          docFreq += expansions[i].docFreqs[pos[i]++];
+        }
+      }
+      if (!collector.collect(min, boost, docFreq)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The sorted terms of a query in a segment.
+   */
+  private static final class Expansion {
+
+    final Term[] terms;
+    final float[] boosts;
+    final int[] docFreqs;
+
+    Expansion(final Term[] terms, final float[] boosts, final int[] docFreqs) {
+      this.terms = terms;
+      this.boosts = boosts;
+      this.docFreqs = docFreqs;
+    }
+
+  }
+
+}
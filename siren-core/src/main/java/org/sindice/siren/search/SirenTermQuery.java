@@ -108,13 +108,23 @@ extends SirenPrimitiveQuery {
     public Scorer scorer(final IndexReader reader, final boolean scoreDocsInOrder,
                          final boolean topScorer)
     throws IOException {
+      if (topScorer) {
+        // a top scorer collects all the entities in one call: read them in
+        // bulk, the positions are opened only if the scorer is iterated
+        final TermDocs termDocs = reader.termDocs(term);
+        if (termDocs == null) {
+          return null;
+        }
+        return new SirenTermScorer(this, null, termDocs, similarity,
+          reader.norms(term.field()), reader, term);
+      }
+
       final TermPositions termPositions = reader.termPositions(term);
       if (termPositions == null) {
         return null;
       }
-
-      return new SirenTermScorer(this, termPositions, similarity,
-        reader.norms(term.field()));
+      return new SirenTermScorer(this, termPositions, null, similarity,
+        reader.norms(term.field()), reader, term);
     }
 
     @Override
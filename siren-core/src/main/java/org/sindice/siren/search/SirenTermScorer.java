@@ -28,6 +28,9 @@ package org.sindice.siren.search;
 
 import java.io.IOException;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermPositions;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Similarity;
@@ -37,7 +40,11 @@ import org.sindice.siren.index.SirenTermPositions;
 class SirenTermScorer
 extends SirenPrimitiveScorer {
 
-  private final SirenTermPositions termPositions;
+  /**
+   * The positions of the term, or null until they are opened lazily when the
+   * scorer collects the entities in bulk
+   */
+  private SirenTermPositions  termPositions;
 
   private final Similarity    sim;
 
@@ -49,6 +56,21 @@ extends SirenPrimitiveScorer {
 
   private final float[]       scoreCache       = new float[SCORE_CACHE_SIZE];
 
+  /**
+   * Term docs used to read entities and frequencies in bulk when the scorer is
+   * the top scorer, null otherwise
+   */
+  private final TermDocs      termDocs;
+
+  private static final int    BULK_BUFFER_SIZE = 32;
+
+  private int[]               docs;
+  private int[]               freqs;
+  private int                 pointer;
+
+  /** True while entities are collected in bulk */
+  private boolean             isBulk = false;
+
   /** Current structural and positional information */
   private int                 dataset = -1;
   private int                 entity = -1;
@@ -56,6 +78,25 @@ extends SirenPrimitiveScorer {
   private int                 cell = -1;
   private int                 pos = -1;
 
+  /**
+   * True if the scorer is positioned on a new entity, but its first position
+   * is not loaded yet [SRN-24]
+   */
+  private boolean             isFirstPositionPending = false;
+
+  /**
+   * The segment reader and the term, used to open the positions lazily and to
+   * count the entities containing the term, or null if unknown
+   */
+  private final IndexReader   reader;
+  private final Term          term;
+
+  /**
+   * The number of entities containing the term, read from the segment reader
+   * at the first use, or -1 until then
+   */
+  private int                 docFreq = -1;
+
   /**
    * Construct a <code>SirenTermScorer</code>.
    *
@@ -72,9 +113,50 @@ extends SirenPrimitiveScorer {
    */
   protected SirenTermScorer(final Weight weight, final TermPositions tp,
                             final Similarity similarity, final byte[] norms) {
+    this(weight, tp, null, similarity, norms);
+  }
+
+  /**
+   * Construct a <code>SirenTermScorer</code> that collects the entities in
+   * bulk in {@link #score(Collector)}.
+   *
+   * @param td
+   *          An iterator over the documents matching the <code>Term</code>,
+   *          used by {@link #score(Collector)} to read entities and
+   *          frequencies in bulk. If null, the entities are collected one at a
+   *          time.
+   * @see #SirenTermScorer(Weight, TermPositions, Similarity, byte[])
+   */
+  protected SirenTermScorer(final Weight weight, final TermPositions tp,
+                            final TermDocs td, final Similarity similarity,
+                            final byte[] norms) {
+    this(weight, tp, td, similarity, norms, null, null);
+  }
+
+  /**
+   * Construct a <code>SirenTermScorer</code> that can estimate its
+   * {@link #cost()}.
+   *
+   * @param tp
+   *          An iterator over the documents and the positions matching the
+   *          <code>Term</code>, or null to open it from the reader only if the
+   *          entities are not collected in bulk.
+   * @param reader
+   *          The segment reader of the <code>Term</code>.
+   * @param term
+   *          The <code>Term</code> matched by the scorer.
+   * @see #SirenTermScorer(Weight, TermPositions, TermDocs, Similarity, byte[])
+   */
+  protected SirenTermScorer(final Weight weight, final TermPositions tp,
+                            final TermDocs td, final Similarity similarity,
+                            final byte[] norms, final IndexReader reader,
+                            final Term term) {
     super(similarity);
+    this.reader = reader;
+    this.term = term;
     sim = similarity;
-    this.termPositions = new SirenTermPositions(tp);
+    this.termPositions = tp == null ? null : new SirenTermPositions(tp);
+    this.termDocs = td;
     this.norms = norms;
     this.weightValue = weight.getValue();
 
@@ -82,9 +164,54 @@ extends SirenPrimitiveScorer {
       scoreCache[i] = sim.tf(i) * weightValue;
   }
 
+  /**
+   * Collects all the entities matching the term.
+   * <p>
+   * If the scorer has been created with a {@link TermDocs}, entities and
+   * frequencies are read in blocks of {@value #BULK_BUFFER_SIZE} and the
+   * positions are neither opened nor decoded. In this case, the tuple, cell
+   * and position are not available to the collector.
+   * <p>
+   * A {@link SirenTotalHitCountCollector} is given the document frequency of
+   * the term if the segment has no deletions, or the number of entities read
+   * in each block otherwise.
+   */
   @Override
   public void score(final Collector c) throws IOException {
-    this.score(c, Integer.MAX_VALUE, this.nextDoc());
+    if (c instanceof SirenTotalHitCountCollector && entity == -1 &&
+        reader != null && !reader.hasDeletions()) {
+      // the entities containing the term are known
+      ((SirenTotalHitCountCollector) c).addHits(this.docFreq());
+      this.close();
+      dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
+      return;
+    }
+    if (termDocs == null || entity != -1) {
+      if (termDocs != null) {
+        termDocs.close(); // the scorer has been iterated: no bulk read
+      }
+      this.score(c, Integer.MAX_VALUE, this.nextDoc());
+      return;
+    }
+
+    c.setScorer(this);
+    docs = new int[BULK_BUFFER_SIZE];
+    freqs = new int[BULK_BUFFER_SIZE];
+    isBulk = true;
+    int pointerMax;
+    while ((pointerMax = termDocs.read(docs, freqs)) != 0) {
+      if (c instanceof SirenTotalHitCountCollector) {
+        ((SirenTotalHitCountCollector) c).addHits(pointerMax);
+        continue;
+      }
+      for (pointer = 0; pointer < pointerMax; pointer++) {
+        entity = docs[pointer];
+        c.collect(entity);
+      }
+    }
+    isBulk = false;
+    this.close();
+    dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
   }
 
   // firstDocID is ignored since nextDoc() sets 'doc'
@@ -102,7 +229,7 @@ extends SirenPrimitiveScorer {
 
   @Override
   public float score() throws IOException {
-    final int f = termPositions.freq();
+    final int f = isBulk ? freqs[pointer] : this.termPositions().freq();
     final float raw =                                   // compute tf(f)*weight
       f < SCORE_CACHE_SIZE                              // check cache
       ? scoreCache[f]                                   // cache hit
@@ -111,21 +238,107 @@ extends SirenPrimitiveScorer {
     return norms == null ? raw : raw * sim.decodeNormValue(norms[this.entity()]); // normalize for field
   }
 
+  /**
+   * Returns the number of entities containing the term.
+   */
+  @Override
+  public long cost() {
+    try {
+      return this.docFreq();
+    }
+    catch (final IOException e) {
+      throw new RuntimeException("Unable to read the document frequency of " + term, e);
+    }
+  }
+
+  /**
+   * Returns the number of entities containing the term, or
+   * {@link Integer#MAX_VALUE} if the segment reader is unknown.
+   */
+  private int docFreq() throws IOException {
+    if (reader == null) {
+      return Integer.MAX_VALUE;
+    }
+    if (docFreq == -1) {
+      docFreq = reader.docFreq(term);
+    }
+    return docFreq;
+  }
+
+  /**
+   * Returns the positions of the term, opened at the first call if the scorer
+   * was created without them.
+   */
+  private SirenTermPositions termPositions() throws IOException {
+    if (termPositions == null) {
+      termPositions = new SirenTermPositions(reader.termPositions(term));
+    }
+    return termPositions;
+  }
+
+  /**
+   * Closes the entities read in bulk and the positions, if opened.
+   */
+  private void close() throws IOException {
+    if (termDocs != null) {
+      termDocs.close();
+    }
+    if (termPositions != null) {
+      termPositions.close();
+    }
+  }
+
+  /**
+   * Returns the frequency of the term within the current cell.
+   * <p> This is invalid until {@link #nextPosition()} is called for the first time.
+   */
+  public int freqCell() {
+    this.ensureFirstPosition();
+    return termPositions == null ? 0 : termPositions.freqCell();
+  }
+
   /** Move to the next entity matching the query.
+   * <p> The scorer is logically positioned on the first cell of the entity
+   * [SRN-24], but the positions are only decoded when the structural
+   * information is requested.
    * @return next entity id matching the query.
    */
   @Override
   public int nextDoc() throws IOException {
-    if (!termPositions.next()) {
-      termPositions.close();      // close stream
+    isFirstPositionPending = false;
+    if (!this.termPositions().next()) {
+      this.close();               // close streams
       dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
       return NO_MORE_DOCS;
     }
     entity = termPositions.entity();
-    this.nextPosition(); // advance to the first cell [SRN-24]
+    isFirstPositionPending = true; // advance lazily to the first cell [SRN-24]
     return entity;
   }
 
+  /**
+   * Load the first position of the current entity if it is pending.
+   */
+  private void loadFirstPosition() throws IOException {
+    if (isFirstPositionPending) {
+      isFirstPositionPending = false;
+      this.readPosition();
+    }
+  }
+
+  /**
+   * Load the first position of the current entity if it is pending, from a
+   * method that can not throw an {@link IOException}.
+   */
+  private void ensureFirstPosition() {
+    try {
+      this.loadFirstPosition();
+    }
+    catch (final IOException e) {
+      throw new RuntimeException("Unable to load the first position of entity " + entity, e);
+    }
+  }
+
   /**
    * Move to the next tuple, cell and position in the current entity.
    *
@@ -137,7 +350,12 @@ extends SirenPrimitiveScorer {
    */
   @Override
   public int nextPosition() throws IOException {
-    if (termPositions.nextPosition() == NO_MORE_POS) {
+    this.loadFirstPosition();
+    return this.readPosition();
+  }
+
+  private int readPosition() throws IOException {
+    if (this.termPositions().nextPosition() == NO_MORE_POS) {
       tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
       return NO_MORE_POS;
     }
@@ -151,19 +369,25 @@ extends SirenPrimitiveScorer {
   @Override
   public int advance(final int entityID)
   throws IOException {
-    if (!termPositions.skipTo(entityID)) {
+    isFirstPositionPending = false;
+    if (!this.termPositions().skipTo(entityID)) {
       dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
       return NO_MORE_DOCS;
     }
     entity = termPositions.entity();
-    this.nextPosition(); // advance to the first cell [SRN-24]
+    isFirstPositionPending = true; // advance lazily to the first cell [SRN-24]
     return entity;
   }
 
   @Override
   public int advance(final int entityID, final int tupleID)
   throws IOException {
-    if (!termPositions.skipTo(entityID, tupleID)) {
+    if (entityID == entity) {
+      // the current position is excluded from the search within the entity
+      this.loadFirstPosition();
+    }
+    isFirstPositionPending = false;
+    if (!this.termPositions().skipTo(entityID, tupleID)) {
       dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
       return NO_MORE_DOCS;
     }
@@ -177,7 +401,12 @@ extends SirenPrimitiveScorer {
   @Override
   public int advance(final int entityID, final int tupleID, final int cellID)
   throws IOException {
-    if (!termPositions.skipTo(entityID, tupleID, cellID)) {
+    if (entityID == entity) {
+      // the current position is excluded from the search within the entity
+      this.loadFirstPosition();
+    }
+    isFirstPositionPending = false;
+    if (!this.termPositions().skipTo(entityID, tupleID, cellID)) {
       dataset = entity = tuple = cell = pos = Integer.MAX_VALUE; // set to sentinel value
       return NO_MORE_DOCS;
     }
@@ -208,19 +437,28 @@ extends SirenPrimitiveScorer {
    * <p> Initially invalid, until {@link #nextPosition()} is
    * called the first time.
    */
-  public int tuple() { return tuple; }
+  public int tuple() {
+    this.ensureFirstPosition();
+    return tuple;
+  }
 
   /** Returns the current cell identifier matching the query.
    * <p> Initially invalid, until {@link #nextPosition()} is
    * called the first time.
    */
-  public int cell() { return cell; }
+  public int cell() {
+    this.ensureFirstPosition();
+    return cell;
+  }
 
   /** Returns the current position identifier matching the query.
    * <p> Initially invalid, until {@link #nextPosition()} is
    * called the first time.
    */
-  public int pos() { return pos; }
+  public int pos() {
+    this.ensureFirstPosition();
+    return pos;
+  }
 
   @Override
   public String toString() {
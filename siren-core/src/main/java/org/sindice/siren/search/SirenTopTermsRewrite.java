@@ -64,7 +64,7 @@ public abstract class SirenTopTermsRewrite<Q extends Query> extends SirenTermCol
     final int maxSize = Math.min(size, getMaxSize());
     final PriorityQueue<ScoreTerm> stQueue = new PriorityQueue<ScoreTerm>();
     collectTerms(reader, query, new TermCollector() {
-      public boolean collect(Term t, float boost) {
+      public boolean collect(Term t, float boost, int docFreq) {
         // ignore uncompetitive hits
         if (stQueue.size() >= maxSize && boost <= stQueue.peek().boost)
           return true;
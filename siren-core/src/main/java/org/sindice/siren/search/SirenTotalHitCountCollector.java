@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+
+/**
+ * Counts the entities matching a query, without computing their scores.
+ * <p>
+ * Like {@link TotalHitCountCollector}, this collector never asks for the
+ * score of an entity. In addition, the SIREn top scorers recognise it and
+ * count the entities of a segment without iterating them when the segment
+ * answers directly:
+ * <ul>
+ * <li> a {@link SirenTermQuery} counts the entities containing the term, or
+ * reads them in bulk without decoding their positions if the segment has
+ * deletions;
+ * <li> a {@link SirenConstantScoreQuery} over a {@link SirenFilter}
+ * counts the entities of the set of the filter, e.g., the set cached by a
+ * {@link SirenCachingWrapperFilter};
+ * <li> a {@link SirenCellQuery} over a {@link SirenTermQuery} with a
+ * predicate-only constraint counts the entities of the bit set of the term in
+ * the {@link SirenPredicateBitSetCache}, if any.
+ * </ul>
+ * Other queries iterate their matching entities, decoding the positions
+ * needed to check their structural constraints, and stop at the first
+ * matching position of an entity. The {@link SirenBooleanQuery},
+ * {@link SirenCellQuery} and {@link SirenTupleQuery} scorers do not sum the
+ * scores of their clauses while iterating.
+ * <p>
+ * Use {@link #exists(IndexSearcher, Query)} to only know if an entity
+ * matches.
+ */
+public class SirenTotalHitCountCollector extends Collector {
+
+  private int totalHits;
+
+  /** Returns how many entities matched the query. */
+  public int getTotalHits() {
+    return totalHits;
+  }
+
+  /**
+   * Counts <code>n</code> matching entities of the current segment at once.
+   */
+  void addHits(final int n) {
+    totalHits += n;
+  }
+
+  @Override
+  public void setScorer(final Scorer scorer) {}
+
+  @Override
+  public void collect(final int doc) {
+    totalHits++;
+  }
+
+  @Override
+  public void setNextReader(final IndexReader reader, final int docBase) {}
+
+  @Override
+  public boolean acceptsDocsOutOfOrder() {
+    return true;
+  }
+
+  /**
+   * Returns true if at least one entity matches the query. The segments are
+   * searched in order, and the search stops at the first matching entity.
+   */
+  public static boolean exists(final IndexSearcher searcher, final Query query)
+  throws IOException {
+    final Weight weight = searcher.createNormalizedWeight(query);
+    for (final IndexReader reader : searcher.getSubReaders()) {
+      final Scorer scorer = weight.scorer(reader, false, false);
+      if (scorer != null && scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -50,6 +50,12 @@ import org.apache.lucene.util.ToStringUtils;
  * A Query that matches tuples matching boolean combinations of cell queries,
  * e.g. {@link SirenCellQuery}s.
  * <p>
+ * The weight keeps no per-segment state and the scorers share no mutable
+ * state, so that the segments can be searched in parallel by an
+ * {@link org.apache.lucene.search.IndexSearcher} created with an
+ * {@link java.util.concurrent.ExecutorService}. The top-k of each segment are
+ * then merged by the searcher.
+ * <p>
  * Code taken from {@link BooleanQuery} and adapted for the Siren use case.
  */
 public class SirenTupleQuery
@@ -33,16 +33,16 @@ import org.apache.lucene.search.FilteredTermEnum;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SingleTermEnum;
 import org.apache.lucene.search.WildcardQuery;
-import org.apache.lucene.search.WildcardTermEnum;
 import org.apache.lucene.util.ToStringUtils;
 
 /**
  * Implements the wildcard search query. Supported wildcards are <code>*</code>, which
  * matches any character sequence (including the empty one), and <code>?</code>,
- * which matches any single character. Note this query can be slow, as it
- * needs to iterate over many terms. In order to prevent extremely slow WildcardQueries,
- * a Wildcard term should not start with one of the wildcards <code>*</code> or
- * <code>?</code>.
+ * which matches any single character. The terms are enumerated by intersecting
+ * the automaton of the pattern with the term dictionary, which skips the ranges
+ * of terms that cannot match. Note this query can still be slow when the
+ * pattern starts with one of the wildcards <code>*</code> or <code>?</code>,
+ * as every term can then lead to a match.
  *
  * <p>This query uses the {@link
  * SirenMultiTermQuery#CONSTANT_SCORE_AUTO_REWRITE_DEFAULT}
@@ -50,7 +50,7 @@ import org.apache.lucene.util.ToStringUtils;
  *
  * <p> Code taken from {@link WildcardQuery} and adapted for SIREn.
  *
- * @see WildcardTermEnum
+ * @see SirenWildcardTermEnum
  **/
 public class SirenWildcardQuery extends SirenMultiTermQuery {
 
@@ -71,7 +71,7 @@ public class SirenWildcardQuery extends SirenMultiTermQuery {
   @Override
   protected FilteredTermEnum getEnum(final IndexReader reader) throws IOException {
     if (termContainsWildcard)
-      return new WildcardTermEnum(reader, this.getTerm());
+      return new SirenWildcardTermEnum(reader, this.getTerm());
     else
       return new SingleTermEnum(reader, this.getTerm());
   }
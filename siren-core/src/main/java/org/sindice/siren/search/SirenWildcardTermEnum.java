@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.WildcardTermEnum;
+
+/**
+ * Enumerates the terms matching a wildcard pattern, where <code>*</code>
+ * matches any character sequence and <code>?</code> matches any single
+ * character, by intersecting the term dictionary with the automaton of the
+ * pattern.
+ * <p>
+ * Accepts the same terms as {@link WildcardTermEnum}, but skips the ranges of
+ * the term dictionary that cannot match the pattern, e.g., the terms between
+ * <code>http://a.org/x</code> and <code>http://a.org/y</code> for the pattern
+ * <code>http://*.org/y*</code>.
+ */
+class SirenWildcardTermEnum extends SirenAutomatonTermEnum {
+
+  SirenWildcardTermEnum(final IndexReader reader, final Term term)
+  throws IOException {
+    super(reader, term.field(), new WildcardAutomaton(term.text()));
+    this.start();
+  }
+
+  @Override
+  public float difference() {
+    return 1.0f;
+  }
+
+  /**
+   * The automaton of a wildcard pattern, whose states are the sets of
+   * positions in the pattern reached after reading a string.
+   */
+  private static final class WildcardAutomaton extends SirenAutomaton {
+
+    private final char[] pattern;
+
+    WildcardAutomaton(final String pattern) {
+      super(literals(pattern));
+      this.pattern = pattern.toCharArray();
+    }
+
+    private static char[] literals(final String pattern) {
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < pattern.length(); i++) {
+        final char c = pattern.charAt(i);
+        if (c != WildcardTermEnum.WILDCARD_STRING &&
+            c != WildcardTermEnum.WILDCARD_CHAR) {
+          builder.append(c);
+        }
+      }
+      return builder.toString().toCharArray();
+    }
+
+    @Override
+    protected int[] initialState() {
+      final boolean[] positions = new boolean[pattern.length + 1];
+      this.add(positions, 0);
+      return this.toState(positions);
+    }
+
+    @Override
+    protected int[] step(final int[] state, final char c) {
+      final boolean[] positions = new boolean[pattern.length + 1];
+      for (final int pos : state) {
+        if (pos == pattern.length) {
+          continue;
+        }
+        if (pattern[pos] == WildcardTermEnum.WILDCARD_STRING) {
+          this.add(positions, pos);
+        }
+        else if (pattern[pos] == WildcardTermEnum.WILDCARD_CHAR || pattern[pos] == c) {
+          this.add(positions, pos + 1);
+        }
+      }
+      return this.toState(positions);
+    }
+
+    @Override
+    protected boolean isAccept(final int[] state) {
+      return state[state.length - 1] == pattern.length;
+    }
+
+    /**
+     * Adds the position, and the following positions reachable by matching
+     * <code>*</code> with the empty sequence.
+     */
+    private void add(final boolean[] positions, int pos) {
+      positions[pos] = true;
+      while (pos < pattern.length && pattern[pos] == WildcardTermEnum.WILDCARD_STRING) {
+        positions[++pos] = true;
+      }
+    }
+
+    /**
+     * Returns the sorted positions, or null if there is none. Every position
+     * can reach the end of the pattern.
+     */
+    private int[] toState(final boolean[] positions) {
+      int size = 0;
+      for (final boolean b : positions) {
+        if (b) size++;
+      }
+      if (size == 0) {
+        return null;
+      }
+      final int[] state = new int[size];
+      for (int i = 0, j = 0; i < positions.length; i++) {
+        if (positions[i]) state[j++] = i;
+      }
+      return state;
+    }
+
+  }
+
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.util.Arrays;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A {@link DocTupCelIdSet} encoded as a list of delta and variable byte
+ * encoded triples, suited to sparse matches.
+ * <p>
+ * Each entity is encoded as:
+ * <ul>
+ * <li> the delta with the previous entity, as a VInt;
+ * <li> the number of bytes of its (tuple, cell) pairs, as a VInt;
+ * <li> the sorted (tuple, cell) pairs, as two VInts. The tuple is encoded as a
+ * delta with the previous tuple of the entity. The cell is encoded as a delta
+ * with the previous cell if the tuple is the same, otherwise as is. This is
+ * the encoding of the SIREn payloads.
+ * </ul>
+ * The number of bytes of the pairs allows to skip to the next entity without
+ * decoding them. Every {@link #SKIP_INTERVAL} entities, the delta encoding of
+ * the entity is restarted and a skip pointer is recorded, so that
+ * {@link DocTupCelIdSetIterator#advance(int)} only decodes the entities of
+ * one block.
+ * <p>
+ * The set is immutable, and {@link #iterator()} returns a new iterator at each
+ * call: a single instance can be shared by concurrent searches.
+ *
+ * @see DocTupCelIdSetBuilder
+ */
+public class SortedVIntDocTupCelIdSet extends DocTupCelIdSet {
+
+  /** Number of entities between two skip pointers */
+  static final int SKIP_INTERVAL = 32;
+
+  private final byte[] data;
+
+  /** The first entity of each block */
+  private final int[] skipEntities;
+
+  /** The offset of the first entity of each block in {@link #data} */
+  private final int[] skipPointers;
+
+  private final int nEntities;
+  private final int size;
+
+  SortedVIntDocTupCelIdSet(final DocTupCelIdSetBuilder builder) {
+    nEntities = builder.numEntities();
+    size = builder.size();
+    final int nBlocks = (nEntities + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+    skipEntities = new int[nBlocks];
+    skipPointers = new int[nBlocks];
+
+    byte[] data = new byte[64];
+    int pointer = 0;
+    int lastEntity = 0;
+    for (int i = 0; i < nEntities; i++) {
+      final int entity = builder.entities[i];
+      if (i % SKIP_INTERVAL == 0) { // restart the delta encoding
+        skipEntities[i / SKIP_INTERVAL] = entity;
+        skipPointers[i / SKIP_INTERVAL] = pointer;
+        lastEntity = 0;
+      }
+
+      // compute the number of bytes of the pairs
+      final int start = builder.offset(i), end = builder.offset(i + 1);
+      int nBytes = 0;
+      int lastTuple = -1, lastCell = 0;
+      for (int j = start; j < end; j++) {
+        final int dt = builder.tuples[j] - lastTuple;
+        nBytes += vIntSize(dt);
+        nBytes += vIntSize(dt == 0 ? builder.cells[j] - lastCell : builder.cells[j]);
+        lastTuple = builder.tuples[j];
+        lastCell = builder.cells[j];
+      }
+
+      final int required = pointer + nBytes + 10;
+      if (data.length < required) {
+        data = ArrayUtil.grow(data, required);
+      }
+      pointer = writeVInt(data, pointer, entity - lastEntity);
+      pointer = writeVInt(data, pointer, nBytes);
+      lastTuple = -1; lastCell = 0;
+      for (int j = start; j < end; j++) {
+        final int dt = builder.tuples[j] - lastTuple;
+        pointer = writeVInt(data, pointer, dt);
+        pointer = writeVInt(data, pointer, dt == 0 ? builder.cells[j] - lastCell : builder.cells[j]);
+        lastTuple = builder.tuples[j];
+        lastCell = builder.cells[j];
+      }
+      lastEntity = entity;
+    }
+    this.data = Arrays.copyOf(data, pointer);
+  }
+
+  /** Returns the number of bytes of a VInt. */
+  static int vIntSize(int i) {
+    int size = 1;
+    while ((i & ~0x7F) != 0) {
+      i >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static int writeVInt(final byte[] data, int pointer, int i) {
+    while ((i & ~0x7F) != 0) {
+      data[pointer++] = (byte) ((i & 0x7F) | 0x80);
+      i >>>= 7;
+    }
+    data[pointer++] = (byte) i;
+    return pointer;
+  }
+
+  /** Returns the number of entities in the set. */
+  @Override
+  public int numEntities() {
+    return nEntities;
+  }
+
+  /** Returns the number of (entity, tuple, cell) triples in the set. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the approximate memory usage of the set, in bytes. */
+  public long sizeInBytes() {
+    return data.length + (long) RamUsageEstimator.NUM_BYTES_INT *
+      (skipEntities.length + skipPointers.length);
+  }
+
+  @Override
+  public DocTupCelIdSetIterator iterator() {
+    return new Iterator();
+  }
+
+  /**
+   * Iterator over the set, with the semantics of
+   * {@link IntArrayDocTupCelIdSet#iterator()}.
+   */
+  private class Iterator implements DocTupCelIdSetIterator {
+
+    /** Index of the current entity */
+    private int index = -1;
+
+    /** Offset of the next byte to decode */
+    private int pointer = 0;
+
+    /** Offset of the first pair and end of the pairs of the current entity */
+    private int pairsStart = 0, pairsEnd = 0;
+
+    private int entity = -1, tuple = -1, cell = -1;
+
+    private int readVInt() {
+      byte b = data[pointer++];
+      int i = b & 0x7F;
+      for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+        b = data[pointer++];
+        i |= (b & 0x7F) << shift;
+      }
+      return i;
+    }
+
+    public int nextDoc() {
+      if (index + 1 >= nEntities) {
+        index = nEntities;
+        entity = tuple = cell = DocIdSetIterator.NO_MORE_DOCS; // set to sentinel value
+        return entity;
+      }
+      // the pairs of the current entity are skipped
+      pointer = pairsEnd;
+      final int lastEntity = ++index % SKIP_INTERVAL == 0 ? 0 : entity;
+      entity = lastEntity + this.readVInt();
+      final int nBytes = this.readVInt();
+      pairsStart = pointer;
+      pairsEnd = pointer + nBytes;
+      this.firstPair(); // move to the first cell [SRN-24]
+      return entity;
+    }
+
+    private void firstPair() {
+      pointer = pairsStart;
+      tuple = -1;
+      this.nextPair();
+    }
+
+    private void nextPair() {
+      final int dt = this.readVInt();
+      final int c = this.readVInt();
+      if (dt == 0) {
+        cell += c;
+      }
+      else {
+        tuple += dt;
+        cell = c;
+      }
+    }
+
+    public int nextPosition() {
+      if (index >= 0 && index < nEntities && pointer < pairsEnd) {
+        this.nextPair();
+        return 0; // position is not retained in this set, return 0
+      }
+      tuple = cell = Integer.MAX_VALUE; // set to sentinel value
+      return NO_MORE_POS;
+    }
+
+    public int advance(final int entityID) {
+      if (index >= nEntities) { // exhausted
+        return entity;
+      }
+      if (nEntities == 0) { // empty set, there is no block to jump to
+        return this.nextDoc();
+      }
+      if (entityID == entity) { // reset to the first cell of the entity
+        this.firstPair();
+        return entity;
+      }
+      if (entityID < entity) {
+        return this.nextDoc();
+      }
+      // find the last block starting before the target
+      int lo = 0, hi = skipEntities.length - 1;
+      while (lo < hi) {
+        final int mid = (lo + hi + 1) >>> 1;
+        if (skipEntities[mid] <= entityID) {
+          lo = mid;
+        }
+        else {
+          hi = mid - 1;
+        }
+      }
+      if (lo * SKIP_INTERVAL > index) { // jump to the block
+        index = lo * SKIP_INTERVAL - 1;
+        pairsEnd = skipPointers[lo];
+      }
+      while (this.nextDoc() < entityID);
+      return entity;
+    }
+
+    public int advance(final int entityID, final int tupleID) {
+      return this.advance(entityID, tupleID, -1);
+    }
+
+    public int advance(final int entityID, final int tupleID, final int cellID) {
+      if (index >= nEntities) { // exhausted
+        return entity;
+      }
+      if (entityID != entity) {
+        if (this.advance(entityID) != entityID) {
+          return entity;
+        }
+        // the first cell of the entity is a candidate
+        if (tuple > tupleID || (tuple == tupleID && cell >= cellID)) {
+          return entity;
+        }
+      }
+      while (pointer < pairsEnd) {
+        this.nextPair();
+        if (tuple > tupleID || (tuple == tupleID && cell >= cellID)) {
+          return entity;
+        }
+      }
+      // not found, move to the first cell of the next entity (SRN-17)
+      return this.nextDoc();
+    }
+
+    public int dataset() {
+      return -1;
+    }
+
+    public int entity() {
+      return entity;
+    }
+
+    public int tuple() {
+      return tuple;
+    }
+
+    public int cell() {
+      return cell;
+    }
+
+    /**
+     * Position is not retained in this set. It returns 0, as
+     * {@link #nextPosition()}, while the iterator is on a cell, and
+     * {@link #NO_MORE_POS} once the cells are exhausted.
+     */
+    public int pos() {
+      return tuple == Integer.MAX_VALUE ? NO_MORE_POS : 0;
+    }
+
+  }
+
+}
@@ -25,7 +25,11 @@
  */
 package org.sindice.siren.util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 
@@ -102,6 +106,30 @@ public class CSV2Tabular {
     return sb.toString();
   }
   
+  /**
+   * Convert a stream of lines in CSV format into tuples, written to the given
+   * {@link Writer}. The conversion is the same as
+   * {@link #convert(HashMap, String[], char)}, but the stream is never loaded
+   * in memory: see {@link CSV2TabularReader}. Neither stream is closed.
+   * @param config the fields' type, or null. The index of fields starts at 0.
+   * @param in the lines in CSV format
+   * @param out the tuples
+   * @param sep the field separator
+   * @throws IOException
+   */
+  public static void convert(Map<Integer, String> config,
+                             Reader in,
+                             Writer out,
+                             char sep)
+  throws IOException {
+    final Reader reader = new CSV2TabularReader(config, in, sep);
+    final char[] buffer = new char[8192];
+    int n;
+    while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+      out.write(buffer, 0, n);
+    }
+  }
+  
   /**
    * Return the datatype of this field.
    * @param config
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * A {@link Reader} converting a CSV stream into tuples on the fly, with the
+ * same encoding as {@link CSV2Tabular#convert(java.util.HashMap, String[], char)}.
+ * It can be given directly to a {@link org.sindice.siren.analysis.TupleTokenizer},
+ * or copied to a {@link java.io.Writer} with
+ * {@link CSV2Tabular#convert(Map, Reader, java.io.Writer, char)}.
+ * <p>
+ * A row is a line of the CSV stream, terminated by <code>\n</code> or
+ * <code>\r\n</code>. The rows are never materialised as Strings: the
+ * characters of the current field are accumulated in a reusable buffer, and
+ * the encoding of each column is computed once. The memory used is therefore
+ * bounded by the length of the longest field, and not by the length of a row
+ * or of the stream.
+ * <p>
+ * As with {@link CSV2Tabular}, the surrounding quotes of a field are removed
+ * only if they are adjacent to the separators, and a separator is never
+ * escaped by quotes. A field made of a single quote is kept as is.
+ */
+public class CSV2TabularReader extends Reader {
+
+  private final Reader in;
+  private final Map<Integer, String> config;
+  private final char sep;
+
+  /** The input chunk being converted */
+  private final char[] input = new char[8192];
+  private int inputPos = 0, inputLen = 0;
+
+  /** The characters of the current field */
+  private char[] field = new char[64];
+  private int fieldLen = 0;
+
+  /** The converted characters, not read yet */
+  private char[] output = new char[16384];
+  private int outputPos = 0, outputLen = 0;
+
+  /** The index of the current field in the row */
+  private int column = 0;
+
+  /** Whether a character of the current row has been read */
+  private boolean inRow = false;
+
+  private boolean eof = false;
+
+  /** The encoding of each column, computed lazily */
+  private char[][] suffixes = new char[8][];
+  private boolean[] isURI = new boolean[8];
+
+  private static final char[] END_OF_ROW = ".\n".toCharArray();
+
+  /**
+   * @param config the fields' type, or null to consider all the values as
+   * literals. The index of fields starts at 0.
+   * @param in the CSV stream
+   * @param sep the field separator
+   */
+  public CSV2TabularReader(final Map<Integer, String> config, final Reader in,
+                           final char sep) {
+    this.config = config;
+    this.in = in;
+    this.sep = sep;
+  }
+
+  @Override
+  public int read(final char[] cbuf, final int off, final int len)
+  throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (outputPos == outputLen) {
+      outputPos = outputLen = 0;
+      this.fill();
+      if (outputLen == 0) {
+        return -1;
+      }
+    }
+    final int n = Math.min(len, outputLen - outputPos);
+    System.arraycopy(output, outputPos, cbuf, off, n);
+    outputPos += n;
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Converts the next chunk of input, until some output is available or the
+   * end of the input is reached.
+   */
+  private void fill() throws IOException {
+    while (outputLen == 0 && !eof) {
+      if (inputPos == inputLen) {
+        inputLen = in.read(input, 0, input.length);
+        inputPos = 0;
+        if (inputLen == -1) {
+          inputLen = 0;
+          eof = true;
+          if (inRow) { // last row without line terminator
+            this.endRow();
+          }
+          return;
+        }
+      }
+      while (inputPos < inputLen) {
+        final char c = input[inputPos++];
+        if (c == sep) {
+          this.endField();
+          column++;
+          inRow = true;
+        }
+        else if (c == '\n') {
+          if (fieldLen > 0 && field[fieldLen - 1] == '\r') {
+            fieldLen--;
+          }
+          this.endRow();
+        }
+        else {
+          if (fieldLen == field.length) {
+            field = ArrayUtil.grow(field, fieldLen + 1);
+          }
+          field[fieldLen++] = c;
+          inRow = true;
+        }
+      }
+    }
+  }
+
+  private void endRow() {
+    this.endField();
+    this.write(END_OF_ROW, 0, END_OF_ROW.length);
+    column = 0;
+    inRow = false;
+  }
+
+  /**
+   * Writes the current field as an URI, or as a Literal with its datatype.
+   */
+  private void endField() {
+    int from = 0, to = fieldLen;
+    // Remove the surrounding quotes of this value only if they are adjacent to the separator.
+    if (fieldLen >= 2 && field[0] == '"' && field[fieldLen - 1] == '"') {
+      from++;
+      to--;
+    }
+    final char[] suffix = this.getSuffix(column);
+    this.write(isURI[column] ? '<' : '"');
+    this.write(field, from, to - from);
+    this.write(suffix, 0, suffix.length);
+    fieldLen = 0;
+  }
+
+  /**
+   * Returns the characters following the value of a field of the column, and
+   * records whether the column is an URI.
+   */
+  private char[] getSuffix(final int column) {
+    if (column >= suffixes.length) {
+      final int size = ArrayUtil.oversize(column + 1, 8);
+      final char[][] newSuffixes = new char[size][];
+      System.arraycopy(suffixes, 0, newSuffixes, 0, suffixes.length);
+      suffixes = newSuffixes;
+      final boolean[] newIsURI = new boolean[size];
+      System.arraycopy(isURI, 0, newIsURI, 0, isURI.length);
+      isURI = newIsURI;
+    }
+    if (suffixes[column] == null) {
+      String type = config == null ? null : config.get(column);
+      if (type == null) {
+        type = XSDDatatype.XSD_STRING;
+      }
+      isURI[column] = type.equals(XSDDatatype.XSD_ANY_URI);
+      suffixes[column] = (isURI[column] ? "> " : "\"^^<" + type + "> ").toCharArray();
+    }
+    return suffixes[column];
+  }
+
+  private void write(final char c) {
+    if (outputLen == output.length) {
+      output = ArrayUtil.grow(output, outputLen + 1);
+    }
+    output[outputLen++] = c;
+  }
+
+  private void write(final char[] chars, final int off, final int len) {
+    if (outputLen + len > output.length) {
+      output = ArrayUtil.grow(output, outputLen + len);
+    }
+    System.arraycopy(chars, off, output, outputLen, len);
+    outputLen += len;
+  }
+
+}
@@ -44,11 +44,52 @@ public class CodecUtils {
    * @return The integer
    */
   public static int byteArrayToInt(final byte[] b) {
-    int value = 0;
-    for (int i = 0; i < 4; i++) {
-      value += (b[i] & 0x000000FF) << (4 - 1 - i) * 8;
+    return byteArrayToInt(b, 0);
+  }
+
+  /**
+   * Convert four bytes of a byte array to an int (32bit word).
+   *
+   * @param b The byte array
+   * @param offset The offset of the first byte in the array
+   * @return The integer
+   */
+  public static int byteArrayToInt(final byte[] b, final int offset) {
+    return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16) |
+           ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+  }
+
+  /**
+   * Reads an int stored in variable-length format at an offset of a byte
+   * array. Reads between one and five bytes, see {@link #vIntSize(int)}.
+   * Negative numbers are not supported.
+   *
+   * @param b The byte array
+   * @param offset The offset of the first byte in the array
+   * @return The integer
+   */
+  public static int byteArrayToVInt(final byte[] b, final int offset) {
+    // single byte fast path, small enough to be inlined by the JIT
+    final byte x = b[offset];
+    return x >= 0 ? x : byteArrayToMultiByteVInt(b, offset);
+  }
+
+  private static int byteArrayToMultiByteVInt(final byte[] b, int offset) {
+    byte x = b[offset];
+    int i = x & 0x7F;
+    for (int shift = 7; x < 0; shift += 7) { // high bit set: more bytes
+      x = b[++offset];
+      i |= (x & 0x7F) << shift;
     }
-    return value;
+    return i;
+  }
+
+  /**
+   * Returns the number of bytes of an int written in variable-length format,
+   * i.e., one byte per group of 7 significant bits.
+   */
+  public static int vIntSize(final int i) {
+    return (i & ~0x7F) == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(i)) / 7 + 1;
   }
 
   /**
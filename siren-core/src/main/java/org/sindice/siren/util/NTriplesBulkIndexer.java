@@ -0,0 +1,397 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+
+/**
+ * Indexes large N-Triples files as entity documents, one per subject.
+ * <p>
+ * The indexing is performed in a pipeline:
+ * <ol>
+ * <li> the triples of the input files, optionally gzipped, are read line by
+ * line and sorted by subject with a {@link NTriplesSorter}, in a bounded
+ * amount of memory;
+ * <li> the sorted triples of a subject are flattened into n-tuples (see
+ * {@link IOUtils#sortAndFlattenNTriples(String[])}) to form an entity;
+ * <li> the entities are indexed by a pool of threads, each one analysing the
+ * entities with its own analyzer, created by an {@link AnalyzerFactory}.
+ * </ol>
+ * The subject of an entity is stored in the field {@link #SUBJECT_FIELD}, and
+ * its n-tuples are indexed in the field given to the constructor.
+ * <p>
+ * The number of triples read, of entities indexed, and the throughput are
+ * available once {@link #index(List)} returns.
+ */
+public class NTriplesBulkIndexer {
+
+  /** The field storing the subject of an entity */
+  public static final String SUBJECT_FIELD = "subject";
+
+  /** Creates the analyzer of an indexing thread */
+  public interface AnalyzerFactory {
+    Analyzer create();
+  }
+
+  private final IndexWriter writer;
+  private final String field;
+  private final AnalyzerFactory analyzerFactory;
+
+  private int numThreads = Runtime.getRuntime().availableProcessors();
+  private File tmpDir = null;
+  private long maxBufferChars = NTriplesSorter.DEFAULT_MAX_BUFFER_CHARS;
+  private int queueSize = 1024;
+
+  private long numTriples = 0;
+  private long numEntities = 0;
+  private long elapsedMillis = 0;
+
+  /** The entity ending the queue */
+  private static final String[] END = new String[0];
+
+  /** The time waited for a free slot in the queue before checking the indexing threads */
+  private static final long PUT_TIMEOUT_MILLIS = 100;
+
+  /**
+   * @param writer
+   *          The index writer. It is neither committed nor closed.
+   * @param field
+   *          The field of the n-tuples of an entity.
+   * @param analyzerFactory
+   *          Creates the analyzer of each indexing thread.
+   */
+  public NTriplesBulkIndexer(final IndexWriter writer, final String field,
+                             final AnalyzerFactory analyzerFactory) {
+    this.writer = writer;
+    this.field = field;
+    this.analyzerFactory = analyzerFactory;
+  }
+
+  /**
+   * Returns a factory of {@link TupleAnalyzer}s using a
+   * {@link StandardAnalyzer} for the literals and an {@link AnyURIAnalyzer}
+   * for the URIs.
+   */
+  public static AnalyzerFactory tupleAnalyzerFactory(final Version version) {
+    return new AnalyzerFactory() {
+      public Analyzer create() {
+        return new TupleAnalyzer(version, new StandardAnalyzer(version),
+          new AnyURIAnalyzer(version));
+      }
+    };
+  }
+
+  /** Sets the number of indexing threads. */
+  public void setNumThreads(final int numThreads) {
+    if (numThreads <= 0) {
+      throw new IllegalArgumentException("numThreads must be > 0");
+    }
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Sets the directory of the temporary files of the sort, or null for the
+   * default temporary directory.
+   */
+  public void setTmpDir(final File tmpDir) {
+    this.tmpDir = tmpDir;
+  }
+
+  /**
+   * Sets the maximum number of characters of triples kept in memory during
+   * the sort.
+   */
+  public void setMaxBufferChars(final long maxBufferChars) {
+    this.maxBufferChars = maxBufferChars;
+  }
+
+  /** Returns the number of triples read by the last call to {@link #index(List)}. */
+  public long getNumTriples() {
+    return numTriples;
+  }
+
+  /** Returns the number of entities indexed by the last call to {@link #index(List)}. */
+  public long getNumEntities() {
+    return numEntities;
+  }
+
+  /** Returns the duration of the last call to {@link #index(List)}. */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /** Returns the number of triples indexed per second. */
+  public double getTriplesPerSecond() {
+    return elapsedMillis == 0 ? 0 : numTriples * 1000d / elapsedMillis;
+  }
+
+  /**
+   * Indexes the triples of the files. A file whose name ends with
+   * <code>.gz</code> is read as gzipped. Empty lines and comments are skipped.
+   */
+  public void index(final List<File> inputs) throws IOException {
+    final long start = System.currentTimeMillis();
+    numTriples = numEntities = 0;
+
+    final NTriplesSorter sorter = new NTriplesSorter(tmpDir, maxBufferChars);
+    try {
+      for (final File input : inputs) {
+        this.read(input, sorter);
+      }
+      this.index(sorter.finish());
+    }
+    finally {
+      sorter.close();
+    }
+    elapsedMillis = System.currentTimeMillis() - start;
+  }
+
+  private void read(final File input, final NTriplesSorter sorter)
+  throws IOException {
+    InputStream in = new FileInputStream(input);
+    if (input.getName().endsWith(".gz")) {
+      in = new GZIPInputStream(in);
+    }
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.length() != 0 && line.charAt(0) != '#') {
+          sorter.add(line);
+          numTriples++;
+        }
+      }
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Groups the sorted triples by subject, and feeds the entities to the
+   * indexing threads.
+   */
+  private void index(final NTriplesSorter.LineIterator lines) throws IOException {
+    final BlockingQueue<String[]> queue = new ArrayBlockingQueue<String[]>(queueSize);
+    final Indexer[] indexers = new Indexer[numThreads];
+    for (int i = 0; i < indexers.length; i++) {
+      indexers[i] = new Indexer(queue, analyzerFactory.create());
+      indexers[i].start();
+    }
+
+    try {
+      final List<String> triples = new ArrayList<String>();
+      String subject = null;
+      String line;
+      while ((line = lines.next()) != null) {
+        final int space = line.indexOf(' ');
+        if (space == -1) {
+          continue; // invalid triple, skip it
+        }
+        if (subject != null && !line.regionMatches(0, subject, 0, space + 1)) {
+          if (!this.put(queue, triples, indexers)) {
+            break; // all the indexing threads have terminated
+          }
+          triples.clear();
+        }
+        subject = line.substring(0, space + 1);
+        triples.add(line);
+      }
+      if (!triples.isEmpty()) {
+        this.put(queue, triples, indexers);
+      }
+    }
+    finally {
+      for (int i = 0; i < indexers.length; i++) {
+        if (!this.put(queue, END, indexers)) {
+          break;
+        }
+      }
+      for (final Indexer indexer : indexers) {
+        try {
+          indexer.join();
+        }
+        catch (final InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        }
+      }
+    }
+
+    for (final Indexer indexer : indexers) {
+      if (indexer.error != null) {
+        final IOException e = new IOException("Indexing failed");
+        e.initCause(indexer.error);
+        throw e;
+      }
+      numEntities += indexer.numEntities;
+    }
+  }
+
+  private boolean put(final BlockingQueue<String[]> queue,
+                      final List<String> triples, final Indexer[] indexers) {
+    return this.put(queue, triples.toArray(new String[triples.size()]), indexers);
+  }
+
+  /**
+   * Puts an entity in the queue, waiting for a free slot as long as an
+   * indexing thread is alive. Returns false if all the indexing threads have
+   * terminated, e.g., after an interruption, since the entity would never be
+   * consumed.
+   */
+  private boolean put(final BlockingQueue<String[]> queue, final String[] entity,
+                      final Indexer[] indexers) {
+    try {
+      while (!queue.offer(entity, PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (!isAlive(indexers)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+  }
+
+  private static boolean isAlive(final Indexer[] indexers) {
+    for (final Indexer indexer : indexers) {
+      if (indexer.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * An indexing thread. After a failure, it keeps on consuming the entities so
+   * that the reading thread is not blocked. After an interruption, it
+   * terminates, and the reading thread stops feeding the queue.
+   */
+  private class Indexer extends Thread {
+
+    private final BlockingQueue<String[]> queue;
+    private final Analyzer analyzer;
+
+    long numEntities = 0;
+    volatile Throwable error = null;
+
+    Indexer(final BlockingQueue<String[]> queue, final Analyzer analyzer) {
+      this.queue = queue;
+      this.analyzer = analyzer;
+    }
+
+    @Override
+    public void run() {
+      final Document doc = new Document();
+      final Field subjectField = new Field(SUBJECT_FIELD, "", Field.Store.YES,
+        Field.Index.NOT_ANALYZED_NO_NORMS);
+      final Field contentField = new Field(field, "", Field.Store.NO,
+        Field.Index.ANALYZED_NO_NORMS);
+      doc.add(subjectField);
+      doc.add(contentField);
+
+      while (true) {
+        final String[] triples;
+        try {
+          triples = queue.take();
+        }
+        catch (final InterruptedException e) {
+          error = e;
+          return;
+        }
+        if (triples == END) {
+          return;
+        }
+        if (error != null) {
+          continue;
+        }
+        try {
+          final String first = triples[0];
+          subjectField.setValue(first.substring(0, first.indexOf(' ')));
+          contentField.setValue(IOUtils.sortAndFlattenNTriples(triples));
+          writer.addDocument(doc, analyzer);
+          numEntities++;
+        }
+        catch (final Throwable t) {
+          error = t;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Indexes N-Triples files into an index, and reports the throughput.
+   * <p>
+   * Usage: <code>NTriplesBulkIndexer &lt;index dir&gt; &lt;file&gt;...</code>
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: NTriplesBulkIndexer <index dir> <file>...");
+      System.exit(1);
+    }
+    final Version version = Version.LUCENE_35;
+    final AnalyzerFactory factory = tupleAnalyzerFactory(version);
+    final IndexWriter writer = new IndexWriter(FSDirectory.open(new File(args[0])),
+      new IndexWriterConfig(version, factory.create()));
+    try {
+      final List<File> inputs = new ArrayList<File>();
+      for (final String input : Arrays.asList(args).subList(1, args.length)) {
+        inputs.add(new File(input));
+      }
+      final NTriplesBulkIndexer indexer = new NTriplesBulkIndexer(writer, "content", factory);
+      indexer.index(inputs);
+      writer.commit();
+      System.out.println(indexer.getNumTriples() + " triples, " +
+        indexer.getNumEntities() + " entities in " + indexer.getElapsedMillis() +
+        " ms (" + (long) indexer.getTriplesPerSecond() + " triples/sec)");
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts N-Triples lines with a bounded amount of memory.
+ * <p>
+ * The lines are buffered in memory up to {@link #getMaxBufferChars()}
+ * characters, then sorted and written to a temporary file, i.e., a run.
+ * {@link #finish()} merges the runs and returns the lines in sorted order,
+ * without duplicates. At most {@link #getMaxMergeRuns()} runs are read at
+ * once: beyond that, the runs are first merged into intermediate runs.
+ * <p>
+ * As the subject is the prefix of a N-Triples line, the lines of a subject
+ * are contiguous in the sorted order, and sorted by predicate.
+ */
+public class NTriplesSorter implements Closeable {
+
+  /** Default maximum number of characters buffered in memory */
+  public static final long DEFAULT_MAX_BUFFER_CHARS = 32 * 1024 * 1024;
+
+  /** Default maximum number of runs merged at once */
+  public static final int DEFAULT_MAX_MERGE_RUNS = 64;
+
+  /** Estimate of the memory overhead of a line, in characters */
+  private static final int LINE_OVERHEAD = 32;
+
+  private final File tmpDir;
+  private final long maxBufferChars;
+  private final int maxMergeRuns;
+
+  private final List<String> buffer = new ArrayList<String>();
+  private long bufferChars = 0;
+
+  private final List<File> runs = new ArrayList<File>();
+  private final List<BufferedReader> readers = new ArrayList<BufferedReader>();
+
+  public NTriplesSorter() {
+    this(null, DEFAULT_MAX_BUFFER_CHARS);
+  }
+
+  /**
+   * @param tmpDir
+   *          The directory of the runs, or null for the default temporary
+   *          directory.
+   * @param maxBufferChars
+   *          The maximum number of characters buffered in memory before a run
+   *          is written.
+   */
+  public NTriplesSorter(final File tmpDir, final long maxBufferChars) {
+    this(tmpDir, maxBufferChars, DEFAULT_MAX_MERGE_RUNS);
+  }
+
+  /**
+   * @param tmpDir
+   *          The directory of the runs, or null for the default temporary
+   *          directory.
+   * @param maxBufferChars
+   *          The maximum number of characters buffered in memory before a run
+   *          is written.
+   * @param maxMergeRuns
+   *          The maximum number of runs merged at once, each with an open file
+   *          and a read buffer.
+   */
+  public NTriplesSorter(final File tmpDir, final long maxBufferChars,
+                        final int maxMergeRuns) {
+    if (maxBufferChars <= 0) {
+      throw new IllegalArgumentException("maxBufferChars must be > 0");
+    }
+    if (maxMergeRuns < 2) {
+      throw new IllegalArgumentException("maxMergeRuns must be >= 2");
+    }
+    this.tmpDir = tmpDir;
+    this.maxBufferChars = maxBufferChars;
+    this.maxMergeRuns = maxMergeRuns;
+  }
+
+  public long getMaxBufferChars() {
+    return maxBufferChars;
+  }
+
+  public int getMaxMergeRuns() {
+    return maxMergeRuns;
+  }
+
+  /** Returns the number of runs on disk. */
+  public int numRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Adds a line to sort.
+   */
+  public void add(final String line) throws IOException {
+    buffer.add(line);
+    bufferChars += line.length() + LINE_OVERHEAD;
+    if (bufferChars >= maxBufferChars) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Sorts the buffered lines and writes them to a new run.
+   */
+  private void flush() throws IOException {
+    Collections.sort(buffer);
+    final Writer writer = this.newRun();
+    try {
+      for (final String line : buffer) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+    finally {
+      writer.close();
+    }
+    buffer.clear();
+    bufferChars = 0;
+  }
+
+  /**
+   * Creates a new run, and returns a writer to it.
+   */
+  private Writer newRun() throws IOException {
+    final File run = File.createTempFile("siren-ntriples", ".run", tmpDir);
+    runs.add(run);
+    return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), "UTF-8"));
+  }
+
+  /**
+   * Returns the lines added, in sorted order and without duplicates. The
+   * sorter cannot be used to add lines anymore.
+   */
+  public LineIterator finish() throws IOException {
+    if (runs.isEmpty()) { // everything fits in memory
+      Collections.sort(buffer);
+      return new LineIterator() {
+        int i = 0;
+        @Override
+        String read() {
+          return i < buffer.size() ? buffer.get(i++) : null;
+        }
+      };
+    }
+    if (!buffer.isEmpty()) {
+      this.flush();
+    }
+    // merge the oldest runs into a new one, until they can be merged at once
+    while (runs.size() > maxMergeRuns) {
+      final Writer writer = this.newRun();
+      try {
+        final LineIterator it = this.merge(runs.subList(0, maxMergeRuns));
+        String line;
+        while ((line = it.next()) != null) {
+          writer.write(line);
+          writer.write('\n');
+        }
+      }
+      finally {
+        writer.close();
+        this.closeReaders();
+      }
+      // the merged runs stay in the list until deleted, for close()
+      final List<File> merged = runs.subList(0, maxMergeRuns);
+      for (final File run : merged) {
+        run.delete();
+      }
+      merged.clear();
+    }
+    return this.merge(runs);
+  }
+
+  /**
+   * Returns the lines of the given runs in sorted order. The readers of the
+   * runs are added to {@link #readers}.
+   */
+  private LineIterator merge(final List<File> files) throws IOException {
+    final PriorityQueue<Run> queue = new PriorityQueue<Run>(files.size());
+    for (final File file : files) {
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      readers.add(reader);
+      final Run run = new Run(reader);
+      if (run.next()) {
+        queue.add(run);
+      }
+    }
+    return new LineIterator() {
+      @Override
+      String read() throws IOException {
+        final Run run = queue.poll();
+        if (run == null) {
+          return null;
+        }
+        final String line = run.line;
+        if (run.next()) {
+          queue.add(run);
+        }
+        return line;
+      }
+    };
+  }
+
+  /**
+   * Closes and deletes the runs.
+   */
+  public void close() throws IOException {
+    this.closeReaders();
+    for (final File run : runs) {
+      run.delete();
+    }
+    runs.clear();
+    buffer.clear();
+  }
+
+  private void closeReaders() throws IOException {
+    for (final BufferedReader reader : readers) {
+      reader.close();
+    }
+    readers.clear();
+  }
+
+  /**
+   * Iterates over sorted lines, skipping the duplicates.
+   */
+  public static abstract class LineIterator {
+
+    private String previous = null;
+
+    /** Returns the next line, or null if there is no more line. */
+    public String next() throws IOException {
+      String line;
+      while ((line = this.read()) != null && line.equals(previous)) {
+        // skip the duplicate
+      }
+      previous = line;
+      return line;
+    }
+
+    /** Returns the next line, including duplicates, or null */
+    abstract String read() throws IOException;
+
+  }
+
+  /**
+   * The current line of a run.
+   */
+  private static class Run implements Comparable<Run> {
+
+    final BufferedReader reader;
+    String line;
+
+    Run(final BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    boolean next() throws IOException {
+      line = reader.readLine();
+      return line != null;
+    }
+
+    public int compareTo(final Run other) {
+      return line.compareTo(other.line);
+    }
+
+  }
+
+}
@@ -27,6 +27,7 @@
 package org.sindice.siren.util;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Scorer;
@@ -39,77 +40,53 @@ import org.sindice.siren.search.SirenScorer;
  * require log(size) time. The ordering is by SirenScorer.entity(),
  * SirenScorer.tuple() and SirenScorer.cell().
  * <p>
+ * The heap nodes are stored in a single int array, each node occupying
+ * {@link #NODE_SIZE} consecutive slots: entity, tuple, cell and the index of
+ * the scorer in {@link #scorers}. Sifting up and down the heap therefore only
+ * reads and writes contiguous primitive values, and never calls back into the
+ * scorers.
+ * <p>
  * Code taken from {@link ScorerDocQueue} and adapted for the Siren use case.
  */
 public class ScorerCellQueue {
 
-  private final HeapedScorerCell[] heap;
-
-  private final int               maxSize;
-
-  private int                     size;
+  /** Number of int slots used by a heap node */
+  private static final int NODE_SIZE = 4;
 
-  private class HeapedScorerCell {
+  private static final int ENTITY = 0;
+  private static final int TUPLE = 1;
+  private static final int CELL = 2;
+  private static final int SCORER = 3;
 
-    SirenScorer scorer;
+  /**
+   * The heap nodes. The node at heap position <code>i</code> starts at
+   * <code>i * NODE_SIZE</code>; position 0 is unused.
+   */
+  private final int[]             heap;
 
-    int    entity;
-    int    tuple;
-    int    cell;
+  /** The scorers, referenced by the {@link #SCORER} slot of a node */
+  private final SirenScorer[]     scorers;
 
-    HeapedScorerCell(final SirenScorer s) {
-      this(s, s.entity(), s.tuple(), s.cell());
-    }
+  /** Indexes in {@link #scorers} released by removed scorers */
+  private final int[]             freeIndexes;
 
-    HeapedScorerCell(final SirenScorer scorer, final int entity, final int tuple, final int cell) {
-      this.scorer = scorer;
-      this.entity = entity;
-      this.tuple = tuple;
-      this.cell = cell;
-    }
+  private int                     nFreeIndexes = 0;
 
-    void adjust() {
-      entity = scorer.entity();
-      tuple = scorer.tuple();
-      cell = scorer.cell();
-    }
+  /** Next never used index in {@link #scorers} */
+  private int                     nextIndex = 0;
 
-    /**
-     * Compares this heaped scorer with the specified heaped scorer for order.
-     * Returns a negative integer, zero, or a positive integer as this heaped
-     * scorer is less than, equal to, or greater than the specified heaped
-     * scorer.
-     */
-    private int compareTo(final HeapedScorerCell other) {
-      if (entity < other.entity)
-        return -1;
-      else if (entity > other.entity)
-        return 1;
-      else if (entity == other.entity) {
-        if (tuple < other.tuple)
-          return -1;
-        else if (tuple > other.tuple)
-          return 1;
-        else if (tuple == other.tuple) {
-          if (cell < other.cell)
-            return -1;
-          else if (cell > other.cell)
-            return 1;
-        }
-      }
-      return 0;
-    }
-  }
+  private final int               maxSize;
 
-  private HeapedScorerCell topHSC; // same as heap[1], only for speed
+  private int                     size;
 
   /** Create a ScorerCellQueue with a maximum size. */
   public ScorerCellQueue(final int maxSize) {
     size = 0;
     final int heapSize = maxSize + 1;
-    heap = new HeapedScorerCell[heapSize];
+    heap = new int[heapSize * NODE_SIZE];
+    scorers = new SirenScorer[maxSize];
+    freeIndexes = new int[maxSize];
     this.maxSize = maxSize;
-    topHSC = heap[1]; // initially null
   }
 
   /**
@@ -118,8 +95,10 @@ public class ScorerCellQueue {
    * thrown.
    */
   public final void put(final SirenScorer scorer) {
+    final int index = nFreeIndexes > 0 ? freeIndexes[--nFreeIndexes] : nextIndex++;
+    scorers[index] = scorer;
     size++;
-    heap[size] = new HeapedScorerCell(scorer);
+    this.setNode(size, scorer, index);
     this.upHeap();
   }
 
@@ -136,12 +115,11 @@ public class ScorerCellQueue {
       return true;
     }
     else {
-      final int entity = scorer.entity();
-      final int tuple = scorer.tuple();
-      final int cell = scorer.cell();
-
-      if ((size > 0) && this.compareTo(scorer, topHSC) != -1) { // heap[1] is top()
-        heap[1] = new HeapedScorerCell(scorer, entity, tuple, cell);
+      if ((size > 0) && this.compareToTop(scorer) != -1) { // heap[1] is top()
+        // the new scorer takes over the scorer index of the replaced top
+        final int index = heap[NODE_SIZE + SCORER];
+        scorers[index] = scorer;
+        this.setNode(1, scorer, index);
         this.downHeap();
         return true;
       }
@@ -156,7 +134,7 @@ public class ScorerCellQueue {
    * Should not be used when the queue is empty.
    */
   public final Scorer top() {
-    return topHSC.scorer;
+    return this.topScorer();
   }
 
   /**
@@ -164,7 +142,7 @@ public class ScorerCellQueue {
    * constant time. Should not be used when the queue is empty.
    */
   public final int topEntity() {
-    return topHSC.entity;
+    return heap[NODE_SIZE + ENTITY];
   }
 
   /**
@@ -172,7 +150,7 @@ public class ScorerCellQueue {
    * constant time. Should not be used when the queue is empty.
    */
   public final int topTuple() {
-    return topHSC.tuple;
+    return heap[NODE_SIZE + TUPLE];
   }
 
   /**
@@ -180,7 +158,7 @@ public class ScorerCellQueue {
    * constant time. Should not be used when the queue is empty.
    */
   public final int topCell() {
-    return topHSC.cell;
+    return heap[NODE_SIZE + CELL];
   }
 
   /**
@@ -189,7 +167,7 @@ public class ScorerCellQueue {
    */
   public final float topScore()
   throws IOException {
-    return topHSC.scorer.score();
+    return this.topScorer().score();
   }
 
   /**
@@ -213,9 +191,10 @@ public class ScorerCellQueue {
    */
   public int nrMatches() {
     if (size == 0) return 0;
+    final int entity = heap[NODE_SIZE + ENTITY];
     int counter = 1; // init counter at 1 to include the top
     for (int i = 2; i < size + 1; i++) { // index 1 is the top, start at 2
-      if (topHSC.entity == heap[i].entity)
+      if (entity == heap[i * NODE_SIZE + ENTITY])
         counter++;
       else
         return counter;
@@ -230,10 +209,12 @@ public class ScorerCellQueue {
    * entity (top entity)
    */
   public float scoreSum() throws IOException {
-    float score = topHSC.scorer.score();
+    final int entity = heap[NODE_SIZE + ENTITY];
+    float score = this.topScorer().score();
     for (int i = 2; i < size + 1; i++) { // index 1 is the top, start at 2
-      if (topHSC.entity == heap[i].entity)
-        score += heap[i].scorer.score();
+      final int node = i * NODE_SIZE;
+      if (entity == heap[node + ENTITY])
+        score += scorers[heap[node + SCORER]].score();
       else
         return score;
     }
@@ -246,7 +227,7 @@ public class ScorerCellQueue {
    */
   public final boolean topNextAndAdjustElsePop()
   throws IOException {
-    if (topHSC.scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+    if (this.topScorer().nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
       return this.checkAdjustElsePop(true);
     }
     return this.checkAdjustElsePop(false);
@@ -261,9 +242,9 @@ public class ScorerCellQueue {
   public final int nextAndAdjustElsePop()
   throws IOException {
     int counter = 0;
-    final int entity = topHSC.entity;
-    while (size > 0 && topHSC.entity == entity) {
-      if (topHSC.scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+    final int entity = heap[NODE_SIZE + ENTITY];
+    while (size > 0 && heap[NODE_SIZE + ENTITY] == entity) {
+      if (this.topScorer().nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
         this.checkAdjustElsePop(true);
       }
       else {
@@ -284,19 +265,20 @@ public class ScorerCellQueue {
    */
   public final boolean topNextPositionAndAdjust()
   throws IOException {
+    final SirenScorer top = this.topScorer();
     // SRN-25: Need to record tuple and cell to check if next position is not
     // identical.
-    final int curTuple = topHSC.scorer.tuple();
-    final int curCell = topHSC.scorer.cell();
+    final int curTuple = top.tuple();
+    final int curCell = top.cell();
 
     // If one of the scorer does not have more positions, the subscorer will
     // assign the sentinel values (Integer.MAX_VALUE) to tuple and cell. Then,
     // the heap will be readjusted and the subscorer will be pushed down if
     // another subscorer has more positions.
-    topHSC.scorer.nextPosition();
+    top.nextPosition();
 
     // SRN-25: Check if new position is identical than the previous one
-    if (topHSC.scorer.tuple() == curTuple && topHSC.scorer.cell() == curCell) {
+    if (top.tuple() == curTuple && top.cell() == curCell) {
       mustIncMatchers = false;
     }
     else {
@@ -307,36 +289,32 @@ public class ScorerCellQueue {
     this.adjustTop();
 
     // if top has sentinel value, it means that there is no more positions
-    if (topHSC.tuple == Integer.MAX_VALUE)
+    if (heap[NODE_SIZE + TUPLE] == Integer.MAX_VALUE)
       return false;
     return true;
   }
 
   public final boolean topSkipToAndAdjustElsePop(final int entity)
   throws IOException {
-    return this.checkAdjustElsePop(topHSC.scorer.advance(entity) != DocIdSetIterator.NO_MORE_DOCS);
+    return this.checkAdjustElsePop(this.topScorer().advance(entity) != DocIdSetIterator.NO_MORE_DOCS);
   }
 
   public final boolean topSkipToAndAdjustElsePop(final int entity, final int tuple)
   throws IOException {
-    return this.checkAdjustElsePop(topHSC.scorer.advance(entity, tuple) != DocIdSetIterator.NO_MORE_DOCS);
+    return this.checkAdjustElsePop(this.topScorer().advance(entity, tuple) != DocIdSetIterator.NO_MORE_DOCS);
   }
 
   public final boolean topSkipToAndAdjustElsePop(final int entity, final int tuple, final int cell)
   throws IOException {
-    return this.checkAdjustElsePop(topHSC.scorer.advance(entity, tuple, cell) != DocIdSetIterator.NO_MORE_DOCS);
+    return this.checkAdjustElsePop(this.topScorer().advance(entity, tuple, cell) != DocIdSetIterator.NO_MORE_DOCS);
   }
 
   private boolean checkAdjustElsePop(final boolean cond) {
     if (cond) { // see also adjustTop
-      topHSC.entity = topHSC.scorer.entity();
-      topHSC.tuple = topHSC.scorer.tuple();
-      topHSC.cell = topHSC.scorer.cell();
+      this.setNode(1, this.topScorer(), heap[NODE_SIZE + SCORER]);
     }
     else { // see also popNoResult
-      heap[1] = heap[size]; // move last to first
-      heap[size] = null;
-      size--;
+      this.removeTop();
     }
     this.downHeap();
     return cond;
@@ -347,7 +325,7 @@ public class ScorerCellQueue {
    * log(size) time. Should not be used when the queue is empty.
    */
   public final SirenScorer pop() {
-    final SirenScorer result = topHSC.scorer;
+    final SirenScorer result = this.topScorer();
     this.popNoResult();
     return result;
   }
@@ -357,12 +335,22 @@ public class ScorerCellQueue {
    * Should not be used when the queue is empty.
    */
   private final void popNoResult() {
-    heap[1] = heap[size]; // move last to first
-    heap[size] = null;
-    size--;
+    this.removeTop();
     this.downHeap(); // adjust heap
   }
 
+  /**
+   * Release the scorer index of the top node, and move the last node to the
+   * top.
+   */
+  private void removeTop() {
+    final int index = heap[NODE_SIZE + SCORER];
+    scorers[index] = null;
+    freeIndexes[nFreeIndexes++] = index;
+    copyNode(heap, size * NODE_SIZE, NODE_SIZE); // move last to first
+    size--;
+  }
+
   /**
    * Should be called when the scorer at top changes entity() value. Still log(n)
    * worst case, but it's at least twice as fast to
@@ -385,7 +373,7 @@ public class ScorerCellQueue {
    * </pre>
    */
   public final void adjustTop() {
-    topHSC.adjust();
+    this.setNode(1, this.topScorer(), heap[NODE_SIZE + SCORER]);
     this.downHeap();
   }
 
@@ -396,63 +384,137 @@ public class ScorerCellQueue {
 
   /** Removes all entries from the ScorerCellQueue. */
   public final void clear() {
-    for (int i = 0; i <= size; i++) {
-      heap[i] = null;
-    }
+    Arrays.fill(scorers, null);
+    nFreeIndexes = 0;
+    nextIndex = 0;
     size = 0;
   }
 
+  private SirenScorer topScorer() {
+    return scorers[heap[NODE_SIZE + SCORER]];
+  }
+
+  /**
+   * Copy the current position of the scorer into the node at the given heap
+   * position.
+   */
+  private void setNode(final int pos, final SirenScorer scorer, final int index) {
+    final int node = pos * NODE_SIZE;
+    heap[node + ENTITY] = scorer.entity();
+    heap[node + TUPLE] = scorer.tuple();
+    heap[node + CELL] = scorer.cell();
+    heap[node + SCORER] = index;
+  }
+
   private final void upHeap() {
+    final int[] heap = this.heap;
     int i = size;
-    final HeapedScorerCell node = heap[i]; // save bottom node
+    // save bottom node
+    int node = i * NODE_SIZE;
+    final int entity = heap[node + ENTITY];
+    final int tuple = heap[node + TUPLE];
+    final int cell = heap[node + CELL];
+    final int index = heap[node + SCORER];
     int j = i >>> 1;
-    while ((j > 0) && (node.compareTo(heap[j]) == -1)) {
-      heap[i] = heap[j]; // shift parents down
+    while ((j > 0) && lessThan(entity, tuple, cell, heap, j * NODE_SIZE)) {
+      copyNode(heap, j * NODE_SIZE, i * NODE_SIZE); // shift parents down
       i = j;
       j = j >>> 1;
     }
-    heap[i] = node; // install saved node
-    topHSC = heap[1];
+    // install saved node
+    node = i * NODE_SIZE;
+    heap[node + ENTITY] = entity;
+    heap[node + TUPLE] = tuple;
+    heap[node + CELL] = cell;
+    heap[node + SCORER] = index;
   }
 
   private final void downHeap() {
+    final int[] heap = this.heap;
     int i = 1;
-    final HeapedScorerCell node = heap[i]; // save top node
+    // save top node
+    int node = i * NODE_SIZE;
+    final int entity = heap[node + ENTITY];
+    final int tuple = heap[node + TUPLE];
+    final int cell = heap[node + CELL];
+    final int index = heap[node + SCORER];
     int j = i << 1; // find smaller child
     int k = j + 1;
-    if ((k <= size) && (heap[k].compareTo(heap[j]) == -1)) {
+    if ((k <= size) && lessThan(heap, k * NODE_SIZE, j * NODE_SIZE)) {
       j = k;
     }
-    while ((j <= size) && (heap[j].compareTo(node) == -1)) {
-      heap[i] = heap[j]; // shift up child
+    while ((j <= size) && lessThan(heap, j * NODE_SIZE, entity, tuple, cell)) {
+      copyNode(heap, j * NODE_SIZE, i * NODE_SIZE); // shift up child
       i = j;
       j = i << 1;
       k = j + 1;
-      if (k <= size && (heap[k].compareTo(heap[j]) == -1)) {
+      if (k <= size && lessThan(heap, k * NODE_SIZE, j * NODE_SIZE)) {
         j = k;
       }
     }
-    heap[i] = node; // install saved node
-    topHSC = heap[1];
-  }
-
-  private int compareTo(final SirenScorer scorer, final HeapedScorerCell heapedScorer) {
-    if (scorer.entity() < topHSC.entity)
-      return -1;
-    else if (scorer.entity() > topHSC.entity)
-      return 1;
-    else if (scorer.entity() == topHSC.entity) {
-      if (scorer.tuple() < topHSC.tuple)
-        return -1;
-      else if (scorer.tuple() > topHSC.tuple)
-        return 1;
-      else if (scorer.tuple() == topHSC.tuple) {
-        if (scorer.cell() < topHSC.cell)
-          return -1;
-        else if (scorer.cell() > topHSC.cell)
-          return 1;
-      }
-    }
+    // install saved node
+    node = i * NODE_SIZE;
+    heap[node + ENTITY] = entity;
+    heap[node + TUPLE] = tuple;
+    heap[node + CELL] = cell;
+    heap[node + SCORER] = index;
+  }
+
+  private static void copyNode(final int[] heap, final int from, final int to) {
+    heap[to + ENTITY] = heap[from + ENTITY];
+    heap[to + TUPLE] = heap[from + TUPLE];
+    heap[to + CELL] = heap[from + CELL];
+    heap[to + SCORER] = heap[from + SCORER];
+  }
+
+  /**
+   * Returns true if the position (entity, tuple, cell) is less than the
+   * position of the node starting at <code>node</code>.
+   */
+  private static boolean lessThan(final int entity, final int tuple, final int cell,
+                                  final int[] heap, final int node) {
+    final int e = heap[node + ENTITY];
+    if (entity != e) return entity < e;
+    final int t = heap[node + TUPLE];
+    if (tuple != t) return tuple < t;
+    return cell < heap[node + CELL];
+  }
+
+  /**
+   * Returns true if the position of the node starting at <code>node</code> is
+   * less than the position (entity, tuple, cell).
+   */
+  private static boolean lessThan(final int[] heap, final int node,
+                                  final int entity, final int tuple, final int cell) {
+    final int e = heap[node + ENTITY];
+    if (e != entity) return e < entity;
+    final int t = heap[node + TUPLE];
+    if (t != tuple) return t < tuple;
+    return heap[node + CELL] < cell;
+  }
+
+  /**
+   * Returns true if the position of the node starting at <code>a</code> is
+   * less than the position of the node starting at <code>b</code>.
+   */
+  private static boolean lessThan(final int[] heap, final int a, final int b) {
+    final int ea = heap[a + ENTITY], eb = heap[b + ENTITY];
+    if (ea != eb) return ea < eb;
+    final int ta = heap[a + TUPLE], tb = heap[b + TUPLE];
+    if (ta != tb) return ta < tb;
+    return heap[a + CELL] < heap[b + CELL];
+  }
+
+  private int compareToTop(final SirenScorer scorer) {
+    final int entity = scorer.entity();
+    final int topEntity = heap[NODE_SIZE + ENTITY];
+    if (entity != topEntity) return entity < topEntity ? -1 : 1;
+    final int tuple = scorer.tuple();
+    final int topTuple = heap[NODE_SIZE + TUPLE];
+    if (tuple != topTuple) return tuple < topTuple ? -1 : 1;
+    final int cell = scorer.cell();
+    final int topCell = heap[NODE_SIZE + CELL];
+    if (cell != topCell) return cell < topCell ? -1 : 1;
     return 0;
   }
 
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.Test;
+import org.sindice.siren.analysis.TupleTokenizer.ScannerType;
+import org.sindice.siren.analysis.attributes.CellAttribute;
+import org.sindice.siren.analysis.attributes.DatatypeAttribute;
+import org.sindice.siren.analysis.attributes.TupleAttribute;
+
+/**
+ * Runs the tests of {@link TestTupleTokenizer} with the {@link NTriplesScanner},
+ * and checks that it produces the same tokens as the JFlex scanner.
+ */
+public class TestNTriplesScanner extends TestTupleTokenizer {
+
+  @Override
+  protected Tokenizer newTokenizer() {
+    return new TupleTokenizer(new StringReader(""), Integer.MAX_VALUE, ScannerType.NTRIPLES);
+  }
+
+  /**
+   * Returns the tokens of the input, with all their attributes
+   */
+  private List<String> tokens(final ScannerType type, final String input)
+  throws Exception {
+    final Tokenizer t = new TupleTokenizer(new StringReader(input), Integer.MAX_VALUE, type);
+    final CharTermAttribute termAtt = t.getAttribute(CharTermAttribute.class);
+    final OffsetAttribute offsetAtt = t.getAttribute(OffsetAttribute.class);
+    final TypeAttribute typeAtt = t.getAttribute(TypeAttribute.class);
+    final DatatypeAttribute dtypeAtt = t.getAttribute(DatatypeAttribute.class);
+    final TupleAttribute tupleAtt = t.getAttribute(TupleAttribute.class);
+    final CellAttribute cellAtt = t.getAttribute(CellAttribute.class);
+
+    final List<String> tokens = new ArrayList<String>();
+    t.reset();
+    while (t.incrementToken()) {
+      tokens.add(termAtt + "|" + typeAtt.type() + "|" +
+        (dtypeAtt.datatypeURI() == null ? null : String.valueOf(dtypeAtt.datatypeURI())) +
+        "|" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset() +
+        "|" + tupleAtt.tuple() + "|" + cellAtt.cell());
+    }
+    t.end();
+    t.close();
+    return tokens;
+  }
+
+  private void assertSameTokens(final String input) throws Exception {
+    assertEquals(input, this.tokens(ScannerType.JFLEX, input),
+      this.tokens(ScannerType.NTRIPLES, input));
+  }
+
+  @Test
+  public void testSameTokens() throws Exception {
+    this.assertSameTokens("<http://a> <http://b> \"c d\" .\n_:b1 <http://b> \"e\"@en .\n");
+    this.assertSameTokens("\"a\\\"b\\\\c\\nd\" . \"\\u00e9\\u00E9\\u00\" . \"x\\");
+    this.assertSameTokens("\"a\\\nb\" \"c\\\r\nd\" .");
+    this.assertSameTokens("\"1\"^^<http://www.w3.org/2001/XMLSchema#int> \"2\"^^<> \"3\"^^<abc");
+    this.assertSameTokens("\"a\"@en-us \"b\"@en'-'us1'-'x \"c\"@EN \"d\"@ \"e\"@en'-'");
+    this.assertSameTokens("<> <a <b> _: _:1 _:a1b2.c <x\ny> . . \"unclosed");
+    this.assertSameTokens("");
+  }
+
+  @Test
+  public void testSameTokensRandom() throws Exception {
+    final Random random = new Random(42);
+    final String[] pieces = { "<", ">", "\"", "\\", "u", "00e9", "_", ":", "a",
+      "B", "1", ".", " ", "\n", "\r", "^^", "@", "en", "'-'", "-", "é", "http://x/y" };
+    for (int i = 0; i < 5000; i++) {
+      final StringBuilder b = new StringBuilder();
+      final int n = random.nextInt(30);
+      for (int j = 0; j < n; j++) {
+        b.append(pieces[random.nextInt(pieces.length)]);
+      }
+      this.assertSameTokens(b.toString());
+    }
+  }
+
+  @Test
+  public void testLargeInput() throws Exception {
+    final StringBuilder b = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      b.append("<http://s/").append(i).append("> <http://p> \"literal ").append(i).append("\" .\n");
+    }
+    this.assertSameTokens(b.toString());
+  }
+
+}
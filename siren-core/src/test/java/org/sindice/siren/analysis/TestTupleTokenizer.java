@@ -174,7 +174,12 @@ public class TestTupleTokenizer {
           1, 0, 1 });
   }
 
-  private final Tokenizer _t = new TupleTokenizer(new StringReader(""), Integer.MAX_VALUE);
+  private final Tokenizer _t = this.newTokenizer();
+
+  /** Returns the tokenizer under test */
+  protected Tokenizer newTokenizer() {
+    return new TupleTokenizer(new StringReader(""), Integer.MAX_VALUE);
+  }
 
   public void assertTokenizesTo(final Tokenizer t, final String input,
                                 final String[] expectedImages,
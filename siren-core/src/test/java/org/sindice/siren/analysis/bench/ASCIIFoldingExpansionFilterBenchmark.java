@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.filter.ASCIIFoldingExpansionFilter;
+import org.sindice.siren.bench.SirenBenchmark;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measures the cost of the {@link ASCIIFoldingExpansionFilter} on the
+ * literals of the benchmark files, which are mostly ASCII.
+ */
+public class ASCIIFoldingExpansionFilterBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  @Param({"100", "1000"}) private int size;
+
+  /** The flattened contents of the benchmark files, read once */
+  private String[] contents;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    contents = new String[benchmarkFiles.length];
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = this.readNTriplesFile(benchmarkFiles[i]);
+    }
+  }
+
+  public long timeStandardTokenizer(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      counter += this.performAnalysis(false);
+    }
+    return counter;
+  }
+
+  public long timeASCIIFoldingExpansionFilter(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      counter += this.performAnalysis(true);
+    }
+    return counter;
+  }
+
+  private int performAnalysis(final boolean folding) throws IOException {
+    int counter = 0;
+
+    for (int i = 0; i < size; i++) {
+      final String content = contents[rand.nextInt(contents.length)];
+      TokenStream stream = new StandardTokenizer(matchVersion, new StringReader(content));
+      if (folding) {
+        stream = new ASCIIFoldingExpansionFilter(stream);
+      }
+      try {
+        while (stream.incrementToken()) {
+          counter++;
+        }
+      }
+      finally {
+        stream.close();
+      }
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(ASCIIFoldingExpansionFilterBenchmark.class, args);
+  }
+
+}
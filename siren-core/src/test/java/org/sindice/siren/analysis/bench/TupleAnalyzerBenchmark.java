@@ -37,6 +37,8 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.util.Version;
 import org.sindice.siren.analysis.AnyURIAnalyzer;
 import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.TupleTokenizer;
+import org.sindice.siren.analysis.TupleTokenizer.ScannerType;
 import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
 import org.sindice.siren.analysis.WhitespaceTupleAnalyzer;
 import org.sindice.siren.bench.SirenBenchmark;
@@ -50,9 +52,18 @@ public class TupleAnalyzerBenchmark extends SirenBenchmark {
   
   @Param({"100", "1000"}) private int size;
 
+  /** The flattened contents of the benchmark files, read once */
+  private String[] contents;
+
   @Override
   protected void setUp() throws Exception {
     rand.setSeed(42);
+    contents = new String[benchmarkFiles.length];
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = this.readNTriplesFile(benchmarkFiles[i]);
+    }
+    // the token types are initialised by the analyzers
+    TupleTokenizer.getTokenTypes();
   }
 
   public long timeStandardAnalyzer(final int reps) throws IOException {
@@ -111,12 +122,51 @@ public class TupleAnalyzerBenchmark extends SirenBenchmark {
     return counter;
   }
 
+  public long timeDeltaTupleAnalyzerNTriplesScanner(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final TupleAnalyzer analyzer = new TupleAnalyzer(matchVersion, new StandardAnalyzer(matchVersion), new AnyURIAnalyzer(matchVersion));
+      analyzer.setScannerType(ScannerType.NTRIPLES);
+      counter += this.performAnalysis(analyzer);
+    }
+    return counter;
+  }
+
+  public long timeTupleTokenizer(final int reps) throws IOException {
+    return this.performTokenization(reps, ScannerType.JFLEX);
+  }
+
+  public long timeTupleTokenizerNTriplesScanner(final int reps) throws IOException {
+    return this.performTokenization(reps, ScannerType.NTRIPLES);
+  }
+
+  /**
+   * Tokenize with a {@link TupleTokenizer} only, to measure its scanner
+   * without the analysis of the URIs and literals.
+   */
+  private long performTokenization(final int reps, final ScannerType scannerType)
+  throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final TupleTokenizer tokenizer = new TupleTokenizer(new StringReader(""),
+        Integer.MAX_VALUE, scannerType);
+      for (int j = 0; j < size; j++) {
+        tokenizer.reset(new StringReader(contents[rand.nextInt(contents.length)]));
+        while (tokenizer.incrementToken()) {
+          counter++;
+        }
+      }
+      tokenizer.close();
+    }
+    return counter;
+  }
+
   public int performAnalysis(final Analyzer analyzer)
   throws FileNotFoundException, IOException {
     int counter = 0;
 
     for (int i = 0; i < size; i++) {
-      final String content = this.readNTriplesFile(this.nextFile());
+      final String content = contents[rand.nextInt(contents.length)];
       final TokenStream stream = analyzer.reusableTokenStream("", new StringReader(content));
       try {
         while (stream.incrementToken()) {
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.WhitespaceTokenizer;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.AnyURIAnalyzer.URINormalisation;
+import org.sindice.siren.analysis.filter.MailtoFilter;
+import org.sindice.siren.analysis.filter.URIEncodingFilter;
+import org.sindice.siren.analysis.filter.URIExpansionFilter;
+import org.sindice.siren.analysis.filter.URILocalnameFilter;
+import org.sindice.siren.analysis.filter.URINormalisationFilter;
+import org.sindice.siren.analysis.filter.URITrailingSlashFilter;
+import org.sindice.siren.bench.SirenBenchmark;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compares the chain of URI filters of the
+ * {@link org.sindice.siren.analysis.AnyURIAnalyzer} with the
+ * {@link URIExpansionFilter}, on the URIs of the benchmark files.
+ */
+public class URIExpansionFilterBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private static final Pattern URI = Pattern.compile("<([^>\\s]+)>");
+
+  @Param({"NONE", "LOCALNAME", "FULL"}) private URINormalisation normalisation;
+
+  private String uris;
+
+  @Override
+  protected void setUp() throws Exception {
+    final StringBuilder b = new StringBuilder();
+    for (final File file : benchmarkFiles) {
+      final Matcher m = URI.matcher(this.readNTriplesFile(file));
+      while (m.find()) {
+        b.append(m.group(1)).append(' ');
+      }
+    }
+    uris = b.toString();
+  }
+
+  public long timeFilterChain(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      TokenStream result = new WhitespaceTokenizer(matchVersion, new StringReader(uris));
+      result = new URIEncodingFilter(result, "UTF-8");
+      switch (normalisation) {
+        case NONE:
+          result = new URITrailingSlashFilter(result, false);
+          break;
+        case LOCALNAME:
+          result = new URITrailingSlashFilter(new URILocalnameFilter(result), false);
+          break;
+        case FULL:
+          result = new URINormalisationFilter(new URITrailingSlashFilter(result, false));
+          break;
+      }
+      counter += this.consume(new MailtoFilter(result));
+    }
+    return counter;
+  }
+
+  public long timeExpansionFilter(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      counter += this.consume(new URIExpansionFilter(new WhitespaceTokenizer(
+        matchVersion, new StringReader(uris)), normalisation));
+    }
+    return counter;
+  }
+
+  private int consume(final TokenStream stream) throws IOException {
+    int counter = 0;
+    try {
+      while (stream.incrementToken()) {
+        counter++;
+      }
+    }
+    finally {
+      stream.close();
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(URIExpansionFilterBenchmark.class, args);
+  }
+
+}
@@ -29,6 +29,7 @@ package org.sindice.siren.analysis.filter;
 import java.io.Reader;
 import java.io.StringReader;
 
+import org.apache.lucene.analysis.KeywordTokenizer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.WhitespaceTokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
@@ -55,6 +56,62 @@ public class TestASCIIFoldingExpansionFilter extends LuceneTestCase {
     this.assertTermEquals("café", 0, filter, termAtt, posAtt);
   }
 
+  @Test
+  public void testNoFoldableCharacter() throws Exception {
+    // \u03B1 (greek alpha) has no ASCII equivalent
+    final Reader reader = new StringReader("aaa \u03B1\u03B2 b\u03B1");
+    final TokenStream stream = new WhitespaceTokenizer(TEST_VERSION_CURRENT, reader);
+    final ASCIIFoldingExpansionFilter filter = new ASCIIFoldingExpansionFilter(stream);
+
+    final CharTermAttribute termAtt = filter.getAttribute(CharTermAttribute.class);
+    final PositionIncrementAttribute posAtt = filter.getAttribute(PositionIncrementAttribute.class);
+
+    this.assertTermEquals("aaa", 1, filter, termAtt, posAtt);
+    this.assertTermEquals("\u03B1\u03B2", 1, filter, termAtt, posAtt);
+    this.assertTermEquals("\u03B1\u03B2", 0, filter, termAtt, posAtt);
+    this.assertTermEquals("b\u03B1", 1, filter, termAtt, posAtt);
+    this.assertTermEquals("b\u03B1", 0, filter, termAtt, posAtt);
+    Assert.assertFalse(filter.incrementToken());
+  }
+
+  @Test
+  public void testExpansion() throws Exception {
+    // \u00C6 folds into two characters, \u2474 into three
+    final Reader reader = new StringReader("abc\u00C6d\u03B1 \u2474x");
+    final TokenStream stream = new WhitespaceTokenizer(TEST_VERSION_CURRENT, reader);
+    final ASCIIFoldingExpansionFilter filter = new ASCIIFoldingExpansionFilter(stream);
+
+    final CharTermAttribute termAtt = filter.getAttribute(CharTermAttribute.class);
+    final PositionIncrementAttribute posAtt = filter.getAttribute(PositionIncrementAttribute.class);
+
+    this.assertTermEquals("abcAEd\u03B1", 1, filter, termAtt, posAtt);
+    this.assertTermEquals("abc\u00C6d\u03B1", 0, filter, termAtt, posAtt);
+    this.assertTermEquals("(1)x", 1, filter, termAtt, posAtt);
+    this.assertTermEquals("\u2474x", 0, filter, termAtt, posAtt);
+    Assert.assertFalse(filter.incrementToken());
+  }
+
+  @Test
+  public void testLongToken() throws Exception {
+    final StringBuilder accented = new StringBuilder();
+    final StringBuilder folded = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      accented.append("\u00E9\u2474");
+      folded.append("e(1)");
+    }
+    final Reader reader = new StringReader(accented.toString());
+    // WhitespaceTokenizer splits tokens longer than 255 characters
+    final TokenStream stream = new KeywordTokenizer(reader);
+    final ASCIIFoldingExpansionFilter filter = new ASCIIFoldingExpansionFilter(stream);
+
+    final CharTermAttribute termAtt = filter.getAttribute(CharTermAttribute.class);
+    final PositionIncrementAttribute posAtt = filter.getAttribute(PositionIncrementAttribute.class);
+
+    this.assertTermEquals(folded.toString(), 1, filter, termAtt, posAtt);
+    this.assertTermEquals(accented.toString(), 0, filter, termAtt, posAtt);
+    Assert.assertFalse(filter.incrementToken());
+  }
+
   void assertTermEquals(final String termExpected, final int posIncExpected, final TokenStream stream,
                         final CharTermAttribute termAtt, final PositionIncrementAttribute posAtt)
   throws Exception {
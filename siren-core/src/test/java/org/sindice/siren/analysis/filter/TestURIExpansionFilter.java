@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.analysis.filter;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer.URINormalisation;
+
+/**
+ * Checks that the {@link URIExpansionFilter} produces the same tokens as the
+ * chain of filters it replaces.
+ */
+public class TestURIExpansionFilter extends LuceneTestCase {
+
+  private static final String[] PIECES = { "http", "://", ":", "/", "#",
+    "mailto:", "a", "Ab", "foo", "BarBaz", "x1", "%20", "%C3%A9", "%zz", "%",
+    "%4", "%C3", "é", ".", "-", "dbpedia.org", "resource", "Galway", "_",
+    "0.1", "@", "renaud.delbru" };
+
+  private TokenStream chain(final String input, final URINormalisation normalisation,
+                            final boolean trailingSlashFirst, final int maxLength) {
+    TokenStream result = new WhitespaceTokenizer(TEST_VERSION_CURRENT, new StringReader(input));
+    result = new URIEncodingFilter(result, "UTF-8");
+    switch (normalisation) {
+      case NONE:
+        result = new URITrailingSlashFilter(result, false);
+        break;
+
+      case LOCALNAME:
+        if (trailingSlashFirst) {
+          result = new URITrailingSlashFilter(result, false);
+        }
+        final URILocalnameFilter localname = new URILocalnameFilter(result);
+        localname.setMaxLength(maxLength);
+        result = localname;
+        if (!trailingSlashFirst) {
+          result = new URITrailingSlashFilter(result, false);
+        }
+        break;
+
+      case FULL:
+        result = new URITrailingSlashFilter(result, false);
+        result = new URINormalisationFilter(result);
+        break;
+    }
+    return new MailtoFilter(result);
+  }
+
+  private TokenStream fused(final String input, final URINormalisation normalisation,
+                            final boolean trailingSlashFirst, final int maxLength) {
+    final URIExpansionFilter filter = new URIExpansionFilter(new WhitespaceTokenizer(
+      TEST_VERSION_CURRENT, new StringReader(input)), normalisation);
+    filter.setTrailingSlashFirst(trailingSlashFirst);
+    filter.setMaxLength(maxLength);
+    return filter;
+  }
+
+  /**
+   * Returns the tokens with their position increment and offsets
+   */
+  private List<String> tokens(final TokenStream stream) throws Exception {
+    final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+    final PositionIncrementAttribute posIncrAtt = stream.getAttribute(PositionIncrementAttribute.class);
+    final OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+    final List<String> tokens = new ArrayList<String>();
+    stream.reset();
+    while (stream.incrementToken()) {
+      tokens.add(termAtt + "|" + posIncrAtt.getPositionIncrement() + "|" +
+        offsetAtt.startOffset() + "-" + offsetAtt.endOffset());
+    }
+    stream.end();
+    stream.close();
+    return tokens;
+  }
+
+  private void assertSameTokens(final String input) throws Exception {
+    for (final URINormalisation normalisation : URINormalisation.values()) {
+      for (final boolean trailingSlashFirst : new boolean[] { false, true }) {
+        for (final int maxLength : new int[] { URILocalnameFilter.DEFAULT_MAX_LENGTH, 8 }) {
+          assertEquals(normalisation + " " + input,
+            this.tokens(this.chain(input, normalisation, trailingSlashFirst, maxLength)),
+            this.tokens(this.fused(input, normalisation, trailingSlashFirst, maxLength)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSameTokens() throws Exception {
+    this.assertSameTokens("http://renaud.delbru.fr/rdf/foaf http://renaud.delbru.fr/ " +
+      "http://xmlns.com/foaf/0.1/workplaceHomepage/ mailto:renaud.delbru@deri.org");
+    this.assertSameTokens("http://test.com/M%C3%B6ller http://test.com/a%20b%zz%4 " +
+      "http://test/anotherLocalname http://test/aVeryLongLocalnameWithUppercases");
+    this.assertSameTokens("http://dbpedia.org/resource/Galway#FooBar urn:isbn:0451450523 " +
+      "http: http:/ / mailto: mailto:a mailto%3Aa ftp://a.b/c/%C3/");
+    this.assertSameTokens("");
+  }
+
+  @Test
+  public void testSameTokensRandom() throws Exception {
+    for (int i = 0; i < 2000 * RANDOM_MULTIPLIER; i++) {
+      final StringBuilder b = new StringBuilder();
+      final int nURIs = 1 + random.nextInt(4);
+      for (int j = 0; j < nURIs; j++) {
+        final int n = 1 + random.nextInt(12);
+        for (int k = 0; k < n; k++) {
+          b.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        b.append(' ');
+      }
+      this.assertSameTokens(b.toString());
+    }
+  }
+
+  @Test
+  public void testNoDecoding() throws Exception {
+    final URIExpansionFilter filter = new URIExpansionFilter(new WhitespaceTokenizer(
+      TEST_VERSION_CURRENT, new StringReader("http://test/a%20b mailto:a@b.c")),
+      URINormalisation.NONE);
+    filter.setEncoding(null);
+    filter.setMailto(false);
+    final List<String> tokens = this.tokens(filter);
+    assertEquals(2, tokens.size());
+    assertEquals("http://test/a%20b|1|0-17", tokens.get(0));
+    assertEquals("mailto:a@b.c|1|18-30", tokens.get(1));
+  }
+
+}
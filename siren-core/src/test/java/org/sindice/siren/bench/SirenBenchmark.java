@@ -34,7 +34,7 @@ public class SirenBenchmark extends SimpleBenchmark {
 
   protected Random rand = new Random(42);
 
-  File[] benchmarkFiles = new File[] {
+  protected File[] benchmarkFiles = new File[] {
     new File("./src/test/resources/demo/ntriples/foaf1.nt"),
     new File("./src/test/resources/demo/ntriples/foaf2.nt"),
     new File("./src/test/resources/data/ntriples/apple-freebase.nt"),
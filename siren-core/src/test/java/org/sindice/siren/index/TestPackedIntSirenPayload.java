@@ -28,8 +28,16 @@ package org.sindice.siren.index;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -149,4 +157,70 @@ public class TestPackedIntSirenPayload {
     }
   }
 
+  @Test
+  public void testDecodeWithOffset()
+  throws Exception {
+    final PackedIntSirenPayload payload1 = new PackedIntSirenPayload(1234, 56);
+    final byte[] data = new byte[payload1.length() + 3];
+    System.arraycopy(payload1.getData(), 0, data, 3, payload1.length());
+    final PackedIntSirenPayload payload2 = new PackedIntSirenPayload(data, 3, payload1.length());
+    assertEquals(1234, payload2._tupleID);
+    assertEquals(56, payload2._cellID);
+
+    final long values = payload2.decode(data, 3, payload1.length());
+    assertEquals(1234, AbstractSirenPayload.tupleID(values));
+    assertEquals(56, AbstractSirenPayload.cellID(values));
+  }
+
+  /**
+   * Decode concurrently the same set of payloads from multiple threads, and
+   * check that no thread observes the identifiers of another thread.
+   */
+  @Test
+  public void testConcurrentDecode()
+  throws Exception {
+    final int nThreads = 16;
+    final Random r = new Random(42);
+    final int[] tupleIDs = new int[1000];
+    final int[] cellIDs = new int[1000];
+    final byte[][] payloads = new byte[1000][];
+    for (int i = 0; i < payloads.length; i++) {
+      tupleIDs[i] = r.nextInt(268435455);
+      cellIDs[i] = r.nextInt(65535);
+      payloads[i] = new PackedIntSirenPayload(tupleIDs[i], cellIDs[i]).getData();
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    try {
+      final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < nThreads; t++) {
+        final int start = t;
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() throws Exception {
+            final PackedIntSirenPayload payload = new PackedIntSirenPayload();
+            int errors = 0;
+            for (int n = 0; n < 200; n++) {
+              for (int i = 0; i < payloads.length; i++) {
+                // each thread iterates the payloads in a different order
+                final int j = (i + start * 61) % payloads.length;
+                payload.setData(payloads[j]);
+                if (payload._tupleID != tupleIDs[j] || payload._cellID != cellIDs[j]) {
+                  errors++;
+                }
+              }
+            }
+            return errors;
+          }
+        }));
+      }
+      for (final Future<Integer> result : results) {
+        assertEquals(0, result.get().intValue());
+      }
+    }
+    finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    }
+  }
+
 }
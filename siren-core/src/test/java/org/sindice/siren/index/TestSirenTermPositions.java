@@ -422,4 +422,120 @@ public class TestSirenTermPositions extends LuceneTestCase {
     assertFalse(termPositions.skipTo(31, 2, 0)); // does not exist, reach end of list: should return false
   }
 
+  @Test
+  public void testFreqCell()
+  throws Exception {
+    _helper.addDocument("\"aaa aaa bbb\" \"aaa\" . \"aaa aaa aaa\" . ");
+    _helper.addDocument("\"bbb\" \"aaa bbb aaa\" . ");
+    final Term term = new Term("content", "aaa");
+    final IndexReader reader = _helper.getIndexReader();
+    final SirenTermPositions termPositions = new SirenTermPositions(reader.termPositions(term));
+
+    assertTrue(termPositions.next());
+    assertEquals(6, termPositions.freq());
+    // not positioned on an occurrence yet
+    assertEquals(0, termPositions.freqCell());
+    final int[] expected = new int[] { 2, 2, 1, 3, 3, 3 };
+    for (int i = 0; i < expected.length; i++) {
+      termPositions.nextPosition();
+      assertEquals(expected[i], termPositions.freqCell());
+    }
+    assertEquals(DocTupCelIdSetIterator.NO_MORE_POS, termPositions.nextPosition());
+    assertEquals(0, termPositions.freqCell());
+
+    // skip to the second tuple
+    assertTrue(termPositions.skipTo(0));
+    assertTrue(termPositions.skipTo(0, 1, 0));
+    assertEquals(3, termPositions.freqCell());
+
+    assertTrue(termPositions.next());
+    assertEquals(1, termPositions.entity());
+    termPositions.nextPosition();
+    assertEquals(1, termPositions.cell());
+    assertEquals(2, termPositions.freqCell());
+  }
+
+  /**
+   * The cell identifiers are decoded from payloads of more than one byte, and
+   * the cell frequencies are requested again from the first occurrence.
+   */
+  @Test
+  public void testFreqCellLargeCellDelta()
+  throws Exception {
+    final StringBuilder tuple = new StringBuilder("\"aaa\" ");
+    for (int i = 1; i < 20; i++) {
+      tuple.append(i == 17 ? "\"aaa bbb aaa\" " : "\"bbb\" ");
+    }
+    _helper.addDocument(tuple.append(". ").toString());
+    final Term term = new Term("content", "aaa");
+    final IndexReader reader = _helper.getIndexReader();
+    final SirenTermPositions termPositions = new SirenTermPositions(reader.termPositions(term));
+
+    assertTrue(termPositions.next());
+    final int[] cells = new int[] { 0, 17, 17 };
+    final int[] freqCells = new int[] { 1, 2, 2 };
+    for (int i = 0; i < cells.length; i++) {
+      termPositions.nextPosition();
+      assertEquals(0, termPositions.tuple());
+      assertEquals(cells[i], termPositions.cell());
+      assertEquals(freqCells[i], termPositions.freqCell());
+    }
+
+    // back to the first occurrence of the entity
+    assertTrue(termPositions.skipTo(0));
+    termPositions.nextPosition();
+    assertEquals(0, termPositions.cell());
+    assertEquals(1, termPositions.freqCell());
+  }
+
+  /**
+   * Skip to tuples and cells within an entity containing a large number of
+   * tuples, and check that the first match greater than or equal to the
+   * target is returned.
+   */
+  @Test
+  public void testSkipToLargeEntity()
+  throws Exception {
+    final int nTuples = 5000;
+    final StringBuilder builder = new StringBuilder();
+    final int[] tuples = new int[nTuples * 2];
+    final int[] cells = new int[nTuples * 2];
+    int size = 0;
+    for (int i = 0; i < nTuples; i++) {
+      final boolean inCell1 = i % 3 == 0;
+      final boolean inCell2 = i % 5 == 0;
+      builder.append("<http://s> \"").append(inCell1 ? "aaa" : "bbb").append("\" \"");
+      builder.append(inCell2 ? "aaa" : "ccc").append("\" .\n");
+      if (inCell1) { tuples[size] = i; cells[size++] = 1; }
+      if (inCell2) { tuples[size] = i; cells[size++] = 2; }
+    }
+    _helper.addDocument(builder.toString());
+
+    final Term term = new Term("content", "aaa");
+    final IndexReader reader = _helper.getIndexReader();
+    final SirenTermPositions termPositions = new SirenTermPositions(reader.termPositions(term));
+
+    int tuple = 0, cell = 0, expected = -1;
+    while (true) {
+      tuple += random.nextInt(50);
+      cell = random.nextInt(4);
+      // linear search of the expected occurrence
+      do {
+        expected++;
+      } while (expected < size && (tuples[expected] < tuple ||
+               (tuples[expected] == tuple && cells[expected] < cell)));
+
+      if (expected >= size) {
+        // not found, reach end of list
+        assertFalse(termPositions.skipTo(0, tuple, cell));
+        break;
+      }
+      assertTrue(termPositions.skipTo(0, tuple, cell));
+      assertEquals(0, termPositions.entity());
+      assertEquals(tuples[expected], termPositions.tuple());
+      assertEquals(cells[expected], termPositions.cell());
+      tuple = termPositions.tuple();
+    }
+  }
+
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.search.QueryTestingHelper;
+
+public class TestSirenTupleStore extends LuceneTestCase {
+
+  protected QueryTestingHelper _helper = null;
+
+  @Override
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new StandardAnalyzer(TEST_VERSION_CURRENT),
+      new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+  }
+
+  @Override
+  @After
+  public void tearDown()
+  throws Exception {
+    SirenTupleStore.purgeAllStores();
+    SirenTupleStore.setMaxBytes(SirenTupleStore.DEFAULT_MAX_BYTES);
+    _helper.close();
+    super.tearDown();
+  }
+
+  /**
+   * Returns the texts of the terms of a tuple, cell by cell
+   */
+  private String toString(final SirenTupleStore store, final int entity,
+                          final int tuple) {
+    final int[][] cells = store.getTuple(entity, tuple);
+    if (cells == null) {
+      return null;
+    }
+    final StringBuilder b = new StringBuilder();
+    for (final int[] cell : cells) {
+      b.append('[');
+      for (int i = 0; i < cell.length; i++) {
+        if (i > 0) b.append(' ');
+        b.append(store.term(cell[i]));
+      }
+      b.append(']');
+    }
+    return b.toString();
+  }
+
+  private IndexReader segment() throws IOException {
+    _helper.getIndexWriter().optimize();
+    final IndexReader reader = _helper.getIndexReader();
+    assertEquals(1, reader.getSequentialSubReaders().length);
+    return reader.getSequentialSubReaders()[0];
+  }
+
+  @Test
+  public void testGetTuple() throws IOException {
+    _helper.addDocument("\"aaa\" \"bbb ccc bbb\" . \"ddd\" \"aaa\" \"eee\" . ");
+    _helper.addDocument("\"ccc\" . ");
+    _helper.addDocument("\"fff\" \"aaa\" . \"the\" . \"bbb\" \"the\" \"ccc\" . ");
+    final IndexReader segment = this.segment();
+    final SirenTupleStore store = SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD);
+
+    assertEquals(6, store.numTerms());
+    assertTrue(Arrays.equals(new int[] { 0, 1 }, store.getTupleIds(0)));
+    assertEquals("[aaa][bbb ccc bbb]", this.toString(store, 0, 0));
+    assertEquals("[ddd][aaa][eee]", this.toString(store, 0, 1));
+    assertNull(store.getTuple(0, 2));
+
+    assertEquals("[ccc]", this.toString(store, 1, 0));
+
+    // the tuple and cell of stop words only are not stored
+    assertTrue(Arrays.equals(new int[] { 0, 2 }, store.getTupleIds(2)));
+    assertNull(store.getTuple(2, 1));
+    assertEquals("[bbb][][ccc]", this.toString(store, 2, 2));
+    assertTrue(store.ramBytesUsed() > 0);
+  }
+
+  @Test
+  public void testCache() throws IOException {
+    _helper.addDocument("\"aaa\" . ");
+    final IndexReader segment = this.segment();
+    final SirenTupleStore store = SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD);
+    assertSame(store, SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD));
+    assertEquals(0, SirenTupleStore.getStore(segment, "other").numTerms());
+    assertEquals(2, SirenTupleStore.numCachedStores());
+    assertEquals(1, SirenTupleStore.getHitCount());
+    assertEquals(2, SirenTupleStore.getMissCount());
+    assertEquals(store.ramBytesUsed() +
+      SirenTupleStore.getStore(segment, "other").ramBytesUsed(),
+      SirenTupleStore.cachedRamBytesUsed());
+  }
+
+  @Test
+  public void testDeletions() throws IOException {
+    _helper.addDocument("\"aaa\" . ");
+    _helper.addDocument("\"bbb\" . ");
+    final IndexReader segment = this.segment();
+    final SirenTupleStore store = SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD);
+    assertEquals(1, store.getTupleIds(0).length);
+
+    // the same core, with a deleted entity
+    _helper.getIndexWriter().deleteDocuments(new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa"));
+    final IndexReader deleted = _helper.getIndexReader().getSequentialSubReaders()[0];
+    assertTrue(deleted.hasDeletions());
+    assertSame(segment.getCoreCacheKey(), deleted.getCoreCacheKey());
+    final SirenTupleStore deletedStore = SirenTupleStore.getStore(deleted, QueryTestingHelper.DEFAULT_FIELD);
+    assertNotSame(store, deletedStore);
+    assertEquals(0, deletedStore.getTupleIds(0).length);
+    assertEquals(1, deletedStore.getTupleIds(1).length);
+    assertSame(store, SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD));
+  }
+
+  @Test
+  public void testConcurrentGetStore() throws Exception {
+    _helper.addDocument("\"aaa\" \"bbb\" . \"ccc\" . ");
+    final IndexReader segment = this.segment();
+    final SirenTupleStore[] stores = new SirenTupleStore[4];
+    final Thread[] threads = new Thread[stores.length];
+    final CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads.length; t++) {
+      final int i = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            stores[i] = SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD);
+          }
+          catch (final Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    // the store is built once
+    assertNotNull(stores[0]);
+    for (final SirenTupleStore store : stores) {
+      assertSame(stores[0], store);
+    }
+    assertEquals(1, SirenTupleStore.getMissCount());
+    assertEquals(stores.length - 1, SirenTupleStore.getHitCount());
+    assertEquals(1, SirenTupleStore.numCachedStores());
+  }
+
+  @Test
+  public void testMaxBytes() throws IOException {
+    _helper.addDocument("\"aaa\" \"bbb\" . \"ccc\" . ");
+    final IndexReader segment = this.segment();
+    final long bytes = SirenTupleStore.build(segment,
+      QueryTestingHelper.DEFAULT_FIELD, Long.MAX_VALUE).ramBytesUsed();
+
+    // the store does not fit
+    SirenTupleStore.setMaxBytes(bytes - 1);
+    assertNull(SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD));
+    assertEquals(0, SirenTupleStore.numCachedStores());
+
+    // the store of the other field is evicted
+    SirenTupleStore.setMaxBytes(bytes);
+    assertNotNull(SirenTupleStore.getStore(segment, "other"));
+    assertEquals(1, SirenTupleStore.numCachedStores());
+    final SirenTupleStore store = SirenTupleStore.getStore(segment, QueryTestingHelper.DEFAULT_FIELD);
+    assertEquals("bbb", store.term(store.getTuple(0, 0)[1][0]));
+    assertEquals(1, SirenTupleStore.numCachedStores());
+    assertEquals(bytes, SirenTupleStore.cachedRamBytesUsed());
+  }
+
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.index.AbstractSirenPayload;
+import org.sindice.siren.index.IntSirenPayload;
+import org.sindice.siren.index.PackedIntSirenPayload;
+import org.sindice.siren.index.SirenTermPositions;
+import org.sindice.siren.index.VIntSirenPayload;
+import org.sindice.siren.search.DocTupCelIdSetIterator;
+import org.sindice.siren.search.QueryTestingHelper;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compare the decoding of the structural information of the term positions
+ * position by position through a {@link PackedIntSirenPayload} object, with the
+ * block decoding performed by {@link SirenTermPositions}, and the overhead
+ * of accessing the frequency of the term within each cell.
+ * <p>
+ * The payloads of the term are also decoded from memory in the three
+ * encodings, {@link PackedIntSirenPayload}, {@link IntSirenPayload} and
+ * {@link VIntSirenPayload}, to compare the decoding cost of each encoding
+ * independently of the postings.
+ */
+public class SirenPayloadBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+
+  /** Number of tuples per entity */
+  @Param({"16", "128", "1024"}) private int size;
+
+  private final Term term = new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa");
+
+  /** The payloads of the term, in each encoding */
+  private byte[][] packedIntPayloads;
+  private byte[][] intPayloads;
+  private byte[][] vIntPayloads;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnalyzer(matchVersion), new WhitespaceAnyURIAnalyzer(matchVersion)));
+    for (int i = 0; i < 100; i++) {
+      _helper.addDocument(this.nextEntity());
+    }
+    _reader = _helper.getIndexReader();
+    this.loadPayloads();
+  }
+
+  /**
+   * Reads the tuple and cell deltas of the payloads of the term, and encodes
+   * them in each encoding.
+   */
+  private void loadPayloads() throws IOException {
+    final List<byte[]> packedInts = new ArrayList<byte[]>();
+    final List<byte[]> ints = new ArrayList<byte[]>();
+    final List<byte[]> vInts = new ArrayList<byte[]>();
+    final byte[] buffer = new byte[6];
+    final TermPositions tp = _reader.termPositions(term);
+    while (tp.next()) {
+      for (int j = 0; j < tp.freq(); j++) {
+        tp.nextPosition();
+        int dt = 0, dc = 0;
+        if (tp.isPayloadAvailable()) {
+          final long values = PackedIntSirenPayload.unpack(tp.getPayload(buffer, 0), 0);
+          dt = AbstractSirenPayload.tupleID(values);
+          dc = AbstractSirenPayload.cellID(values);
+        }
+        packedInts.add(new PackedIntSirenPayload(dt, dc).toByteArray());
+        ints.add(new IntSirenPayload(dt, dc).toByteArray());
+        vInts.add(new VIntSirenPayload(dt, dc).toByteArray());
+      }
+    }
+    tp.close();
+    packedIntPayloads = packedInts.toArray(new byte[packedInts.size()][]);
+    intPayloads = ints.toArray(new byte[ints.size()][]);
+    vIntPayloads = vInts.toArray(new byte[vInts.size()][]);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _reader.close();
+    _helper.close();
+  }
+
+  private String nextEntity() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      builder.append("<http://s> ");
+      builder.append(rand.nextBoolean() ? "\"aaa bbb aaa\" " : "\"bbb\" ");
+      builder.append("\"aaa ccc\" .\n");
+    }
+    return builder.toString();
+  }
+
+  public long timePayloadObject(final int reps) throws IOException {
+    long counter = 0;
+    final PackedIntSirenPayload payload = new PackedIntSirenPayload();
+    final byte[] buffer = new byte[6];
+    for (int i = 0; i < reps; i++) {
+      final TermPositions tp = _reader.termPositions(term);
+      while (tp.next()) {
+        int tuple = -1, cell = -1;
+        for (int j = 0; j < tp.freq(); j++) {
+          tp.nextPosition();
+          int dt = 0, dc = 0; // no payload, special case where tuple and cell == 0
+          if (tp.isPayloadAvailable()) {
+            payload.setData(tp.getPayload(buffer, 0), 0, tp.getPayloadLength());
+            dt = payload.getTupleID();
+            dc = payload.getCellID();
+          }
+          tuple = tuple == -1 ? dt : tuple + dt;
+          cell = (cell == -1 || dt != 0) ? dc : cell + dc;
+          counter += tuple + cell;
+        }
+      }
+      tp.close();
+    }
+    return counter;
+  }
+
+  public long timeBlockDecoding(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTermPositions tp = new SirenTermPositions(_reader.termPositions(term));
+      while (tp.next()) {
+        while (tp.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS) {
+          counter += tp.tuple() + tp.cell();
+        }
+      }
+      tp.close();
+    }
+    return counter;
+  }
+
+  public long timeBlockDecodingWithFreqCell(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTermPositions tp = new SirenTermPositions(_reader.termPositions(term));
+      while (tp.next()) {
+        while (tp.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS) {
+          counter += tp.tuple() + tp.cell() + tp.freqCell();
+        }
+      }
+      tp.close();
+    }
+    return counter;
+  }
+
+  public long timePackedIntPayload(final int reps) {
+    return this.decodePayloads(new PackedIntSirenPayload(), packedIntPayloads, reps);
+  }
+
+  public long timeIntPayload(final int reps) {
+    return this.decodePayloads(new IntSirenPayload(), intPayloads, reps);
+  }
+
+  public long timeVIntPayload(final int reps) {
+    return this.decodePayloads(new VIntSirenPayload(), vIntPayloads, reps);
+  }
+
+  private long decodePayloads(final AbstractSirenPayload payload,
+                              final byte[][] payloads, final int reps) {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      for (final byte[] data : payloads) {
+        final long values = payload.decode(data, 0, data.length);
+        counter += AbstractSirenPayload.tupleID(values) + AbstractSirenPayload.cellID(values);
+      }
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenPayloadBenchmark.class, args);
+  }
+
+}
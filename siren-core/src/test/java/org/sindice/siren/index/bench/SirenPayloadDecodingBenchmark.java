@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.index.AbstractSirenPayload;
+import org.sindice.siren.index.IntSirenPayload;
+import org.sindice.siren.index.PackedIntSirenPayload;
+import org.sindice.siren.index.VIntSirenPayload;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure the throughput of the payload decoding when the payloads are
+ * decoded concurrently by multiple search threads.
+ */
+public class SirenPayloadDecodingBenchmark extends SirenBenchmark {
+
+  @Param({"1", "4", "16", "32"}) private int threads;
+
+  /** Number of payloads decoded by each thread */
+  private static final int SIZE = 100000;
+
+  private ExecutorService executor;
+
+  private final byte[][] packedPayloads = new byte[1024][];
+  private final byte[][] vintPayloads = new byte[1024][];
+  private final byte[][] intPayloads = new byte[1024][];
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    for (int i = 0; i < packedPayloads.length; i++) {
+      final int tupleID = rand.nextInt(256);
+      final int cellID = rand.nextInt(16);
+      packedPayloads[i] = new PackedIntSirenPayload(tupleID, cellID).getData();
+      vintPayloads[i] = new VIntSirenPayload(tupleID, cellID).getData();
+      intPayloads[i] = new IntSirenPayload(tupleID, cellID).getData();
+    }
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+  }
+
+  public long timePackedIntPayload(final int reps) throws Exception {
+    return this.decode(new PackedIntSirenPayload(), packedPayloads, reps);
+  }
+
+  public long timeVIntPayload(final int reps) throws Exception {
+    return this.decode(new VIntSirenPayload(), vintPayloads, reps);
+  }
+
+  public long timeIntPayload(final int reps) throws Exception {
+    return this.decode(new IntSirenPayload(), intPayloads, reps);
+  }
+
+  /**
+   * Decode concurrently the payloads from {@link #threads} threads, all
+   * sharing the same decoder instance.
+   */
+  private long decode(final AbstractSirenPayload decoder,
+                      final byte[][] payloads, final int reps)
+  throws Exception {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final List<Future<Long>> results = new ArrayList<Future<Long>>(threads);
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(new Callable<Long>() {
+          public Long call() {
+            long sum = 0;
+            for (int j = 0; j < SIZE; j++) {
+              final byte[] data = payloads[j & 1023];
+              final long values = decoder.decode(data, 0, data.length);
+              sum += AbstractSirenPayload.tupleID(values) + AbstractSirenPayload.cellID(values);
+            }
+            return sum;
+          }
+        }));
+      }
+      for (final Future<Long> result : results) {
+        counter += result.get();
+      }
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenPayloadDecodingBenchmark.class, args);
+  }
+
+}
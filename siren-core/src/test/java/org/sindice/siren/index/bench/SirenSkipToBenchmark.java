@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.index.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.index.SirenTermPositions;
+import org.sindice.siren.search.DocTupCelIdSetIterator;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanClause;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenTermQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure the cost of skipping to a tuple and cell within entities containing
+ * a large number of tuples.
+ */
+public class SirenSkipToBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+
+  /** Number of entities */
+  private static final int ENTITIES = 10;
+
+  /** Number of tuples per entity */
+  @Param({"1000", "10000", "50000"}) private int tuples;
+
+  /** Distance in tuples between two successive skips */
+  @Param({"10", "1000"}) private int stride;
+
+  private final Term aaa = new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa");
+  private final Term bbb = new Term(QueryTestingHelper.DEFAULT_FIELD, "bbb");
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnalyzer(matchVersion), new WhitespaceAnyURIAnalyzer(matchVersion)));
+    for (int i = 0; i < ENTITIES; i++) {
+      _helper.addDocument(this.nextEntity());
+    }
+    _reader = _helper.getIndexReader();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _reader.close();
+    _helper.close();
+  }
+
+  private String nextEntity() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < tuples; i++) {
+      builder.append("<http://s> \"aaa\" ");
+      // bbb occurs in the same cell than aaa in 1% of the tuples
+      builder.append(rand.nextInt(100) == 0 ? "\"aaa bbb\" .\n" : "\"ccc\" .\n");
+    }
+    return builder.toString();
+  }
+
+  public long timeSkipToCell(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTermPositions tp = new SirenTermPositions(_reader.termPositions(aaa));
+      for (int e = 0; e < ENTITIES; e++) {
+        for (int t = 0; t < tuples; t += stride) {
+          if (tp.skipTo(e, t, 2) && tp.entity() == e) {
+            counter += tp.tuple();
+          }
+        }
+      }
+      tp.close();
+    }
+    return counter;
+  }
+
+  /**
+   * Reference: reach the same targets with a linear scan of the positions.
+   */
+  public long timeLinearScan(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTermPositions tp = new SirenTermPositions(_reader.termPositions(aaa));
+      while (tp.next()) {
+        int t = 0;
+        while (tp.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS) {
+          if (tp.tuple() > t || (tp.tuple() == t && tp.cell() >= 2)) {
+            counter += tp.tuple();
+            t += stride;
+          }
+        }
+      }
+      tp.close();
+    }
+    return counter;
+  }
+
+  public int timeCellConjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      bq.add(new SirenTermQuery(aaa), SirenBooleanClause.Occur.MUST);
+      bq.add(new SirenTermQuery(bbb), SirenBooleanClause.Occur.MUST);
+      final ScoreDoc[] hits = _helper.search(new SirenCellQuery(bq));
+      nHits = hits.length;
+    }
+    return nHits;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenSkipToBenchmark.class, args);
+  }
+
+}
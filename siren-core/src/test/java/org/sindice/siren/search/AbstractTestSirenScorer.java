@@ -142,16 +142,17 @@ public abstract class AbstractTestSirenScorer extends LuceneTestCase {
     final IndexReader reader = _helper.getIndexReader();
     final TermPositions[] tps = new TermPositions[phraseTerms.length];
     final int[] positions = new int[phraseTerms.length];
+    final Term[] terms = new Term[phraseTerms.length];
     for (int i = 0; i < phraseTerms.length; i++) {
-      final TermPositions p = reader.termPositions(
-        new Term(QueryTestingHelper.DEFAULT_FIELD, phraseTerms[i]));
+      terms[i] = new Term(QueryTestingHelper.DEFAULT_FIELD, phraseTerms[i]);
+      final TermPositions p = reader.termPositions(terms[i]);
       if (p == null) return null;
       tps[i] = p;
       positions[i] = i;
     }
 
     return new SirenExactPhraseScorer(new ConstantWeight(), tps, positions,
-      new DefaultSimilarity(), reader.norms(field));
+      new DefaultSimilarity(), reader.norms(field), reader, terms);
   }
 
   protected SirenExactPhraseScorer getExactScorer(final String field,
@@ -175,10 +176,9 @@ public abstract class AbstractTestSirenScorer extends LuceneTestCase {
                                           final String term)
   throws IOException {
     final IndexReader reader = _helper.getIndexReader();
-    final TermPositions termPositions = reader.termPositions(
-      new Term(QueryTestingHelper.DEFAULT_FIELD, term));
-    return new SirenTermScorer(new ConstantWeight(), termPositions,
-      new DefaultSimilarity(), reader.norms(field));
+    final Term t = new Term(QueryTestingHelper.DEFAULT_FIELD, term);
+    return new SirenTermScorer(new ConstantWeight(), reader.termPositions(t),
+      null, new DefaultSimilarity(), reader.norms(field), reader, t);
   }
 
   /**
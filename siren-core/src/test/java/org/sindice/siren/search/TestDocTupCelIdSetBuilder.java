@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestDocTupCelIdSetBuilder extends LuceneTestCase {
+
+  /**
+   * Add random triples with the given maximum gaps between two successive
+   * entities, tuples and cells.
+   */
+  private DocTupCelIdSetBuilder randomBuilder(final int nEntities,
+                                              final int maxTuples,
+                                              final int cellGap) {
+    final DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+    int entity = random.nextInt(10);
+    for (int i = 0; i < nEntities; i++) {
+      int tuple = random.nextInt(5);
+      final int nTuples = 1 + random.nextInt(maxTuples);
+      for (int j = 0; j < nTuples; j++) {
+        int cell = random.nextInt(cellGap);
+        final int nCells = 1 + random.nextInt(5);
+        for (int k = 0; k < nCells; k++) {
+          builder.add(entity, tuple, cell);
+          cell += random.nextInt(cellGap);
+        }
+        tuple += 1 + random.nextInt(3);
+      }
+      entity += 1 + random.nextInt(100);
+    }
+    return builder;
+  }
+
+  private void assertSameIteration(final DocTupCelIdSetIterator expected,
+                                   final DocTupCelIdSetIterator actual)
+  throws IOException {
+    while (expected.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+      assertEquals(expected.entity(), actual.nextDoc());
+      do {
+        assertEquals(expected.tuple(), actual.tuple());
+        assertEquals(expected.cell(), actual.cell());
+        // the position is not retained, but is not the sentinel
+        assertEquals(0, actual.pos());
+        actual.nextPosition();
+      } while (expected.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+      assertEquals(Integer.MAX_VALUE, actual.tuple());
+      assertEquals(DocTupCelIdSetIterator.NO_MORE_POS, actual.pos());
+      assertEquals(DocTupCelIdSetIterator.NO_MORE_POS, actual.nextPosition());
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, actual.nextDoc());
+  }
+
+  private void assertSameAdvances(final DocTupCelIdSetIterator expected,
+                                  final DocTupCelIdSetIterator actual)
+  throws IOException {
+    int entity = expected.nextDoc();
+    assertEquals(entity, actual.nextDoc());
+    while (entity != DocIdSetIterator.NO_MORE_DOCS) {
+      final int target = expected.entity() + random.nextInt(200) - 10;
+      final int tuple = random.nextInt(30);
+      final int cell = random.nextInt(100) - 1;
+      switch (random.nextInt(5)) {
+        case 0:
+          entity = expected.nextDoc();
+          assertEquals(entity, actual.nextDoc());
+          break;
+
+        case 1:
+          entity = expected.advance(target);
+          assertEquals(entity, actual.advance(target));
+          break;
+
+        case 2:
+          entity = expected.advance(target, tuple);
+          assertEquals(entity, actual.advance(target, tuple));
+          break;
+
+        case 3:
+          entity = expected.advance(target, tuple, cell);
+          assertEquals(entity, actual.advance(target, tuple, cell));
+          break;
+
+        default:
+          assertEquals(expected.nextPosition(), actual.nextPosition());
+          break;
+      }
+      assertEquals(expected.tuple(), actual.tuple());
+      assertEquals(expected.cell(), actual.cell());
+      assertEquals(expected.pos(), actual.pos());
+    }
+  }
+
+  private void assertSameSets(final DocTupCelIdSetBuilder builder)
+  throws IOException {
+    final IntArrayDocTupCelIdSet expected = builder.buildIntArray();
+    final SortedVIntDocTupCelIdSet vint = builder.buildSortedVInt();
+    final BitmapDocTupCelIdSet bitmap = builder.buildBitmap();
+    assertEquals(expected.numEntities(), vint.numEntities());
+    assertEquals(expected.numEntities(), bitmap.numEntities());
+    assertEquals(expected.size(), vint.size());
+    assertEquals(expected.size(), bitmap.size());
+
+    assertSameIteration(expected.iterator(), vint.iterator());
+    assertSameIteration(expected.iterator(), bitmap.iterator());
+    for (int i = 0; i < 5; i++) {
+      final long seed = random.nextLong();
+      random.setSeed(seed);
+      assertSameAdvances(expected.iterator(), vint.iterator());
+      random.setSeed(seed);
+      assertSameAdvances(expected.iterator(), bitmap.iterator());
+    }
+  }
+
+  @Test
+  public void testSparseSets() throws IOException {
+    for (int i = 0; i < 20; i++) {
+      this.assertSameSets(this.randomBuilder(1 + random.nextInt(500), 10, 100));
+    }
+  }
+
+  @Test
+  public void testDenseSets() throws IOException {
+    for (int i = 0; i < 20; i++) {
+      this.assertSameSets(this.randomBuilder(1 + random.nextInt(500), 10, 2));
+    }
+  }
+
+  @Test
+  public void testBuildSelectsEncoding() throws IOException {
+    // few cells per tuple
+    DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+    for (int i = 0; i < 100; i++) {
+      builder.add(i, 0, 1).add(i, 3, 2);
+    }
+    DocTupCelIdSet set = builder.build();
+    assertTrue(set instanceof SortedVIntDocTupCelIdSet);
+    assertTrue(((SortedVIntDocTupCelIdSet) set).sizeInBytes() <
+               builder.buildIntArray().sizeInBytes());
+
+    // all the cells of large tuples
+    builder = new DocTupCelIdSetBuilder();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 64; j++) {
+        builder.add(i, 0, j);
+      }
+    }
+    set = builder.build();
+    assertTrue(set instanceof BitmapDocTupCelIdSet);
+    assertTrue(((BitmapDocTupCelIdSet) set).sizeInBytes() <
+               builder.buildSortedVInt().sizeInBytes());
+
+    assertSame(DocTupCelIdSet.EMPTY_IDSET, new DocTupCelIdSetBuilder().build());
+  }
+
+  @Test
+  public void testEmptySets() throws IOException {
+    final DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+    final DocTupCelIdSet[] sets = { builder.buildIntArray(),
+      builder.buildSortedVInt(), builder.buildBitmap() };
+    for (final DocTupCelIdSet set : sets) {
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, set.iterator().nextDoc());
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, set.iterator().advance(0));
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, set.iterator().advance(5));
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS,
+        set.iterator().advance(5, 1, 2));
+    }
+    this.assertSameSets(builder);
+  }
+
+  @Test
+  public void testDuplicateTriples() throws IOException {
+    final DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+    builder.add(1, 0, 0).add(1, 0, 0).add(1, 0, 1).add(2, 0, 1).add(2, 0, 1);
+    assertEquals(2, builder.numEntities());
+    assertEquals(3, builder.size());
+    this.assertSameSets(builder);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testUnorderedTriples() {
+    new DocTupCelIdSetBuilder().add(1, 2, 0).add(1, 1, 3);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testUnorderedEntities() {
+    new DocTupCelIdSetBuilder().add(2, 0, 0).add(1, 1, 3);
+  }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FilteredTermEnum;
+import org.apache.lucene.search.FuzzyTermEnum;
+import org.apache.lucene.search.WildcardTermEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the automaton term enumerations return the same terms, with
+ * the same differences, as the Lucene term enumerations they replace.
+ */
+public class TestSirenAutomatonTermEnum extends LuceneTestCase {
+
+  private static final String FIELD = "field";
+
+  private static final char[] CHARS = { 'a', 'b', 'c', '/', '.', 'é' };
+
+  private Directory directory;
+  private IndexReader reader;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = newDirectory();
+    final RandomIndexWriter writer = new RandomIndexWriter(random, directory,
+      new WhitespaceAnalyzer(TEST_VERSION_CURRENT));
+    final int nDocs = atLeast(200);
+    for (int i = 0; i < nDocs; i++) {
+      final Document doc = new Document();
+      // terms in the fields before and after the enumerated field
+      doc.add(newField("a" + FIELD, this.randomString(8), Field.Store.NO, Field.Index.NOT_ANALYZED));
+      doc.add(newField(FIELD, this.randomString(8), Field.Store.NO, Field.Index.NOT_ANALYZED));
+      doc.add(newField("z" + FIELD, this.randomString(8), Field.Store.NO, Field.Index.NOT_ANALYZED));
+      writer.addDocument(doc);
+    }
+    reader = writer.getReader();
+    writer.close();
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    reader.close();
+    directory.close();
+    super.tearDown();
+  }
+
+  @Test
+  public void testWildcard() throws IOException {
+    final String[] patterns = { "*", "?", "a*", "*a", "a?b*", "*/*", "??", "*b*c?", "é*" };
+    for (final String pattern : patterns) {
+      this.assertWildcard(pattern);
+    }
+    for (int i = 0; i < atLeast(100); i++) {
+      final StringBuilder pattern = new StringBuilder(this.randomString(4));
+      pattern.insert(random.nextInt(pattern.length() + 1), random.nextBoolean() ? '*' : '?');
+      if (random.nextBoolean()) {
+        pattern.insert(random.nextInt(pattern.length() + 1), random.nextBoolean() ? '*' : '?');
+      }
+      this.assertWildcard(pattern.toString());
+    }
+  }
+
+  @Test
+  public void testFuzzy() throws IOException {
+    final float[] similarities = { 0.3f, 0.5f, 0.6f, 0.7f, 0.8f };
+    for (int i = 0; i < atLeast(100); i++) {
+      final Term term = new Term(FIELD, this.randomString(8));
+      final float minSimilarity = similarities[random.nextInt(similarities.length)];
+      final int prefixLength = random.nextInt(4);
+      this.assertSameTerms(term + "~" + minSimilarity + "/" + prefixLength,
+        new FuzzyTermEnum(reader, term, minSimilarity, prefixLength),
+        new SirenFuzzyTermEnum(reader, term, minSimilarity, prefixLength));
+    }
+  }
+
+  private void assertWildcard(final String pattern) throws IOException {
+    final Term term = new Term(FIELD, pattern);
+    this.assertSameTerms(pattern, new WildcardTermEnum(reader, term),
+      new SirenWildcardTermEnum(reader, term));
+  }
+
+  private void assertSameTerms(final String message,
+                               final FilteredTermEnum expected,
+                               final FilteredTermEnum actual)
+  throws IOException {
+    assertEquals(message, this.terms(expected), this.terms(actual));
+  }
+
+  private List<String> terms(final FilteredTermEnum termEnum) throws IOException {
+    final List<String> terms = new ArrayList<String>();
+    try {
+      do {
+        final Term t = termEnum.term();
+        if (t != null) {
+          terms.add(t.text() + ":" + termEnum.difference() + ":" + termEnum.docFreq());
+        }
+      } while (termEnum.next());
+    }
+    finally {
+      termEnum.close();
+    }
+    return terms;
+  }
+
+  private String randomString(final int maxLength) {
+    final char[] chars = new char[random.nextInt(maxLength + 1)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = CHARS[random.nextInt(CHARS.length)];
+    }
+    return new String(chars);
+  }
+
+}
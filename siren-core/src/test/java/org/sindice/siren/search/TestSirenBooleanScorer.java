@@ -66,6 +66,24 @@ extends AbstractTestSirenScorer {
     assertTrue(scorer.nextDoc() == DocIdSetIterator.NO_MORE_DOCS);
   }
 
+  /**
+   * The cost is the one of the rarest required term, or the sum of the costs
+   * of the optional terms. The prohibited terms do not change it.
+   */
+  @Test
+  public void testCost()
+  throws Exception {
+    _helper.addDocument("\"aaa bbb\" \"aaa ccc\" . \"aaa bbb ccc\" \"bbb ccc\" . ");
+    _helper.addDocument("\"aaa\" \"aaa bbb\" . ");
+    _helper.addDocument("\"aaa\" . ");
+
+    assertEquals(2, this.getBooleanScorer(new String[] {"aaa", "bbb"},
+      new String[] {"ccc"}, null).cost());
+    assertEquals(3, this.getBooleanScorer(null,
+      new String[] {"ccc", "bbb"}, new String[] {"aaa"}).cost());
+    assertEquals(3, this.getReqExclScorer("aaa", "bbb").cost());
+  }
+
   @Test
   public void testNextReqWithConstraints()
   throws Exception {
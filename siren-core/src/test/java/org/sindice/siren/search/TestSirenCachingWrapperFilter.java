@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+
+public class TestSirenCachingWrapperFilter extends LuceneTestCase {
+
+  private final SirenTermQuery aaa = new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa"));
+  private final SirenTermQuery bbb = new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, "bbb"));
+
+  private QueryTestingHelper _helper = null;
+
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new StandardAnalyzer(TEST_VERSION_CURRENT),
+      new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+  }
+
+  @After
+  public void tearDown()
+  throws Exception {
+    super.tearDown();
+    _helper.close();
+  }
+
+  private void addDocuments() throws IOException {
+    _helper.addDocument("\"aaa\" \"bbb\" . \"ccc\" \"aaa bbb\" . ");
+    _helper.addDocument("\"bbb\" \"aaa\" . ");
+    _helper.addDocument("\"ccc\" . ");
+    _helper.addDocument("\"aaa\" \"ccc\" . ");
+  }
+
+  @Test
+  public void testConstantScoreFilter() throws IOException {
+    this.addDocuments();
+
+    final SirenConstantScoreQuery q = new SirenConstantScoreQuery(new SirenQueryWrapperFilter(aaa));
+    final ScoreDoc[] hits = _helper.search(q);
+    assertEquals(3, hits.length);
+    assertEquals(hits[0].score, hits[2].score, 0f);
+  }
+
+  @Test
+  public void testCellConstraintOnFilter() throws IOException {
+    this.addDocuments();
+
+    final SirenCachingWrapperFilter filter = new SirenCachingWrapperFilter(new SirenQueryWrapperFilter(aaa));
+
+    SirenCellQuery cq = new SirenCellQuery(new SirenConstantScoreQuery(filter));
+    cq.setConstraint(0);
+    assertEquals(2, _helper.search(cq).length);
+
+    cq = new SirenCellQuery(new SirenConstantScoreQuery(filter));
+    cq.setConstraint(1);
+    assertEquals(2, _helper.search(cq).length);
+
+    // aaa in the first cell and bbb in the second cell of the same tuple
+    final SirenCellQuery cq1 = new SirenCellQuery(new SirenConstantScoreQuery(filter));
+    cq1.setConstraint(0);
+    final SirenBooleanQuery bq = new SirenBooleanQuery();
+    bq.add(bbb, SirenBooleanClause.Occur.MUST);
+    final SirenCellQuery cq2 = new SirenCellQuery(bq);
+    cq2.setConstraint(1);
+    final SirenTupleQuery tq = new SirenTupleQuery();
+    tq.add(cq1, SirenTupleClause.Occur.MUST);
+    tq.add(cq2, SirenTupleClause.Occur.MUST);
+    final ScoreDoc[] hits = _helper.search(tq);
+    assertEquals(1, hits.length);
+    assertEquals(0, hits[0].doc);
+  }
+
+  @Test
+  public void testCaching() throws IOException {
+    this.addDocuments();
+
+    final SirenCachingWrapperFilter filter = new SirenCachingWrapperFilter(new SirenQueryWrapperFilter(aaa));
+    final IndexReader reader = _helper.getIndexReader();
+    final int nSegments = reader.getSequentialSubReaders().length;
+    final IndexSearcher searcher = new IndexSearcher(reader);
+
+    final SirenConstantScoreQuery q = new SirenConstantScoreQuery(filter);
+    assertEquals(3, searcher.search(q, 10).totalHits);
+    assertEquals(nSegments, filter.missCount);
+    assertEquals(0, filter.hitCount);
+
+    assertEquals(3, searcher.search(q, 10).totalHits);
+    assertEquals(nSegments, filter.missCount);
+    assertEquals(nSegments, filter.hitCount);
+
+    // deletions must be enforced
+    _helper.getIndexWriter().deleteDocuments(new Term(QueryTestingHelper.DEFAULT_FIELD, "bbb"));
+    final IndexReader newReader = _helper.getIndexReader();
+    assertEquals(1, new IndexSearcher(newReader).search(q, 10).totalHits);
+    newReader.close();
+    reader.close();
+  }
+
+  /**
+   * Compare the iteration over a materialised set with the iteration over
+   * the term scorer it was created from.
+   */
+  @Test
+  public void testIntArrayDocTupCelIdSet() throws IOException {
+    for (int i = 0; i < 50; i++) {
+      final StringBuilder builder = new StringBuilder();
+      final int nTuples = random.nextInt(20);
+      for (int j = 0; j < nTuples; j++) {
+        builder.append(random.nextBoolean() ? "\"aaa\" " : "\"bbb\" ");
+        builder.append(random.nextBoolean() ? "\"aaa\" " : "\"bbb\" ");
+        builder.append(". ");
+      }
+      builder.append("\"ccc\" . ");
+      _helper.addDocument(builder.toString());
+    }
+    final IndexReader reader = _helper.getIndexReader();
+    final IndexReader segment = reader.getSequentialSubReaders()[0];
+    final DocTupCelIdSet set = new SirenQueryWrapperFilter(aaa).getDocTupCelIdSet(segment);
+
+    final IntArrayDocTupCelIdSet cached = new IntArrayDocTupCelIdSet(set.iterator());
+    DocTupCelIdSetIterator expected = set.iterator();
+    DocTupCelIdSetIterator actual = cached.iterator();
+    while (expected.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+      assertEquals(expected.entity(), actual.nextDoc());
+      do {
+        assertEquals(expected.tuple(), actual.tuple());
+        assertEquals(expected.cell(), actual.cell());
+        actual.nextPosition();
+      } while (expected.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+      assertEquals(Integer.MAX_VALUE, actual.tuple());
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, actual.nextDoc());
+
+    // random advances
+    expected = set.iterator();
+    actual = cached.iterator();
+    int entity = expected.nextDoc();
+    assertEquals(entity, actual.nextDoc());
+    while (entity != DocIdSetIterator.NO_MORE_DOCS) {
+      final int target = expected.entity() + random.nextInt(2);
+      final int tuple = random.nextInt(20);
+      final int cell = random.nextInt(2);
+      switch (random.nextInt(4)) {
+        case 0:
+          entity = expected.nextDoc();
+          assertEquals(entity, actual.nextDoc());
+          break;
+
+        case 1:
+          entity = expected.advance(target + 1);
+          assertEquals(entity, actual.advance(target + 1));
+          break;
+
+        case 2:
+          entity = expected.advance(target, tuple);
+          assertEquals(entity, actual.advance(target, tuple));
+          break;
+
+        default:
+          entity = expected.advance(target, tuple, cell);
+          assertEquals(entity, actual.advance(target, tuple, cell));
+          break;
+      }
+      if (entity != DocIdSetIterator.NO_MORE_DOCS) {
+        if (expected.tuple() == -1) {
+          // the term scorer skipped to the next entity without moving to
+          // its first cell, while the set is positioned on the first cell
+          expected.nextPosition();
+        }
+        assertEquals(expected.tuple(), actual.tuple());
+        assertEquals(expected.cell(), actual.cell());
+      }
+    }
+    reader.close();
+  }
+
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+
+/**
+ * Search the segments of an index in parallel, from several threads at the
+ * same time, and check that the results are the ones of a sequential search.
+ */
+public class TestSirenConcurrentSearch extends LuceneTestCase {
+
+  private static final int PREDICATES = 5;
+
+  private static final int WORDS = 20;
+
+  private QueryTestingHelper _helper = null;
+
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new WhitespaceAnalyzer(TEST_VERSION_CURRENT),
+      new WhitespaceAnyURIAnalyzer(TEST_VERSION_CURRENT)));
+  }
+
+  @After
+  public void tearDown()
+  throws Exception {
+    super.tearDown();
+    _helper.close();
+  }
+
+  /**
+   * Index random entities, and commit regularly to create several segments.
+   */
+  private void addRandomDocuments(final int nDocs) throws IOException {
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < nDocs; i++) {
+      final StringBuilder builder = new StringBuilder();
+      final int nTuples = 1 + random.nextInt(5);
+      for (int j = 0; j < nTuples; j++) {
+        builder.append("<http://s> <http://p").append(random.nextInt(PREDICATES)).append("> \"");
+        final int nWords = 1 + random.nextInt(3);
+        for (int k = 0; k < nWords; k++) {
+          builder.append(" w").append(random.nextInt(WORDS));
+        }
+        builder.append("\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, builder.toString(),
+        Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+      if (random.nextInt(50) == 0) {
+        writer.commit();
+      }
+    }
+    writer.commit();
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  private Query randomQuery() {
+    final String word1 = "w" + random.nextInt(WORDS);
+    final String word2 = "w" + random.nextInt(WORDS);
+    switch (random.nextInt(4)) {
+      case 0: { // a predicate and a disjunction of words in the same tuple
+        final SirenCellQuery predicate = new SirenCellQuery(this.term("http://p" + random.nextInt(PREDICATES)));
+        predicate.setConstraint(1);
+        final SirenBooleanQuery bq = new SirenBooleanQuery();
+        bq.add(this.term(word1), SirenBooleanClause.Occur.SHOULD);
+        bq.add(this.term(word2), SirenBooleanClause.Occur.SHOULD);
+        final SirenCellQuery object = new SirenCellQuery(bq);
+        object.setConstraint(2);
+        final SirenTupleQuery tq = new SirenTupleQuery();
+        tq.add(predicate, SirenTupleClause.Occur.MUST);
+        tq.add(object, SirenTupleClause.Occur.MUST);
+        return tq;
+      }
+      case 1: { // two words in the same cell
+        final SirenBooleanQuery bq = new SirenBooleanQuery();
+        bq.add(this.term(word1), SirenBooleanClause.Occur.MUST);
+        bq.add(this.term(word2), SirenBooleanClause.Occur.MUST);
+        return new SirenCellQuery(bq);
+      }
+      case 2: { // a keyword query
+        final SirenBooleanQuery bq = new SirenBooleanQuery();
+        bq.add(this.term(word1), SirenBooleanClause.Occur.SHOULD);
+        bq.add(this.term(word2), SirenBooleanClause.Occur.SHOULD);
+        bq.add(this.term("http://p" + random.nextInt(PREDICATES)), SirenBooleanClause.Occur.MUST_NOT);
+        return bq;
+      }
+      default: { // a prefix rewritten to a filter, excluding a predicate
+        final SirenPrefixQuery prefix = new SirenPrefixQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, "w1"));
+        prefix.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE);
+        final SirenCellQuery object = new SirenCellQuery(prefix);
+        object.setConstraint(2);
+        final SirenCellQuery predicate = new SirenCellQuery(this.term("http://p" + random.nextInt(PREDICATES)));
+        predicate.setConstraint(1);
+        final SirenTupleQuery tq = new SirenTupleQuery();
+        tq.add(object, SirenTupleClause.Occur.MUST);
+        tq.add(predicate, SirenTupleClause.Occur.MUST_NOT);
+        return tq;
+      }
+    }
+  }
+
+  private static void assertSameTopDocs(final String message,
+                                        final TopDocs expected,
+                                        final TopDocs actual) {
+    assertEquals(message, expected.totalHits, actual.totalHits);
+    assertEquals(message, expected.scoreDocs.length, actual.scoreDocs.length);
+    for (int i = 0; i < expected.scoreDocs.length; i++) {
+      assertEquals(message, expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      assertEquals(message, expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+    }
+  }
+
+  @Test
+  public void testParallelSegmentSearch() throws Exception {
+    this.addRandomDocuments(500);
+    final IndexReader reader = _helper.getIndexReader();
+    assertTrue(reader.getSequentialSubReaders().length > 1);
+
+    final Query[] queries = new Query[40];
+    final TopDocs[] expected = new TopDocs[queries.length];
+    final IndexSearcher sequential = new IndexSearcher(reader);
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] = this.randomQuery();
+      expected[i] = sequential.search(queries[i], 20);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final IndexSearcher parallel = new IndexSearcher(reader, executor);
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    final Thread[] threads = new Thread[4];
+    try {
+      for (int t = 0; t < threads.length; t++) {
+        final int offset = t;
+        threads[t] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (int n = 0; n < 10; n++) {
+                for (int i = 0; i < queries.length; i++) {
+                  final int q = (i + offset) % queries.length;
+                  assertSameTopDocs(queries[q].toString(), expected[q],
+                    parallel.search(queries[q], 20));
+                }
+              }
+            }
+            catch (final Throwable e) {
+              failures.add(e);
+            }
+          }
+        };
+        threads[t].start();
+      }
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+    }
+    finally {
+      executor.shutdown();
+      try {
+        assertTrue("the search threads did not terminate",
+          executor.awaitTermination(60, TimeUnit.SECONDS));
+      }
+      finally {
+        parallel.close();
+        sequential.close();
+        reader.close();
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw new AssertionError(failures.get(0));
+    }
+  }
+
+}
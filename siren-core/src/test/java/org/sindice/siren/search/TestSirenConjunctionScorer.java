@@ -29,6 +29,8 @@ package org.sindice.siren.search;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.lucene.search.DocIdSetIterator;
 import org.junit.Test;
@@ -63,6 +65,96 @@ extends AbstractTestSirenScorer {
     assertTrue(scorer.nextDoc() == DocIdSetIterator.NO_MORE_DOCS);
   }
 
+  /**
+   * Iterate over the cells of random entities where a lagging scorer leaves
+   * the entity while skipping to the cell of the other scorer.
+   */
+  @Test
+  public void testNextPositionWithRandomEntities()
+  throws Exception {
+    final List<int[]> expected = new ArrayList<int[]>();
+    final int nEntities = 30;
+    for (int i = 0; i < nEntities; i++) {
+      final StringBuilder builder = new StringBuilder();
+      final int nTuples = 1 + random.nextInt(15);
+      for (int j = 0; j < nTuples; j++) {
+        for (int k = 0; k < 2; k++) {
+          final boolean hasA = random.nextInt(3) == 0;
+          final boolean hasB = random.nextInt(3) == 0;
+          builder.append("\"ccc").append(hasA ? " aaa" : "").append(hasB ? " bbb" : "").append("\" ");
+          if (hasA && hasB) {
+            expected.add(new int[] { i, j, k });
+          }
+        }
+        builder.append(". ");
+      }
+      _helper.addDocument(builder.toString());
+    }
+
+    final SirenConjunctionScorer scorer =
+      this.getConjunctionScorer(new String[] {"aaa", "bbb"});
+    int n = 0;
+    while (scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+      do {
+        assertTrue(n < expected.size());
+        assertEquals(expected.get(n)[0], scorer.entity());
+        assertEquals(expected.get(n)[1], scorer.tuple());
+        assertEquals(expected.get(n)[2], scorer.cell());
+        n++;
+      } while (scorer.nextPosition() != DocIdSetIterator.NO_MORE_DOCS);
+    }
+    assertEquals(expected.size(), n);
+
+    // advance to the next entity after the first matching cell
+    final SirenConjunctionScorer scorer2 =
+      this.getConjunctionScorer(new String[] {"aaa", "bbb"});
+    int previous = -1;
+    for (final int[] match : expected) {
+      if (match[0] != previous && match[0] % 2 == 0) {
+        assertEquals(match[0], scorer2.advance(match[0]));
+        assertEquals(match[1], scorer2.tuple());
+        assertEquals(match[2], scorer2.cell());
+        // move to the end of the entity, then to the next entity
+        while (scorer2.nextPosition() != DocIdSetIterator.NO_MORE_DOCS);
+      }
+      previous = match[0];
+    }
+  }
+
+  /**
+   * The conjunction is driven by its rarest term, whatever the order of the
+   * terms.
+   */
+  @Test
+  public void testCostWithRareTermLast()
+  throws Exception {
+    final List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 50; i++) {
+      final boolean hasB = i % 10 == 0;
+      final boolean hasC = i % 2 == 0;
+      _helper.addDocument("\"aaa" + (hasB ? " bbb" : "") + (hasC ? " ccc" : "") + "\" . ");
+      if (hasB && hasC) {
+        expected.add(i);
+      }
+    }
+
+    final SirenConjunctionScorer scorer =
+      this.getConjunctionScorer(new String[] {"aaa", "ccc", "bbb"});
+    assertEquals(5, scorer.cost());
+    for (final int entity : expected) {
+      assertEquals(entity, scorer.nextDoc());
+      assertEquals(0, scorer.tuple());
+      assertEquals(0, scorer.cell());
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, scorer.nextDoc());
+
+    final SirenConjunctionScorer scorer2 =
+      this.getConjunctionScorer(new String[] {"aaa", "ccc", "bbb"});
+    assertEquals(20, scorer2.advance(11));
+    assertEquals(30, scorer2.advance(21));
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, scorer2.advance(41));
+  }
+
   @Test
   public void testNoNext() throws IOException {
     _helper.addDocument("\"eee\" . \"ddd\" . ");
@@ -44,6 +44,24 @@ import org.sindice.siren.search.SirenScorer.InvalidCallException;
 public class TestSirenExactPhraseScorer
 extends AbstractTestSirenScorer {
 
+  /**
+   * The cost of the phrase is the number of entities containing its rarest
+   * term, or unknown without the segment reader.
+   */
+  @Test
+  public void testCost()
+  throws Exception {
+    final String field = "content";
+    _helper.addDocument("\"word1 word2\" . ");
+    _helper.addDocument("\"word1 word3\" . ");
+    _helper.addDocument("\"word1 word2\" . ");
+
+    assertEquals(2, this.getExactScorer(field,
+      new String[] { "word1", "word2" }).cost());
+    assertEquals(Integer.MAX_VALUE, this.getExactScorer(field,
+      new int[] { 0, 1 }, new String[] { "word1", "word2" }).cost());
+  }
+
   /**
    * Test exact phrase scorer: should not match two words in separate cells
    *
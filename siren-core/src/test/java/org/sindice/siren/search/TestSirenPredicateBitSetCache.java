@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+
+public class TestSirenPredicateBitSetCache extends LuceneTestCase {
+
+  private QueryTestingHelper _helper = null;
+
+  @Override
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new StandardAnalyzer(TEST_VERSION_CURRENT),
+      new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+    _helper.addDocument("<s> <name> \"aaa\" . <s> <knows> <name> . ");
+    _helper.addDocument("<name> <type> \"bbb\" . ");
+    _helper.addDocument("<s> <name> \"bbb\" . <s> <name> \"ccc\" . ");
+    _helper.addDocument("<s> <type> <name> . ");
+    _helper.addDocument("<s> <knows> \"ccc\" . <s> <name> \"ddd\" . ");
+    // a single segment
+    _helper.getIndexWriter().optimize();
+    _helper.getIndexWriter().commit();
+  }
+
+  @Override
+  @After
+  public void tearDown()
+  throws Exception {
+    SirenPredicateBitSetCache.setDefault(null);
+    _helper.close();
+    super.tearDown();
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  private SirenCellQuery predicate(final String text) {
+    final SirenCellQuery cq = new SirenCellQuery(this.term(text));
+    cq.setConstraint(SirenPredicateBitSetCache.PREDICATE_CELL);
+    return cq;
+  }
+
+  private SirenTupleQuery tuple(final String predicate, final String object) {
+    final SirenCellQuery o = new SirenCellQuery(this.term(object));
+    o.setConstraint(2);
+    final SirenTupleQuery tq = new SirenTupleQuery();
+    tq.add(this.predicate(predicate), SirenTupleClause.Occur.MUST);
+    tq.add(o, SirenTupleClause.Occur.MUST);
+    return tq;
+  }
+
+  /**
+   * Checks that the query returns the same entities and scores with the cache
+   * than without.
+   */
+  private void assertSameResults(final SirenPredicateBitSetCache cache,
+                                 final Query query)
+  throws IOException {
+    SirenPredicateBitSetCache.setDefault(null);
+    final ScoreDoc[] expected = _helper.search(query);
+    SirenPredicateBitSetCache.setDefault(cache);
+    final ScoreDoc[] actual = _helper.search(query);
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].doc, actual[i].doc);
+      assertEquals(expected[i].score, actual[i].score, 0f);
+    }
+  }
+
+  private int count(final Query query) throws IOException {
+    final IndexSearcher searcher = _helper.getSearcher();
+    final SirenTotalHitCountCollector collector = new SirenTotalHitCountCollector();
+    searcher.search(query, collector);
+    searcher.close();
+    return collector.getTotalHits();
+  }
+
+  @Test
+  public void testSameResults() throws IOException {
+    final SirenPredicateBitSetCache cache = new SirenPredicateBitSetCache(1024, 1);
+    this.assertSameResults(cache, this.predicate("name"));
+    this.assertSameResults(cache, this.predicate("knows"));
+    this.assertSameResults(cache, this.predicate("zzz"));
+    this.assertSameResults(cache, this.tuple("name", "bbb"));
+    this.assertSameResults(cache, this.tuple("name", "ccc"));
+    this.assertSameResults(cache, this.tuple("knows", "ddd"));
+    assertEquals(3, _helper.search(this.predicate("name")).length);
+    assertEquals(1, _helper.search(this.tuple("name", "ccc")).length);
+    assertTrue(cache.getHitCount() > 0);
+  }
+
+  @Test
+  public void testCount() throws IOException {
+    final SirenPredicateBitSetCache cache = new SirenPredicateBitSetCache(1024, 1);
+    SirenPredicateBitSetCache.setDefault(cache);
+    assertEquals(3, this.count(this.predicate("name")));
+    assertEquals(1, cache.getMissCount());
+    assertEquals(3, this.count(this.predicate("name")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, this.count(this.predicate("type")));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testCountWithDeletions() throws IOException {
+    final SirenPredicateBitSetCache cache = new SirenPredicateBitSetCache(1024, 1);
+    SirenPredicateBitSetCache.setDefault(cache);
+    assertEquals(3, this.count(this.predicate("name")));
+    _helper.getIndexWriter().deleteDocuments(new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa"));
+    assertEquals(2, this.count(this.predicate("name")));
+    this.assertSameResults(cache, this.predicate("name"));
+  }
+
+  @Test
+  public void testMinDocFreq() throws IOException {
+    final SirenPredicateBitSetCache cache = new SirenPredicateBitSetCache(1024, 3);
+    SirenPredicateBitSetCache.setDefault(cache);
+    // in 5 entities
+    assertEquals(3, this.count(this.predicate("name")));
+    assertEquals(1, cache.size());
+    // in 2 entities only
+    assertEquals(2, this.count(this.predicate("type")));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getMissCount());
+    this.assertSameResults(cache, this.predicate("type"));
+  }
+
+  @Test
+  public void testMaxBytes() throws IOException {
+    // one bit set of the segment
+    final SirenPredicateBitSetCache cache = new SirenPredicateBitSetCache(8, 1);
+    SirenPredicateBitSetCache.setDefault(cache);
+    assertEquals(3, this.count(this.predicate("name")));
+    assertEquals(1, cache.size());
+    assertEquals(8, cache.ramBytesUsed());
+    assertEquals(2, this.count(this.predicate("type")));
+    assertEquals(1, cache.size());
+    assertEquals(8, cache.ramBytesUsed());
+    assertEquals(3, this.count(this.predicate("name")));
+    assertEquals(3, cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+  }
+
+}
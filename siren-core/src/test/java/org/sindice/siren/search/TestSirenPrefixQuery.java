@@ -32,6 +32,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
@@ -92,6 +93,71 @@ public class TestSirenPrefixQuery extends LuceneTestCase {
     directory.close();
   }
 
+  /**
+   * The filter rewrite must match the same entities than the boolean query
+   * rewrite, including the cell constraints, and the auto rewrite must switch
+   * to it for a large number of terms.
+   */
+  public void testFilterRewrite() throws Exception {
+    final Directory directory = newDirectory();
+    final RandomIndexWriter writer = new RandomIndexWriter(random, directory,
+      new TupleAnalyzer(TEST_VERSION_CURRENT,
+        new WhitespaceAnalyzer(TEST_VERSION_CURRENT),
+        new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+
+    final int nDocs = atLeast(500);
+    for (int i = 0; i < nDocs; i++) {
+      final StringBuilder builder = new StringBuilder();
+      final int nTuples = 1 + random.nextInt(3);
+      for (int j = 0; j < nTuples; j++) {
+        builder.append("<http://fake.subject> \"");
+        builder.append(random.nextBoolean() ? "/computers/" : "/phones/");
+        builder.append(random.nextInt(1000));
+        builder.append("\" \"/computers/");
+        builder.append(random.nextInt(1000));
+        builder.append("\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(newField("category", builder.toString(), Field.Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+    }
+
+    final IndexReader reader = writer.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+
+    for (int cell = -1; cell < 3; cell++) {
+      final SirenPrefixQuery bq = new SirenPrefixQuery(new Term("category", "/computers/1"));
+      bq.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE);
+      final SirenPrefixQuery fq = new SirenPrefixQuery(new Term("category", "/computers/1"));
+      fq.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE);
+
+      final SirenCellQuery bcq = new SirenCellQuery(bq);
+      final SirenCellQuery fcq = new SirenCellQuery(fq);
+      if (cell != -1) {
+        bcq.setConstraint(cell);
+        fcq.setConstraint(cell);
+      }
+      final ScoreDoc[] expected = searcher.search(bcq, null, nDocs).scoreDocs;
+      final ScoreDoc[] actual = searcher.search(fcq, null, nDocs).scoreDocs;
+      assertEquals(expected.length, actual.length);
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(expected[i].doc, actual[i].doc);
+      }
+    }
+
+    // more terms than the term count cutoff
+    final SirenPrefixQuery query = new SirenPrefixQuery(new Term("category", "/computers"));
+    final Query q = searcher.rewrite(query);
+    assertTrue(q instanceof SirenConstantScoreQuery);
+    assertTrue(((SirenConstantScoreQuery) q).getFilter() instanceof SirenMultiTermQueryWrapperFilter);
+    assertEquals(nDocs, searcher.search(query, null, nDocs).totalHits);
+
+    writer.close();
+    searcher.close();
+    reader.close();
+    directory.close();
+  }
+
   private String getTriple(final String text) {
     return "<http://fake.subject> <http://fake.predicate> \"" + text + "\" .\n";
   }
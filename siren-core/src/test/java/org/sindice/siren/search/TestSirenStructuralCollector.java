@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+
+public class TestSirenStructuralCollector extends LuceneTestCase {
+
+  private QueryTestingHelper _helper = null;
+
+  @Override
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new StandardAnalyzer(TEST_VERSION_CURRENT),
+      new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+    _helper.addDocument("\"aaa\" \"bbb\" . \"ccc\" \"aaa aaa\" . ");
+    _helper.addDocument("\"bbb\" \"aaa\" . ");
+    _helper.addDocument("\"ccc\" . ");
+    _helper.addDocument("\"ddd\" \"ccc\" . \"aaa\" \"ccc\" . ");
+  }
+
+  @Override
+  @After
+  public void tearDown()
+  throws Exception {
+    _helper.close();
+    super.tearDown();
+  }
+
+  /**
+   * Records the matches as "entity:tuple:cell" strings.
+   */
+  private static class MatchCollector extends SirenStructuralCollector {
+
+    final List<String> matches = new ArrayList<String>();
+    private int docBase;
+
+    @Override
+    public void setNextReader(final IndexReader reader, final int docBase) {
+      this.docBase = docBase;
+    }
+
+    @Override
+    public void collect(final int entity, final int tuple, final int cell) {
+      matches.add((docBase + entity) + ":" + tuple + ":" + cell);
+    }
+
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  private SirenCellQuery cell(final SirenPrimitiveQuery query, final int constraint) {
+    final SirenCellQuery cq = new SirenCellQuery(query);
+    cq.setConstraint(constraint);
+    return cq;
+  }
+
+  private List<String> collect(final Query query) throws IOException {
+    final IndexSearcher searcher = _helper.getSearcher();
+    final MatchCollector collector = new MatchCollector();
+    collector.collect(searcher, query, searcher.search(query, 10));
+    searcher.close();
+    return collector.matches;
+  }
+
+  @Test
+  public void testTermQuery() throws IOException {
+    assertEquals(Arrays.asList("0:0:0", "0:1:1", "1:0:1", "3:1:0"),
+      this.collect(this.term("aaa")));
+  }
+
+  @Test
+  public void testCellQuery() throws IOException {
+    assertEquals(Arrays.asList("0:1:1", "1:0:1"),
+      this.collect(this.cell(this.term("aaa"), 1)));
+  }
+
+  @Test
+  public void testTupleQuery() throws IOException {
+    final SirenTupleQuery tq = new SirenTupleQuery();
+    tq.add(this.cell(this.term("aaa"), 0), SirenTupleClause.Occur.MUST);
+    tq.add(this.cell(this.term("ccc"), 1), SirenTupleClause.Occur.MUST);
+    final int max = Integer.MAX_VALUE;
+    assertEquals(Arrays.asList("3:1:" + max), this.collect(tq));
+  }
+
+  @Test
+  public void testGivenEntities() throws IOException {
+    final IndexSearcher searcher = _helper.getSearcher();
+    final MatchCollector collector = new MatchCollector();
+    // unsorted, duplicated, and not matching
+    collector.collect(searcher, this.term("ccc"), new int[] { 3, 1, 0, 3 });
+    searcher.close();
+    assertEquals(Arrays.asList("0:1:0", "3:0:1", "3:1:1"), collector.matches);
+  }
+
+  /**
+   * A requested entity not matching the query moves the scorer of the segment
+   * to the next requested entity, which must still be collected.
+   */
+  @Test
+  public void testGivenEntitiesSameSegment() throws IOException {
+    _helper.reset();
+    _helper.addDocument("\"aaa\" . ");
+    _helper.addDocument("\"bbb\" . ");
+    _helper.addDocument("\"aaa\" \"bbb\" . ");
+    _helper.getIndexWriter().optimize();
+    final IndexSearcher searcher = _helper.getSearcher();
+    assertEquals(1, searcher.getSubReaders().length);
+    final MatchCollector collector = new MatchCollector();
+    collector.collect(searcher, this.term("aaa"), new int[] { 1, 2 });
+    searcher.close();
+    assertEquals(Arrays.asList("2:0:0"), collector.matches);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNotSirenQuery() throws IOException {
+    final IndexSearcher searcher = _helper.getSearcher();
+    try {
+      new MatchCollector().collect(searcher,
+        new TermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa")), new int[] { 0 });
+    }
+    finally {
+      searcher.close();
+    }
+  }
+
+}
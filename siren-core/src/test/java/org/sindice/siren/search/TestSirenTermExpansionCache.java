@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSirenTermExpansionCache extends LuceneTestCase {
+
+  private static final String FIELD = "field";
+
+  private Directory directory;
+  private IndexWriter writer;
+  private SirenTermExpansionCache cache;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = newDirectory();
+    writer = new IndexWriter(directory, new IndexWriterConfig(TEST_VERSION_CURRENT,
+      new WhitespaceAnalyzer(TEST_VERSION_CURRENT)));
+    cache = new SirenTermExpansionCache(2, 4);
+    SirenTermExpansionCache.setDefault(cache);
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    SirenTermExpansionCache.setDefault(null);
+    writer.close();
+    directory.close();
+    super.tearDown();
+  }
+
+  private void addDocument(final String data) throws IOException {
+    final Document doc = new Document();
+    doc.add(new Field(FIELD, data, Field.Store.NO, Field.Index.ANALYZED));
+    writer.addDocument(doc);
+  }
+
+  /**
+   * Returns the terms and boosts of the rewritten query
+   */
+  private List<String> rewrite(final IndexReader reader, final SirenMultiTermQuery query)
+  throws IOException {
+    query.setRewriteMethod(SirenMultiTermQuery.SCORING_BOOLEAN_QUERY_REWRITE);
+    final SirenBooleanQuery bq = (SirenBooleanQuery) query.rewrite(reader);
+    final List<String> terms = new ArrayList<String>();
+    for (final SirenBooleanClause clause : bq.clauses()) {
+      final SirenTermQuery tq = (SirenTermQuery) clause.getQuery();
+      terms.add(tq.getTerm().text() + "^" + tq.getBoost());
+    }
+    return terms;
+  }
+
+  private SirenPrefixQuery prefix(final String prefix) {
+    return new SirenPrefixQuery(new Term(FIELD, prefix));
+  }
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    this.addDocument("aaa aab abb");
+    this.addDocument("aab bbb");
+    writer.commit();
+    final IndexReader reader = IndexReader.open(directory);
+
+    final List<String> expected = this.rewrite(reader, this.prefix("aa"));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.size());
+
+    // same pattern, different boost
+    final SirenPrefixQuery q = this.prefix("aa");
+    q.setBoost(2);
+    final List<String> boosted = this.rewrite(reader, q);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, boosted.size());
+    assertEquals("aaa^2.0", boosted.get(0));
+
+    q.setBoost(1);
+    assertEquals(expected, this.rewrite(reader, q));
+    assertEquals(2, cache.getHitCount());
+
+    this.rewrite(reader, this.prefix("b"));
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+
+    // evicts the least recently used expansion, "aa"
+    this.rewrite(reader, this.prefix("a"));
+    assertEquals(3, cache.getMissCount());
+    assertEquals(2, cache.size());
+    this.rewrite(reader, this.prefix("aa"));
+    assertEquals(4, cache.getMissCount());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHitCount());
+    reader.close();
+  }
+
+  @Test
+  public void testSegments() throws IOException {
+    this.addDocument("aaa aab");
+    writer.commit();
+    IndexReader reader = IndexReader.open(directory);
+    assertEquals(2, this.rewrite(reader, this.prefix("a")).size());
+    assertEquals(1, cache.getMissCount());
+
+    // a new segment: only its expansion is missing
+    this.addDocument("aab aac");
+    writer.commit();
+    final IndexReader newReader = reader.reopen();
+    reader.close();
+    reader = newReader;
+    assertEquals(2, reader.getSequentialSubReaders().length);
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+    final SirenTermExpansionCache old = SirenTermExpansionCache.getDefault();
+    SirenTermExpansionCache.setDefault(null);
+    final List<String> expected = this.rewrite(reader, this.prefix("a"));
+    SirenTermExpansionCache.setDefault(old);
+    assertEquals(expected, this.rewrite(reader, this.prefix("a")));
+    assertEquals(2, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(3, expected.size());
+
+    // the document frequencies are summed over the segments: 1 + 2 + 1
+    final SirenConstantScoreAutoRewrite auto = new SirenConstantScoreAutoRewrite();
+    auto.setDocCountPercent(100. * 4 / reader.maxDoc());
+    final SirenPrefixQuery q = this.prefix("aa");
+    q.setRewriteMethod(auto);
+    assertNotNull(((SirenConstantScoreQuery) q.rewrite(reader)).getFilter());
+    auto.setDocCountPercent(100. * 5 / reader.maxDoc());
+    assertNull(((SirenConstantScoreQuery) q.rewrite(reader)).getFilter());
+    reader.close();
+  }
+
+  @Test
+  public void testTooLarge() throws IOException {
+    this.addDocument("aaa aab aac aad aae");
+    writer.commit();
+    final IndexReader reader = IndexReader.open(directory);
+    assertEquals(5, this.rewrite(reader, this.prefix("a")).size());
+    assertEquals(5, this.rewrite(reader, this.prefix("a")).size());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    reader.close();
+  }
+
+}
@@ -29,12 +29,17 @@ package org.sindice.siren.search;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DefaultSimilarity;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Scorer;
 import org.junit.Test;
 
 public class TestSirenTermScorer extends AbstractTestSirenScorer {
@@ -180,6 +185,146 @@ public class TestSirenTermScorer extends AbstractTestSirenScorer {
     assertEquals(1.0, scorer.score(), 0.01);
   }
 
+  /**
+   * The first position is loaded lazily after {@link SirenTermScorer#nextDoc()}:
+   * check that the scorer behaves as if it was positioned on the first cell
+   * [SRN-24].
+   */
+  @Test
+  public void testLazyFirstPosition() throws IOException {
+    _helper.addDocument("\"aaa\" . \"aaa\" . \"bbb aaa\" . ");
+
+    final Term t = new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa");
+    final IndexReader reader = _helper.getIndexReader();
+
+    // accessors load the first position
+    SirenTermScorer scorer = new SirenTermScorer(new ConstantWeight(),
+      reader.termPositions(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD));
+    assertEquals(0, scorer.nextDoc());
+    assertEquals(0, scorer.tuple());
+    assertEquals(0, scorer.cell());
+    assertEquals(0, scorer.pos());
+    assertEquals(1, scorer.nextPosition());
+    assertEquals(1, scorer.tuple());
+
+    // nextPosition moves to the second position
+    scorer = new SirenTermScorer(new ConstantWeight(),
+      reader.termPositions(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD));
+    assertEquals(0, scorer.nextDoc());
+    assertEquals(1, scorer.nextPosition());
+    assertEquals(1, scorer.tuple());
+    assertEquals(0, scorer.cell());
+
+    // advance within the entity starts after the first position
+    scorer = new SirenTermScorer(new ConstantWeight(),
+      reader.termPositions(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD));
+    assertEquals(0, scorer.nextDoc());
+    assertEquals(0, scorer.advance(0, 0, 0));
+    assertEquals(1, scorer.tuple());
+    assertEquals(0, scorer.advance(0, 2));
+    assertEquals(2, scorer.tuple());
+    assertEquals(0, scorer.cell());
+    assertEquals(3, scorer.pos());
+    assertEquals(DocTupCelIdSetIterator.NO_MORE_POS, scorer.nextPosition());
+  }
+
+  /**
+   * Check that collecting the entities in bulk gives the same entities and
+   * scores than collecting them one at a time.
+   */
+  @Test
+  public void testBulkScore() throws IOException {
+    for (int i = 0; i < 100; i++) {
+      final StringBuilder builder = new StringBuilder();
+      for (int j = 0; j < i % 7; j++) {
+        builder.append("\"renaud delbru\" . ");
+      }
+      builder.append("\"delbru\" . ");
+      _helper.addDocument(builder.toString());
+    }
+
+    final Term t = new Term(QueryTestingHelper.DEFAULT_FIELD, "renaud");
+    final IndexReader reader = _helper.getIndexReader();
+
+    final SirenTermScorer scorer = new SirenTermScorer(new ConstantWeight(),
+      reader.termPositions(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD));
+    final ScoreCollector expected = new ScoreCollector();
+    scorer.score(expected);
+
+    final SirenTermScorer bulkScorer = new SirenTermScorer(new ConstantWeight(),
+      reader.termPositions(t), reader.termDocs(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD));
+    final ScoreCollector actual = new ScoreCollector();
+    bulkScorer.score(actual);
+
+    assertEquals(85, expected.docs.size());
+    assertEquals(expected.docs, actual.docs);
+    assertEquals(expected.scores, actual.scores);
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, bulkScorer.docID());
+  }
+
+  /**
+   * Check that a scorer created without positions reads the entities in bulk,
+   * and opens the positions when it is iterated.
+   */
+  @Test
+  public void testLazyTermPositions() throws IOException {
+    _helper.addDocument("\"aaa\" . \"bbb aaa\" . ");
+    _helper.addDocument("\"bbb\" . ");
+    _helper.addDocument("\"aaa\" . ");
+
+    final Term t = new Term(QueryTestingHelper.DEFAULT_FIELD, "aaa");
+    final IndexReader reader = _helper.getIndexReader();
+
+    SirenTermScorer scorer = new SirenTermScorer(new ConstantWeight(), null,
+      reader.termDocs(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD), reader, t);
+    final ScoreCollector collector = new ScoreCollector();
+    scorer.score(collector);
+    assertEquals(Arrays.asList(0, 2), collector.docs);
+
+    scorer = new SirenTermScorer(new ConstantWeight(), null,
+      reader.termDocs(t), new DefaultSimilarity(),
+      reader.norms(QueryTestingHelper.DEFAULT_FIELD), reader, t);
+    assertEquals(0, scorer.nextDoc());
+    assertEquals(0, scorer.tuple());
+    assertTrue(scorer.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+    assertEquals(1, scorer.tuple());
+    assertEquals(0, scorer.cell());
+    // the entities are collected one at a time once the scorer is iterated
+    final ScoreCollector remaining = new ScoreCollector();
+    scorer.score(remaining);
+    assertEquals(Arrays.asList(2), remaining.docs);
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, scorer.docID());
+  }
+
+  private static class ScoreCollector extends Collector {
+
+    final List<Integer> docs = new ArrayList<Integer>();
+    final List<Float> scores = new ArrayList<Float>();
+    private Scorer scorer;
+
+    @Override
+    public void setScorer(final Scorer scorer) { this.scorer = scorer; }
+
+    @Override
+    public void collect(final int doc) throws IOException {
+      docs.add(doc);
+      scores.add(scorer.score());
+    }
+
+    @Override
+    public void setNextReader(final IndexReader reader, final int docBase) {}
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() { return false; }
+
+  }
+
   ///////////////////////////////////
   //
   // END OF TESTS
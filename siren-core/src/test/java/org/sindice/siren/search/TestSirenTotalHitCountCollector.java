@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+
+public class TestSirenTotalHitCountCollector extends LuceneTestCase {
+
+  private QueryTestingHelper _helper = null;
+
+  @Before
+  public void setUp()
+  throws Exception {
+    super.setUp();
+    _helper = new QueryTestingHelper(new TupleAnalyzer(TEST_VERSION_CURRENT,
+      new StandardAnalyzer(TEST_VERSION_CURRENT),
+      new AnyURIAnalyzer(TEST_VERSION_CURRENT)));
+    _helper.addDocument("\"aaa\" \"bbb\" . \"ccc\" \"aaa bbb\" . ");
+    _helper.addDocument("\"bbb\" \"aaa\" . ");
+    _helper.addDocument("\"ccc\" . ");
+    _helper.addDocument("\"aaa\" \"ccc\" . \"ddd\" \"aaa\" . ");
+    _helper.addDocument("\"aaa\" \"ddd\" . ");
+  }
+
+  @After
+  public void tearDown()
+  throws Exception {
+    super.tearDown();
+    _helper.close();
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  private SirenCellQuery cell(final SirenPrimitiveQuery query, final int constraint) {
+    final SirenCellQuery cq = new SirenCellQuery(query);
+    cq.setConstraint(constraint);
+    return cq;
+  }
+
+  /**
+   * Checks the count and the existence against a search
+   */
+  private void assertCount(final int expected, final Query query)
+  throws IOException {
+    final IndexSearcher searcher = _helper.getSearcher();
+    assertEquals(expected, searcher.search(query, 10).totalHits);
+    final SirenTotalHitCountCollector collector = new SirenTotalHitCountCollector();
+    searcher.search(query, collector);
+    assertEquals(expected, collector.getTotalHits());
+    assertEquals(expected > 0, SirenTotalHitCountCollector.exists(searcher, query));
+    searcher.close();
+  }
+
+  private void assertCounts(final int aaa, final int aaaInFirstCell,
+                            final int ccc, final int aaaOrCcc)
+  throws IOException {
+    this.assertCount(aaa, this.term("aaa"));
+    this.assertCount(0, this.term("zzz"));
+    this.assertCount(aaaInFirstCell, this.cell(this.term("aaa"), 0));
+
+    final SirenBooleanQuery bq = new SirenBooleanQuery();
+    bq.add(this.term("aaa"), SirenBooleanClause.Occur.SHOULD);
+    bq.add(this.term("ccc"), SirenBooleanClause.Occur.SHOULD);
+    this.assertCount(aaaOrCcc, bq);
+
+    // the cells with aaa only
+    final SirenBooleanQuery bqNot = new SirenBooleanQuery();
+    bqNot.add(this.term("aaa"), SirenBooleanClause.Occur.MUST);
+    bqNot.add(this.term("bbb"), SirenBooleanClause.Occur.MUST_NOT);
+    bqNot.add(this.term("ddd"), SirenBooleanClause.Occur.MUST_NOT);
+    this.assertCount(aaa, bqNot);
+
+    final SirenTupleQuery tq = new SirenTupleQuery();
+    tq.add(this.cell(this.term("aaa"), 0), SirenTupleClause.Occur.MUST);
+    tq.add(this.cell(this.term("ccc"), 1), SirenTupleClause.Occur.MUST);
+    this.assertCount(1, tq);
+
+    final SirenFilter filter = new SirenCachingWrapperFilter(new SirenQueryWrapperFilter(this.term("ccc")));
+    this.assertCount(ccc, new SirenConstantScoreQuery(filter));
+    // from the cache
+    this.assertCount(ccc, new SirenConstantScoreQuery(filter));
+    this.assertCount(ccc, new SirenConstantScoreQuery(this.term("ccc")));
+  }
+
+  @Test
+  public void testCount() throws IOException {
+    this.assertCounts(4, 3, 3, 5);
+  }
+
+  @Test
+  public void testCountWithDeletions() throws IOException {
+    _helper.getIndexWriter().deleteDocuments(new Term(QueryTestingHelper.DEFAULT_FIELD, "bbb"));
+    this.assertCounts(2, 2, 2, 3);
+  }
+
+}
@@ -75,9 +75,10 @@ public class TestSirenWildcardQuery extends LuceneTestCase {
   }
 
   /**
-   * Tests if the ConstantScore filter rewrite return an exception
+   * Tests if the ConstantScore filter rewrite returns a SirenConstantScoreQuery
+   * over a SirenMultiTermQueryWrapperFilter
    */
-  @Test(expected=UnsupportedOperationException.class)
+  @Test
   public void testFilterRewrite() throws IOException {
       final Directory indexStore = this.getIndexStore("field", new String[]{"nowildcard", "nowildcardx"});
       final IndexSearcher searcher = new IndexSearcher(indexStore, true);
@@ -90,7 +91,9 @@ public class TestSirenWildcardQuery extends LuceneTestCase {
         wq.setBoost(0.2F);
         final Query q = searcher.rewrite(wq);
         assertTrue(q instanceof SirenConstantScoreQuery);
+        assertTrue(((SirenConstantScoreQuery) q).getFilter() instanceof SirenMultiTermQueryWrapperFilter);
         assertEquals(q.getBoost(), wq.getBoost());
+        this.assertMatches(searcher, wq, 1);
       }
       finally {
         searcher.close();
@@ -154,6 +157,27 @@ public class TestSirenWildcardQuery extends LuceneTestCase {
       indexStore.close();
   }
 
+  /**
+   * Tests that the doc count cutoff of the default auto rewrite, 0.1% of the
+   * documents, does not force the filter rewrite on an index of less than
+   * 1000 documents.
+   */
+  public void testAutoRewriteSmallIndex() throws IOException {
+    final Directory indexStore = this.getIndexStore("field", new String[]{"prefixa", "prefixb"});
+    final IndexSearcher searcher = new IndexSearcher(indexStore, true);
+
+    final SirenMultiTermQuery wq = new SirenWildcardQuery(new Term("field", "prefix*"));
+    wq.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_AUTO_REWRITE_DEFAULT);
+    final Query q = searcher.rewrite(wq);
+    assertTrue(q instanceof SirenConstantScoreQuery);
+    assertTrue(((SirenConstantScoreQuery) q).getQuery() instanceof SirenBooleanQuery);
+    assertNull(((SirenConstantScoreQuery) q).getFilter());
+    this.assertMatches(searcher, wq, 2);
+
+    searcher.close();
+    indexStore.close();
+  }
+
   /**
    * Tests if a SirenWildcardQuery with an empty term is rewritten to an empty
    * SirenBooleanQuery
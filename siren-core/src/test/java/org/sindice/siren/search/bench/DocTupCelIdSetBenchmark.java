@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.BitmapDocTupCelIdSet;
+import org.sindice.siren.search.DocTupCelIdSet;
+import org.sindice.siren.search.DocTupCelIdSetBuilder;
+import org.sindice.siren.search.DocTupCelIdSetIterator;
+import org.sindice.siren.search.IntArrayDocTupCelIdSet;
+import org.sindice.siren.search.SortedVIntDocTupCelIdSet;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compare the iteration speed of the {@link DocTupCelIdSet} encodings. Their
+ * memory footprint is printed by {@link #main(String[])} before running the
+ * benchmark.
+ */
+public class DocTupCelIdSetBenchmark extends SirenBenchmark {
+
+  /** Number of entities */
+  private static final int ENTITIES = 100000;
+
+  /** Average number of matching cells per tuple: 1 (sparse) to 64 (dense) */
+  @Param({"1", "8", "64"}) private int cells;
+
+  @Param({"IntArray", "SortedVInt", "Bitmap"}) private String encoding;
+
+  private DocTupCelIdSet set;
+
+  @Override
+  protected void setUp() throws Exception {
+    set = build(createBuilder(rand, cells), encoding);
+  }
+
+  private static DocTupCelIdSetBuilder createBuilder(final Random rand,
+                                                     final int cells) {
+    rand.setSeed(42);
+    final DocTupCelIdSetBuilder builder = new DocTupCelIdSetBuilder();
+    int entity = 0;
+    for (int i = 0; i < ENTITIES; i++) {
+      entity += 1 + rand.nextInt(10);
+      final int nTuples = 1 + rand.nextInt(10);
+      int tuple = 0;
+      for (int j = 0; j < nTuples; j++) {
+        tuple += 1 + rand.nextInt(5);
+        for (int k = 0; k < 2 * cells; k++) {
+          if (rand.nextBoolean()) {
+            builder.add(entity, tuple, k);
+          }
+        }
+      }
+    }
+    return builder;
+  }
+
+  private static DocTupCelIdSet build(final DocTupCelIdSetBuilder builder,
+                                      final String encoding) {
+    if (encoding.equals("IntArray")) {
+      return builder.buildIntArray();
+    }
+    else if (encoding.equals("SortedVInt")) {
+      return builder.buildSortedVInt();
+    }
+    return builder.buildBitmap();
+  }
+
+  public long timeIteration(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final DocTupCelIdSetIterator it = set.iterator();
+      while (it.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        do {
+          counter += it.cell();
+        } while (it.nextPosition() != DocTupCelIdSetIterator.NO_MORE_POS);
+      }
+    }
+    return counter;
+  }
+
+  public long timeEntityIteration(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final DocTupCelIdSetIterator it = set.iterator();
+      while (it.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        counter += it.entity();
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * Skip to the third cell of the fourth tuple of every hundredth entity, as
+   * a conjunction with a rarer clause does.
+   */
+  public long timeAdvance(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final DocTupCelIdSetIterator it = set.iterator();
+      int entity = 0;
+      while ((entity = it.advance(entity + 100, 4, 2)) != DocIdSetIterator.NO_MORE_DOCS) {
+        counter += it.tuple();
+      }
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    for (final int cells : new int[] { 1, 8, 64 }) {
+      final DocTupCelIdSetBuilder builder = createBuilder(new Random(), cells);
+      final IntArrayDocTupCelIdSet intArray = builder.buildIntArray();
+      final SortedVIntDocTupCelIdSet vint = builder.buildSortedVInt();
+      final BitmapDocTupCelIdSet bitmap = builder.buildBitmap();
+      System.out.println("cells=" + cells + " triples=" + builder.size() +
+        " IntArray=" + intArray.sizeInBytes() +
+        "B SortedVInt=" + vint.sizeInBytes() +
+        "B Bitmap=" + bitmap.sizeInBytes() + "B");
+    }
+    Runner.main(DocTupCelIdSetBenchmark.class, args);
+  }
+
+}
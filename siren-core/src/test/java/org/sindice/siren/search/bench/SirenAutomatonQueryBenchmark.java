@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenFuzzyQuery;
+import org.sindice.siren.search.SirenMultiTermQuery;
+import org.sindice.siren.search.SirenWildcardQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compare the rewrite of the wildcard and fuzzy queries over a large number
+ * of distinct URIs, when the terms are enumerated by scanning the term
+ * dictionary, as done by {@link WildcardQuery} and {@link FuzzyQuery}, and
+ * when they are enumerated by intersecting an automaton with the term
+ * dictionary, as done by {@link SirenWildcardQuery} and
+ * {@link SirenFuzzyQuery}.
+ */
+public class SirenAutomatonQueryBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private static final String FIELD = QueryTestingHelper.DEFAULT_FIELD;
+
+  private static final int HOSTS = 1000;
+
+  private static final String[] PATHS = { "resource", "ontology", "property", "page" };
+
+  /** Number of URIs indexed per document */
+  private static final int URIS_PER_DOC = 100;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+
+  /** Number of distinct URIs */
+  @Param({"1000000", "4000000"}) private int uris;
+
+  @Param({"scan", "automaton"}) private String enumeration;
+
+  /** An indexed URI */
+  private String uri;
+
+  @Override
+  protected void setUp() throws Exception {
+    _helper = new QueryTestingHelper(new WhitespaceAnalyzer(matchVersion));
+    final IndexWriter writer = _helper.getIndexWriter();
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < uris; i++) {
+      final String u = this.uri(i);
+      if (i == uris / 2) {
+        uri = u;
+      }
+      builder.append(u).append(' ');
+      if ((i + 1) % URIS_PER_DOC == 0 || i == uris - 1) {
+        final Document doc = new Document();
+        doc.add(new Field(FIELD, builder.toString(), Store.NO, Field.Index.ANALYZED_NO_NORMS));
+        writer.addDocument(doc);
+        builder.setLength(0);
+      }
+    }
+    writer.optimize();
+    writer.commit();
+    _reader = _helper.getIndexReader();
+  }
+
+  /**
+   * Returns a URI such as <code>http://host42.org/resource/x3k9a1</code>.
+   */
+  private String uri(final int i) {
+    return "http://host" + (i % HOSTS) + ".org/" + PATHS[(i / HOSTS) % PATHS.length] +
+      "/" + Integer.toString(i, 36) + Integer.toString(rand.nextInt(1296), 36);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _reader.close();
+    _helper.close();
+  }
+
+  private int rewrite(final Query query) throws IOException {
+    return query.rewrite(_reader).hashCode();
+  }
+
+  /**
+   * Wildcard query on some URIs of a path of ten hosts, rewritten into a
+   * boolean query of all its terms. Without an automaton, it leads to a scan
+   * of the URIs of the hundred hosts sharing the prefix before the wildcard.
+   */
+  public int timeWildcardQuery(final int reps) throws IOException {
+    final String pattern = "http://host4?.org/page/1*";
+    int n = 0;
+    for (int i = 0; i < reps; i++) {
+      final Term term = new Term(FIELD, pattern);
+      if (enumeration.equals("scan")) {
+        final WildcardQuery query = new WildcardQuery(term);
+        query.setRewriteMethod(MultiTermQuery.CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE);
+        n += this.rewrite(query);
+      }
+      else {
+        final SirenWildcardQuery query = new SirenWildcardQuery(term);
+        query.setRewriteMethod(SirenMultiTermQuery.CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE);
+        n += this.rewrite(query);
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Fuzzy query allowing a few edits of an indexed URI, which leads to an edit
+   * distance computation for every URI without an automaton.
+   */
+  public int timeFuzzyQuery(final int reps) throws IOException {
+    int n = 0;
+    for (int i = 0; i < reps; i++) {
+      final Term term = new Term(FIELD, uri);
+      n += this.rewrite(enumeration.equals("scan") ? new FuzzyQuery(term, 0.9f)
+                                                   : new SirenFuzzyQuery(term, 0.9f));
+    }
+    return n;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenAutomatonQueryBenchmark.class, args);
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanClause;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenTermQuery;
+import org.sindice.siren.search.SirenTupleClause;
+import org.sindice.siren.search.SirenTupleQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure the conjunction of a frequent and a rare term within the same cell,
+ * and of a rare predicate and a frequent object within the same tuple.
+ */
+public class SirenConjunctionBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private static final String PREDICATE = "<http://xmlns.com/foaf/0.1/knows>";
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+  private IndexSearcher _searcher = null;
+
+  /** Number of entities */
+  private static final int ENTITIES = 2000;
+
+  /** Number of tuples per entity */
+  @Param({"10", "100", "1000"}) private int tuples;
+
+  /** One tuple out of <code>skew</code> contains the rare term */
+  @Param({"10", "1000"}) private int skew;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnalyzer(matchVersion), new WhitespaceAnyURIAnalyzer(matchVersion)));
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < ENTITIES; i++) {
+      final StringBuilder builder = new StringBuilder();
+      for (int j = 0; j < tuples; j++) {
+        builder.append("<http://s> ");
+        builder.append(rand.nextInt(skew) == 0 ? PREDICATE : "<http://p>");
+        builder.append(rand.nextInt(skew) == 0 ? " \"common rare\"" : " \"common\"");
+        builder.append(rand.nextInt(skew) == 0 ? " \"common rare\" .\n" : " \"common\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, builder.toString(),
+        Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+    }
+    writer.commit();
+    _reader = _helper.getIndexReader();
+    _searcher = new IndexSearcher(_reader);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _searcher.close();
+    _reader.close();
+    _helper.close();
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  /**
+   * The frequent term and the rare term in the same cell
+   */
+  public int timeCellConjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      bq.add(this.term("common"), SirenBooleanClause.Occur.MUST);
+      bq.add(this.term("rare"), SirenBooleanClause.Occur.MUST);
+      nHits = _searcher.search(new SirenCellQuery(bq), 10).totalHits;
+    }
+    return nHits;
+  }
+
+  /**
+   * The frequent term and the rare term in the last cell of a tuple: the
+   * matching cells of the conjunction are iterated until one satisfies the
+   * constraint.
+   */
+  public int timeConstrainedCellConjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      bq.add(this.term("common"), SirenBooleanClause.Occur.MUST);
+      bq.add(this.term("rare"), SirenBooleanClause.Occur.MUST);
+      final SirenCellQuery cq = new SirenCellQuery(bq);
+      cq.setConstraint(3);
+      nHits = _searcher.search(cq, 10).totalHits;
+    }
+    return nHits;
+  }
+
+  /**
+   * The rare predicate and the frequent object term in the same tuple
+   */
+  public int timeTupleConjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenCellQuery predicate = new SirenCellQuery(this.term(PREDICATE.substring(1, PREDICATE.length() - 1)));
+      predicate.setConstraint(1);
+      final SirenCellQuery object = new SirenCellQuery(this.term("common"));
+      object.setConstraint(2, 3);
+      final SirenTupleQuery tq = new SirenTupleQuery();
+      tq.add(object, SirenTupleClause.Occur.MUST);
+      tq.add(predicate, SirenTupleClause.Occur.MUST);
+      nHits = _searcher.search(tq, 10).totalHits;
+    }
+    return nHits;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenConjunctionBenchmark.class, args);
+  }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanClause;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenTermQuery;
+import org.sindice.siren.search.SirenTotalHitCountCollector;
+import org.sindice.siren.search.SirenTupleClause;
+import org.sindice.siren.search.SirenTupleQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure the count of the entities matching queries over high-frequency
+ * predicates, with a {@link TotalHitCountCollector} and with a
+ * {@link SirenTotalHitCountCollector}. Every entity has the predicate
+ * <code>p0</code>, and each other predicate is half as frequent as the
+ * previous one.
+ */
+public class SirenCountBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+  private IndexSearcher _searcher = null;
+
+  /** Number of entities */
+  private static final int ENTITIES = 50000;
+
+  /** Number of distinct predicates */
+  private static final int PREDICATES = 8;
+
+  /**
+   * The query to count:
+   * <ul>
+   * <li> TERM: the predicate <code>p0</code> anywhere;
+   * <li> CELL: the predicate <code>p0</code> in the predicate cell;
+   * <li> BOOLEAN: the predicate <code>p0</code> or <code>p1</code> anywhere;
+   * <li> TUPLE: a tuple with the predicate <code>p0</code> or <code>p1</code>
+   * in the predicate cell.
+   * </ul>
+   */
+  @Param({"TERM", "CELL", "BOOLEAN", "TUPLE"}) private String query;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new StandardAnalyzer(matchVersion), new AnyURIAnalyzer(matchVersion)));
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < ENTITIES; i++) {
+      final StringBuilder builder = new StringBuilder();
+      builder.append("<http://s> <").append(this.predicate(0)).append("> \"v\" .\n");
+      final int tuples = rand.nextInt(10);
+      for (int j = 0; j < tuples; j++) {
+        // p(k) with a probability of 1 / 2^k
+        int k = 0;
+        while (k < PREDICATES - 1 && rand.nextBoolean()) {
+          k++;
+        }
+        builder.append("<http://s> <").append(this.predicate(k)).append("> \"v")
+               .append(rand.nextInt(100)).append("\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, builder.toString(),
+        Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+    }
+    writer.commit();
+    _reader = _helper.getIndexReader();
+    _searcher = new IndexSearcher(_reader);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _searcher.close();
+    _reader.close();
+    _helper.close();
+  }
+
+  private String predicate(final int k) {
+    return "http://example.org/p" + k;
+  }
+
+  private SirenTermQuery term(final int k) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, this.predicate(k)));
+  }
+
+  private SirenCellQuery predicateCell(final int k) {
+    final SirenCellQuery cq = new SirenCellQuery(this.term(k));
+    cq.setConstraint(1);
+    return cq;
+  }
+
+  private Query query() {
+    if (query.equals("TERM")) {
+      return this.term(0);
+    }
+    else if (query.equals("CELL")) {
+      return this.predicateCell(0);
+    }
+    else if (query.equals("BOOLEAN")) {
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      bq.add(this.term(0), SirenBooleanClause.Occur.SHOULD);
+      bq.add(this.term(1), SirenBooleanClause.Occur.SHOULD);
+      return bq;
+    }
+    else {
+      final SirenTupleQuery tq = new SirenTupleQuery();
+      tq.add(this.predicateCell(0), SirenTupleClause.Occur.SHOULD);
+      tq.add(this.predicateCell(1), SirenTupleClause.Occur.SHOULD);
+      return tq;
+    }
+  }
+
+  /**
+   * Count with a collector unknown to the SIREn scorers
+   */
+  public int timeTotalHitCountCollector(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final TotalHitCountCollector collector = new TotalHitCountCollector();
+      this.search(collector);
+      nHits = collector.getTotalHits();
+    }
+    return nHits;
+  }
+
+  /**
+   * Count without computing the scores
+   */
+  public int timeSirenTotalHitCountCollector(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTotalHitCountCollector collector = new SirenTotalHitCountCollector();
+      this.search(collector);
+      nHits = collector.getTotalHits();
+    }
+    return nHits;
+  }
+
+  private void search(final Collector collector) throws IOException {
+    _searcher.search(this.query(), collector);
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenCountBenchmark.class, args);
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanClause;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenTermQuery;
+import org.sindice.siren.search.SirenTupleClause;
+import org.sindice.siren.search.SirenTupleQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure the disjunction of <code>clauses</code> terms, within a cell and
+ * within a tuple. The disjunction scorers keep their clauses in a
+ * {@link org.sindice.siren.util.ScorerCellQueue}.
+ */
+public class SirenDisjunctionBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+  private IndexSearcher _searcher = null;
+
+  /** Number of entities */
+  private static final int ENTITIES = 2000;
+
+  /** Number of tuples per entity */
+  private static final int TUPLES = 20;
+
+  /** Number of distinct terms */
+  private static final int VOCABULARY = 256;
+
+  /** Number of clauses of the disjunction */
+  @Param({"2", "16", "256"}) private int clauses;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnalyzer(matchVersion), new WhitespaceAnyURIAnalyzer(matchVersion)));
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < ENTITIES; i++) {
+      final StringBuilder builder = new StringBuilder();
+      for (int j = 0; j < TUPLES; j++) {
+        builder.append("<http://s> <http://p> \"");
+        builder.append("term").append(rand.nextInt(VOCABULARY)).append(' ');
+        builder.append("term").append(rand.nextInt(VOCABULARY)).append("\" \"");
+        builder.append("term").append(rand.nextInt(VOCABULARY)).append("\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, builder.toString(),
+        Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+    }
+    writer.commit();
+    _reader = _helper.getIndexReader();
+    _searcher = new IndexSearcher(_reader);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _searcher.close();
+    _reader.close();
+    _helper.close();
+  }
+
+  private SirenTermQuery term(final int i) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, "term" + i));
+  }
+
+  /**
+   * Disjunction of terms within a cell
+   */
+  public int timeCellDisjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      for (int j = 0; j < clauses; j++) {
+        bq.add(this.term(j), SirenBooleanClause.Occur.SHOULD);
+      }
+      nHits = _searcher.search(new SirenCellQuery(bq), 10).totalHits;
+    }
+    return nHits;
+  }
+
+  /**
+   * Disjunction of cells within a tuple
+   */
+  public int timeTupleDisjunction(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenTupleQuery tq = new SirenTupleQuery();
+      for (int j = 0; j < clauses; j++) {
+        tq.add(new SirenCellQuery(this.term(j)), SirenTupleClause.Occur.SHOULD);
+      }
+      nHits = _searcher.search(tq, 10).totalHits;
+    }
+    return nHits;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenDisjunctionBenchmark.class, args);
+  }
+
+}
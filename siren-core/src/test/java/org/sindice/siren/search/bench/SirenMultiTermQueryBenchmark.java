@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.AnyURIAnalyzer;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenMultiTermQuery;
+import org.sindice.siren.search.SirenPrefixQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compare the rewrite methods of a {@link SirenPrefixQuery} expanding to a
+ * large number of URIs.
+ */
+public class SirenMultiTermQueryBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private static final String PREFIX = "http://example.org/resource/";
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+  private IndexSearcher _searcher = null;
+
+  /** Number of entities, each one with a distinct URI */
+  @Param({"10000", "100000"}) private int entities;
+
+  @Param({"boolean", "filter"}) private String rewrite;
+
+  private int maxClauseCount;
+
+  @Override
+  protected void setUp() throws Exception {
+    maxClauseCount = SirenBooleanQuery.getMaxClauseCount();
+    SirenBooleanQuery.setMaxClauseCount(Integer.MAX_VALUE);
+
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnyURIAnalyzer(matchVersion), new AnyURIAnalyzer(matchVersion)));
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < entities; i++) {
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, "<" + PREFIX + i +
+        "> <http://xmlns.com/foaf/0.1/knows> <" + PREFIX + rand.nextInt(entities) +
+        "> .\n", Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+    }
+    writer.commit();
+    _reader = _helper.getIndexReader();
+    _searcher = new IndexSearcher(_reader);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    SirenBooleanQuery.setMaxClauseCount(maxClauseCount);
+    _searcher.close();
+    _reader.close();
+    _helper.close();
+  }
+
+  private SirenMultiTermQuery.RewriteMethod getRewriteMethod() {
+    return rewrite.equals("boolean") ?
+      SirenMultiTermQuery.CONSTANT_SCORE_BOOLEAN_QUERY_REWRITE :
+      SirenMultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE;
+  }
+
+  /**
+   * Prefix query matching about 10% of the URIs
+   */
+  public int timePrefixQuery(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenPrefixQuery query = new SirenPrefixQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, PREFIX + "1"));
+      query.setRewriteMethod(this.getRewriteMethod());
+      final TopDocs hits = _searcher.search(query, 10);
+      nHits = hits.totalHits;
+    }
+    return nHits;
+  }
+
+  /**
+   * Prefix query matching about 10% of the URIs in the object cell
+   */
+  public int timeCellPrefixQuery(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenPrefixQuery query = new SirenPrefixQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, PREFIX + "1"));
+      query.setRewriteMethod(this.getRewriteMethod());
+      final SirenCellQuery cq = new SirenCellQuery(query);
+      cq.setConstraint(2);
+      final TopDocs hits = _searcher.search(cq, 10);
+      nHits = hits.totalHits;
+    }
+    return nHits;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenMultiTermQueryBenchmark.class, args);
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.search.bench;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Version;
+import org.sindice.siren.analysis.TupleAnalyzer;
+import org.sindice.siren.analysis.WhitespaceAnyURIAnalyzer;
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.QueryTestingHelper;
+import org.sindice.siren.search.SirenBooleanClause;
+import org.sindice.siren.search.SirenBooleanQuery;
+import org.sindice.siren.search.SirenCellQuery;
+import org.sindice.siren.search.SirenTermQuery;
+import org.sindice.siren.search.SirenTupleClause;
+import org.sindice.siren.search.SirenTupleQuery;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Measure a tuple query searched over {@link #SEGMENTS} segments, with an
+ * executor of <code>threads</code> threads. With one thread, the segments are
+ * searched sequentially by the calling thread.
+ */
+public class SirenParallelSearchBenchmark extends SirenBenchmark {
+
+  private final Version matchVersion = Version.LUCENE_35;
+
+  private QueryTestingHelper _helper = null;
+  private IndexReader _reader = null;
+  private IndexSearcher _searcher = null;
+  private ExecutorService _executor = null;
+
+  /** Number of entities */
+  private static final int ENTITIES = 20000;
+
+  /**
+   * Number of segments, less than the merge factor of the default merge
+   * policy so that they are not merged
+   */
+  private static final int SEGMENTS = 8;
+
+  /** Number of threads searching the segments */
+  @Param({"1", "2", "4", "8"}) private int threads;
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    _helper = new QueryTestingHelper(new TupleAnalyzer(matchVersion,
+      new WhitespaceAnalyzer(matchVersion), new WhitespaceAnyURIAnalyzer(matchVersion)));
+    final IndexWriter writer = _helper.getIndexWriter();
+    for (int i = 0; i < ENTITIES; i++) {
+      final StringBuilder builder = new StringBuilder();
+      for (int j = 0; j < 20; j++) {
+        builder.append("<http://s> <http://p").append(rand.nextInt(10)).append("> \"");
+        builder.append("w").append(rand.nextInt(100)).append(" w").append(rand.nextInt(100));
+        builder.append("\" .\n");
+      }
+      final Document doc = new Document();
+      doc.add(new Field(QueryTestingHelper.DEFAULT_FIELD, builder.toString(),
+        Store.NO, Field.Index.ANALYZED));
+      writer.addDocument(doc);
+      if ((i + 1) % (ENTITIES / SEGMENTS) == 0) {
+        writer.commit();
+      }
+    }
+    writer.commit();
+    _reader = _helper.getIndexReader();
+    if (threads == 1) {
+      _searcher = new IndexSearcher(_reader);
+    }
+    else {
+      _executor = Executors.newFixedThreadPool(threads);
+      _searcher = new IndexSearcher(_reader, _executor);
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    _searcher.close();
+    if (_executor != null) {
+      _executor.shutdown();
+    }
+    _reader.close();
+    _helper.close();
+  }
+
+  private SirenTermQuery term(final String text) {
+    return new SirenTermQuery(new Term(QueryTestingHelper.DEFAULT_FIELD, text));
+  }
+
+  /**
+   * A predicate and a disjunction of words in the same tuple
+   */
+  public int timeTupleQuery(final int reps) throws IOException {
+    int nHits = 0;
+    for (int i = 0; i < reps; i++) {
+      final SirenCellQuery predicate = new SirenCellQuery(this.term("http://p3"));
+      predicate.setConstraint(1);
+      final SirenBooleanQuery bq = new SirenBooleanQuery();
+      bq.add(this.term("w1"), SirenBooleanClause.Occur.SHOULD);
+      bq.add(this.term("w2"), SirenBooleanClause.Occur.SHOULD);
+      bq.add(this.term("w3"), SirenBooleanClause.Occur.SHOULD);
+      final SirenCellQuery object = new SirenCellQuery(bq);
+      object.setConstraint(2);
+      final SirenTupleQuery tq = new SirenTupleQuery();
+      tq.add(predicate, SirenTupleClause.Occur.MUST);
+      tq.add(object, SirenTupleClause.Occur.MUST);
+      nHits = _searcher.search(tq, 10).totalHits;
+    }
+    return nHits;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(SirenParallelSearchBenchmark.class, args);
+  }
+
+}
@@ -24,14 +24,21 @@ import java.io.IOException;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.util.Version;
 import org.sindice.siren.analysis.AnyURIAnalyzer;
 import org.sindice.siren.analysis.TupleAnalyzer;
 import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.search.DocTupCelIdSetIterator;
 import org.sindice.siren.search.QueryTestingHelper;
 import org.sindice.siren.search.SirenCellQuery;
 import org.sindice.siren.search.SirenTermQuery;
@@ -43,6 +50,8 @@ import com.google.caliper.Runner;
 
 public class SirenQueryBenchmark extends SirenBenchmark {
 
+  private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
   private final Version testVersion = Version.LUCENE_35;
   
   protected QueryTestingHelper _helper = null;
@@ -122,6 +131,92 @@ public class SirenQueryBenchmark extends SirenBenchmark {
     return nHits;
   }
 
+  /**
+   * Score all the entities matching a URI with a top scorer, which reads
+   * entities and frequencies in bulk.
+   */
+  public double timeRdfTypeBulkScoring(final int reps) throws IOException {
+    final ScoreSumCollector collector = new ScoreSumCollector();
+    final IndexSearcher searcher = _helper.getSearcher();
+    for (int i = 0; i < reps; i++) {
+      final SirenTermQuery query = new SirenTermQuery(new Term("content", RDF_TYPE));
+      final Weight weight = searcher.createNormalizedWeight(query);
+      for (final IndexReader reader : searcher.getIndexReader().getSequentialSubReaders()) {
+        final Scorer scorer = weight.scorer(reader, true, true);
+        if (scorer != null) {
+          scorer.score(collector);
+        }
+      }
+    }
+    return collector.sum;
+  }
+
+  /**
+   * Score all the entities matching a URI one at a time, as a sub-scorer
+   * does.
+   */
+  public double timeRdfTypeIterativeScoring(final int reps) throws IOException {
+    double sum = 0;
+    final IndexSearcher searcher = _helper.getSearcher();
+    for (int i = 0; i < reps; i++) {
+      final SirenTermQuery query = new SirenTermQuery(new Term("content", RDF_TYPE));
+      final Weight weight = searcher.createNormalizedWeight(query);
+      for (final IndexReader reader : searcher.getIndexReader().getSequentialSubReaders()) {
+        final Scorer scorer = weight.scorer(reader, true, false);
+        if (scorer != null) {
+          while (scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            sum += scorer.score();
+          }
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Same as {@link #timeRdfTypeIterativeScoring(int)}, but request the
+   * structural information of each entity, which forces the decoding of the
+   * first position as it was done eagerly by {@link SirenTermQuery} scorers.
+   */
+  public double timeRdfTypeIterativeScoringWithPositions(final int reps) throws IOException {
+    double sum = 0;
+    final IndexSearcher searcher = _helper.getSearcher();
+    for (int i = 0; i < reps; i++) {
+      final SirenTermQuery query = new SirenTermQuery(new Term("content", RDF_TYPE));
+      final Weight weight = searcher.createNormalizedWeight(query);
+      for (final IndexReader reader : searcher.getIndexReader().getSequentialSubReaders()) {
+        final DocTupCelIdSetIterator scorer = (DocTupCelIdSetIterator) weight.scorer(reader, true, false);
+        if (scorer != null) {
+          while (scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            sum += ((Scorer) scorer).score() + scorer.cell();
+          }
+        }
+      }
+    }
+    return sum;
+  }
+
+  private static class ScoreSumCollector extends Collector {
+
+    double sum = 0;
+    private Scorer scorer;
+
+    @Override
+    public void setScorer(final Scorer scorer) { this.scorer = scorer; }
+
+    @Override
+    public void collect(final int doc) throws IOException {
+      sum += scorer.score();
+    }
+
+    @Override
+    public void setNextReader(final IndexReader reader, final int docBase) {}
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() { return true; }
+
+  }
+
   private void prepareIndex() throws CorruptIndexException, IOException {
     for (int i = 0; i < size; i++) {
       _helper.addDocument(this.readNTriplesFile(this.nextFile()));
@@ -27,7 +27,10 @@ package org.sindice.siren.util;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.HashMap;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -119,4 +122,94 @@ public class TestCSV2Tabular {
     assertEquals(expectedTuples, CSV2Tabular.convert(csv));
   }
   
+  /**
+   * Converts the lines with the streaming method
+   */
+  private String convertStream(final HashMap<Integer, String> config,
+                               final String csv, final char sep)
+  throws Exception {
+    final StringWriter out = new StringWriter();
+    CSV2Tabular.convert(config, new StringReader(csv), out, sep);
+    return out.toString();
+  }
+
+  private void assertSameConversion(final HashMap<Integer, String> config,
+                                    final String[] lines, final char sep)
+  throws Exception {
+    final StringBuilder csv = new StringBuilder();
+    for (final String line : lines) {
+      csv.append(line).append('\n');
+    }
+    final String expected = CSV2Tabular.convert(config, lines, sep);
+    assertEquals(expected, this.convertStream(config, csv.toString(), sep));
+    // with Windows line terminators
+    assertEquals(expected, this.convertStream(config,
+      csv.toString().replace("\n", "\r\n"), sep));
+    // without the last line terminator, unless the last line is empty
+    if (lines[lines.length - 1].length() != 0) {
+      assertEquals(expected, this.convertStream(config,
+        csv.substring(0, csv.length() - 1), sep));
+    }
+  }
+
+  @Test
+  public void testStreamConvert()
+  throws Exception {
+    final HashMap<Integer, String> config = new HashMap<Integer, String>();
+    config.put(0, XSDDatatype.XSD_INT);
+    config.put(1, XSDDatatype.XSD_ANY_URI);
+
+    this.assertSameConversion(null, new String[] { "tata,toto,titi", "tutu,tete,tyty" }, ',');
+    this.assertSameConversion(config, new String[] { "10,http://toto,4.5", "23,titi" }, ',');
+    this.assertSameConversion(null, new String[] { "tata:toto:titi" }, ':');
+    this.assertSameConversion(null, new String[] { "tata,,titi", ",toto,titi",
+                                                   "tata,toto,", ",," }, ',');
+    this.assertSameConversion(config, new String[] { "tata,\"toto\",titi",
+                                                     "\"tata\",toto,\"\"",
+                                                     "", "tata,toto,\"titi\""}, ',');
+    assertEquals("", this.convertStream(null, "", ','));
+  }
+
+  @Test
+  public void testStreamConvertRandom()
+  throws Exception {
+    final Random random = new Random(42);
+    final String[] pieces = { "a", "bc", ",", ",", "\"", " ", "http://x", "é" };
+    final HashMap<Integer, String> config = new HashMap<Integer, String>();
+    config.put(1, XSDDatatype.XSD_ANY_URI);
+    config.put(3, XSDDatatype.XSD_LONG);
+
+    for (int i = 0; i < 1000; i++) {
+      final String[] lines = new String[1 + random.nextInt(10)];
+      for (int j = 0; j < lines.length; j++) {
+        final StringBuilder b = new StringBuilder();
+        final int n = random.nextInt(20);
+        for (int k = 0; k < n; k++) {
+          b.append(pieces[random.nextInt(pieces.length)]);
+        }
+        // a field made of a single quote is not supported by the array conversion
+        String line = b.toString();
+        while (!line.equals(line = line.replaceAll("(^|,)\"(,|$)", "$1$2"))) {
+          // remove the fields made of a single quote
+        }
+        lines[j] = line;
+      }
+      this.assertSameConversion(config, lines, ',');
+    }
+  }
+
+  @Test
+  public void testStreamLargeInput()
+  throws Exception {
+    final String[] lines = new String[10000];
+    final StringBuilder field = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      field.append((char) ('a' + i % 26));
+    }
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = i + "," + (i % 100 == 0 ? field : "value" + i) + ",\"quoted " + i + "\"";
+    }
+    this.assertSameConversion(null, lines, ',');
+  }
+
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import org.sindice.siren.index.AbstractSirenPayload;
+import org.sindice.siren.index.VIntSirenPayload;
+
+public class TestCodecUtils {
+
+  private static final int[] VALUES = new int[] { 0, 1, 127, 128, 16383, 16384,
+    2097151, 2097152, 268435455, 268435456, Integer.MAX_VALUE };
+
+  @Test
+  public void testVInt() {
+    for (final int value : VALUES) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      output.write(42); // offset
+      CodecUtils.vIntToByteArray(value, output);
+      final byte[] bytes = output.toByteArray();
+      assertEquals(bytes.length - 1, CodecUtils.vIntSize(value));
+      assertEquals(value, CodecUtils.byteArrayToVInt(bytes, 1));
+    }
+  }
+
+  @Test
+  public void testVIntSirenPayload() {
+    final VIntSirenPayload payload = new VIntSirenPayload();
+    for (final int tuple : VALUES) {
+      for (final int cell : VALUES) {
+        final byte[] data = new VIntSirenPayload(tuple, cell).toByteArray();
+        final long values = payload.decode(data, 0, data.length);
+        assertEquals(tuple, AbstractSirenPayload.tupleID(values));
+        assertEquals(cell, AbstractSirenPayload.cellID(values));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util._TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sindice.siren.search.SirenTermQuery;
+
+public class TestNTriplesBulkIndexer extends LuceneTestCase {
+
+  private static final File DATA = new File("./src/test/resources/data/ntriples");
+
+  private Directory dir;
+  private IndexWriter writer;
+  private File tmpDir;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+    writer = new IndexWriter(dir, new IndexWriterConfig(TEST_VERSION_CURRENT,
+      NTriplesBulkIndexer.tupleAnalyzerFactory(TEST_VERSION_CURRENT).create()));
+    tmpDir = _TestUtil.getTempDir("ntriples-bulk");
+    tmpDir.mkdirs();
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    writer.close();
+    dir.close();
+    _TestUtil.rmDir(tmpDir);
+    super.tearDown();
+  }
+
+  private List<File> inputs() {
+    final File[] files = DATA.listFiles();
+    Arrays.sort(files);
+    final List<File> inputs = new ArrayList<File>();
+    for (final File file : files) {
+      if (file.getName().endsWith(".nt")) {
+        inputs.add(file);
+      }
+    }
+    return inputs;
+  }
+
+  /**
+   * Returns the distinct subjects of the files
+   */
+  private Set<String> subjects(final List<File> inputs) throws Exception {
+    final Set<String> subjects = new HashSet<String>();
+    for (final File input : inputs) {
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF-8"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          line = line.trim();
+          if (line.length() != 0 && line.charAt(0) != '#') {
+            subjects.add(line.substring(0, line.indexOf(' ')));
+          }
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    return subjects;
+  }
+
+  private NTriplesBulkIndexer newIndexer() {
+    final NTriplesBulkIndexer indexer = new NTriplesBulkIndexer(writer, "content",
+      NTriplesBulkIndexer.tupleAnalyzerFactory(TEST_VERSION_CURRENT));
+    indexer.setNumThreads(2);
+    indexer.setTmpDir(tmpDir);
+    indexer.setMaxBufferChars(64 * 1024); // forces several runs
+    return indexer;
+  }
+
+  @Test
+  public void testIndexTestData() throws Exception {
+    final List<File> inputs = this.inputs();
+    final Set<String> subjects = this.subjects(inputs);
+
+    final NTriplesBulkIndexer indexer = this.newIndexer();
+    indexer.index(inputs);
+    writer.commit();
+
+    assertEquals(subjects.size(), indexer.getNumEntities());
+    assertTrue(indexer.getNumTriples() > 0);
+    assertEquals(0, tmpDir.list().length);
+
+    final IndexReader reader = IndexReader.open(dir);
+    try {
+      assertEquals(subjects.size(), reader.maxDoc());
+      final IndexSearcher searcher = new IndexSearcher(reader);
+      // one entity per subject
+      assertEquals(1, searcher.search(new TermQuery(new Term(NTriplesBulkIndexer.SUBJECT_FIELD,
+        "<http://dbpedia.org/resource/Galway>")), 10).totalHits);
+      assertTrue(searcher.search(new SirenTermQuery(new Term("content", "galway")), 10).totalHits > 0);
+      searcher.close();
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testGzipInput() throws Exception {
+    final File input = new File(DATA, "galway.nt");
+    final File gz = new File(tmpDir, "galway.nt.gz");
+    final OutputStream out = new GZIPOutputStream(new FileOutputStream(gz));
+    try {
+      out.write(FileUtils.readFileToByteArray(input));
+    }
+    finally {
+      out.close();
+    }
+
+    final NTriplesBulkIndexer plain = this.newIndexer();
+    plain.index(Arrays.asList(input));
+    final NTriplesBulkIndexer gzipped = this.newIndexer();
+    gzipped.index(Arrays.asList(gz));
+
+    assertEquals(plain.getNumTriples(), gzipped.getNumTriples());
+    assertEquals(plain.getNumEntities(), gzipped.getNumEntities());
+    assertEquals(this.subjects(Arrays.asList(input)).size(), gzipped.getNumEntities());
+    writer.commit();
+    assertEquals(2 * plain.getNumEntities(), writer.maxDoc());
+  }
+
+  /**
+   * The indexing threads are interrupted, and terminate, while more entities
+   * than the size of the queue remain to be indexed: the reading thread must
+   * not block on the full queue.
+   */
+  @Test(timeout=60000)
+  public void testInterruptedIndexers() throws Exception {
+    final File input = new File(tmpDir, "subjects.nt");
+    final Writer out = new OutputStreamWriter(new FileOutputStream(input), "UTF-8");
+    try {
+      for (int i = 0; i < 5000; i++) {
+        out.write("<http://example.org/s" + i + "> <http://example.org/p> \"o\" .\n");
+      }
+    }
+    finally {
+      out.close();
+    }
+
+    final NTriplesBulkIndexer indexer = new NTriplesBulkIndexer(writer, "content",
+      new NTriplesBulkIndexer.AnalyzerFactory() {
+        public Analyzer create() {
+          return new Analyzer() {
+            @Override
+            public TokenStream tokenStream(final String fieldName, final Reader reader) {
+              Thread.currentThread().interrupt();
+              throw new IllegalStateException("interrupted");
+            }
+          };
+        }
+      });
+    indexer.setNumThreads(2);
+    indexer.setTmpDir(tmpDir);
+    try {
+      indexer.index(Arrays.asList(input));
+      fail("Expected an IOException");
+    }
+    catch (final IOException e) {
+      assertNotNull(e.getCause());
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidNumThreads() throws Exception {
+    this.newIndexer().setNumThreads(0);
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util._TestUtil;
+import org.junit.Test;
+
+public class TestNTriplesSorter extends LuceneTestCase {
+
+  private List<String> sort(final NTriplesSorter sorter, final List<String> lines)
+  throws Exception {
+    try {
+      for (final String line : lines) {
+        sorter.add(line);
+      }
+      final NTriplesSorter.LineIterator it = sorter.finish();
+      final List<String> sorted = new ArrayList<String>();
+      String line;
+      while ((line = it.next()) != null) {
+        sorted.add(line);
+      }
+      return sorted;
+    }
+    finally {
+      sorter.close();
+    }
+  }
+
+  private List<String> randomLines(final int n) {
+    final List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < n; i++) {
+      lines.add("<http://s/" + random.nextInt(n / 4 + 1) + "> <http://p/" +
+        random.nextInt(5) + "> \"" + _TestUtil.randomUnicodeString(random, 10)
+        .replace('\n', ' ').replace('\r', ' ') + "\" .");
+    }
+    return lines;
+  }
+
+  @Test
+  public void testInMemory() throws Exception {
+    final List<String> lines = this.randomLines(500);
+    final NTriplesSorter sorter = new NTriplesSorter();
+    final List<String> sorted = this.sort(sorter, lines);
+    assertEquals(0, sorter.numRuns());
+    assertEquals(new ArrayList<String>(new TreeSet<String>(lines)), sorted);
+  }
+
+  @Test
+  public void testExternalSort() throws Exception {
+    final List<String> lines = this.randomLines(2000);
+    // duplicate a few lines across the runs
+    lines.addAll(lines.subList(0, 100));
+    Collections.shuffle(lines, random);
+
+    final File tmpDir = _TestUtil.getTempDir("ntriples-sorter");
+    tmpDir.mkdirs();
+    final NTriplesSorter sorter = new NTriplesSorter(tmpDir, 4096);
+    final List<String> sorted = this.sort(sorter, lines);
+    assertEquals(new ArrayList<String>(new TreeSet<String>(lines)), sorted);
+    // the runs are deleted once the sorter is closed
+    assertEquals(0, tmpDir.list().length);
+    _TestUtil.rmDir(tmpDir);
+  }
+
+  @Test
+  public void testMultiPassMerge() throws Exception {
+    final List<String> lines = this.randomLines(2000);
+    lines.addAll(lines.subList(0, 100));
+    Collections.shuffle(lines, random);
+
+    final File tmpDir = _TestUtil.getTempDir("ntriples-sorter");
+    tmpDir.mkdirs();
+    final NTriplesSorter sorter = new NTriplesSorter(tmpDir, 2048, 3);
+    try {
+      for (final String line : lines) {
+        sorter.add(line);
+      }
+      assertTrue(sorter.numRuns() > 9);
+      final NTriplesSorter.LineIterator it = sorter.finish();
+      // the runs were merged into intermediate runs, deleted once merged
+      assertTrue(sorter.numRuns() <= 3);
+      assertEquals(sorter.numRuns(), tmpDir.list().length);
+      final List<String> sorted = new ArrayList<String>();
+      String line;
+      while ((line = it.next()) != null) {
+        sorted.add(line);
+      }
+      assertEquals(new ArrayList<String>(new TreeSet<String>(lines)), sorted);
+    }
+    finally {
+      sorter.close();
+    }
+    assertEquals(0, tmpDir.list().length);
+    _TestUtil.rmDir(tmpDir);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidMaxMergeRuns() throws Exception {
+    new NTriplesSorter(null, 4096, 1);
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertTrue(this.sort(new NTriplesSorter(), new ArrayList<String>()).isEmpty());
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidBufferSize() throws Exception {
+    new NTriplesSorter(null, 0);
+  }
+
+}
@@ -253,6 +253,37 @@ extends AbstractTestSirenScorer {
     assertSame(s2, q.top());
   }
 
+  @Test
+  public void testPopAndPut() throws CorruptIndexException, IOException {
+    _helper.addDocument("\"term3\" . ");
+    _helper.addDocument("\"term1\" . \"term5\" . ");
+    _helper.addDocument("\"term4\" . \"term2\" . ");
+    _helper.addDocument("\"term2\" . ");
+
+    final SirenScorer s1 = this.getPositionedTermScorer("term1");
+    final SirenScorer s2 = this.getPositionedTermScorer("term2");
+    final SirenScorer s3 = this.getPositionedTermScorer("term3");
+    final SirenScorer s4 = this.getPositionedTermScorer("term4");
+    final SirenScorer s5 = this.getPositionedTermScorer("term5");
+
+    final ScorerCellQueue q = new ScorerCellQueue(3);
+    q.put(s2);
+    q.put(s1);
+    q.put(s3);
+    assertSame(s3, q.pop());
+    assertSame(s1, q.pop());
+    // the queue is not full anymore, slots of the popped scorers are reused
+    q.put(s5);
+    q.put(s4);
+    assertEquals(3, q.size());
+    assertSame(s5, q.pop());
+    assertSame(s4, q.top());
+    assertEquals(0, q.topTuple());
+    assertSame(s4, q.pop());
+    assertSame(s2, q.pop());
+    assertEquals(0, q.size());
+  }
+
   @Override
   protected void assertTo(final AssertFunctor functor, final String[] input,
                           final String[] terms, final int expectedNumDocs,
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.util.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.HashMap;
+
+import org.sindice.siren.bench.SirenBenchmark;
+import org.sindice.siren.util.CSV2Tabular;
+import org.sindice.siren.util.XSDDatatype;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+
+/**
+ * Compares the conversion of a generated CSV with
+ * {@link CSV2Tabular#convert(HashMap, String[], char)} and with the streaming
+ * {@link CSV2Tabular#convert(java.util.Map, java.io.Reader, Writer, char)}.
+ */
+public class CSV2TabularBenchmark extends SirenBenchmark {
+
+  @Param({"10000", "100000"}) private int size;
+
+  private final HashMap<Integer, String> config = new HashMap<Integer, String>();
+  private String[] lines;
+  private String csv;
+
+  /** Counts the characters written */
+  private static class CountingWriter extends Writer {
+    long count = 0;
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) {
+      count += len;
+    }
+    @Override
+    public void flush() {}
+    @Override
+    public void close() {}
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    rand.setSeed(42);
+    config.put(0, XSDDatatype.XSD_INT);
+    config.put(1, XSDDatatype.XSD_ANY_URI);
+    config.put(3, XSDDatatype.XSD_DOUBLE);
+
+    lines = new String[size];
+    final StringBuilder b = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      lines[i] = i + ",http://example.org/resource/" + rand.nextInt(size) +
+                 ",\"some text " + rand.nextInt() + "\"," + rand.nextDouble();
+      b.append(lines[i]).append('\n');
+    }
+    csv = b.toString();
+  }
+
+  public long timeArrayConvert(final int reps) {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      counter += CSV2Tabular.convert(config, lines, ',').length();
+    }
+    return counter;
+  }
+
+  public long timeStreamConvert(final int reps) throws IOException {
+    long counter = 0;
+    for (int i = 0; i < reps; i++) {
+      final CountingWriter out = new CountingWriter();
+      CSV2Tabular.convert(config, new StringReader(csv), out, ',');
+      counter += out.count;
+    }
+    return counter;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Runner.main(CSV2TabularBenchmark.class, args);
+  }
+
+}
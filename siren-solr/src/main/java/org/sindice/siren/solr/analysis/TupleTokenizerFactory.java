@@ -36,8 +36,12 @@ public class TupleTokenizerFactory extends BaseTokenizerFactory {
 
   public static final String MAXLENGTH_KEY = "maxLength";
 
+  public static final String SCANNER_KEY = "scanner";
+
   private int maxLength = 0;
 
+  private TupleTokenizer.ScannerType scannerType = TupleTokenizer.ScannerType.JFLEX;
+
 	@Override
 	public void init(final Map<String,String> args) {
 	  super.init(args);
@@ -45,11 +49,16 @@ public class TupleTokenizerFactory extends BaseTokenizerFactory {
 	  // load maxLength param
 	  final String maxArg = args.get(MAXLENGTH_KEY);
 	  maxLength = (maxArg != null ? Integer.parseInt(maxArg) : Integer.MAX_VALUE);
+	  // load scanner param, i.e., jflex or ntriples
+	  final String scannerArg = args.get(SCANNER_KEY);
+	  if (scannerArg != null) {
+	    scannerType = TupleTokenizer.ScannerType.valueOf(scannerArg.toUpperCase());
+	  }
 	}
 
 	@Override
 	public TupleTokenizer create(final Reader input) {
-		return new TupleTokenizer(input, maxLength);
+		return new TupleTokenizer(input, maxLength, scannerType);
 	}
 
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.solr.analysis;
+
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.solr.analysis.BaseTokenFilterFactory;
+import org.sindice.siren.analysis.AnyURIAnalyzer.URINormalisation;
+import org.sindice.siren.analysis.filter.URIExpansionFilter;
+import org.sindice.siren.analysis.filter.URILocalnameFilter;
+
+/**
+ * Factory of {@link URIExpansionFilter}, which replaces in a single filter the
+ * chain:
+ * <pre>
+ * &lt;filter class="org.sindice.siren.solr.analysis.URIEncodingFilterFactory"/&gt;
+ * &lt;filter class="org.sindice.siren.solr.analysis.URITrailingSlashFilterFactory" checkType="false"/&gt;
+ * &lt;filter class="org.sindice.siren.solr.analysis.URILocalnameFilterFactory"/&gt;
+ * &lt;filter class="org.sindice.siren.solr.analysis.MailtoFilterFactory"/&gt;
+ * </pre>
+ * The arguments are:
+ * <ul>
+ * <li> {@value #NORMALISATION_KEY}: none, localname or full. Default to
+ * localname;
+ * <li> {@value #MAXLENGTH_KEY}: the maximum length of a tokenised localname.
+ * Default to {@link URILocalnameFilter#DEFAULT_MAX_LENGTH};
+ * <li> {@value #ENCODING_KEY}: the encoding of the URIs, or "none" to not
+ * decode them. Default to {@link URIExpansionFilter#DEFAULT_ENCODING};
+ * <li> {@value #TRAILINGSLASH_KEY}: whether the trailing slash is removed.
+ * Default to true;
+ * <li> {@value #TRAILINGSLASHFIRST_KEY}: whether the trailing slash is removed
+ * before the localname is extracted. Default to true, as in the chain above;
+ * <li> {@value #MAILTO_KEY}: whether the mailto URIs are expanded. Default to
+ * true.
+ * </ul>
+ */
+public class URIExpansionFilterFactory
+extends BaseTokenFilterFactory {
+
+  public static final String NORMALISATION_KEY = "normalisation";
+  public static final String MAXLENGTH_KEY = "maxLength";
+  public static final String ENCODING_KEY = "encoding";
+  public static final String TRAILINGSLASH_KEY = "trailingSlash";
+  public static final String TRAILINGSLASHFIRST_KEY = "trailingSlashFirst";
+  public static final String MAILTO_KEY = "mailto";
+
+  private URINormalisation normalisation = URINormalisation.LOCALNAME;
+  private int maxLength = URILocalnameFilter.DEFAULT_MAX_LENGTH;
+  private String encoding = URIExpansionFilter.DEFAULT_ENCODING;
+  private boolean trailingSlash = true;
+  private boolean trailingSlashFirst = true;
+  private boolean mailto = true;
+
+  @Override
+  public void init(final Map<String,String> args) {
+   super.init(args);
+   this.assureMatchVersion();
+   String arg = args.get(NORMALISATION_KEY);
+   if (arg != null) {
+     normalisation = URINormalisation.valueOf(arg.toUpperCase());
+   }
+   arg = args.get(MAXLENGTH_KEY);
+   maxLength = (arg != null ? Integer.parseInt(arg) : URILocalnameFilter.DEFAULT_MAX_LENGTH);
+   arg = args.get(ENCODING_KEY);
+   if (arg != null) {
+     encoding = arg.equalsIgnoreCase("none") ? null : arg;
+   }
+   arg = args.get(TRAILINGSLASH_KEY);
+   trailingSlash = (arg != null ? Boolean.parseBoolean(arg) : true);
+   arg = args.get(TRAILINGSLASHFIRST_KEY);
+   trailingSlashFirst = (arg != null ? Boolean.parseBoolean(arg) : true);
+   arg = args.get(MAILTO_KEY);
+   mailto = (arg != null ? Boolean.parseBoolean(arg) : true);
+  }
+
+  @Override
+  public TokenStream create(final TokenStream input) {
+    final URIExpansionFilter filter = new URIExpansionFilter(input, normalisation);
+    filter.setEncoding(encoding);
+    filter.setMaxLength(maxLength);
+    filter.setRemoveTrailingSlash(trailingSlash);
+    filter.setTrailingSlashFirst(trailingSlashFirst);
+    filter.setMailto(mailto);
+    return filter;
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2009-2011 National University of Ireland, Galway. All Rights Reserved.
+ *
+ * Project and contact information: http://www.siren.sindice.com/
+ *
+ * This file is part of the SIREn project.
+ *
+ * SIREn is a free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SIREn is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with SIREn. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sindice.siren.solr.analysis;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.junit.Test;
+import org.sindice.siren.analysis.TupleTokenizer;
+
+public class TestURIExpansionFilterFactory
+extends BaseSirenStreamTestCase {
+
+  @Test
+  public void testURIExpansionFilterFactory() throws Exception {
+    final Map<String,String> args = this.getDefaultInitArgs();
+    final URIExpansionFilterFactory factory = new URIExpansionFilterFactory();
+    factory.init(args);
+
+    Reader reader = new StringReader("<http://test/anotherLocalname/> <http://test/a%20b> . ");
+    TokenStream stream = factory.create(new TupleTokenizer(reader,
+      Integer.MAX_VALUE));
+    this.assertTokenStreamContents(stream,
+        new String[] { "another", "Localname", "anotherLocalname",
+                       "http://test/anotherLocalname", "20b", "a%20b",
+                       "http://test/a%20b", "a+b", "http://test/a+b", "." });
+
+    reader = new StringReader("<mailto:stephane.campinas@deri.org>");
+    stream = factory.create(new TupleTokenizer(reader, Integer.MAX_VALUE));
+    this.assertTokenStreamContents(stream, new String[] {
+      "stephane.campinas@deri.org", "mailto:stephane.campinas@deri.org" });
+  }
+
+  @Test
+  public void testArguments() throws Exception {
+    final Map<String,String> args = this.getDefaultInitArgs();
+    args.put(URIExpansionFilterFactory.NORMALISATION_KEY, "none");
+    args.put(URIExpansionFilterFactory.ENCODING_KEY, "none");
+    args.put(URIExpansionFilterFactory.MAILTO_KEY, "false");
+    final URIExpansionFilterFactory factory = new URIExpansionFilterFactory();
+    factory.init(args);
+
+    final Reader reader = new StringReader("<http://test/a%20b/> <mailto:a@b.c>");
+    final TokenStream stream = factory.create(new TupleTokenizer(reader,
+      Integer.MAX_VALUE));
+    this.assertTokenStreamContents(stream,
+        new String[] { "http://test/a%20b", "mailto:a@b.c" });
+  }
+
+  @Test
+  public void testMaxLength() throws Exception {
+    final Map<String,String> args = this.getDefaultInitArgs();
+    args.put(URIExpansionFilterFactory.MAXLENGTH_KEY, "8");
+    final URIExpansionFilterFactory factory = new URIExpansionFilterFactory();
+    factory.init(args);
+
+    final Reader reader = new StringReader("<http://test/anotherLocalname> . ");
+    final TokenStream stream = factory.create(new TupleTokenizer(reader,
+      Integer.MAX_VALUE));
+    this.assertTokenStreamContents(stream,
+        new String[] { "anotherLocalname", "http://test/anotherLocalname", "." });
+  }
+
+}